@@ -24,6 +24,7 @@
  */
 package org.graalvm.visualvm.jfr.streaming;
 
+import org.graalvm.visualvm.jfr.streaming.dashboard.DashboardViewPluginProvider;
 import org.graalvm.visualvm.jfr.streaming.network.NetworkViewPluginProvider;
 import org.openide.modules.ModuleInstall;
 
@@ -32,6 +33,7 @@ public class Installer extends ModuleInstall {
     @Override
     public void restored() {
         NetworkViewPluginProvider.initialize();
+        DashboardViewPluginProvider.initialize();
     }
 
 }
@@ -48,17 +48,22 @@ public class JFRStream {
     private final RemoteRecordingStream rs;
 
     public static JFRStream getFor(Application app) throws IOException {
+        if (isSupported(app)) {
+            return new JFRStream(JmxModelFactory.getJmxModelFor(app));
+        }
+        return null;
+    }
+
+    public static boolean isSupported(Application app) {
         Jvm jvm = JvmFactory.getJVMFor(app);
         String ver = jvm.getJavaVersion();
         if (isJavaVersion(ver, "17") || isJavaVersion(ver, "18") 
          || isJavaVersion(ver, "19") || isJavaVersion(ver, "20")
          || isJavaVersion(ver, "21")) {
             JmxModel jmxModel = JmxModelFactory.getJmxModelFor(app);
-            if (jmxModel != null && jmxModel.getConnectionState() == JmxModel.ConnectionState.CONNECTED) {
-                return new JFRStream(jmxModel);
-            }
+            return jmxModel != null && jmxModel.getConnectionState() == JmxModel.ConnectionState.CONNECTED;
         }
-        return null;
+        return false;
     }
 
     private JFRStream(JmxModel jmx) throws IOException {
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2022, 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.streaming;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import jdk.jfr.consumer.RecordedEvent;
+
+/**
+ * Aggregates events of a {@link JFRStream} into fixed-size time windows.
+ * Events are aggregated on the stream dispatch thread as they arrive, closed
+ * windows are delivered to the listeners in the event dispatch thread.
+ *
+ * At most one closed window waits for delivery, the windows closed before the
+ * listeners processed it are merged into it. Memory use is thus bounded by the
+ * number of series and the capacity of top-N tables, regardless of the event
+ * rate, the duration of the stream or the speed of the listeners.
+ *
+ * @author Tomas Hurka
+ */
+public final class JFRStreamPipeline {
+
+    private static final Logger LOGGER = Logger.getLogger(JFRStreamPipeline.class.getName());
+
+    private final JFRStream stream;
+    private final long windowSize;
+    private final int seriesCount;
+    private final int tablesCount;
+    private final int topCapacity;
+    private final List<Listener> listeners;
+
+    // accessed from the stream dispatch thread only
+    private JFRStreamWindow current;
+
+    // guarded by this
+    private JFRStreamWindow pending;
+
+    private volatile boolean closed;
+
+    public JFRStreamPipeline(JFRStream stream, Duration windowSize, int seriesCount, int tablesCount, int topCapacity) {
+        this.stream = stream;
+        this.windowSize = Math.max(windowSize.toMillis(), 1);
+        this.seriesCount = seriesCount;
+        this.tablesCount = tablesCount;
+        this.topCapacity = topCapacity;
+        listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Enables the event type in the stream and registers its aggregator.
+     * Must be called before {@link #start()}.
+     */
+    public JFRStream.JFREventSettings subscribe(String eventName, Aggregator aggregator) {
+        JFRStream.JFREventSettings settings = stream.enable(eventName);
+        stream.onEvent(eventName, (RecordedEvent e) -> {
+            try {
+                aggregator.aggregate(e, getWindow());
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.FINE, "Failed to aggregate " + eventName, ex);  // NOI18N
+            }
+        });
+        return settings;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void start() {
+        current = newWindow(System.currentTimeMillis());
+        stream.onFlush(this::getWindow);
+        stream.startAsync();
+    }
+
+    public void close() {
+        closed = true;
+        listeners.clear();
+        stream.close();
+    }
+
+    // Returns the current window, closes it first if it already expired
+    private JFRStreamWindow getWindow() {
+        long time = System.currentTimeMillis();
+        if (time - current.getStartTime() >= windowSize) {
+            JFRStreamWindow window = current;
+            window.close(time);
+            current = newWindow(time);
+            publish(window);
+        }
+        return current;
+    }
+
+    private JFRStreamWindow newWindow(long time) {
+        return new JFRStreamWindow(time, seriesCount, tablesCount, topCapacity);
+    }
+
+    private void publish(JFRStreamWindow window) {
+        synchronized (this) {
+            if (pending != null) {
+                // listeners are behind, summarize instead of queueing
+                pending.merge(window);
+                return;
+            }
+            pending = window;
+        }
+        SwingUtilities.invokeLater(this::deliver);
+    }
+
+    private void deliver() {
+        JFRStreamWindow window;
+        synchronized (this) {
+            window = pending;
+            pending = null;
+        }
+        if (closed) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.windowClosed(window);
+        }
+    }
+
+    public interface Aggregator {
+
+        /**
+         * Adds the event to the window, invoked in the stream dispatch thread.
+         */
+        void aggregate(RecordedEvent event, JFRStreamWindow window);
+    }
+
+    public interface Listener {
+
+        /**
+         * Invoked in the event dispatch thread for each closed window.
+         */
+        void windowClosed(JFRStreamWindow window);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2022, 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.streaming;
+
+/**
+ * Aggregated values of the events received during a time window. Values are
+ * collected into series identified by index, each keeping sum, maximum and
+ * count of the values, and into top-N tables identified by index.
+ *
+ * Windows are filled on the stream dispatch thread, a window passed to
+ * {@link JFRStreamPipeline.Listener} is closed and must not be modified.
+ *
+ * @author Tomas Hurka
+ */
+public final class JFRStreamWindow {
+
+    private final long startTime;
+    private long endTime;
+    private int windowsCount;
+
+    private final long[] sums;
+    private final long[] maximums;
+    private final long[] counts;
+    private final JFRTopN[] tops;
+
+    JFRStreamWindow(long startTime, int seriesCount, int tablesCount, int topCapacity) {
+        this.startTime = startTime;
+        endTime = -1;
+        windowsCount = 1;
+        sums = new long[seriesCount];
+        maximums = new long[seriesCount];
+        counts = new long[seriesCount];
+        tops = new JFRTopN[tablesCount];
+        for (int i = 0; i < tablesCount; i++) {
+            tops[i] = new JFRTopN(topCapacity);
+        }
+    }
+
+    public void add(int series, long value) {
+        sums[series] += value;
+        if (counts[series]++ == 0 || value > maximums[series]) {
+            maximums[series] = value;
+        }
+    }
+
+    public void addTop(int table, String key, long value) {
+        tops[table].add(key, value);
+    }
+
+    /**
+     * Returns start of the window in milliseconds.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns end of the window in milliseconds.
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getDuration() {
+        return endTime - startTime;
+    }
+
+    /**
+     * Returns number of windows summarized by this window. More windows are
+     * merged into one if the listeners did not keep up with the stream.
+     */
+    public int getWindowsCount() {
+        return windowsCount;
+    }
+
+    public long getSum(int series) {
+        return sums[series];
+    }
+
+    public long getMaximum(int series) {
+        return maximums[series];
+    }
+
+    public long getCount(int series) {
+        return counts[series];
+    }
+
+    public long getAverage(int series) {
+        return counts[series] == 0 ? 0 : sums[series] / counts[series];
+    }
+
+    /**
+     * Returns sum of the series values per second of the window.
+     */
+    public long getRate(int series) {
+        long duration = getDuration();
+        return duration <= 0 ? 0 : sums[series] * 1000 / duration;
+    }
+
+    public JFRTopN getTop(int table) {
+        return tops[table];
+    }
+
+    void close(long time) {
+        endTime = time;
+    }
+
+    void merge(JFRStreamWindow window) {
+        endTime = window.endTime;
+        windowsCount += window.windowsCount;
+        for (int i = 0; i < sums.length; i++) {
+            if (window.counts[i] > 0) {
+                if (counts[i] == 0 || window.maximums[i] > maximums[i]) {
+                    maximums[i] = window.maximums[i];
+                }
+                sums[i] += window.sums[i];
+                counts[i] += window.counts[i];
+            }
+        }
+        for (int i = 0; i < tops.length; i++) {
+            tops[i].merge(window.tops[i]);
+        }
+    }
+}
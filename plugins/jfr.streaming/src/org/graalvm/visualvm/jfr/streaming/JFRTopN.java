@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2022, 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.streaming;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded summary of the keys with the highest values in an event stream.
+ * At most capacity keys are tracked, when full a new key replaces the key with
+ * the lowest value and inherits its value (Space-Saving algorithm). Values of
+ * such keys may be overestimated by at most the inherited value, the keys with
+ * high values are always tracked.
+ *
+ * @author Tomas Hurka
+ */
+public final class JFRTopN {
+
+    private final int capacity;
+    // binary min-heap of the tracked keys, indexes of the keys in the heap
+    private final String[] keys;
+    private final long[] values;
+    private final Map<String, Integer> indexes;
+    private int size;
+    private long total;
+
+    public JFRTopN(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);    // NOI18N
+        }
+        this.capacity = capacity;
+        keys = new String[capacity];
+        values = new long[capacity];
+        indexes = new HashMap<>();
+    }
+
+    public void add(String key, long value) {
+        total += value;
+        Integer index = indexes.get(key);
+        if (index != null) {
+            values[index] += value;
+            update(index, value);
+        } else if (size < capacity) {
+            keys[size] = key;
+            values[size] = value;
+            indexes.put(key, size);
+            siftUp(size++);
+        } else {
+            // replace the minimum, the new key inherits its value
+            indexes.remove(keys[0]);
+            keys[0] = key;
+            values[0] += value;
+            indexes.put(key, 0);
+            update(0, value);
+        }
+    }
+
+    public void merge(JFRTopN topN) {
+        for (int i = 0; i < topN.size; i++) {
+            add(topN.keys[i], topN.values[i]);
+        }
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<Entry> getTop(int count) {
+        List<Entry> top = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            top.add(new Entry(keys[i], values[i]));
+        }
+        top.sort((e1, e2) -> Long.compare(e2.value, e1.value));
+        return count < top.size() ? new ArrayList<>(top.subList(0, count)) : top;
+    }
+
+    private void update(int index, long change) {
+        if (change < 0) {
+            siftUp(index);
+        } else {
+            siftDown(index);
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (values[parent] <= values[index]) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && values[child + 1] < values[child]) {
+                child++;
+            }
+            if (values[index] <= values[child]) {
+                break;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int index1, int index2) {
+        String key = keys[index1];
+        long value = values[index1];
+        keys[index1] = keys[index2];
+        values[index1] = values[index2];
+        keys[index2] = key;
+        values[index2] = value;
+        indexes.put(keys[index1], index1);
+        indexes.put(keys[index2], index2);
+    }
+
+    public static final class Entry {
+
+        private final String key;
+        private final long value;
+
+        private Entry(String key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getValue() {
+            return value;
+        }
+    }
+}
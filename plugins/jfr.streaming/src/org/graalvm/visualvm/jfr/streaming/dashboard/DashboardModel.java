@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2022, 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.streaming.dashboard;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import org.graalvm.visualvm.application.Application;
+import org.graalvm.visualvm.core.datasource.DataSource;
+import org.graalvm.visualvm.core.options.GlobalPreferences;
+import org.graalvm.visualvm.jfr.streaming.JFRStream;
+import org.graalvm.visualvm.jfr.streaming.JFRStreamPipeline;
+import org.graalvm.visualvm.jfr.streaming.JFRStreamWindow;
+import org.graalvm.visualvm.jfr.streaming.JFRTopN;
+import org.graalvm.visualvm.lib.jfluid.utils.StringUtils;
+
+/**
+ *
+ * @author Tomas Hurka
+ */
+final class DashboardModel {
+
+    private static final Logger LOGGER = Logger.getLogger(DashboardModel.class.getName());
+
+    static final String JFR_CPU_LOAD = "jdk.CPULoad"; // NOI18N
+    static final String JFR_GARBAGE_COLLECTION = "jdk.GarbageCollection"; // NOI18N
+    static final String JFR_OBJECT_ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample"; // NOI18N
+    static final String JFR_JAVA_MONITOR_ENTER = "jdk.JavaMonitorEnter"; // NOI18N
+
+    // Comma separated list of the event types to be streamed, all by default
+    private static final String EVENTS = System.getProperty("visualvm.jfr.streaming.dashboard.events", // NOI18N
+            JFR_CPU_LOAD + "," + JFR_GARBAGE_COLLECTION + "," + JFR_OBJECT_ALLOCATION_SAMPLE + "," + JFR_JAVA_MONITOR_ENTER); // NOI18N
+
+    // Number of most recent windows summarized by the top-N tables
+    private static final int TOP_WINDOWS = Integer.getInteger("visualvm.jfr.streaming.dashboard.topWindows", 60); // NOI18N
+    // Number of keys tracked by the top-N tables of each window
+    private static final int TOP_CAPACITY = Integer.getInteger("visualvm.jfr.streaming.dashboard.topCapacity", 256); // NOI18N
+
+    static final int TOP_COUNT = 20;
+
+    private static final Duration MONITOR_ENTER_THRESHOLD = Duration.ofMillis(10);
+    private static final String ALLOCATION_THROTTLE = "150/s"; // NOI18N
+
+    private static final int SERIES_JVM_CPU = 0;
+    private static final int SERIES_MACHINE_CPU = 1;
+    private static final int SERIES_GC_PAUSE = 2;
+    private static final int SERIES_ALLOCATION = 3;
+    private static final int SERIES_CONTENTION = 4;
+    private static final int SERIES_COUNT = 5;
+
+    private static final int TABLE_ALLOCATION = 0;
+    private static final int TABLE_CONTENTION = 1;
+    private static final int TABLE_COUNT = 2;
+
+    private boolean initialized;
+    private final Application source;
+    private final Set<String> events;
+    private JFRStreamPipeline pipeline;
+    private boolean live;
+
+    private final List<ChangeListener> listeners;
+    private int chartCache = -1;
+
+    private long timestamp = -1;
+    private long jvmCpu = -1;
+    private long machineCpu = -1;
+    private long gcPauseRate = -1;
+    private long gcLongestPause = -1;
+    private long gcCount = -1;
+    private long allocationRate = -1;
+    private long contentionRate = -1;
+    private long contentionCount = -1;
+
+    private final Deque<JFRStreamWindow> topWindows;
+    private List<JFRTopN.Entry> topAllocations = Collections.emptyList();
+    private List<JFRTopN.Entry> topContentions = Collections.emptyList();
+
+    static DashboardModel create(Application app) {
+        return new DashboardModel(app);
+    }
+
+    static Set<String> getEnabledEvents() {
+        Set<String> events = new LinkedHashSet<>();
+        for (String event : EVENTS.split(",")) { // NOI18N
+            event = event.trim();
+            if (!event.isEmpty()) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    DataSource getSource() {
+        return source;
+    }
+
+    boolean isLive() {
+        return live;
+    }
+
+    boolean isEnabled(String event) {
+        return events.contains(event);
+    }
+
+    int getChartCache() {
+        return chartCache;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    /** JVM CPU load in per mille. */
+    long getJvmCpu() {
+        return jvmCpu;
+    }
+
+    /** Machine CPU load in per mille. */
+    long getMachineCpu() {
+        return machineCpu;
+    }
+
+    /** GC pause time in microseconds per second. */
+    long getGcPauseRate() {
+        return gcPauseRate;
+    }
+
+    /** Longest GC pause in microseconds. */
+    long getGcLongestPause() {
+        return gcLongestPause;
+    }
+
+    long getGcCount() {
+        return gcCount;
+    }
+
+    /** Sampled allocations in bytes per second. */
+    long getAllocationRate() {
+        return allocationRate;
+    }
+
+    /** Time blocked on contended monitors in microseconds per second. */
+    long getContentionRate() {
+        return contentionRate;
+    }
+
+    long getContentionCount() {
+        return contentionCount;
+    }
+
+    List<JFRTopN.Entry> getTopAllocations() {
+        return topAllocations;
+    }
+
+    List<JFRTopN.Entry> getTopContentions() {
+        return topContentions;
+    }
+
+    synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        try {
+            JFRStream jfr = JFRStream.getFor(source);
+            if (jfr != null) {
+                initialize(jfr);
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.INFO, "Failed to open JFR stream", ex); // NOI18N
+        }
+    }
+
+    synchronized void cleanup() {
+        // the dashboard cannot be started once removed
+        initialized = true;
+        listeners.clear();
+        if (pipeline != null) {
+            pipeline.close();
+            pipeline = null;
+        }
+    }
+
+    void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void initialize(JFRStream jfr) {
+        GlobalPreferences preferences = GlobalPreferences.sharedInstance();
+        int monitoredDataPoll = preferences.getMonitoredDataPoll();
+        chartCache = 60 * preferences.getMonitoredDataCache() / monitoredDataPoll;
+
+        pipeline = new JFRStreamPipeline(jfr, Duration.ofSeconds(monitoredDataPoll), SERIES_COUNT, TABLE_COUNT, TOP_CAPACITY);
+
+        if (isEnabled(JFR_CPU_LOAD)) {
+            pipeline.subscribe(JFR_CPU_LOAD, this::cpuLoadEvent).withPeriod(Duration.ofSeconds(monitoredDataPoll));
+        }
+        if (isEnabled(JFR_GARBAGE_COLLECTION)) {
+            pipeline.subscribe(JFR_GARBAGE_COLLECTION, this::gcEvent);
+        }
+        if (isEnabled(JFR_OBJECT_ALLOCATION_SAMPLE)) {
+            pipeline.subscribe(JFR_OBJECT_ALLOCATION_SAMPLE, this::allocationEvent)
+                    .withoutStackTrace().with("throttle", ALLOCATION_THROTTLE); // NOI18N
+        }
+        if (isEnabled(JFR_JAVA_MONITOR_ENTER)) {
+            pipeline.subscribe(JFR_JAVA_MONITOR_ENTER, this::monitorEnterEvent)
+                    .withoutStackTrace().withThreshold(MONITOR_ENTER_THRESHOLD);
+        }
+        pipeline.addListener(this::windowClosed);
+        pipeline.start();
+        live = true;
+    }
+
+    private void cpuLoadEvent(RecordedEvent ev, JFRStreamWindow window) {
+        float jvm = ev.getFloat("jvmUser") + ev.getFloat("jvmSystem"); // NOI18N
+        window.add(SERIES_JVM_CPU, (long) (jvm * 1000));
+        window.add(SERIES_MACHINE_CPU, (long) (ev.getFloat("machineTotal") * 1000)); // NOI18N
+    }
+
+    private void gcEvent(RecordedEvent ev, JFRStreamWindow window) {
+        window.add(SERIES_GC_PAUSE, toMicros(ev.getDuration("sumOfPauses"))); // NOI18N
+    }
+
+    private void allocationEvent(RecordedEvent ev, JFRStreamWindow window) {
+        long weight = ev.getLong("weight"); // NOI18N
+        window.add(SERIES_ALLOCATION, weight);
+        window.addTop(TABLE_ALLOCATION, getClassName(ev.getClass("objectClass")), weight); // NOI18N
+    }
+
+    private void monitorEnterEvent(RecordedEvent ev, JFRStreamWindow window) {
+        long duration = toMicros(ev.getDuration());
+        window.add(SERIES_CONTENTION, duration);
+        window.addTop(TABLE_CONTENTION, getClassName(ev.getClass("monitorClass")), duration); // NOI18N
+    }
+
+    private void windowClosed(JFRStreamWindow window) {
+        timestamp = window.getEndTime();
+
+        // keep the last values if no CPU load event was received in the window
+        if (window.getCount(SERIES_JVM_CPU) > 0) {
+            jvmCpu = window.getAverage(SERIES_JVM_CPU);
+            machineCpu = window.getAverage(SERIES_MACHINE_CPU);
+        } else if (jvmCpu == -1) {
+            jvmCpu = 0;
+            machineCpu = 0;
+        }
+        gcPauseRate = window.getRate(SERIES_GC_PAUSE);
+        gcLongestPause = window.getMaximum(SERIES_GC_PAUSE);
+        gcCount = window.getCount(SERIES_GC_PAUSE);
+        allocationRate = window.getRate(SERIES_ALLOCATION);
+        contentionRate = window.getRate(SERIES_CONTENTION);
+        contentionCount = window.getCount(SERIES_CONTENTION);
+
+        topWindows.addLast(window);
+        while (topWindows.size() > TOP_WINDOWS) {
+            topWindows.removeFirst();
+        }
+        topAllocations = getTop(TABLE_ALLOCATION);
+        topContentions = getTop(TABLE_CONTENTION);
+
+        fireChange();
+    }
+
+    private List<JFRTopN.Entry> getTop(int table) {
+        JFRTopN top = new JFRTopN(TOP_CAPACITY);
+        for (JFRStreamWindow window : topWindows) {
+            top.merge(window.getTop(table));
+        }
+        return top.getTop(TOP_COUNT);
+    }
+
+    private void fireChange() {
+        final List<ChangeListener> list = new ArrayList<>();
+        synchronized (listeners) {
+            list.addAll(listeners);
+        }
+        for (ChangeListener l : list) {
+            l.stateChanged(new ChangeEvent(this));
+        }
+    }
+
+    private static long toMicros(Duration duration) {
+        return duration == null ? 0 : duration.toNanos() / 1000;
+    }
+
+    private static String getClassName(RecordedClass cls) {
+        if (cls == null) {
+            return "<unknown>"; // NOI18N
+        }
+        String className = StringUtils.userFormClassName(cls.getName());
+        if (className.startsWith("L") && className.contains(";")) { // NOI18N
+            className = className.substring(1).replace(";", ""); // NOI18N
+        }
+        return className;
+    }
+
+    private DashboardModel(Application app) {
+        source = app;
+        events = getEnabledEvents();
+        listeners = Collections.synchronizedList(new ArrayList<>());
+        topWindows = new ArrayDeque<>();
+    }
+}
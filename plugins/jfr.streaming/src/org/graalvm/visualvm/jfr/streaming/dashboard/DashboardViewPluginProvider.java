@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2022, 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.streaming.dashboard;
+
+import org.graalvm.visualvm.application.Application;
+import org.graalvm.visualvm.application.views.ApplicationViewsSupport;
+import org.graalvm.visualvm.core.ui.DataSourceViewPlugin;
+import org.graalvm.visualvm.core.ui.DataSourceViewPluginProvider;
+import org.graalvm.visualvm.jfr.streaming.JFRStream;
+
+/**
+ * Live charts and top-N tables of the JFR events streamed from a running
+ * application, contributed to the Monitor tab as a single details view. The
+ * remote recording stream is opened only when the user starts the dashboard.
+ *
+ * @author Tomas Hurka
+ */
+public class DashboardViewPluginProvider extends DataSourceViewPluginProvider<Application> {
+
+    @Override
+    protected DataSourceViewPlugin createPlugin(Application application) {
+        return new DashboardViewPlugin(application, DashboardModel.create(application));
+    }
+
+    @Override
+    protected boolean supportsPluginFor(Application application) {
+        return !DashboardModel.getEnabledEvents().isEmpty() && JFRStream.isSupported(application);
+    }
+
+    private DashboardViewPluginProvider() {
+    }
+
+    public static void initialize() {
+        ApplicationViewsSupport.sharedInstance().getMonitorView().
+                registerPluginProvider(new DashboardViewPluginProvider());
+    }
+}
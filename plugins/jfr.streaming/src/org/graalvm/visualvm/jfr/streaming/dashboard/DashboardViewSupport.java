@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2022, 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.streaming.dashboard;
+
+import java.awt.BorderLayout;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSplitPane;
+import javax.swing.JTabbedPane;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import org.graalvm.visualvm.charts.ChartFactory;
+import org.graalvm.visualvm.charts.SimpleXYChartDescriptor;
+import org.graalvm.visualvm.charts.SimpleXYChartSupport;
+import org.graalvm.visualvm.core.VisualVM;
+import org.graalvm.visualvm.core.ui.components.DataViewComponent;
+import org.graalvm.visualvm.jfr.streaming.JFRTopN;
+import org.graalvm.visualvm.lib.ui.swing.ProfilerTable;
+import org.graalvm.visualvm.lib.ui.swing.ProfilerTableContainer;
+import org.graalvm.visualvm.lib.ui.swing.renderer.JavaNameRenderer;
+import org.graalvm.visualvm.lib.ui.swing.renderer.McsTimeRenderer;
+import org.graalvm.visualvm.lib.ui.swing.renderer.NumberRenderer;
+import org.openide.util.NbBundle;
+
+/**
+ *
+ * @author Tomas Hurka
+ */
+final class DashboardViewSupport {
+
+    private static final String UNKNOWN = NbBundle.getMessage(DashboardViewSupport.class, "LBL_Unknown"); // NOI18N
+
+    // --- Dashboard -----------------------------------------------------------
+
+    // The events are streamed only after the user starts the dashboard
+    static class DashboardView extends JPanel {
+
+        private final DashboardModel model;
+
+        DashboardView(DashboardModel model) {
+            this.model = model;
+
+            setLayout(new BorderLayout());
+            setOpaque(false);
+
+            final JButton startButton = new JButton(NbBundle.getMessage(DashboardViewSupport.class, "BTN_Start")); // NOI18N
+            startButton.addActionListener(e -> start(startButton));
+
+            JPanel startPanel = new JPanel(new GridBagLayout());
+            startPanel.setOpaque(false);
+            GridBagConstraints constraints = new GridBagConstraints();
+            constraints.gridx = 0;
+            constraints.insets = new Insets(5, 5, 5, 5);
+            startPanel.add(new JLabel(NbBundle.getMessage(DashboardViewSupport.class, "MSG_Start")), constraints); // NOI18N
+            startPanel.add(startButton, constraints);
+            add(startPanel, BorderLayout.CENTER);
+        }
+
+        DataViewComponent.DetailsView getDetailsView() {
+            return new DataViewComponent.DetailsView(NbBundle.getMessage(
+                    DashboardViewSupport.class, "LBL_Dashboard"), null, 20, this, null); // NOI18N
+        }
+
+        private void start(JButton startButton) {
+            startButton.setEnabled(false);
+            VisualVM.getInstance().runTask(() -> {
+                // opens the remote recording stream, not to be called in EDT
+                model.initialize();
+                SwingUtilities.invokeLater(this::showDashboard);
+            });
+        }
+
+        private void showDashboard() {
+            removeAll();
+            if (model.isLive()) {
+                JTabbedPane tabs = new JTabbedPane();
+                if (model.isEnabled(DashboardModel.JFR_CPU_LOAD)) {
+                    tabs.addTab(getTitle("LBL_Cpu_load"), new CpuViewSupport(model)); // NOI18N
+                }
+                if (model.isEnabled(DashboardModel.JFR_GARBAGE_COLLECTION)) {
+                    tabs.addTab(getTitle("LBL_Gc_pauses"), new GcViewSupport(model)); // NOI18N
+                }
+                if (model.isEnabled(DashboardModel.JFR_OBJECT_ALLOCATION_SAMPLE)) {
+                    tabs.addTab(getTitle("LBL_Allocations"), new AllocationsViewSupport(model)); // NOI18N
+                }
+                if (model.isEnabled(DashboardModel.JFR_JAVA_MONITOR_ENTER)) {
+                    tabs.addTab(getTitle("LBL_Contention"), new ContentionViewSupport(model)); // NOI18N
+                }
+                add(tabs, BorderLayout.CENTER);
+            } else {
+                add(new JLabel(NbBundle.getMessage(DashboardViewSupport.class, "MSG_Failed"), JLabel.CENTER), BorderLayout.CENTER); // NOI18N
+            }
+            revalidate();
+            repaint();
+        }
+
+        private static String getTitle(String key) {
+            return NbBundle.getMessage(DashboardViewSupport.class, key);
+        }
+    }
+
+    // --- CPU load ------------------------------------------------------------
+
+    static class CpuViewSupport extends JPanel {
+
+        private final SimpleXYChartSupport chartSupport;
+
+        CpuViewSupport(final DashboardModel model) {
+            String jvmCpu = NbBundle.getMessage(DashboardViewSupport.class, "LBL_Jvm_cpu"); // NOI18N
+            String machineCpu = NbBundle.getMessage(DashboardViewSupport.class, "LBL_Machine_cpu"); // NOI18N
+
+            SimpleXYChartDescriptor chartDescriptor
+                    = SimpleXYChartDescriptor.percent(false, 0.1d, model.getChartCache());
+            chartDescriptor.addLineItems(jvmCpu, machineCpu);
+            chartDescriptor.setDetailsItems(new String[]{jvmCpu, machineCpu});
+
+            chartSupport = createChart(chartDescriptor, this, 2);
+            model.addChangeListener(e -> refresh(model));
+        }
+
+        private void refresh(DashboardModel model) {
+            long jvmCpu = model.getJvmCpu();
+            long machineCpu = model.getMachineCpu();
+            chartSupport.addValues(model.getTimestamp(), new long[]{jvmCpu, machineCpu});
+            chartSupport.updateDetails(new String[]{chartSupport.formatPercent(jvmCpu),
+                chartSupport.formatPercent(machineCpu)});
+        }
+    }
+
+    // --- GC pauses -----------------------------------------------------------
+
+    static class GcViewSupport extends JPanel {
+
+        private final SimpleXYChartSupport chartSupport;
+
+        GcViewSupport(final DashboardModel model) {
+            String pauseRate = NbBundle.getMessage(DashboardViewSupport.class, "LBL_Gc_pause_rate"); // NOI18N
+            String longestPause = NbBundle.getMessage(DashboardViewSupport.class, "LBL_Gc_longest_pause"); // NOI18N
+            String collections = NbBundle.getMessage(DashboardViewSupport.class, "LBL_Gc_collections"); // NOI18N
+
+            SimpleXYChartDescriptor chartDescriptor
+                    = SimpleXYChartDescriptor.decimal(1000, 0.001d, false, model.getChartCache());
+            chartDescriptor.addLineItems(pauseRate, longestPause);
+            chartDescriptor.setDetailsItems(new String[]{pauseRate, longestPause, collections});
+
+            chartSupport = createChart(chartDescriptor, this, 3);
+            model.addChangeListener(e -> refresh(model));
+        }
+
+        private void refresh(DashboardModel model) {
+            long pauseRate = model.getGcPauseRate();
+            long longestPause = model.getGcLongestPause();
+            chartSupport.addValues(model.getTimestamp(), new long[]{pauseRate, longestPause});
+            chartSupport.updateDetails(new String[]{
+                formatMessage("LBL_Format_ms_per_s", chartSupport.formatDecimal(pauseRate)), // NOI18N
+                formatMessage("LBL_Format_ms", chartSupport.formatDecimal(longestPause)), // NOI18N
+                formatCount(model.getGcCount())});
+        }
+    }
+
+    // --- Allocations ---------------------------------------------------------
+
+    static class AllocationsViewSupport extends JPanel {
+
+        private final SimpleXYChartSupport chartSupport;
+        private final TopTableModel tableModel;
+
+        AllocationsViewSupport(final DashboardModel model) {
+            String allocationRate = NbBundle.getMessage(DashboardViewSupport.class, "LBL_Allocation_rate"); // NOI18N
+
+            SimpleXYChartDescriptor chartDescriptor
+                    = SimpleXYChartDescriptor.bytes(10 * 1024 * 1024, false, model.getChartCache());
+            chartDescriptor.addLineFillItems(allocationRate);
+            chartDescriptor.setDetailsItems(new String[]{allocationRate});
+
+            JPanel chartPanel = new JPanel();
+            chartSupport = createChart(chartDescriptor, chartPanel, 1);
+
+            tableModel = new TopTableModel(NbBundle.getMessage(DashboardViewSupport.class, "COL_Allocated_bytes")); // NOI18N
+            ProfilerTable table = createTable(tableModel);
+            table.setColumnRenderer(1, new NumberRenderer());
+
+            initComponents(this, chartPanel, table);
+            model.addChangeListener(e -> refresh(model));
+        }
+
+        private void refresh(DashboardModel model) {
+            long allocationRate = model.getAllocationRate();
+            chartSupport.addValues(model.getTimestamp(), new long[]{allocationRate});
+            chartSupport.updateDetails(new String[]{
+                formatMessage("LBL_Format_per_s", chartSupport.formatBytes(allocationRate))}); // NOI18N
+            tableModel.setEntries(model.getTopAllocations());
+        }
+    }
+
+    // --- Lock contention -----------------------------------------------------
+
+    static class ContentionViewSupport extends JPanel {
+
+        private final SimpleXYChartSupport chartSupport;
+        private final TopTableModel tableModel;
+
+        ContentionViewSupport(final DashboardModel model) {
+            String blockedRate = NbBundle.getMessage(DashboardViewSupport.class, "LBL_Blocked_rate"); // NOI18N
+            String contendedEnters = NbBundle.getMessage(DashboardViewSupport.class, "LBL_Contended_enters"); // NOI18N
+
+            SimpleXYChartDescriptor chartDescriptor
+                    = SimpleXYChartDescriptor.decimal(1000, 0.001d, false, model.getChartCache());
+            chartDescriptor.addLineFillItems(blockedRate);
+            chartDescriptor.setDetailsItems(new String[]{blockedRate, contendedEnters});
+
+            JPanel chartPanel = new JPanel();
+            chartSupport = createChart(chartDescriptor, chartPanel, 2);
+
+            tableModel = new TopTableModel(NbBundle.getMessage(DashboardViewSupport.class, "COL_Blocked_time")); // NOI18N
+            ProfilerTable table = createTable(tableModel);
+            table.setColumnRenderer(1, new McsTimeRenderer());
+
+            initComponents(this, chartPanel, table);
+            model.addChangeListener(e -> refresh(model));
+        }
+
+        private void refresh(DashboardModel model) {
+            long blockedRate = model.getContentionRate();
+            chartSupport.addValues(model.getTimestamp(), new long[]{blockedRate});
+            chartSupport.updateDetails(new String[]{
+                formatMessage("LBL_Format_ms_per_s", chartSupport.formatDecimal(blockedRate)), // NOI18N
+                formatCount(model.getContentionCount())});
+            tableModel.setEntries(model.getTopContentions());
+        }
+    }
+
+    // --- Support -------------------------------------------------------------
+
+    private static SimpleXYChartSupport createChart(SimpleXYChartDescriptor descriptor, JPanel panel, int details) {
+        SimpleXYChartSupport chartSupport = ChartFactory.createSimpleXYChart(descriptor);
+        chartSupport.setZoomingEnabled(false);
+
+        panel.setLayout(new BorderLayout());
+        panel.setOpaque(false);
+        panel.add(chartSupport.getChart(), BorderLayout.CENTER);
+
+        String[] unknown = new String[details];
+        for (int i = 0; i < details; i++) {
+            unknown[i] = UNKNOWN;
+        }
+        chartSupport.updateDetails(unknown);
+
+        return chartSupport;
+    }
+
+    private static ProfilerTable createTable(TopTableModel tableModel) {
+        ProfilerTable table = new ProfilerTable(tableModel, true, true, null);
+
+        table.setMainColumn(0);
+        table.setFitWidthColumn(0);
+
+        table.setSortColumn(1);
+        table.setDefaultSortOrder(SortOrder.DESCENDING);
+        table.setDefaultSortOrder(0, SortOrder.ASCENDING);
+
+        table.setColumnRenderer(0, new JavaNameRenderer());
+
+        return table;
+    }
+
+    private static void initComponents(JPanel view, JPanel chartPanel, ProfilerTable table) {
+        view.setLayout(new BorderLayout());
+        view.setOpaque(false);
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, chartPanel,
+                new ProfilerTableContainer(table, false, null));
+        splitPane.setBorder(null);
+        splitPane.setOpaque(false);
+        splitPane.setResizeWeight(0.5d);
+        view.add(splitPane, BorderLayout.CENTER);
+    }
+
+    private static String formatCount(long count) {
+        return NumberFormat.getIntegerInstance().format(count);
+    }
+
+    private static String formatMessage(String key, String value) {
+        return MessageFormat.format(NbBundle.getMessage(DashboardViewSupport.class, key), value);
+    }
+
+    private static class TopTableModel extends AbstractTableModel {
+
+        private final String valueColumnName;
+        private List<JFRTopN.Entry> entries = Collections.emptyList();
+
+        TopTableModel(String valueColumnName) {
+            this.valueColumnName = valueColumnName;
+        }
+
+        void setEntries(List<JFRTopN.Entry> entries) {
+            this.entries = entries;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public String getColumnName(int columnIndex) {
+            if (columnIndex == 0) {
+                return NbBundle.getMessage(DashboardViewSupport.class, "COL_Class"); // NOI18N
+            } else if (columnIndex == 1) {
+                return valueColumnName;
+            }
+            return null;
+        }
+
+        @Override
+        public Class<?> getColumnClass(int columnIndex) {
+            return columnIndex == 0 ? String.class : Long.class;
+        }
+
+        @Override
+        public int getRowCount() {
+            return entries.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 2;
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            JFRTopN.Entry entry = entries.get(rowIndex);
+            return columnIndex == 0 ? entry.getKey() : entry.getValue();
+        }
+    }
+
+    private DashboardViewSupport() {
+    }
+}
@@ -498,7 +498,8 @@ final class TracerController implements DataRemovedListener<DataSource>,
     // --- DataSource & DataSourceView lifecycle -------------------------------
 
     void viewRemoved() {
-        stopSession();
+        if (state == STATE_SESSION_RUNNING) stopSession();
+        else stopTimer();
         setState(STATE_SESSION_IMPOSSIBLE);
     }
 
@@ -130,6 +130,18 @@ final class TracerView extends DataSourceView {
         return dvc;
     }
 
+    protected void removed() {
+        RequestProcessor.getDefault().post(new Runnable() {
+            public void run() {
+                controller.viewRemoved();
+                // Values fetched meanwhile are dropped, release the timeline data
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() { model.getTimelineSupport().close(); }
+                });
+            }
+        });
+    }
+
 
     // --- Master view implementation ------------------------------------------
 
@@ -410,6 +410,11 @@ public final class TimelineSupport {
         fireValuesReset();
     }
 
+    // Must be called in EDT when the timeline is no longer displayed
+    public void close() {
+        model.close();
+    }
+
     public void exportAllValues(String title) {
         final int rowsCount = model.getTimestampsCount();
         final int columnsCount = model.getItemsCount();
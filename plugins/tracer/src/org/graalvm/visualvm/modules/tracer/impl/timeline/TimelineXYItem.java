@@ -77,6 +77,20 @@ abstract class TimelineXYItem extends SynchronousXYItem {
     final int getIndex() { return itemIndex; }
 
 
+    // --- Bulk values access --------------------------------------------------
+
+    // Values for the first count indexes, -1 indexes are skipped
+    void getXValues(int[] indexes, int count, long[] values) {
+        for (int i = 0; i < count; i++)
+            if (indexes[i] != -1) values[i] = getXValue(indexes[i]);
+    }
+
+    void getYValues(int[] indexes, int count, long[] values) {
+        for (int i = 0; i < count; i++)
+            if (indexes[i] != -1) values[i] = getYValue(indexes[i]);
+    }
+
+
     // --- Item telemetry ------------------------------------------------------
 
     public XYItemChange valuesChanged() {
@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package org.graalvm.visualvm.modules.tracer.impl.timeline;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jiri Sedlacek
+ */
+public class TimelineStorageTest {
+
+    // Enough values to store most chunks in the temporary file with the default settings
+    private static final int VALUES_COUNT = 50000;
+
+    private TimelineStorage storage;
+
+    @Before
+    public void setUp() {
+        storage = new TimelineStorage(4);
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    public void roundTrip() {
+        long[][] expected = new long[4][VALUES_COUNT];
+        Random random = new Random(42);
+
+        for (int i = 0; i < VALUES_COUNT; i++) {
+            expected[0][i] = 1600000000000L + i * 1000L;
+            // Extreme deltas, both signs
+            expected[1][i] = i % 3 == 0 ? Long.MIN_VALUE : (i % 3 == 1 ? Long.MAX_VALUE : 0);
+            // Random values, deltas of any magnitude
+            expected[2][i] = random.nextLong();
+            // Small values around zero
+            expected[3][i] = random.nextInt(201) - 100;
+
+            storage.addValues(expected[0][i], new long[] { expected[1][i], expected[2][i], expected[3][i] });
+        }
+
+        assertEquals(VALUES_COUNT, storage.getValuesCount());
+
+        for (int column = 0; column < 4; column++)
+            for (int i = 0; i < VALUES_COUNT; i++)
+                assertEquals("column " + column + ", index " + i, expected[column][i], storage.getValue(column, i));
+
+        // Bulk reads, -1 indexes are skipped
+        int[] indexes = new int[VALUES_COUNT / 7];
+        for (int i = 0; i < indexes.length; i++) indexes[i] = i % 5 == 4 ? -1 : i * 7;
+        for (int column = 0; column < 4; column++) {
+            long[] values = new long[indexes.length];
+            storage.getValues(column, indexes, indexes.length, values);
+            for (int i = 0; i < indexes.length; i++)
+                assertEquals(indexes[i] == -1 ? 0 : expected[column][indexes[i]], values[i]);
+        }
+    }
+
+    @Test
+    public void closed() {
+        storage.addValues(1000, new long[] { 1, 2, 3 });
+        storage.close();
+
+        // Late values are dropped
+        storage.addValues(2000, new long[] { 1, 2, 3 });
+        assertEquals(1, storage.getValuesCount());
+
+        try {
+            storage.getValue(0, 0);
+            fail("Closed storage must not be read");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ *  Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package org.graalvm.visualvm.modules.tracer.dynamic.impl;
+
+/**
+ * Factory of compiled value providers. The declarative probe definitions
+ * (mbeanAttribute, delta, rate, ratio, ...) are turned into chains of these
+ * providers by configurator.js, each sample is then computed using primitive
+ * longs without evaluating any script code.
+ *
+ * @author Jaroslav Bachorik
+ */
+public final class ValueProviders {
+
+    public static final ValueProvider NULL_VALUE = constant(0);
+
+
+    public static ValueProvider constant(final long value) {
+        return new ValueProvider() {
+            public long getValue(long timestamp) { return value; }
+        };
+    }
+
+    public static ValueProvider timestamp() {
+        return new ValueProvider() {
+            public long getValue(long timestamp) { return timestamp; }
+        };
+    }
+
+    /**
+     * Difference of the provided value and its value at the previous sample,
+     * 0 for the first sample and for a sample with the same timestamp as the
+     * previous one.
+     */
+    public static ValueProvider delta(ValueProvider provider) {
+        return new Delta(provider);
+    }
+
+    /**
+     * Change of the provided value per second since the previous sample,
+     * 0 for the first sample.
+     */
+    public static ValueProvider rate(ValueProvider provider) {
+        return new Rate(provider, 1000);
+    }
+
+    /**
+     * Change of the provided value per millisecond since the previous sample
+     * multiplied by the factor, 0 for the first sample.
+     */
+    public static ValueProvider rate(ValueProvider provider, long factor) {
+        return new Rate(provider, factor);
+    }
+
+    /**
+     * Value of the dividend divided by the value of the divisor, 0 if the
+     * divisor value is 0.
+     */
+    public static ValueProvider ratio(final ValueProvider dividend, final ValueProvider divisor) {
+        return new ValueProvider() {
+            public long getValue(long timestamp) {
+                long value = dividend.getValue(timestamp);
+                long div = divisor.getValue(timestamp);
+                return div == 0 ? 0 : value / div;
+            }
+        };
+    }
+
+    public static ValueProvider difference(final ValueProvider minuend, final ValueProvider subtrahend) {
+        return new ValueProvider() {
+            public long getValue(long timestamp) {
+                return minuend.getValue(timestamp) - subtrahend.getValue(timestamp);
+            }
+        };
+    }
+
+    public static ValueProvider sum(final ValueProvider[] providers) {
+        return new ValueProvider() {
+            public long getValue(long timestamp) {
+                long sum = 0;
+                for (ValueProvider provider : providers) sum += provider.getValue(timestamp);
+                return sum;
+            }
+        };
+    }
+
+
+    private ValueProviders() {}
+
+
+    private static final class Delta implements ValueProvider {
+
+        private final ValueProvider provider;
+
+        private boolean initialized;
+        private long lastTimestamp;
+        private long lastValue;
+
+        Delta(ValueProvider provider) {
+            this.provider = provider;
+        }
+
+        public synchronized long getValue(long timestamp) {
+            if (initialized && timestamp == lastTimestamp) return 0;
+
+            long value = provider.getValue(timestamp);
+            long delta = initialized ? value - lastValue : 0;
+            lastValue = value;
+            lastTimestamp = timestamp;
+            initialized = true;
+
+            return delta;
+        }
+
+    }
+
+    private static final class Rate implements ValueProvider {
+
+        private final ValueProvider provider;
+        private final long factor;
+
+        private boolean initialized;
+        private long lastTimestamp;
+        private long lastValue;
+        private long lastRate;
+
+        Rate(ValueProvider provider, long factor) {
+            this.provider = provider;
+            this.factor = factor;
+        }
+
+        public synchronized long getValue(long timestamp) {
+            if (initialized && timestamp == lastTimestamp) return lastRate;
+
+            long value = provider.getValue(timestamp);
+            long timeDelta = timestamp - lastTimestamp;
+            lastRate = initialized && timeDelta > 0 ? (value - lastValue) * factor / timeDelta : 0;
+            lastValue = value;
+            lastTimestamp = timestamp;
+            initialized = true;
+
+            return lastRate;
+        }
+
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- *  Copyright (c) 2007, 2018, Oracle and/or its affiliates. All rights reserved.
+ *  Copyright (c) 2007, 2022, Oracle and/or its affiliates. All rights reserved.
  *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  *  This code is free software; you can redistribute it and/or modify it
@@ -28,43 +28,81 @@ package org.graalvm.visualvm.modules.tracer.dynamic.jmx;
 import org.graalvm.visualvm.application.Application;
 import org.graalvm.visualvm.tools.jmx.JmxModel;
 import org.graalvm.visualvm.tools.jmx.JmxModelFactory;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.management.Attribute;
 import javax.management.AttributeList;
-import javax.management.InstanceNotFoundException;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
 import javax.management.MBeanServerConnection;
 import javax.management.ObjectName;
-import javax.management.ReflectionException;
-import javax.management.RuntimeMBeanException;
 
 /**
  * A per application cached MBean attribute values provider<br/>
  * It uses a timestamp to decide whether fresh values should be retrieved
- * from the server. It also tries to batch the retrieval process to reduce
- * the network utilization overhead.
+ * from the server. For each new timestamp the attributes of all registered
+ * MBeans are retrieved concurrently, one request per MBean. An MBean which
+ * doesn't respond within the timeout keeps its previous values, its pending
+ * request is not repeated and the values are used once available, the other
+ * MBeans are fetched as usual. Only a limited number of requests of a single
+ * connection is executed at a time, so a hung connection cannot occupy all
+ * the shared fetcher threads.<br/>
+ * The retrieved values are published as an immutable snapshot indexed by the
+ * attribute index, reading a value doesn't require any locking.
  *
  * @author Jaroslav Bachorik
  */
 final public class JMXValueCache {
+    final private static Logger LOGGER = Logger.getLogger(JMXValueCache.class.getName());
+
+    final private static int FETCH_TIMEOUT = Integer.getInteger("visualvm.tracer.jmxFetchTimeout", 500); // NOI18N
+    final private static int FETCH_THREADS = Integer.getInteger("visualvm.tracer.jmxFetchThreads", 8); // NOI18N
+    final private static int FETCH_THREADS_PER_CONNECTION = Math.max(1, Math.min(FETCH_THREADS - 1,
+            Integer.getInteger("visualvm.tracer.jmxFetchThreadsPerConnection", 2))); // NOI18N
+
     final private static Map<Application, JMXValueCache> instanceMap = new WeakHashMap<Application, JMXValueCache>();
-    final private Map<ObjectName, Collection<String>> attributeMap = new HashMap<ObjectName, Collection<String>>();
-    final private Map<String, Object> valueMap = new HashMap<String, Object>();
+    private static ThreadPoolExecutor fetcher;
+
+    final private Map<ObjectName, MBeanAttributes> attributeMap = new LinkedHashMap<ObjectName, MBeanAttributes>();
+    final private Map<String, Integer> indexMap = new HashMap<String, Integer>();
 
     final private MBeanServerConnection connection;
-    volatile private long lastTimestamp = 0L;
+    final private RequestQueue requests = new RequestQueue();
+    final private Object refreshLock = new Object();
+    volatile private Snapshot snapshot = new Snapshot(-1, new Object[0], new long[0]);
+    volatile private boolean invalid;
 
     private JMXValueCache(Application app) {
+        this(getConnection(app));
+    }
+
+    JMXValueCache(MBeanServerConnection connection) {
+        this.connection = connection;
+    }
+
+    private static MBeanServerConnection getConnection(Application app) {
         JmxModel model = JmxModelFactory.getJmxModelFor(app);
-        connection = model.getMBeanServerConnection();
-        
+        return model.getMBeanServerConnection();
     }
 
     public static JMXValueCache forApplication(Application app) {
@@ -85,13 +123,21 @@ final public class JMXValueCache {
 
     public JMXValueCache register(ObjectName name, Collection<String> attributes) {
         synchronized(attributeMap) {
-            Collection<String> existingAttribs = attributeMap.get(name);
+            MBeanAttributes existingAttribs = attributeMap.get(name);
             if (existingAttribs == null) {
-                existingAttribs = new ArrayList<String>();
+                existingAttribs = new MBeanAttributes(name);
                 attributeMap.put(name, existingAttribs);
             }
-            existingAttribs.addAll(attributes);
-            lastTimestamp = -1; // need to clear the timestamp so the cache is loaded at the next getValue() request
+            for(String attribute : attributes) {
+                String id = getId(name, attribute);
+                Integer index = indexMap.get(id);
+                if (index == null) {
+                    index = indexMap.size();
+                    indexMap.put(id, index);
+                }
+                existingAttribs.add(attribute, index);
+            }
+            invalid = true; // the cache needs to be loaded at the next getValue() request
         }
         return this;
     }
@@ -103,7 +149,7 @@ final public class JMXValueCache {
 
     public JMXValueCache unregister(ObjectName name, Collection<String> attributes) {
         synchronized(attributeMap) {
-            Collection<String> existingAttribs = attributeMap.get(name);
+            MBeanAttributes existingAttribs = attributeMap.get(name);
             if (existingAttribs != null) {
                 existingAttribs.removeAll(attributes);
             }
@@ -111,6 +157,18 @@ final public class JMXValueCache {
         return this;
     }
 
+    /**
+     * Returns index of a registered attribute to be used by
+     * {@link #getValue(int, long)} and {@link #getLongValue(int, long)}, or -1
+     * for an attribute which hasn't been registered.
+     */
+    public int getIndex(ObjectName name, String attribute) {
+        synchronized(attributeMap) {
+            Integer index = indexMap.get(getId(name, attribute));
+            return index == null ? -1 : index.intValue();
+        }
+    }
+
     public MBeanAttributeInfo getInfo(ObjectName on, String attribute) {
         try {
             MBeanInfo mbeanInfo = connection.getMBeanInfo(on);
@@ -125,39 +183,230 @@ final public class JMXValueCache {
     }
 
     public Object getValue(ObjectName name, String attribute, long timestamp) {
-        refreshCache(timestamp);
-        return valueMap.get(getId(name, attribute));
+        return getValue(getIndex(name, attribute), timestamp);
+    }
+
+    public Object getValue(int index, long timestamp) {
+        Object[] values = getSnapshot(timestamp).values;
+        return index >= 0 && index < values.length ? values[index] : null;
     }
-    
-    private void refreshCache(long timestamp) {
-        if (lastTimestamp == timestamp) {
-            return;
+
+    public long getLongValue(int index, long timestamp) {
+        long[] values = getSnapshot(timestamp).longValues;
+        return index >= 0 && index < values.length ? values[index] : 0L;
+    }
+
+
+    private Snapshot getSnapshot(long timestamp) {
+        Snapshot current = snapshot;
+        if (current.timestamp == timestamp && !invalid) {
+            return current;
         }
+        return refreshCache(timestamp);
+    }
 
-        lastTimestamp = timestamp;
+    private Snapshot refreshCache(long timestamp) {
+        synchronized(refreshLock) {
+            Snapshot current = snapshot;
+            if (current.timestamp == timestamp && !invalid) {
+                return current; // refreshed by another thread
+            }
+            invalid = false;
 
-        synchronized(attributeMap) {
-            for(Map.Entry<ObjectName, Collection<String>> entry : attributeMap.entrySet()) {
-                try {
-                    AttributeList al = connection.getAttributes(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
-                    for(Attribute a : al.asList()) {
-                        valueMap.put(getId(entry.getKey(), a.getName()), a.getValue());
-                    }
-                    continue;
-                } catch (RuntimeMBeanException ex) {
-                } catch (ReflectionException ex) {
-                } catch (IOException ex) {
-                } catch (InstanceNotFoundException e) {
+            MBeanAttributes[] mbeans;
+            int attributesCount;
+            synchronized(attributeMap) {
+                mbeans = attributeMap.values().toArray(new MBeanAttributes[attributeMap.size()]);
+                attributesCount = indexMap.size();
+            }
+
+            Object[] values = new Object[attributesCount];
+            System.arraycopy(current.values, 0, values, 0, Math.min(attributesCount, current.values.length));
+            long[] longValues = new long[attributesCount];
+            System.arraycopy(current.longValues, 0, longValues, 0, Math.min(attributesCount, current.longValues.length));
+
+            if (connection != null) {
+                // Issue the requests for all MBeans at once, except for those
+                // still waiting for the request of a previous timestamp...
+                for(MBeanAttributes mbean : mbeans) {
+                    mbean.fetch(connection, requests);
                 }
-                for(String an : entry.getValue()) {
-                    String id = getId(entry.getKey(), an);
-                    if (!valueMap.containsKey(id)) valueMap.put(id, 0);
+                // ...and collect the values available within the timeout
+                for(MBeanAttributes mbean : mbeans) {
+                    if (!mbean.collect(values, longValues)) {
+                        break;
+                    }
                 }
             }
+
+            current = new Snapshot(timestamp, values, longValues);
+            snapshot = current;
+            return current;
         }
     }
 
-    private String getId(ObjectName on, String attrName) {
+    private static synchronized ThreadPoolExecutor getFetcher() {
+        if (fetcher == null) {
+            ThreadFactory threadFactory = new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Tracer JMX Fetcher " + counter.incrementAndGet()); // NOI18N
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            fetcher = new ThreadPoolExecutor(FETCH_THREADS, FETCH_THREADS, 60, TimeUnit.SECONDS,
+                                             new LinkedBlockingQueue<Runnable>(), threadFactory);
+            fetcher.allowCoreThreadTimeOut(true);
+        }
+        return fetcher;
+    }
+
+    private static String getId(ObjectName on, String attrName) {
         return on.toString() + "#" + attrName;
     }
+
+
+    // Executes at most FETCH_THREADS_PER_CONNECTION requests of the connection
+    // concurrently, the other requests wait until a running one finishes
+    private static final class RequestQueue {
+        private final Queue<Runnable> queued = new LinkedList<Runnable>();
+        private int running;
+
+        <T> Future<T> submit(Callable<T> task) {
+            FutureTask<T> request = new FutureTask<T>(task);
+            synchronized(this) {
+                if (running >= FETCH_THREADS_PER_CONNECTION) {
+                    queued.add(request);
+                    return request;
+                }
+                running++;
+            }
+            execute(request);
+            return request;
+        }
+
+        private void execute(final Runnable request) {
+            getFetcher().execute(new Runnable() {
+                public void run() {
+                    try {
+                        request.run();
+                    } finally {
+                        executeNext();
+                    }
+                }
+            });
+        }
+
+        private void executeNext() {
+            Runnable request;
+            synchronized(this) {
+                request = queued.poll();
+                if (request == null) {
+                    running--;
+                    return;
+                }
+            }
+            execute(request);
+        }
+    }
+
+    private static final class Snapshot {
+        final long timestamp;
+        final Object[] values;
+        final long[] longValues;
+
+        Snapshot(long timestamp, Object[] values, long[] longValues) {
+            this.timestamp = timestamp;
+            this.values = values;
+            this.longValues = longValues;
+        }
+    }
+
+    // Registered attributes of an MBean and its pending request
+    private static final class MBeanAttributes {
+        private final ObjectName name;
+        private final List<String> attributes = new ArrayList<String>();
+        private final List<Integer> indexes = new ArrayList<Integer>();
+
+        // accessed only by the refreshing thread
+        private Future<AttributeList> pending;
+        private long pendingSince;
+        private Map<String, Integer> pendingIndexes;
+
+        MBeanAttributes(ObjectName name) {
+            this.name = name;
+        }
+
+        synchronized void add(String attribute, Integer index) {
+            if (!attributes.contains(attribute)) {
+                attributes.add(attribute);
+                indexes.add(index);
+            }
+        }
+
+        synchronized void removeAll(Collection<String> removed) {
+            for(String attribute : removed) {
+                int i = attributes.indexOf(attribute);
+                if (i != -1) {
+                    attributes.remove(i);
+                    indexes.remove(i);
+                }
+            }
+        }
+
+        void fetch(final MBeanServerConnection connection, RequestQueue requests) {
+            if (pending != null) return; // still waiting for the previous request
+
+            final String[] names;
+            synchronized(this) {
+                if (attributes.isEmpty()) return;
+                names = attributes.toArray(new String[attributes.size()]);
+                pendingIndexes = new HashMap<String, Integer>();
+                for(int i = 0; i < names.length; i++) {
+                    pendingIndexes.put(names[i], indexes.get(i));
+                }
+            }
+
+            pendingSince = System.currentTimeMillis();
+            pending = requests.submit(new Callable<AttributeList>() {
+                public AttributeList call() throws Exception {
+                    return connection.getAttributes(name, names);
+                }
+            });
+        }
+
+        // Returns false if the refreshing thread has been interrupted
+        boolean collect(Object[] values, long[] longValues) {
+            if (pending == null) return true;
+
+            try {
+                // a request pending from the previous timestamp is not waited for again
+                long timeout = Math.max(0, pendingSince + FETCH_TIMEOUT - System.currentTimeMillis());
+                AttributeList al = pending.get(timeout, TimeUnit.MILLISECONDS);
+                for(Attribute a : al.asList()) {
+                    Integer index = pendingIndexes.get(a.getName());
+                    if (index != null && index < values.length) {
+                        Object value = a.getValue();
+                        values[index] = value;
+                        longValues[index] = value instanceof Number ? ((Number)value).longValue() : 0L;
+                    }
+                }
+            } catch (TimeoutException e) {
+                // keep waiting for the request, use the previous values meanwhile
+                LOGGER.log(Level.FINE, "Timeout retrieving attributes of {0}", name); // NOI18N
+                return true;
+            } catch (ExecutionException e) {
+                // keep the previous values, the request will be repeated at the next timestamp
+                LOGGER.log(Level.FINE, "Failed to retrieve attributes of " + name, e.getCause()); // NOI18N
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+
+            pending = null;
+            pendingIndexes = null;
+            return true;
+        }
+    }
 }
@@ -32,6 +32,9 @@ import java.util.logging.Logger;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.InvalidKeyException;
+import javax.management.openmbean.TabularData;
 
 /**
  *
@@ -41,25 +44,23 @@ public class JMXValueProvider implements ValueProvider {
     final private static Logger LOG = Logger.getLogger(JMXValueProvider.class.getName());
     private ObjectName on;
     private String attributeName;
+    private int index;
     private JMXValueCache cache;
 
     public JMXValueProvider(String objectName, String attributeName, Application app) throws MalformedObjectNameException {
         this.on = ObjectName.getInstance(objectName);
         this.attributeName = attributeName;
         cache = JMXValueCache.forApplication(app).register(on, attributeName);
+        this.index = cache.getIndex(on, attributeName);
     }
 
     @Override
     public long getValue(long timestamp) {
-        Object val = value(timestamp);
-        if (val instanceof Number) {
-            return ((Number)val).longValue();
-        }
-        return 0L;
+        return cache.getLongValue(index, timestamp);
     }
 
     public Object value(long timestamp) {
-        Object val = cache.getValue(on, attributeName, timestamp);
+        Object val = cache.getValue(index, timestamp);
         if (val == null) {
             LOG.log(Level.FINE, "NULL({0}#{1}) @ {2}", new Object[]{on, attributeName, timestamp});
         }
@@ -69,4 +70,50 @@ public class JMXValueProvider implements ValueProvider {
     public MBeanAttributeInfo getInfo() {
         return cache.getInfo(on, attributeName);
     }
+
+    /**
+     * Returns provider of an item of a composite or tabular attribute value,
+     * each key selects an item of the previous level.
+     */
+    public ValueProvider get(final Object[] keys) {
+        return new ValueProvider() {
+            @Override
+            public long getValue(long timestamp) {
+                return resolve(value(timestamp), keys);
+            }
+        };
+    }
+
+    /**
+     * Returns the numeric value of an item of a composite or tabular value selected by the keys, 0 if not available.
+     */
+    static long resolve(Object val, Object[] keys) {
+        for (Object key : keys) {
+            val = getItem(val, key);
+            if (val == null) return 0L;
+        }
+        if (val instanceof Number) {
+            return ((Number)val).longValue();
+        }
+        return 0L;
+    }
+
+    private static Object getItem(Object value, Object key) {
+        if (value instanceof TabularData) {
+            try {
+                CompositeData row = ((TabularData)value).get(new Object[] { key });
+                return row == null ? null : row.get("value"); // NOI18N
+            } catch (InvalidKeyException e) {
+                return null;
+            }
+        } else if (value instanceof CompositeData[]) {
+            for (CompositeData item : (CompositeData[])value) {
+                if (key.equals(item.get("key"))) return item.get("value"); // NOI18N
+            }
+        } else if (value instanceof CompositeData) {
+            CompositeData data = (CompositeData)value;
+            if (key instanceof String && data.containsKey((String)key)) return data.get((String)key);
+        }
+        return null;
+    }
 }
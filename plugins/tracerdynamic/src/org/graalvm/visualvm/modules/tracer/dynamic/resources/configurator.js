@@ -28,10 +28,12 @@ var ArrayList = Java.type("java.util.ArrayList");
 var HashMap = Java.type("java.util.HashMap");
 var Integer = Java.type("java.lang.Integer");
 var ObjectArray = Java.type('java.lang.Object[]');
+var ValueProviderArray = Java.type('org.graalvm.visualvm.modules.tracer.dynamic.impl.ValueProvider[]');
 var ProbeItemDescriptor = Java.type("org.graalvm.visualvm.modules.tracer.ProbeItemDescriptor");
 var ItemValueFormatter = Java.type("org.graalvm.visualvm.modules.tracer.ItemValueFormatter");
 var TracerProbeDescriptor = Java.type("org.graalvm.visualvm.modules.tracer.TracerProbeDescriptor");
 var ValueProvider = Java.type("org.graalvm.visualvm.modules.tracer.dynamic.impl.ValueProvider");
+var ValueProviders = Java.type("org.graalvm.visualvm.modules.tracer.dynamic.impl.ValueProviders");
 var DynamicPackage = Java.type("org.graalvm.visualvm.modules.tracer.dynamic.impl.DynamicPackage");
 var DynamicProbe = Java.type("org.graalvm.visualvm.modules.tracer.dynamic.impl.DynamicProbe");
 var ItemValueFormatterInterface = Java.type("org.graalvm.visualvm.modules.tracer.dynamic.impl.ItemValueFormatterInterface");
@@ -95,11 +97,7 @@ VisualVM.MBeans = {
     }
 }
 
-var NULL_VALUE = new ValueProvider({
-    getValue: function(timestamp) {
-        return 0;
-    }
-})
+var NULL_VALUE = ValueProviders.NULL_VALUE;
 
 function L11N(baseName) {
     this.bundle = NbBundle.getBundle(baseName + ".Bundle");
@@ -302,7 +300,12 @@ function processPackage(pkg) {
                         if (itemDescriptor != null && itemDescriptor != undefined) {
                             itemDescriptors.add(itemDescriptor);
                         }
-                        if (typeof(prop.value) == "function") {
+                        // declarative values are compiled into Java value providers,
+                        // only custom functions are evaluated by the script engine
+                        var compiled = compile(prop.value);
+                        if (compiled != undefined) {
+                            valProviders.add(compiled);
+                        } else if (typeof(prop.value) == "function") {
                             var handler = {
                                 getValue: prop.value
                             };
@@ -378,6 +381,47 @@ function delta(valProvider) {
     return new Delta(valProvider);
 }
 
+// change of the value per second, or per millisecond multiplied by the factor
+function rate(valProvider, factor) {
+    return factor == undefined ? ValueProviders.rate(toValueProvider(valProvider)) :
+                                 ValueProviders.rate(toValueProvider(valProvider), factor);
+}
+
+function ratio(dividend, divisor) {
+    return ValueProviders.ratio(toValueProvider(dividend), toValueProvider(divisor));
+}
+
+function difference(minuend, subtrahend) {
+    return ValueProviders.difference(toValueProvider(minuend), toValueProvider(subtrahend));
+}
+
+function sum(valProviders) {
+    var providers = new ValueProviderArray(valProviders.length);
+    for(var index = 0; index < valProviders.length; index++) {
+        providers[index] = toValueProvider(valProviders[index]);
+    }
+    return ValueProviders.sum(providers);
+}
+
+// returns a Java value provider for a declarative value or undefined for a custom value
+function compile(value) {
+    if (value == undefined || value == null) return undefined;
+    if (value instanceof ValueProvider) return value;
+    if (isFunction(value.compile)) return value.compile();
+    return undefined;
+}
+
+function toValueProvider(value) {
+    var compiled = compile(value);
+    if (compiled != undefined) return compiled;
+    if (isFunction(value)) {
+        return new ValueProvider({
+            getValue: value
+        });
+    }
+    return new ValueProvider(value);
+}
+
 function getKeys(map) {
     var ret = new Array();
     if (map == undefined || map == null) return 0;
@@ -536,6 +580,10 @@ function MBeanAttribute(objectName, attributeName) {
 
     this.getValue =  this.value;
 
+    this.compile = function() {
+        return mbean.getProvider();
+    }
+
     this.getProvider = function() {
         if (provider == undefined) {
             provider = new JMXValueProvider(this.on, this.an, application);
@@ -599,6 +647,15 @@ function WrappedValueProvider(mbeanAttr, keys) {
 }
 
 
+WrappedValueProvider.prototype.compile = function() {
+    var keys = new ObjectArray(this.keys.length);
+    for(var index = 0; index < this.keys.length; index++) {
+        keys[index] = this.keys[index];
+    }
+    return this.attribute.getProvider().get(keys);
+}
+
+
 function Delta(valProvider) {
     var oldValue;
     var oldTimeStamp;
@@ -627,6 +684,10 @@ Delta.prototype.setAttribute = function(attrName) {
 Delta.prototype.getValue = function(timestamp) {
     return this.getDelta(timestamp);
 }
+Delta.prototype.compile = function() {
+    var provider = compile(this.provider);
+    return provider != undefined ? ValueProviders.delta(provider) : undefined;
+}
 Delta.prototype.clone = function() {
     return new Delta(isFunction(this.provider.clone) ? this.provider.clone() : this.provider);
 }
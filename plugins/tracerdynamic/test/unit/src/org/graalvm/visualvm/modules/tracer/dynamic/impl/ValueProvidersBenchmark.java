@@ -0,0 +1,155 @@
+/*
+ *  Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package org.graalvm.visualvm.modules.tracer.dynamic.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.script.Invocable;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import org.graalvm.visualvm.modules.tracer.ProbeItemDescriptor;
+
+/**
+ * Benchmark of the per-sample cost of compiled value provider chains and of
+ * the equivalent script adapters evaluated by the JavaScript engine, the way
+ * custom probe values are evaluated by configurator.js.
+ *
+ * Not a unit test, run the main method with the test classpath and a JavaScript
+ * engine available to javax.script, for example Nashorn of JDK 8 - 14 or
+ * nashorn-core / GraalJS on the classpath.
+ *
+ * @author Jaroslav Bachorik
+ */
+public final class ValueProvidersBenchmark {
+
+    private static final int PROBES = 40;
+    private static final int SAMPLES = 100000;
+    private static final int WARMUP_SAMPLES = 20000;
+
+    // The script Delta of configurator.js, the sum of the deltas computed in the script
+    private static final String SCRIPT =
+            "var ValueProvider = Java.type('org.graalvm.visualvm.modules.tracer.dynamic.impl.ValueProvider');\n" + // NOI18N
+            "function Delta(valProvider) {\n" + // NOI18N
+            "    var oldValue;\n" + // NOI18N
+            "    var oldTimeStamp;\n" + // NOI18N
+            "    this.getValue = function(timeStamp) {\n" + // NOI18N
+            "        if (timeStamp == oldTimeStamp) return 0;\n" + // NOI18N
+            "        var newValue = valProvider.getValue(timeStamp);\n" + // NOI18N
+            "        var delta = oldValue != undefined ? (newValue - oldValue) : 0;\n" + // NOI18N
+            "        oldValue = newValue;\n" + // NOI18N
+            "        oldTimeStamp = timeStamp;\n" + // NOI18N
+            "        return delta;\n" + // NOI18N
+            "    }\n" + // NOI18N
+            "}\n" + // NOI18N
+            "function probe(first, second) {\n" + // NOI18N
+            "    var firstDelta = new Delta(first);\n" + // NOI18N
+            "    var secondDelta = new Delta(second);\n" + // NOI18N
+            "    return new ValueProvider({\n" + // NOI18N
+            "        getValue: function(timeStamp) {\n" + // NOI18N
+            "            return firstDelta.getValue(timeStamp) + secondDelta.getValue(timeStamp);\n" + // NOI18N
+            "        }\n" + // NOI18N
+            "    });\n" + // NOI18N
+            "}\n"; // NOI18N
+
+
+    public static void main(String[] args) throws ScriptException, NoSuchMethodException {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByExtension("js"); // NOI18N
+        if (engine == null) {
+            System.err.println("No JavaScript engine available, add Nashorn or GraalJS to the classpath"); // NOI18N
+            System.exit(1);
+        }
+        engine.eval(SCRIPT);
+        Invocable invocable = (Invocable)engine;
+
+        List<ValueProvider> compiled = new ArrayList<ValueProvider>();
+        List<ValueProvider> scripted = new ArrayList<ValueProvider>();
+        for (int i = 0; i < PROBES; i++) {
+            compiled.add(ValueProviders.sum(new ValueProvider[] {
+                ValueProviders.delta(new Counter(i)),
+                ValueProviders.delta(new Counter(2 * i))
+            }));
+            scripted.add((ValueProvider)invocable.invokeFunction("probe", new Counter(i), new Counter(2 * i))); // NOI18N
+        }
+
+        DynamicProbe compiledProbe = new DynamicProbe(Collections.<ProbeItemDescriptor>emptyList(), compiled);
+        DynamicProbe scriptedProbe = new DynamicProbe(Collections.<ProbeItemDescriptor>emptyList(), scripted);
+
+        sample(compiledProbe, scriptedProbe, 0, WARMUP_SAMPLES);
+
+        long compiledTime = sample(compiledProbe, WARMUP_SAMPLES, SAMPLES);
+        long scriptedTime = sample(scriptedProbe, WARMUP_SAMPLES, SAMPLES);
+
+        System.out.println(engine.getFactory().getEngineName() + ", " + PROBES + " probes"); // NOI18N
+        System.out.println("Compiled providers: " + (compiledTime / SAMPLES) + " ns/sample"); // NOI18N
+        System.out.println("Script adapters:    " + (scriptedTime / SAMPLES) + " ns/sample"); // NOI18N
+    }
+
+    // Compares the values of both probes, both paths must compute the same values
+    private static void sample(DynamicProbe compiled, DynamicProbe scripted, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            long[] compiledValues = compiled.getItemValues(i * 100L);
+            long[] scriptedValues = scripted.getItemValues(i * 100L);
+            for (int j = 0; j < compiledValues.length; j++) {
+                if (compiledValues[j] != scriptedValues[j]) {
+                    throw new AssertionError("Probe " + j + " at sample " + i + ": " + // NOI18N
+                            compiledValues[j] + " != " + scriptedValues[j]); // NOI18N
+                }
+            }
+        }
+    }
+
+    private static long sample(DynamicProbe probe, int from, int count) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = from; i < from + count; i++) {
+            long[] values = probe.getItemValues(i * 100L);
+            checksum += values[values.length - 1];
+        }
+        long time = System.nanoTime() - start;
+        if (checksum < 0) System.out.println(checksum);
+        return time;
+    }
+
+
+    private static final class Counter implements ValueProvider {
+
+        private final long increment;
+        private long value;
+
+        Counter(long increment) {
+            this.increment = increment;
+        }
+
+        public long getValue(long timestamp) {
+            value += increment;
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package org.graalvm.visualvm.modules.tracer.dynamic.impl;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jaroslav Bachorik
+ */
+public class ValueProvidersTest {
+
+    @Test
+    public void delta() {
+        Counter counter = new Counter(5);
+        ValueProvider delta = ValueProviders.delta(counter);
+
+        assertEquals(0, delta.getValue(100));
+        assertEquals(5, delta.getValue(200));
+        assertEquals(0, delta.getValue(200)); // same sample
+        assertEquals(5, delta.getValue(300));
+    }
+
+    @Test
+    public void rate() {
+        Counter counter = new Counter(50);
+        ValueProvider rate = ValueProviders.rate(counter);
+
+        assertEquals(0, rate.getValue(1000));
+        assertEquals(100, rate.getValue(1500));
+        assertEquals(50, rate.getValue(2500));
+
+        ValueProvider activity = ValueProviders.rate(new Counter(25), 1000);
+        assertEquals(0, activity.getValue(1000));
+        assertEquals(250, activity.getValue(1100));
+    }
+
+    @Test
+    public void ratio() {
+        ValueProvider ratio = ValueProviders.ratio(ValueProviders.constant(100), ValueProviders.constant(8));
+        assertEquals(12, ratio.getValue(0));
+
+        ratio = ValueProviders.ratio(ValueProviders.constant(100), ValueProviders.NULL_VALUE);
+        assertEquals(0, ratio.getValue(0));
+    }
+
+    @Test
+    public void sum() {
+        ValueProvider sum = ValueProviders.sum(new ValueProvider[] {
+            ValueProviders.difference(ValueProviders.constant(100), ValueProviders.constant(40)),
+            ValueProviders.difference(ValueProviders.constant(10), ValueProviders.constant(5)),
+            ValueProviders.timestamp()
+        });
+        assertEquals(165, sum.getValue(100));
+    }
+
+    private static final class Counter implements ValueProvider {
+
+        private final long increment;
+        private long value;
+
+        Counter(long increment) {
+            this.increment = increment;
+        }
+
+        public long getValue(long timestamp) {
+            value += increment;
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ *  Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package org.graalvm.visualvm.modules.tracer.dynamic.jmx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jaroslav Bachorik
+ */
+public class JMXValueCacheTest {
+
+    private final CountDownLatch hang = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        hang.countDown();
+    }
+
+    @Test
+    public void hungConnectionDoesNotBlockOthers() throws Exception {
+        JMXValueCache hung = new JMXValueCache(connection(hang, new AtomicInteger()));
+        for (int i = 0; i < 16; i++) {
+            hung.register(new ObjectName("test:type=Hung,id=" + i), "Value"); // NOI18N
+        }
+        assertNull(hung.getValue(new ObjectName("test:type=Hung,id=0"), "Value", 1)); // NOI18N
+
+        JMXValueCache live = new JMXValueCache(connection(null, new AtomicInteger()));
+        ObjectName name = new ObjectName("test:type=Live"); // NOI18N
+        live.register(name, "Value"); // NOI18N
+        assertEquals(42L, live.getLongValue(live.getIndex(name, "Value"), 1)); // NOI18N
+    }
+
+    @Test
+    public void noRequestsWhilePending() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        JMXValueCache cache = new JMXValueCache(connection(hang, requests));
+        ObjectName[] names = new ObjectName[3];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = new ObjectName("test:type=Hung,id=" + i); // NOI18N
+            cache.register(names[i], "Value"); // NOI18N
+        }
+
+        for (int timestamp = 1; timestamp <= 3; timestamp++) {
+            assertEquals(0L, cache.getLongValue(cache.getIndex(names[0], "Value"), timestamp)); // NOI18N
+        }
+        // only the requests allowed to run concurrently have been started, no new ones were issued
+        assertEquals(2, requests.get());
+
+        hang.countDown();
+        long timestamp = 4;
+        while (!allLoaded(cache, names, timestamp)) {
+            assertTrue("Values not loaded", timestamp < 200); // NOI18N
+            Thread.sleep(20);
+            timestamp++;
+        }
+        // the requests of the hung timestamp completed, fetching continues
+        cache.getLongValue(0, timestamp + 1);
+        assertTrue(requests.get() > names.length);
+    }
+
+    @Test
+    public void pendingMBeanDoesNotBlockOthers() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        JMXValueCache cache = new JMXValueCache(connection(hang, requests));
+        ObjectName hung = new ObjectName("test:type=Hung"); // NOI18N
+        ObjectName live = new ObjectName("test:type=Live"); // NOI18N
+        cache.register(hung, "Value"); // NOI18N
+        cache.register(live, "Value"); // NOI18N
+
+        for (int timestamp = 1; timestamp <= 3; timestamp++) {
+            assertEquals(0L, cache.getLongValue(cache.getIndex(hung, "Value"), timestamp)); // NOI18N
+            assertEquals(42L, cache.getLongValue(cache.getIndex(live, "Value"), timestamp)); // NOI18N
+        }
+        // the hung MBean has been requested once, the live one for each timestamp
+        assertEquals(1 + 3, requests.get());
+    }
+
+    private static boolean allLoaded(JMXValueCache cache, ObjectName[] names, long timestamp) {
+        for (ObjectName name : names) {
+            if (cache.getLongValue(cache.getIndex(name, "Value"), timestamp) != 42L) return false; // NOI18N
+        }
+        return true;
+    }
+
+    private static MBeanServerConnection connection(final CountDownLatch hang, final AtomicInteger requests) {
+        return (MBeanServerConnection)Proxy.newProxyInstance(JMXValueCacheTest.class.getClassLoader(),
+                new Class[] { MBeanServerConnection.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (!"getAttributes".equals(method.getName())) return null; // NOI18N
+                requests.incrementAndGet();
+                if (hang != null && "Hung".equals(((ObjectName)args[0]).getKeyProperty("type"))) hang.await(); // NOI18N
+                AttributeList list = new AttributeList();
+                for (String attribute : (String[])args[1]) {
+                    list.add(new Attribute(attribute, Long.valueOf(42)));
+                }
+                return list;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package org.graalvm.visualvm.modules.tracer.dynamic.jmx;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jaroslav Bachorik
+ */
+public class JMXValueProviderTest {
+
+    @Test
+    public void composite() throws OpenDataException {
+        CompositeData usage = memoryUsage(10, 20);
+
+        assertEquals(10, JMXValueProvider.resolve(usage, new Object[] { "used" })); // NOI18N
+        assertEquals(20, JMXValueProvider.resolve(usage, new Object[] { "committed" })); // NOI18N
+        assertEquals(0, JMXValueProvider.resolve(usage, new Object[] { "unknown" })); // NOI18N
+        assertEquals(0, JMXValueProvider.resolve(usage, new Object[] { Integer.valueOf(1) }));
+        assertEquals(0, JMXValueProvider.resolve(usage, new Object[] { "used", "nested" })); // NOI18N
+        assertEquals(0, JMXValueProvider.resolve(null, new Object[] { "used" })); // NOI18N
+    }
+
+    @Test
+    public void compositeTabular() throws OpenDataException {
+        // Shape of GarbageCollectorMXBean.LastGcInfo
+        CompositeData usageEden = memoryUsage(100, 200);
+        CompositeData usageOld = memoryUsage(300, 400);
+        CompositeType usageType = usageEden.getCompositeType();
+
+        CompositeType rowType = new CompositeType("row", "row", // NOI18N
+                new String[] { "key", "value" }, new String[] { "key", "value" }, // NOI18N
+                new OpenType[] { SimpleType.STRING, usageType });
+        TabularType tableType = new TabularType("table", "table", rowType, new String[] { "key" }); // NOI18N
+        TabularDataSupport table = new TabularDataSupport(tableType);
+        table.put(new CompositeDataSupport(rowType, new String[] { "key", "value" }, new Object[] { "Eden", usageEden })); // NOI18N
+        table.put(new CompositeDataSupport(rowType, new String[] { "key", "value" }, new Object[] { "Old", usageOld })); // NOI18N
+
+        CompositeType gcInfoType = new CompositeType("gcInfo", "gcInfo", // NOI18N
+                new String[] { "duration", "memoryUsageAfterGc" }, new String[] { "duration", "memoryUsageAfterGc" }, // NOI18N
+                new OpenType[] { SimpleType.LONG, tableType });
+        CompositeData gcInfo = new CompositeDataSupport(gcInfoType,
+                new String[] { "duration", "memoryUsageAfterGc" }, new Object[] { Long.valueOf(7), table }); // NOI18N
+
+        assertEquals(7, JMXValueProvider.resolve(gcInfo, new Object[] { "duration" })); // NOI18N
+        assertEquals(100, JMXValueProvider.resolve(gcInfo, new Object[] { "memoryUsageAfterGc", "Eden", "used" })); // NOI18N
+        assertEquals(400, JMXValueProvider.resolve(gcInfo, new Object[] { "memoryUsageAfterGc", "Old", "committed" })); // NOI18N
+        assertEquals(0, JMXValueProvider.resolve(gcInfo, new Object[] { "memoryUsageAfterGc", "Survivor", "used" })); // NOI18N
+        // Wrong type of the row key
+        assertEquals(0, JMXValueProvider.resolve(gcInfo, new Object[] { "memoryUsageAfterGc", Integer.valueOf(1), "used" })); // NOI18N
+        // Not a number
+        assertEquals(0, JMXValueProvider.resolve(gcInfo, new Object[] { "memoryUsageAfterGc", "Eden" })); // NOI18N
+    }
+
+    @Test
+    public void compositeArray() throws OpenDataException {
+        // Tabular data converted to an array of key-value rows
+        CompositeType rowType = new CompositeType("row", "row", // NOI18N
+                new String[] { "key", "value" }, new String[] { "key", "value" }, // NOI18N
+                new OpenType[] { SimpleType.STRING, SimpleType.LONG });
+        CompositeData[] rows = new CompositeData[] {
+            new CompositeDataSupport(rowType, new String[] { "key", "value" }, new Object[] { "a", Long.valueOf(1) }), // NOI18N
+            new CompositeDataSupport(rowType, new String[] { "key", "value" }, new Object[] { "b", Long.valueOf(2) }) // NOI18N
+        };
+
+        assertEquals(1, JMXValueProvider.resolve(rows, new Object[] { "a" })); // NOI18N
+        assertEquals(2, JMXValueProvider.resolve(rows, new Object[] { "b" })); // NOI18N
+        assertEquals(0, JMXValueProvider.resolve(rows, new Object[] { "c" })); // NOI18N
+    }
+
+    @Test
+    public void plainValue() {
+        assertEquals(42, JMXValueProvider.resolve(Integer.valueOf(42), new Object[0]));
+        assertEquals(0, JMXValueProvider.resolve("42", new Object[0])); // NOI18N
+        assertEquals(0, JMXValueProvider.resolve(Integer.valueOf(42), new Object[] { "used" })); // NOI18N
+    }
+
+    private static CompositeData memoryUsage(long used, long committed) throws OpenDataException {
+        CompositeType type = new CompositeType("usage", "usage", // NOI18N
+                new String[] { "used", "committed" }, new String[] { "used", "committed" }, // NOI18N
+                new OpenType[] { SimpleType.LONG, SimpleType.LONG });
+        return new CompositeDataSupport(type, new String[] { "used", "committed" }, // NOI18N
+                new Object[] { Long.valueOf(used), Long.valueOf(committed) });
+    }
+
+}
@@ -32,19 +32,8 @@ try {
 }
 var btraceDeployer = btraceDeployerClass ? btraceDeployerClass.instance() : undefined;
 
-function DivideBytesAcc(mbeanBytes, mbeanCount) {
-    this.value = function (ts) {
-        var bytes = mbeanBytes.getValue(ts);
-        var count = mbeanCount.getValue(ts);
-        if (count != 0) {
-            return bytes/count;
-        }
-        return  0;
-    }
-}
-
 function divideBytes(mbeanBytes, mbeanCount) {
-    return new DivideBytesAcc(mbeanBytes, mbeanCount).value;
+    return ratio(mbeanBytes, mbeanCount);
 }
 
 VisualVM.Tracer.addPackages([{
@@ -38,20 +38,7 @@ var btraceDeployer = btraceDeployerClass ? btraceDeployerClass.instance() : unde
 
 
 function getGCRunProvider(on) {
-    return function(timestamp) {
-        if (this.delta == undefined) {
-            this.delta = delta(mbeanAttribute(on, "CollectionCount"))
-        }
-        if (this.lastTs == undefined) {
-            this.lastTs = timestamp;
-        }
-        var timeDelta = timestamp - this.lastTs;
-        this.lastTs = timestamp;
-        if (timeDelta > 0) {
-            return (this.delta.getValue(timestamp) * 1000) / timeDelta;
-        }
-        return 0;
-    }
+    return rate(mbeanAttribute(on, "CollectionCount"));
 }
 
 function getGCRuns() {
@@ -83,22 +70,14 @@ function getGCRuns() {
 function getReclaimedMemoryProvider(on) {
     var keys = mbeanAttribute(on, "LastGcInfo").get("memoryUsageBeforeGc").getKeys();
     // externalize the indexed values
-    var before = new Array();
-    var after = new Array();
+    var reclaimed = new Array();
     for(var pool in keys) {
-        before[pool] = mbeanAttribute(on, "LastGcInfo").get("memoryUsageBeforeGc").get(keys[pool]).get("used");
-        after[pool] = mbeanAttribute(on, "LastGcInfo").get("memoryUsageAfterGc").get(keys[pool]).get("used");
+        reclaimed[pool] = difference(
+            mbeanAttribute(on, "LastGcInfo").get("memoryUsageBeforeGc").get(keys[pool]).get("used"),
+            mbeanAttribute(on, "LastGcInfo").get("memoryUsageAfterGc").get(keys[pool]).get("used"));
     }
 
-    return function(timestamp) {
-        var delta = 0;
-        for(var pool in keys) {
-            var pre = before[pool].getValue(timestamp);
-            var post = after[pool].getValue(timestamp);
-            delta += (pre - post);
-        }
-        return delta;
-    }
+    return sum(reclaimed);
 }
 
 function getReclaimedMemory() {
@@ -170,23 +149,8 @@ VisualVM.Tracer.addPackages([{
                 {
                     name: "Compiler activity",
                     desc: "Monitors relative JIT compiler activity (%)",
-                    value: function(timestamp) {
-                        if (this.valDelta == undefined) {
-                            this.valDelta = delta(mbeanAttribute("java.lang:type=Compilation", "TotalCompilationTime"));
-                        }
-                        if (this.timeDelta == undefined) {
-                            this.timeDelta = delta(new ValueProvider({
-                                getValue: function(timestamp) {
-                                    return timestamp;
-                                }
-                            }));
-                        }
-
-                        var valDiff = this.valDelta.getValue(timestamp);
-                        var timeDiff = this.timeDelta.getValue(timestamp);
-
-                        return timeDiff > 0 ? (valDiff * 1000 / timeDiff) : 0;
-                    },
+                    // compilation time in ms per 1 ms of the sample period, 1000 = 100.0%
+                    value: rate(mbeanAttribute("java.lang:type=Compilation", "TotalCompilationTime"), 1000),
                     presenter: {
                         format: ItemValueFormatter.DEFAULT_PERCENT,
                         min: 0,
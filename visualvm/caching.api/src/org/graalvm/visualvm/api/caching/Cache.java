@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2007, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -58,4 +58,13 @@ abstract public class Cache<K,V> {
      */
     abstract public void setTTL(long ttl);
 
+    /**
+     * Returns a snapshot of the cache usage statistics
+     * @return Returns the current statistics or {@linkplain CacheStatistics#EMPTY}
+     *         if the cache does not collect statistics
+     */
+    public CacheStatistics getStatistics() {
+        return CacheStatistics.EMPTY;
+    }
+
 }
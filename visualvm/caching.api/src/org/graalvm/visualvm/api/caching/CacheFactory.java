@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2007, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -58,6 +58,16 @@ final public class CacheFactory {
     public <K,V> Cache<K,V> weakMapCache(EntryFactory<K,V> resolver) {
         return delegate.weakMapCache(resolver);
     }
+    /**
+     * Creates a cache with weakly referenced keys holding at most the given number of entries
+     * @param resolver The resolver of missing entries
+     * @param persistor The persistor of resolved entries
+     * @param maximumSize Maximum number of cached entries, non-positive value means unbounded cache
+     * @return Returns a new cache
+     */
+    public <K,V> Cache<K,V> weakMapCache(EntryFactory<K,V> resolver, Persistor<K,V> persistor, int maximumSize) {
+        return delegate.weakMapCache(resolver, persistor, maximumSize);
+    }
 
     public <K,V> Cache<K,V> softMapCache() {
         return delegate.softMapCache();
@@ -71,4 +81,14 @@ final public class CacheFactory {
     public <K,V> Cache<K,V> softMapCache(EntryFactory<K,V> resolver) {
         return delegate.softMapCache(resolver);
     }
+    /**
+     * Creates a cache with softly referenced keys holding at most the given number of entries
+     * @param resolver The resolver of missing entries
+     * @param persistor The persistor of resolved entries
+     * @param maximumSize Maximum number of cached entries, non-positive value means unbounded cache
+     * @return Returns a new cache
+     */
+    public <K,V> Cache<K,V> softMapCache(EntryFactory<K,V> resolver, Persistor<K,V> persistor, int maximumSize) {
+        return delegate.softMapCache(resolver, persistor, maximumSize);
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.api.caching;
+
+/**
+ * Immutable snapshot of {@linkplain Cache} usage statistics
+ * @author Jaroslav Bachorik
+ */
+final public class CacheStatistics {
+
+    /**
+     * Statistics of a cache which does not collect any data
+     */
+    final public static CacheStatistics EMPTY = new CacheStatistics(0, 0, 0, 0, 0, 0, 0);
+
+    final private long hitCount;
+    final private long missCount;
+    final private long loadSuccessCount;
+    final private long loadFailureCount;
+    final private long totalLoadTime;
+    final private long evictionCount;
+    final private long expirationCount;
+
+    public CacheStatistics(long hitCount, long missCount, long loadSuccessCount,
+                           long loadFailureCount, long totalLoadTime,
+                           long evictionCount, long expirationCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCount = evictionCount;
+        this.expirationCount = expirationCount;
+    }
+
+    /**
+     * @return Returns the number of lookups served by a cached value
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return Returns the number of lookups which had to wait for a value to be loaded
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return Returns the ratio of hits to all lookups or 1 if there were no lookups
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double)hitCount / requestCount;
+    }
+
+    /**
+     * @return Returns the number of loads which resolved a value
+     */
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    /**
+     * @return Returns the number of loads which resolved no value or failed
+     */
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * @return Returns the total time spent loading values in nanoseconds
+     */
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * @return Returns the average time spent loading a value in nanoseconds
+     */
+    public double getAverageLoadPenalty() {
+        long loadCount = loadSuccessCount + loadFailureCount;
+        return loadCount == 0 ? 0.0 : (double)totalLoadTime / loadCount;
+    }
+
+    /**
+     * @return Returns the number of entries evicted to keep the cache within its size bound
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return Returns the number of entries removed because their key was collected
+     */
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics[hits=" + hitCount + ", misses=" + missCount + // NOI18N
+               ", loadSuccesses=" + loadSuccessCount + ", loadFailures=" + loadFailureCount + // NOI18N
+               ", totalLoadTime=" + totalLoadTime + "ns, evictions=" + evictionCount + // NOI18N
+               ", expirations=" + expirationCount + "]"; // NOI18N
+    }
+}
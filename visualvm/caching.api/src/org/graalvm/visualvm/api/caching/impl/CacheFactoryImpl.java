@@ -50,6 +50,9 @@ public class CacheFactoryImpl {
     public <K,V> Cache<K,V> weakMapCache(EntryFactory<K,V> resolver) {
         return new CacheImpl<>(resolver, new WeakKeyFactory<>());
     }
+    public <K,V> Cache<K,V> weakMapCache(EntryFactory<K,V> resolver, Persistor<K,V> persistor, int maximumSize) {
+        return new CacheImpl<>(resolver, new WeakKeyFactory<>(), persistor, maximumSize);
+    }
 
     public <K,V> Cache<K,V> softMapCache() {
         return new CacheImpl<>(new SoftKeyFactory<>());
@@ -63,4 +66,7 @@ public class CacheFactoryImpl {
     public <K,V> Cache<K,V> softMapCache(EntryFactory<K,V> resolver) {
         return new CacheImpl<>(resolver, new SoftKeyFactory<>());
     }
+    public <K,V> Cache<K,V> softMapCache(EntryFactory<K,V> resolver, Persistor<K,V> persistor, int maximumSize) {
+        return new CacheImpl<>(resolver, new SoftKeyFactory<>(), persistor, maximumSize);
+    }
 }
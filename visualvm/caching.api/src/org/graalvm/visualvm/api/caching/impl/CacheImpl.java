@@ -27,59 +27,109 @@ package org.graalvm.visualvm.api.caching.impl;
 
 
 import org.graalvm.visualvm.api.caching.Cache;
+import org.graalvm.visualvm.api.caching.CacheStatistics;
 import org.graalvm.visualvm.api.caching.Entry;
 import org.graalvm.visualvm.api.caching.EntryFactory;
 import org.graalvm.visualvm.api.caching.Persistor;
 import java.lang.ref.Reference;
-import java.util.HashMap;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openide.util.RequestProcessor;
 
 /**
  * Default class implementation - should be used as a base for caching functionality
+ * <p>
+ * Entries are kept in a concurrent map, a value is loaded at most once at a time
+ * for a key and only callers asking for the same key wait for the load to finish.
+ * An entry older than TTL is refreshed when accessed, the expired value is kept
+ * until the refresh succeeds. The cache is unbounded unless created with a maximum
+ * size, then the least recently accessed entries are evicted first. Entries with
+ * collected keys are removed by a background task.
+ * </p>
  * @author Jaroslav Bachorik
  */
 final class CacheImpl<K, V> extends Cache<K,V> {
-    final private Map<Reference<K>, Entry<V>> objectCache = new HashMap<>();
 
-    private long update_interval = 60480000; // 7 days in milliseconds
+    private static final int PURGE_INTERVAL = 10000;
 
-    private Persistor<K, V> persistor = Persistor.DEFAULT;
-    private KeyFactory<K> keyFactory = KeyFactory.DEFAULT;
-    private EntryFactory<K,V> resolver = EntryFactory.DEFAULT;
+    private static final RequestProcessor PURGE_PROCESSOR = new RequestProcessor("Cache Purge"); // NOI18N
 
-    CacheImpl() {};
+    final private ConcurrentMap<Reference<K>, Slot<V>> objectCache = new ConcurrentHashMap<>();
+    final private ReferenceQueue<K> clearedKeys = new ReferenceQueue<>();
+    final private ReentrantLock evictionLock = new ReentrantLock();
+
+    private volatile long update_interval = 60480000; // 7 days in milliseconds
+    final private int maximumSize;
+
+    final private Persistor<K, V> persistor;
+    final private KeyFactory<K> keyFactory;
+    final private EntryFactory<K,V> resolver;
+
+    final private LongAdder hitCount = new LongAdder();
+    final private LongAdder missCount = new LongAdder();
+    final private LongAdder loadSuccessCount = new LongAdder();
+    final private LongAdder loadFailureCount = new LongAdder();
+    final private LongAdder totalLoadTime = new LongAdder();
+    final private LongAdder evictionCount = new LongAdder();
+    final private LongAdder expirationCount = new LongAdder();
+
+    final private RequestProcessor.Task purgeTask;
+
+    CacheImpl() {
+        this(EntryFactory.DEFAULT, KeyFactory.DEFAULT, Persistor.DEFAULT);
+    };
 
     CacheImpl(EntryFactory<K,V> resolver) {
-        this.resolver = resolver;
+        this(resolver, KeyFactory.DEFAULT, Persistor.DEFAULT);
     }
 
     CacheImpl(Persistor<K,V> persistor) {
-        this.persistor = persistor;
+        this(EntryFactory.DEFAULT, KeyFactory.DEFAULT, persistor);
     }
 
     CacheImpl(KeyFactory<K> keyFactory) {
-        this.keyFactory = keyFactory;
+        this(EntryFactory.DEFAULT, keyFactory, Persistor.DEFAULT);
     }
 
     CacheImpl(EntryFactory<K,V> resolver, Persistor<K,V> persistor) {
-        this.resolver = resolver;
-        this.persistor = persistor;
+        this(resolver, KeyFactory.DEFAULT, persistor);
     }
 
     CacheImpl(EntryFactory<K,V> resolver, KeyFactory<K> keyFactory) {
-        this.resolver = resolver;
-        this.keyFactory = keyFactory;
+        this(resolver, keyFactory, Persistor.DEFAULT);
     }
 
     CacheImpl(KeyFactory<K> keyFactory, Persistor<K,V> persistor) {
-        this.persistor = persistor;
-        this.keyFactory = keyFactory;
+        this(EntryFactory.DEFAULT, keyFactory, persistor);
     }
 
     CacheImpl(EntryFactory<K,V> resolver, KeyFactory<K> keyFactory, Persistor<K,V> persistor) {
+        this(resolver, keyFactory, persistor, 0);
+    }
+
+    /**
+     * @param maximumSize Maximum number of cached entries, non-positive value means unbounded cache
+     */
+    CacheImpl(EntryFactory<K,V> resolver, KeyFactory<K> keyFactory, Persistor<K,V> persistor, int maximumSize) {
         this.resolver = resolver;
         this.persistor = persistor;
         this.keyFactory = keyFactory;
+        this.maximumSize = maximumSize;
+        purgeTask = PURGE_PROCESSOR.create(new Purge(this));
+        purgeTask.schedule(PURGE_INTERVAL);
     }
 
     /**
@@ -95,40 +145,75 @@ final class CacheImpl<K, V> extends Cache<K,V> {
      */
     @Override
     final public V retrieveObject(K key) {
+        purgeClearedKeys();
+
         Reference<K> softKey = keyFactory.createKey(key);
-        synchronized(objectCache) {
-            Entry<V> entry = objectCache.get(softKey);
-            if (entry == null) {
-                entry = persistor.retrieve(key);
+        Slot<V> slot = objectCache.get(softKey);
+        if (slot == null) {
+            Slot<V> newSlot = new Slot<>();
+            slot = objectCache.putIfAbsent(keyFactory.createKey(key, clearedKeys), newSlot);
+            if (slot == null) {
+                slot = newSlot;
+                if (maximumSize > 0 && objectCache.size() > maximumSize) evictEntries();
             }
-            if (entry == null) {
-                entry = cacheMiss(key);
-                if (entry != null && entry.getContent() != null) {
-                    persistor.store(key, entry);
-                    objectCache.put(softKey, entry);
+        }
+
+        long timestamp = System.currentTimeMillis();
+        Entry<V> entry = slot.entry;
+        if (entry != null && !isExpired(entry, timestamp)) {
+            slot.accessTs = timestamp;
+            hitCount.increment();
+            return entry.getContent();
+        }
+
+        missCount.increment();
+        FutureTask<Entry<V>> loader;
+        boolean loading = false;
+        synchronized(slot) {
+            loader = slot.loader;
+            if (loader == null) {
+                entry = slot.entry;
+                if (entry != null && !isExpired(entry, timestamp)) {
+                    // loaded meanwhile by another thread
+                    slot.accessTs = timestamp;
+                    return entry.getContent();
                 }
-            } else {
-                long timestamp = System.currentTimeMillis();
-                if ((timestamp - entry.getUpdateTimeStamp()) > update_interval) {
-                    Entry<V> newEntry = cacheMiss(key);
-                    if (newEntry != null && newEntry.getContent() != null) {
-                        persistor.store(key, entry);
-                        objectCache.put(softKey, newEntry);
-                        entry = newEntry;
+                loader = new FutureTask<>(new Loader(key, entry));
+                slot.loader = loader;
+                loading = true;
+            }
+        }
+
+        if (loading) {
+            try {
+                loader.run();
+            } finally {
+                synchronized(slot) {
+                    try {
+                        Entry<V> loaded = loader.isDone() && !loader.isCancelled() ? getLoaded(loader) : null;
+                        if (loaded != null) {
+                            slot.entry = loaded;
+                            slot.accessTs = System.currentTimeMillis();
+                        }
+                    } catch (RuntimeException | Error e) {
+                        // reported to the caller below
                     }
+                    slot.loader = null;
+                    if (slot.entry == null) objectCache.remove(softKey, slot);
                 }
             }
-            return entry != null ? entry.getContent() : null;
         }
+
+        entry = getLoaded(loader);
+        return entry != null ? entry.getContent() : null;
     }
-    
+
     @Override
     final public V invalidateObject(K key) {
         Reference<K> softKey = keyFactory.createKey(key);
-        synchronized(objectCache) {
-            Entry<V> entry = objectCache.remove(softKey);
-            return entry != null ? entry.getContent() : null;
-        }
+        Slot<V> slot = objectCache.remove(softKey);
+        Entry<V> entry = slot != null ? slot.entry : null;
+        return entry != null ? entry.getContent() : null;
     }
 
     /**
@@ -149,6 +234,25 @@ final class CacheImpl<K, V> extends Cache<K,V> {
         this.update_interval = ttl;
     }
 
+    @Override
+    final public CacheStatistics getStatistics() {
+        return new CacheStatistics(hitCount.sum(), missCount.sum(),
+                                   loadSuccessCount.sum(), loadFailureCount.sum(),
+                                   totalLoadTime.sum(), evictionCount.sum(),
+                                   expirationCount.sum());
+    }
+
+    /**
+     * @return Returns the number of currently cached entries, including the ones being loaded
+     */
+    int size() {
+        return objectCache.size();
+    }
+
+    int getMaximumSize() {
+        return maximumSize;
+    }
+
     /**
      * This method is called in case of cache-miss
      * It can return NULL if it's not possible to resolve the missing instance
@@ -158,4 +262,152 @@ final class CacheImpl<K, V> extends Cache<K,V> {
     private Entry<V> cacheMiss(K key) {
         return resolver.createEntry(key);
     }
+
+    private boolean isExpired(Entry<V> entry, long timestamp) {
+        return (timestamp - entry.getUpdateTimeStamp()) > update_interval;
+    }
+
+    private static <V> Entry<V> getLoaded(FutureTask<Entry<V>> loader) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return loader.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+                    if (cause instanceof Error) throw (Error)cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Removes the least recently accessed entries until the cache shrinks
+     * to 90% of its maximum size. Entries being loaded are never evicted.
+     */
+    private void evictEntries() {
+        if (!evictionLock.tryLock()) return; // another thread is already evicting
+
+        try {
+            int targetSize = maximumSize - maximumSize / 10;
+            int toEvict = objectCache.size() - targetSize;
+            if (toEvict <= 0) return;
+
+            List<Map.Entry<Reference<K>, Slot<V>>> candidates = new ArrayList<>(objectCache.size());
+            for (Map.Entry<Reference<K>, Slot<V>> mapEntry : objectCache.entrySet()) {
+                Slot<V> slot = mapEntry.getValue();
+                if (slot.loader == null && slot.entry != null) candidates.add(mapEntry);
+            }
+            final Map<Slot<V>, Long> accessTimes = new IdentityHashMap<>(candidates.size());
+            for (Map.Entry<Reference<K>, Slot<V>> mapEntry : candidates)
+                accessTimes.put(mapEntry.getValue(), mapEntry.getValue().accessTs);
+            Collections.sort(candidates, new Comparator<Map.Entry<Reference<K>, Slot<V>>>() {
+                @Override
+                public int compare(Map.Entry<Reference<K>, Slot<V>> e1, Map.Entry<Reference<K>, Slot<V>> e2) {
+                    return Long.compare(accessTimes.get(e1.getValue()), accessTimes.get(e2.getValue()));
+                }
+            });
+
+            for (Map.Entry<Reference<K>, Slot<V>> mapEntry : candidates) {
+                if (toEvict <= 0) break;
+                if (objectCache.remove(mapEntry.getKey(), mapEntry.getValue())) {
+                    evictionCount.increment();
+                    toEvict--;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void purgeClearedKeys() {
+        Reference<? extends K> key;
+        while ((key = clearedKeys.poll()) != null) {
+            if (objectCache.remove(key) != null) expirationCount.increment();
+        }
+    }
+
+    /**
+     * Removes entries with collected keys. Entries with elapsed TTL are kept,
+     * they are refreshed when accessed.
+     */
+    void expireEntries() {
+        purgeClearedKeys();
+    }
+
+
+    private static final class Slot<V> {
+        volatile Entry<V> entry;
+        volatile long accessTs;
+        // guarded by this
+        FutureTask<Entry<V>> loader;
+    }
+
+    private final class Loader implements Callable<Entry<V>> {
+        private final K key;
+        private final Entry<V> expired;
+
+        Loader(K key, Entry<V> expired) {
+            this.key = key;
+            this.expired = expired;
+        }
+
+        @Override
+        public Entry<V> call() {
+            long start = System.nanoTime();
+            boolean loaded = false;
+            try {
+                Entry<V> entry = expired;
+                if (entry == null) {
+                    entry = persistor.retrieve(key);
+                    if (entry != null && entry.getContent() == null) entry = null;
+                }
+                if (entry == null) {
+                    entry = cacheMiss(key);
+                    if (entry != null && entry.getContent() != null) {
+                        persistor.store(key, entry);
+                    } else {
+                        entry = null;
+                    }
+                } else if (isExpired(entry, System.currentTimeMillis())) {
+                    Entry<V> newEntry = cacheMiss(key);
+                    if (newEntry != null && newEntry.getContent() != null) {
+                        persistor.store(key, newEntry);
+                        entry = newEntry;
+                    }
+                }
+                loaded = entry != null;
+                return entry;
+            } finally {
+                totalLoadTime.add(System.nanoTime() - start);
+                if (loaded) loadSuccessCount.increment();
+                else loadFailureCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Periodically removes entries with collected keys, stops once the cache is collected
+     */
+    private static final class Purge implements Runnable {
+        private final WeakReference<CacheImpl<?, ?>> cacheRef;
+
+        Purge(CacheImpl<?, ?> cache) {
+            cacheRef = new WeakReference<>(cache);
+        }
+
+        @Override
+        public void run() {
+            CacheImpl<?, ?> cache = cacheRef.get();
+            if (cache == null) return;
+            cache.expireEntries();
+            cache.purgeTask.schedule(PURGE_INTERVAL);
+        }
+    }
 }
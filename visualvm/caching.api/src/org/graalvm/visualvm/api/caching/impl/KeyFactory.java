@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2007, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -26,15 +26,24 @@
 package org.graalvm.visualvm.api.caching.impl;
 
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 
 interface KeyFactory<K> {
 
     Reference<K> createKey(K obj);
+
+    Reference<K> createKey(K obj, ReferenceQueue<? super K> queue);
+
     static final KeyFactory DEFAULT = new KeyFactory() {
 
         @Override
         public Reference createKey(Object obj) {
             return new SoftReferenceEx(obj);
         }
+
+        @Override
+        public Reference createKey(Object obj, ReferenceQueue queue) {
+            return new SoftReferenceEx(obj, queue);
+        }
     };
 }
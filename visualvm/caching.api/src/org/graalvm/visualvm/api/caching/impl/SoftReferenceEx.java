@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2007, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -27,7 +27,6 @@ package org.graalvm.visualvm.api.caching.impl;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.Objects;
 
 /**
  * Extended {@linkplain SoftReference} to allow euqals() and hashCode()
@@ -50,9 +49,12 @@ class SoftReferenceEx<T> extends SoftReference<T> {
 
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) return true;
         if (!(obj instanceof SoftReferenceEx)) return false;
         SoftReferenceEx other = (SoftReferenceEx)obj;
-        return Objects.equals(get(), other.get());
+        // cleared references are equal only to themselves
+        T referent = get();
+        return referent != null && referent.equals(other.get());
     }
 
     @Override
@@ -26,6 +26,7 @@
 package org.graalvm.visualvm.api.caching.impl;
 
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 
 /**
  *
@@ -38,4 +39,9 @@ public class WeakKeyFactory<K> implements KeyFactory<K> {
         return new WeakReferenceEx<>(obj);
     }
 
+    @Override
+    public Reference<K> createKey(K obj, ReferenceQueue<? super K> queue) {
+        return new WeakReferenceEx<>(obj, queue);
+    }
+
 }
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.api.caching.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.graalvm.visualvm.api.caching.CacheStatistics;
+import org.graalvm.visualvm.api.caching.Entry;
+import org.graalvm.visualvm.api.caching.EntryFactory;
+import org.graalvm.visualvm.api.caching.Persistor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jaroslav Bachorik
+ */
+public class CacheImplConcurrencyTest {
+
+    public CacheImplConcurrencyTest() {
+    }
+
+    /**
+     * Concurrent requests for the same key must share a single load.
+     */
+    @Test
+    public void testSingleFlightLoading() throws Exception {
+        System.out.println("retrieveObject - single flight");
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CacheImpl<String, String> cache = new CacheImpl<>(new EntryFactory<String, String>() {
+            @Override
+            public Entry<String> createEntry(String key) {
+                loads.incrementAndGet();
+                await(release);
+                return new Entry<>(key + "-value");
+            }
+        }, new SoftKeyFactory<String>(), Persistor.DEFAULT, 0);
+
+        final String[] results = new String[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    results[index] = cache.retrieveObject("key");
+                }
+            });
+            threads[i].start();
+        }
+        Thread.sleep(200);
+        release.countDown();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(1, loads.get());
+        for (String result : results) assertEquals("key-value", result);
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getLoadSuccessCount());
+        assertEquals(results.length, statistics.getHitCount() + statistics.getMissCount());
+    }
+
+    /**
+     * A slow load must not block requests for other keys.
+     */
+    @Test
+    public void testSlowLoadDoesNotBlockOtherKeys() throws Exception {
+        System.out.println("retrieveObject - slow load");
+        final CountDownLatch release = new CountDownLatch(1);
+        final CacheImpl<String, String> cache = new CacheImpl<>(new EntryFactory<String, String>() {
+            @Override
+            public Entry<String> createEntry(String key) {
+                if ("slow".equals(key)) await(release);
+                return new Entry<>(key);
+            }
+        }, new SoftKeyFactory<String>(), Persistor.DEFAULT, 0);
+
+        Thread slow = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.retrieveObject("slow");
+            }
+        });
+        slow.start();
+        Thread.sleep(100);
+        try {
+            assertEquals("fast", cache.retrieveObject("fast"));
+            assertTrue(slow.isAlive());
+        } finally {
+            release.countDown();
+            slow.join();
+        }
+        assertEquals("slow", cache.retrieveObject("slow"));
+    }
+
+    /**
+     * The cache must not grow over its maximum size, recently used entries survive.
+     */
+    @Test
+    public void testBoundedSize() {
+        System.out.println("retrieveObject - bounded size");
+        final AtomicInteger loads = new AtomicInteger();
+        CacheImpl<String, String> cache = new CacheImpl<>(new EntryFactory<String, String>() {
+            @Override
+            public Entry<String> createEntry(String key) {
+                loads.incrementAndGet();
+                return new Entry<>(key);
+            }
+        }, new SoftKeyFactory<String>(), Persistor.DEFAULT, 100);
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String key = "key" + i;
+            keys.add(key);
+            cache.retrieveObject(key);
+            cache.retrieveObject("key0");
+            assertTrue(cache.size() <= cache.getMaximumSize());
+        }
+
+        assertTrue(cache.getStatistics().getEvictionCount() >= 900);
+        int loadsBefore = loads.get();
+        assertEquals("key0", cache.retrieveObject("key0"));
+        assertEquals("key999", cache.retrieveObject("key999"));
+        assertEquals(loadsBefore, loads.get());
+    }
+
+    /**
+     * The cache must be unbounded unless created with a maximum size.
+     */
+    @Test
+    public void testUnboundedByDefault() {
+        System.out.println("retrieveObject - unbounded");
+        CacheImpl<String, String> cache = new CacheImpl<>(new EntryFactory<String, String>() {
+            @Override
+            public Entry<String> createEntry(String key) {
+                return new Entry<>(key);
+            }
+        });
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = "key" + i;
+            keys.add(key);
+            cache.retrieveObject(key);
+        }
+
+        assertEquals(0, cache.getMaximumSize());
+        assertEquals(keys.size(), cache.size());
+        assertEquals(0, cache.getStatistics().getEvictionCount());
+    }
+
+    /**
+     * Entries with elapsed TTL must be kept until they are refreshed successfully.
+     */
+    @Test
+    public void testExpiredValueKept() throws Exception {
+        System.out.println("expiration - TTL");
+        final AtomicInteger version = new AtomicInteger(1);
+        CacheImpl<String, String> cache = new CacheImpl<>(new EntryFactory<String, String>() {
+            @Override
+            public Entry<String> createEntry(String key) {
+                int v = version.get();
+                return v < 0 ? null : new Entry<>(key + v);
+            }
+        }, new SoftKeyFactory<String>(), Persistor.DEFAULT, 0);
+        cache.setTTL(100);
+        assertEquals("key1", cache.retrieveObject("key"));
+
+        // the resolver fails, the expired value is returned
+        version.set(-1);
+        Thread.sleep(200);
+        cache.expireEntries();
+        assertEquals(1, cache.size());
+        assertEquals("key1", cache.retrieveObject("key"));
+
+        // the resolver succeeds again, the value is refreshed
+        version.set(2);
+        assertEquals("key2", cache.retrieveObject("key"));
+        assertEquals(0, cache.getStatistics().getExpirationCount());
+    }
+
+    /**
+     * Entries with collected keys must be purged.
+     */
+    @Test
+    public void testClearedKeysPurged() throws Exception {
+        System.out.println("expiration - cleared keys");
+        CacheImpl<String, String> cache = new CacheImpl<>(new EntryFactory<String, String>() {
+            @Override
+            public Entry<String> createEntry(String key) {
+                return new Entry<>("value"); // NOI18N
+            }
+        }, new WeakKeyFactory<String>(), Persistor.DEFAULT, 0);
+        for (int i = 0; i < 10; i++) cache.retrieveObject(new String("key" + i)); // NOI18N
+        assertEquals(10, cache.size());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.size() > 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(50);
+            cache.expireEntries();
+        }
+
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Hits, misses and loads must be counted.
+     */
+    @Test
+    public void testStatistics() {
+        System.out.println("statistics");
+        CacheImpl<String, String> cache = new CacheImpl<>(new EntryFactory<String, String>() {
+            @Override
+            public Entry<String> createEntry(String key) {
+                return "missing".equals(key) ? null : new Entry<>(key);
+            }
+        }, new SoftKeyFactory<String>(), Persistor.DEFAULT, 0);
+
+        cache.retrieveObject("key");
+        cache.retrieveObject("key");
+        cache.retrieveObject("key");
+        assertNull(cache.retrieveObject("missing"));
+        assertEquals(1, cache.size());
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(2, statistics.getMissCount());
+        assertEquals(1, statistics.getLoadSuccessCount());
+        assertEquals(1, statistics.getLoadFailureCount());
+        assertEquals(0.5, statistics.getHitRate(), 0.0);
+        assertTrue(statistics.getTotalLoadTime() >= 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -24,12 +24,15 @@
  */
 package org.graalvm.visualvm.heapviewer.truffle;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import org.graalvm.visualvm.heapviewer.HeapContext;
 import org.graalvm.visualvm.heapviewer.HeapFragment;
+import org.graalvm.visualvm.heapviewer.model.DataType;
 import org.graalvm.visualvm.heapviewer.model.Progress;
 import org.graalvm.visualvm.heapviewer.utils.HeapUtils;
 import org.graalvm.visualvm.lib.jfluid.heap.Heap;
@@ -38,6 +41,7 @@ import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
 import org.graalvm.visualvm.lib.profiler.heapwalk.details.api.DetailsSupport;
 import org.netbeans.api.progress.ProgressHandle;
 import org.openide.util.NbBundle;
+import org.openide.util.RequestProcessor;
 
 /**
  *
@@ -51,11 +55,17 @@ import org.openide.util.NbBundle;
 })
 public abstract class TruffleLanguageHeapFragment<O extends TruffleObject, T extends TruffleType<O>> extends HeapFragment {
     
+    // Number of threads creating the language objects and computing their sizes
+    private static final int STATISTICS_THREADS = Integer.getInteger("heapviewer.truffle.statisticsThreads", Runtime.getRuntime().availableProcessors()); // NOI18N
+    private static final int STATISTICS_BATCH_SIZE = 4096;
+    private static final int PREVIEW_REFRESH_RATE = 1000;
+    
     private final TruffleLanguage<O, T, ? extends TruffleLanguageHeapFragment<O, T>> language;
     
     private long heapSize;
     private long objectsCount;
-    private List<T> types;
+    private volatile List<T> types;
+    private volatile List<T> typesPreview;
     private final Object statisticsLock = new Object();
     
     private Progress statisticsProgress;
@@ -89,6 +99,16 @@ public abstract class TruffleLanguageHeapFragment<O extends TruffleObject, T ext
         return types;
     }
     
+    /**
+     * Returns the types computed so far while the statistics are being computed.
+     * The types provide just the objects count and sizes, not the objects.
+     * 
+     * @return types computed so far or null if the statistics are not being computed
+     */
+    public List<T> getTypesPreview() {
+        return typesPreview;
+    }
+    
     public T getType(String name, Progress progress) {
         List<T> _types = getTypes(progress);
         for (T type : _types) if (name.equals(type.getName())) return type;
@@ -159,13 +179,13 @@ public abstract class TruffleLanguageHeapFragment<O extends TruffleObject, T ext
             }
         };
         
-        Iterator<O> objects = getObjectsIterator();
+        RequestProcessor processor = STATISTICS_THREADS > 1 ?
+                new RequestProcessor("Truffle Statistics Worker", STATISTICS_THREADS) : null; // NOI18N
         try {
-            while (objects.hasNext()) {
-                computer.addObject(objects.next());
-                if (statisticsProgress != null) statisticsProgress.step();
-            }
+            computeStatistics(computer, processor);
         } finally {
+            typesPreview = null;
+            if (processor != null) processor.shutdown();
             if (statisticsProgress != null && ownProgress) statisticsProgress.finish();
             pHandle.finish();
         }
@@ -173,6 +193,34 @@ public abstract class TruffleLanguageHeapFragment<O extends TruffleObject, T ext
         types = computer.getTypes();
     }
     
+    // Language objects are created and measured in batches by the worker threads,
+    // the batches are added to the types in the original order of the instances.
+    private void computeStatistics(TruffleType.TypesComputer<O, T> computer, RequestProcessor processor) {
+        int maxPending = processor == null ? 1 : 2 * STATISTICS_THREADS;
+        Deque<StatisticsBatch> pending = new ArrayDeque<>(maxPending);
+        Iterator<Instance> instances = getInstancesIterator();
+        long previewTime = System.currentTimeMillis();
+        
+        while (instances.hasNext() || !pending.isEmpty()) {
+            while (instances.hasNext() && pending.size() < maxPending) {
+                StatisticsBatch batch = new StatisticsBatch(instances, computer.isRetainedAvailable());
+                if (processor != null) batch.task = processor.post(batch);
+                else batch.run();
+                pending.add(batch);
+            }
+            
+            StatisticsBatch batch = pending.poll();
+            batch.addTo(computer);
+            if (statisticsProgress != null) statisticsProgress.steps(batch.count);
+            
+            long time = System.currentTimeMillis();
+            if (time - previewTime >= PREVIEW_REFRESH_RATE) {
+                typesPreview = computer.getTypesPreview();
+                previewTime = time;
+            }
+        }
+    }
+    
 
     protected final Iterator<Instance> instancesIterator(String javaClassFqn) {
         return HeapUtils.instancesIterator(HeapUtils.getSubclasses(heap, javaClassFqn));
@@ -191,6 +239,61 @@ public abstract class TruffleLanguageHeapFragment<O extends TruffleObject, T ext
     }
 
     
+    private class StatisticsBatch implements Runnable {
+        
+        private final Instance[] instances;
+        private final List<O> objects;
+        private final long[] sizes;
+        private final long[] retainedSizes;
+        private final boolean retainedAvailable;
+        private final int count;
+        
+        private RequestProcessor.Task task;
+        private Throwable error;
+        
+        StatisticsBatch(Iterator<Instance> instancesIter, boolean retained) {
+            Instance[] batch = new Instance[STATISTICS_BATCH_SIZE];
+            int batchCount = 0;
+            while (batchCount < batch.length && instancesIter.hasNext())
+                batch[batchCount++] = instancesIter.next();
+            
+            instances = batch;
+            count = batchCount;
+            objects = new ArrayList<>(count);
+            sizes = new long[count];
+            retainedSizes = new long[count];
+            retainedAvailable = retained;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < count; i++) {
+                    O object = language.createObject(instances[i]);
+                    objects.add(object);
+                    sizes[i] = object.getSize();
+                    retainedSizes[i] = retainedAvailable ? object.getRetainedSize() :
+                                       DataType.RETAINED_SIZE.getNotAvailableValue();
+                }
+            } catch (Throwable t) {
+                error = t;
+            }
+        }
+        
+        void addTo(TruffleType.TypesComputer<O, T> computer) {
+            if (task != null) task.waitFinished();
+            
+            if (error instanceof RuntimeException) throw (RuntimeException) error;
+            if (error instanceof Error) throw (Error) error;
+            if (error != null) throw new RuntimeException(error);
+            
+            for (int i = 0; i < count; i++)
+                computer.addObject(objects.get(i), sizes[i], retainedSizes[i]);
+        }
+        
+    }
+    
+    
     protected class ObjectsIterator implements Iterator<O> {
         private final Iterator<Instance> instancesIter;
         
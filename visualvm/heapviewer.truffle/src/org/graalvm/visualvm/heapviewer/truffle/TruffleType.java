@@ -154,6 +154,11 @@ public abstract class TruffleType<O extends TruffleObject> {
             long objectSize = object.getSize();
             long objectRetainedSize = retainedAvailable ? object.getRetainedSize() :
                                       DataType.RETAINED_SIZE.getNotAvailableValue();
+            addObject(object, objectSize, objectRetainedSize);
+        }
+        
+        // sizes already computed, possibly in another thread
+        public final void addObject(O object, long objectSize, long objectRetainedSize) {
             String typeName = getTypeName(object);
             
             addingObject(objectSize, objectRetainedSize, typeName);
@@ -170,6 +175,23 @@ public abstract class TruffleType<O extends TruffleObject> {
         public final List<T> getTypes() {
             return Collections.unmodifiableList(new ArrayList<>(cache.values()));
         }
+        
+        // copies of the types computed so far, providing just the statistics without objects
+        public final List<T> getTypesPreview() {
+            List<T> preview = new ArrayList<>(cache.size());
+            for (T type : cache.values()) {
+                T typeCopy = language.createType(type.getName());
+                typeCopy.count = type.count;
+                typeCopy.size = type.size;
+                typeCopy.retained = type.retained;
+                preview.add(typeCopy);
+            }
+            return Collections.unmodifiableList(preview);
+        }
+        
+        public final boolean isRetainedAvailable() {
+            return retainedAvailable;
+        }
 
         private String getTypeName(O object) {
             Long typeId = Long.valueOf(object.getTypeId());
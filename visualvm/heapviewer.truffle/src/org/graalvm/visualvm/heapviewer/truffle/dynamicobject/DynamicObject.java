@@ -29,7 +29,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import org.graalvm.visualvm.heapviewer.truffle.TruffleObject;
 import org.graalvm.visualvm.lib.jfluid.heap.ArrayItemValue;
 import org.graalvm.visualvm.lib.jfluid.heap.Field;
@@ -63,6 +65,10 @@ public class DynamicObject extends TruffleObject.InstanceBased {
     private static final String PROPERTY_FQN = "com.oracle.truffle.object.PropertyImpl"; // NOI18N
     private static final String OBJECT_TYPE_FQN = "com.oracle.truffle.api.object.ObjectType"; // NOI18N
 
+    // Decoded shapes of each heap, keyed by the shape instance id. Layouts do not
+    // reference any Instance so that the heap can be released with its entry.
+    private static final Map<Heap, Map<Long, ShapeLayout>> LAYOUTS = new WeakHashMap<>();
+
     private final Instance instance;
     
     private Instance shape;
@@ -182,22 +188,28 @@ public class DynamicObject extends TruffleObject.InstanceBased {
         if (size == -1) {
             size = instance.getSize();
 
-            for (Object fv : instance.getFieldValues()) {
-                if (fv instanceof ObjectFieldValue) {
-                    ObjectFieldValue ofv = (ObjectFieldValue) fv;
-                    Instance value = ofv.getInstance();
-
-                    if (value instanceof ObjectArrayInstance) {
-                        size += value.getSize();
-                    }
-                    if (value instanceof PrimitiveArrayInstance) {
-                        size += value.getSize();
+            Instance sh = getShape();
+            if (sh != null) {
+                for (String field : getLayout(instance, sh).objectFields) {
+                    size += getArraySize(instance.getValueOfField(field));
+                }
+            } else {
+                for (Object fv : instance.getFieldValues()) {
+                    if (fv instanceof ObjectFieldValue) {
+                        size += getArraySize(((ObjectFieldValue) fv).getInstance());
                     }
                 }
             }
         }
         return size;
     }
+
+    private static long getArraySize(Object value) {
+        if (value instanceof ObjectArrayInstance || value instanceof PrimitiveArrayInstance) {
+            return ((Instance) value).getSize();
+        }
+        return 0;
+    }
     
     @Override
     public long getRetainedSize() {
@@ -215,20 +227,22 @@ public class DynamicObject extends TruffleObject.InstanceBased {
     
     
     private void initFields() {
-        Instance propertyMap = getValueofFields(instance, "shape", "fastMapRef", "referent"); // NOI18N
-        if (propertyMap == null) propertyMap = getValueofFields(instance, "shape", "propertyMap"); // NOI18N
-        if (propertyMap != null) {
-//            properties = new ArrayList();
+        Instance sh = getShape();
+        Property[] properties = null;
+        List<FieldValue> fields = null;
+
+        if (sh != null) {
+            fields = instance.getFieldValues();
+            properties = getLayout(instance, sh).getProperties(instance, sh, fields);
+        }
+        if (properties != null) {
             values = new ArrayList<>();
             staticValues = new ArrayList<>();
-            boolean hasExtRef = hasField(instance.getJavaClass(), "extRef");    // NOI18N
-            boolean hasShortNames = hasField(instance.getJavaClass(), "o0");    // NOI18N
 
-            for (Instance ip : getMapValues(propertyMap)) {
-                Property p = new Property(ip, hasExtRef, hasShortNames);
-//                properties.add(p);
-                if (p.isStatic()) staticValues.add(p.getValue(instance));
-                else values.add(p.getValue(instance));
+            for (Property p : properties) {
+                FieldValue value = p.getValue(instance, fields);
+                if (p.isStatic()) staticValues.add(value);
+                else values.add(value);
             }
         } else {
             values = Collections.EMPTY_LIST;
@@ -236,6 +250,30 @@ public class DynamicObject extends TruffleObject.InstanceBased {
         }
     }
 
+    private static ShapeLayout getLayout(Instance dynamicObject, Instance shape) {
+        JavaClass jcls = dynamicObject.getJavaClass();
+        Long shapeId = Long.valueOf(shape.getInstanceId());
+        Map<Long, ShapeLayout> heapLayouts;
+        ShapeLayout layout;
+
+        synchronized (LAYOUTS) {
+            Heap heap = jcls.getHeap();
+            heapLayouts = LAYOUTS.get(heap);
+            if (heapLayouts == null) {
+                heapLayouts = new HashMap<>();
+                LAYOUTS.put(heap, heapLayouts);
+            }
+            layout = heapLayouts.get(shapeId);
+        }
+        if (layout == null || layout.javaClassId != jcls.getJavaClassId()) {
+            layout = new ShapeLayout(jcls);
+            synchronized (LAYOUTS) {
+                heapLayouts.put(shapeId, layout);
+            }
+        }
+        return layout;
+    }
+
     private void addReferences(Instance instanceRef, List dynObjRefs) {
         addReferences(null, instanceRef, dynObjRefs);
     }
@@ -260,7 +298,7 @@ public class DynamicObject extends TruffleObject.InstanceBased {
         }
     }
 
-    private boolean hasField(JavaClass jcls, String name) {
+    private static boolean hasField(JavaClass jcls, String name) {
         List<Field> fields = jcls.getFields();
 
         for (int i = fields.size()-1; i>=0; i--) {
@@ -434,108 +472,208 @@ public class DynamicObject extends TruffleObject.InstanceBased {
         return isSubClassOf(dynObj, ENTERPRISE_FIELD_LOCATION_FQN);
     }
 
+    private static final class ShapeLayout {
+
+        final long javaClassId;
+        final String[] objectFields;
+        private final boolean hasExtRef;
+        private final boolean hasShortNames;
+        private Property[] properties;
+        private boolean propertiesResolved;
+
+        private ShapeLayout(JavaClass jcls) {
+            javaClassId = jcls.getJavaClassId();
+            objectFields = getObjectFields(jcls);
+            hasExtRef = hasField(jcls, "extRef");   // NOI18N
+            hasShortNames = hasField(jcls, "o0");   // NOI18N
+        }
+
+        // properties are resolved lazily, statistics need just the object fields
+        synchronized Property[] getProperties(Instance dynamicObject, Instance shape, List<FieldValue> fields) {
+            if (!propertiesResolved) {
+                Instance propertyMap = getValueofFields(shape, "fastMapRef", "referent"); // NOI18N
+                if (propertyMap == null) propertyMap = getValueofFields(shape, "propertyMap"); // NOI18N
+                List<Instance> mapValues = getMapValues(propertyMap);
+
+                if (mapValues != null) {
+                    properties = new Property[mapValues.size()];
+                    for (int i = 0; i < properties.length; i++) {
+                        properties[i] = new Property(mapValues.get(i), dynamicObject, fields, hasExtRef, hasShortNames);
+                    }
+                }
+                propertiesResolved = true;
+            }
+            return properties;
+        }
+
+        private static String[] getObjectFields(JavaClass jcls) {
+            List<String> names = new ArrayList<>();
+
+            for (; jcls != null; jcls = jcls.getSuperClass()) {
+                for (Field f : jcls.getFields()) {
+                    if (!f.isStatic() && "object".equals(f.getType().getName())) { // NOI18N
+                        names.add(f.getName());
+                    }
+                }
+            }
+            return names.toArray(new String[0]);
+        }
+    }
+
+    // Value of a property resolved for a particular location, evaluated for every
+    // dynamic object with the same shape. Must not keep any Instance of the heap.
+    private abstract static class Accessor {
+
+        abstract FieldValue getValue(Instance dynamicObject, List<FieldValue> fields);
+    }
+
     private static class Property implements Field {
 
-        Instance property;
-        Instance location;
+        long propertyId;
         String propertyName;
+        String locationClassName;
+        Accessor accessor;
         boolean isStatic;
         boolean hasExtRef;
         boolean hasShortNames;
 
-        private Property(Instance p, boolean extRef, boolean shortNames) {
+        private Property(Instance p, Instance dynamicObject, List<FieldValue> fields, boolean extRef, boolean shortNames) {
             assert p.getJavaClass().getName().equals(PROPERTY_FQN);
-            property = p;
+            propertyId = p.getInstanceId();
             propertyName = DetailsUtils.getInstanceString(p);
-            location = (Instance) property.getValueOfField("location"); // NOI18N
+            Instance location = (Instance) p.getValueOfField("location"); // NOI18N
+            locationClassName = location.getJavaClass().getName();
             hasExtRef = extRef;
             hasShortNames = shortNames;
+            accessor = compile(location, dynamicObject, fields);
         }
 
         String getPropertyName() {
             return propertyName;
         }
 
-        FieldValue getValue(Instance dynamicObject) {
-            return getValueImpl(location, dynamicObject);
+        FieldValue getValue(Instance dynamicObject, List<FieldValue> fields) {
+            return accessor.getValue(dynamicObject, fields);
         }
 
-        FieldValue getValueImpl(Instance loc, final Instance dynamicObject) {
+        FieldValue getValueImpl(Instance loc, Instance dynamicObject) {
+            List<FieldValue> fields = dynamicObject.getFieldValues();
+
+            return compile(loc, dynamicObject, fields).getValue(dynamicObject, fields);
+        }
+
+        private Accessor compile(Instance loc, Instance dynamicObject, List<FieldValue> fields) {
             JavaClass locClass = loc.getJavaClass();
             final String className = locClass.getName();
 
             if (className.contains("Constant")) {   // NOI18N
                 isStatic = true;
-                return getInstanceFieldValue(dynamicObject, loc, "value");  // NOI18N
+                return getLocationFieldAccessor(loc, "value");  // NOI18N
             }
             if (className.contains("Declared")) {   // NOI18N
                 isStatic = true;
-                return getInstanceFieldValue(dynamicObject, loc, "value");  // NOI18N
+                return getLocationFieldAccessor(loc, "value");  // NOI18N
             }
             if (className.startsWith(ENTERPRISE_PACKAGE)) {
-                FieldValue val = getEnterpriseValue(loc,className,dynamicObject);
+                Accessor val = compileEnterprise(loc, className, dynamicObject, fields);
 
                 if (val != null) {
-                    return val;
+                    return orElse(val, compileFieldLocation(loc, fields));
                 }
             } else {
                 if (className.endsWith("Decorator")) {  // NOI18N
                     Instance actualLoc = (Instance) loc.getValueOfField("longLocation");    // NOI18N
-                    FieldValue longValue = getValueImpl(actualLoc, dynamicObject);
-                    String valString = longValue.getValue();
+                    final Accessor longLocation = compile(actualLoc, dynamicObject, fields);
+                    final boolean isDouble = className.contains("DoubleLocation"); // NOI18N
+                    final boolean isBoolean = className.contains("BooleanLocation"); // NOI18N
 
-                    if (className.contains("DoubleLocation")) { // NOI18N
-                        Double d = Double.longBitsToDouble(Long.parseLong(valString));
-                        valString = d.toString();
-                    }
-                    if (className.contains("BooleanLocation")) {    // NOI18N
-                        valString = Boolean.toString(Long.parseLong(valString) != 0);
-                    }
-                    return getFieldValue(dynamicObject, valString);
+                    return new Accessor() {
+                        FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                            String valString = longLocation.getValue(dynObj, dynObjFields).getValue();
+
+                            if (isDouble) {
+                                Double d = Double.longBitsToDouble(Long.parseLong(valString));
+                                valString = d.toString();
+                            }
+                            if (isBoolean) {
+                                valString = Boolean.toString(Long.parseLong(valString) != 0);
+                            }
+                            return getFieldValue(dynObj, valString);
+                        }
+                    };
                 }
                 if (className.contains("ObjectArrayLocation")) {    // NOI18N
-                    Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
+                    final int index = (Integer) loc.getValueOfField("index"); // NOI18N
                     // Instance actualLoc = (Instance) loc.getValueOfField("arrayLocation");
-                    ObjectArrayInstance arr = getObjectStore(dynamicObject);
 
-                    return getObjectFieldValue(dynamicObject, arr.getValues().get(index));
+                    return new Accessor() {
+                        FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                            ObjectArrayInstance arr = getObjectStore(dynObj);
+                            return getObjectFieldValue(dynObj, arr.getValues().get(index));
+                        }
+                    };
                 }
                 if (className.contains("LongArrayLocation")) {  // NOI18N
-                    Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
+                    final int index = (Integer) loc.getValueOfField("index"); // NOI18N
                     // Instance actualLoc = (Instance) loc.getValueOfField("arrayLocation");
-                    PrimitiveArrayInstance arr;
-                    if (hasExtRef) {
-                        // extVal is int[]
-                        arr = (PrimitiveArrayInstance) dynamicObject.getValueOfField("extVal"); // NOI18N
-                        return getFieldValue(dynamicObject, Long.toString(getLong(arr, index)));
-                    } else {
-                        // primext is long[]
-                        arr = (PrimitiveArrayInstance) dynamicObject.getValueOfField("primext"); // NOI18N
-                        return getFieldValue(dynamicObject, arr.getValues().get(index));
-                    }
+
+                    return new Accessor() {
+                        FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                            PrimitiveArrayInstance arr;
+                            if (hasExtRef) {
+                                // extVal is int[]
+                                arr = (PrimitiveArrayInstance) dynObj.getValueOfField("extVal"); // NOI18N
+                                return getFieldValue(dynObj, Long.toString(getLong(arr, index)));
+                            } else {
+                                // primext is long[]
+                                arr = (PrimitiveArrayInstance) dynObj.getValueOfField("primext"); // NOI18N
+                                return getFieldValue(dynObj, arr.getValues().get(index));
+                            }
+                        }
+                    };
                 }
             }
+            return compileFieldLocation(loc, fields);
+        }
+
+        private Accessor compileFieldLocation(Instance loc, List<FieldValue> fields) {
+            JavaClass locClass = loc.getJavaClass();
+            final String className = locClass.getName();
             String superClassName = locClass.getSuperClass().getName();
-            if (superClassName.contains("SimpleObjectFieldLocation")) { // NOI18N
-                Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
-                return getObjectInstanceFieldValue(dynamicObject, index);
-            }
-            if (superClassName.contains("SimpleLongFieldLocation")) {   // NOI18N
-                Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
-                return getPrimitiveInstanceFieldValue(dynamicObject, index);
-            }
-            if (superClassName.contains("BasicObjectFieldLocation")) { // NOI18N
-                Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
-                return getObjectInstanceFieldValue(dynamicObject, index);
-            }
-            if (superClassName.contains("BasicLongFieldLocation")) {   // NOI18N
-                Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
-                return getPrimitiveInstanceFieldValue(dynamicObject,index);
+            Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
+
+            if (index != null) {
+                if (superClassName.contains("SimpleObjectFieldLocation")) { // NOI18N
+                    return getFieldAccessor(fields, getObjectFieldName(index));
+                }
+                if (superClassName.contains("SimpleLongFieldLocation")) {   // NOI18N
+                    return getFieldAccessor(fields, getPrimitiveFieldName(index));
+                }
+                if (superClassName.contains("BasicObjectFieldLocation")) { // NOI18N
+                    return getFieldAccessor(fields, getObjectFieldName(index));
+                }
+                if (superClassName.contains("BasicLongFieldLocation")) {   // NOI18N
+                    return getFieldAccessor(fields, getPrimitiveFieldName(index));
+                }
             }
-            return new DynObjFieldValue(dynamicObject, this) {
-                @Override
-                public String getValue() {
-                    return "Not implemented for " + className; // NOI18N
+            return new Accessor() {
+                FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                    return new DynObjFieldValue(dynObj, Property.this) {
+                        @Override
+                        public String getValue() {
+                            return "Not implemented for " + className; // NOI18N
+                        }
+                    };
+                }
+            };
+        }
+
+        private static Accessor orElse(final Accessor accessor, final Accessor fallback) {
+            return new Accessor() {
+                FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                    FieldValue val = accessor.getValue(dynObj, dynObjFields);
+
+                    return val != null ? val : fallback.getValue(dynObj, dynObjFields);
                 }
             };
         }
@@ -546,28 +684,67 @@ public class DynamicObject extends TruffleObject.InstanceBased {
             return (ObjectArrayInstance) dynamicObject.getValueOfField(fieldName);
         }
 
-        private FieldValue getObjectInstanceFieldValue(Instance dynObj, int index) {
-            String fieldName = getObjectFieldName(index);
-            return getInstanceFieldValue(dynObj, dynObj, fieldName);
-        }
-
-        private FieldValue getPrimitiveInstanceFieldValue(Instance dynObj, int index) {
-            String fieldName = getPrimitiveFieldName(index);
-            return getInstanceFieldValue(dynObj, dynObj, fieldName);
-        }
+        private Accessor getFieldAccessor(List<FieldValue> fields, String fieldName) {
+            int fieldIndex = -1;
 
-        private FieldValue getInstanceFieldValue(Instance dynObj, String fieldName) {
-            return getInstanceFieldValue(dynObj, dynObj, fieldName);
+            // all objects of the shape have the same class, look up the slot just once
+            for (int i = 0; i < fields.size(); i++) {
+                if (fields.get(i).getField().getName().equals(fieldName)) {
+                    fieldIndex = i;
+                    break;
+                }
+            }
+            final int index = fieldIndex;
+            return new Accessor() {
+                FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                    if (index == -1) {
+                        return null;
+                    }
+                    return createFieldValue(dynObj, dynObjFields.get(index));
+                }
+            };
         }
 
-        private FieldValue getInstanceFieldValue(Instance dynObj, Instance i, String fieldName) {
-            for (FieldValue fieldValue : i.getFieldValues()) {
+        private Accessor getLocationFieldAccessor(Instance loc, String fieldName) {
+            for (FieldValue fieldValue : loc.getFieldValues()) {
 
                 if (fieldValue.getField().getName().equals(fieldName)) {
-                    return createFieldValue(dynObj, fieldValue);
+                    final String value = fieldValue.getValue();
+
+                    if (fieldValue instanceof ObjectFieldValue) {
+                        Instance i = ((ObjectFieldValue) fieldValue).getInstance();
+                        final long instanceId = i == null ? 0 : i.getInstanceId();
+
+                        return new Accessor() {
+                            FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                                return new DynObjObjectFieldValue(dynObj, Property.this) {
+                                    @Override
+                                    public Instance getInstance() {
+                                        if (instanceId == 0) {
+                                            return null;
+                                        }
+                                        return definingInstance.getJavaClass().getHeap().getInstanceByID(instanceId);
+                                    }
+                                    @Override
+                                    public String getValue() {
+                                        return value;
+                                    }
+                                };
+                            }
+                        };
+                    }
+                    return new Accessor() {
+                        FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                            return getFieldValue(dynObj, value);
+                        }
+                    };
                 }
             }
-            return null;
+            return new Accessor() {
+                FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                    return null;
+                }
+            };
         }
 
         @Override
@@ -587,7 +764,6 @@ public class DynamicObject extends TruffleObject.InstanceBased {
 
         @Override
         public Type getType() {
-            String locationClassName = location.getJavaClass().getName();
             if (locationClassName.contains("Object")) {  // NOI18N
                 return ObjType.OBJECT;
             }
@@ -624,14 +800,14 @@ public class DynamicObject extends TruffleObject.InstanceBased {
             if (obj instanceof Property) {
                 Property p = (Property) obj;
 
-                return property.equals(p.property);
+                return propertyId == p.propertyId;
             }
             return false;
         }
 
         @Override
         public int hashCode() {
-            return property.hashCode();
+            return (int) (propertyId ^ (propertyId >>> 32));
         }
 
         private FieldValue createFieldValue(final Instance i, final FieldValue fieldValue) {
@@ -678,98 +854,150 @@ public class DynamicObject extends TruffleObject.InstanceBased {
             };
         }
 
-        private FieldValue getEnterpriseValue(Instance loc, String className, Instance dynamicObject) {
-            if (className.length()-ENTERPRISE_PACKAGE.length() < 5) {   // obfuscated enterprise classes
-                return getObfuscatedEnperpriseValue(loc, className, dynamicObject);
-            }
-            if (className.length()-ENTERPRISE_LOCATION_TOP_CLASS.length() < 4) { // obfuscated enterprise inner classes
-                return getObfuscatedEnperpriseValue(loc, className, dynamicObject);
+        private Accessor compileEnterprise(Instance loc, final String className, Instance dynamicObject, List<FieldValue> fields) {
+            if (className.length()-ENTERPRISE_PACKAGE.length() < 5   // obfuscated enterprise classes
+                || className.length()-ENTERPRISE_LOCATION_TOP_CLASS.length() < 4) { // obfuscated enterprise inner classes
+                // the decoding depends on the values of the dynamic object
+                final long locationId = loc.getInstanceId();
+
+                return new Accessor() {
+                    FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                        Instance location = dynObj.getJavaClass().getHeap().getInstanceByID(locationId);
+                        return getObfuscatedEnperpriseValue(location, className, dynObj);
+                    }
+                };
             }
             if (className.endsWith("Decorator")) {  // NOI18N
                 Instance actualLoc = (Instance) loc.getValueOfField("actualLocation");  // NOI18N
-                return getValueImpl(actualLoc, dynamicObject);
+                return compile(actualLoc, dynamicObject, fields);
             }
             if (className.contains("ObjectFieldLocation")               // NOI18N
                 || className.contains("ExtensionArrayLocation")) {      // NOI18N
-                String fName = getEnterpriseObjectFieldName(loc);
-                FieldValue ret = getInstanceFieldValue(dynamicObject, fName);
-                if (ret == null) {
-                    // extVal is encoded as non-existing index
-                    return getObjectFieldValue(dynamicObject, (Instance) dynamicObject.getValueOfField("extVal"));  // NOI18N
-                }
-                return ret;
+                final Accessor field = getFieldAccessor(fields, getEnterpriseObjectFieldName(loc));
+
+                return new Accessor() {
+                    FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                        FieldValue ret = field.getValue(dynObj, dynObjFields);
+                        if (ret == null) {
+                            // extVal is encoded as non-existing index
+                            return getObjectFieldValue(dynObj, (Instance) dynObj.getValueOfField("extVal"));  // NOI18N
+                        }
+                        return ret;
+                    }
+                };
             }
             if (className.contains("IntFieldLocation")) { // NOI18N
-                String fName = getEnterprisePrimitiveFieldName(loc);
-                return getInstanceFieldValue(dynamicObject, fName);
+                return getFieldAccessor(fields, getEnterprisePrimitiveFieldName(loc));
             }
             if (className.contains("BooleanFieldLocation")) {   // NOI18N
-                String fName = getEnterprisePrimitiveFieldName(loc);
-                Integer i1 = (Integer) dynamicObject.getValueOfField(fName);
-                return getFieldValue(dynamicObject, Boolean.toString(i1.intValue() != 0));
+                final String fName = getEnterprisePrimitiveFieldName(loc);
+
+                return new Accessor() {
+                    FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                        Integer i1 = (Integer) dynObj.getValueOfField(fName);
+                        return getFieldValue(dynObj, Boolean.toString(i1.intValue() != 0));
+                    }
+                };
             }
             if (className.contains("DoubleFieldLocation")        // NOI18N
                 || className.contains("LongFieldLocation")) {    // NOI18N
-                String fName = getEnterprisePrimitiveFieldName(loc);
-                Number i1 = (Number) dynamicObject.getValueOfField(fName);
-                long val;
-                String valString;
-
-                if (i1 instanceof Long) {
-                    val = i1.longValue();
-                } else {
-                    Integer i2 = (Integer) getValueOfNextField(dynamicObject, fName);
-                    val = getLong(i1.intValue(), i2);
-                }
-                if (className.contains("LongFieldLocation")) {      // NOI18N
-                    valString = Long.toString(val);
-                } else {
-                    valString = getDouble(val);
-                }
-                return getFieldValue(dynamicObject, valString);
+                final String fName = getEnterprisePrimitiveFieldName(loc);
+                final String nextFName = getNextFieldName(fName);
+                final boolean isLong = className.contains("LongFieldLocation");    // NOI18N
+
+                return new Accessor() {
+                    FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                        Number i1 = (Number) dynObj.getValueOfField(fName);
+                        long val;
+                        String valString;
+
+                        if (i1 instanceof Long) {
+                            val = i1.longValue();
+                        } else {
+                            Integer i2 = (Integer) dynObj.getValueOfField(nextFName);
+                            val = getLong(i1.intValue(), i2);
+                        }
+                        if (isLong) {
+                            valString = Long.toString(val);
+                        } else {
+                            valString = getDouble(val);
+                        }
+                        return getFieldValue(dynObj, valString);
+                    }
+                };
             }
             if (className.contains("ObjectArrayLocation")) {    // NOI18N
-                Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
-                ObjectArrayInstance arr = getEnterpriseObjectStore(dynamicObject);
-                return getObjectFieldValue(dynamicObject, arr.getValues().get(index));
+                final int index = (Integer) loc.getValueOfField("index"); // NOI18N
+
+                return new Accessor() {
+                    FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                        ObjectArrayInstance arr = getEnterpriseObjectStore(dynObj);
+                        return getObjectFieldValue(dynObj, arr.getValues().get(index));
+                    }
+                };
             }
             if (className.contains("IntArrayLocation")) {   // NOI18N
-                Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
-                PrimitiveArrayInstance arr = getPrimitiveArray(loc, dynamicObject);
-                return getFieldValue(dynamicObject, arr.getValues().get(index));
+                final int index = (Integer) loc.getValueOfField("index"); // NOI18N
+                final Accessor arrayLocation = compilePrimitiveArray(loc, dynamicObject, fields);
+
+                return new Accessor() {
+                    FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                        PrimitiveArrayInstance arr = getPrimitiveArray(arrayLocation, dynObj, dynObjFields);
+                        return getFieldValue(dynObj, arr.getValues().get(index));
+                    }
+                };
             }
             if (className.contains("DoubleArrayLocation")) {    // NOI18N
-                Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
-                PrimitiveArrayInstance arr = getPrimitiveArray(loc, dynamicObject);
-                return getFieldValue(dynamicObject, getDouble(getLong(arr, index)));
+                final int index = (Integer) loc.getValueOfField("index"); // NOI18N
+                final Accessor arrayLocation = compilePrimitiveArray(loc, dynamicObject, fields);
+
+                return new Accessor() {
+                    FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                        PrimitiveArrayInstance arr = getPrimitiveArray(arrayLocation, dynObj, dynObjFields);
+                        return getFieldValue(dynObj, getDouble(getLong(arr, index)));
+                    }
+                };
             }
             if (className.contains("LongArrayLocation")) {    // NOI18N
-                Integer index = (Integer) loc.getValueOfField("index"); // NOI18N
-                PrimitiveArrayInstance arr = getPrimitiveArray(loc, dynamicObject);
-                return getFieldValue(dynamicObject, Long.toString(getLong(arr, index)));
+                final int index = (Integer) loc.getValueOfField("index"); // NOI18N
+                final Accessor arrayLocation = compilePrimitiveArray(loc, dynamicObject, fields);
+
+                return new Accessor() {
+                    FieldValue getValue(Instance dynObj, List<FieldValue> dynObjFields) {
+                        PrimitiveArrayInstance arr = getPrimitiveArray(arrayLocation, dynObj, dynObjFields);
+                        return getFieldValue(dynObj, Long.toString(getLong(arr, index)));
+                    }
+                };
             }
             return null;
         }
 
-        private PrimitiveArrayInstance getPrimitiveArray(Instance loc, Instance dynamicObject) {
+        private Accessor compilePrimitiveArray(Instance loc, Instance dynamicObject, List<FieldValue> fields) {
             Instance actualLoc = (Instance) loc.getValueOfField("arrayLocation");   // NOI18N
-            PrimitiveArrayInstance arr;
             if (actualLoc == null) {
+                return null;
+            }
+            return compile(actualLoc, dynamicObject, fields);
+        }
+
+        private PrimitiveArrayInstance getPrimitiveArray(Accessor arrayLocation, Instance dynamicObject, List<FieldValue> fields) {
+            PrimitiveArrayInstance arr;
+            if (arrayLocation == null) {
                 arr =  (PrimitiveArrayInstance) dynamicObject.getValueOfField("extVal");    // NOI18N
             } else {
-                ObjectFieldValue arrayVal = (ObjectFieldValue) getValueImpl(actualLoc, dynamicObject);
-                arr = (PrimitiveArrayInstance) ((ObjectFieldValue)arrayVal).getInstance();
+                ObjectFieldValue arrayVal = (ObjectFieldValue) arrayLocation.getValue(dynamicObject, fields);
+                arr = (PrimitiveArrayInstance) arrayVal.getInstance();
             }
             return arr;
         }
 
-        private Object getValueOfNextField(Instance dynamicObject, String fieldName) {
+        private static String getNextFieldName(String fieldName) {
             int i = fieldName.length()-1;
             for (; i>=0 && Character.isDigit(fieldName.charAt(i)); i--);
             assert i < fieldName.length()-1 : "Invalid fname "+fieldName;
             int fIndex = Integer.parseInt(fieldName.substring(++i));
 
-            return dynamicObject.getValueOfField(fieldName.substring(0,i)+(fIndex+1));
+            return fieldName.substring(0,i)+(fIndex+1);
         }
 
         private String getEnterpriseObjectFieldName(Instance location) {
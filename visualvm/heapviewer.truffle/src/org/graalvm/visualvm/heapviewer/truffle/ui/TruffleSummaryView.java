@@ -109,6 +109,7 @@ public class TruffleSummaryView extends HeapViewerFeature {
     private static final String FEATURE_ID = "summary"; // NOI18N
     
     private final SummaryView summaryView;
+    private List<HeapView> sections;
     
     
     public TruffleSummaryView(TruffleLanguage language, HeapContext context, HeapViewerActions actions) {
@@ -117,6 +118,7 @@ public class TruffleSummaryView extends HeapViewerFeature {
         summaryView = new SummaryView(getID(), context, actions) {
             @Override
             protected void uiCreated(List<HeapView> views) {
+                sections = views;
                 if (!views.isEmpty()) new RequestProcessor("Truffle Summary Worker").post(new Runnable() { // NOI18N
                     public void run() {
                         for (HeapView view : views)
@@ -153,6 +155,13 @@ public class TruffleSummaryView extends HeapViewerFeature {
         return summaryView.getToolbar();
     }
     
+    @Override
+    protected void closed() {
+        if (sections != null) for (HeapView view : sections)
+            if (view instanceof TruffleSummarySection)
+                ((TruffleSummarySection) view).closed();
+    }
+    
     
     // -------------------------------------------------------------------------
     // =========================================================================
@@ -166,6 +175,9 @@ public class TruffleSummaryView extends HeapViewerFeature {
         
         protected void computeData() {}
         
+        @Override
+        protected void closed() {}
+        
     }
     
     
@@ -381,6 +393,9 @@ public class TruffleSummaryView extends HeapViewerFeature {
     public static class ObjectsSection<O extends TruffleObject, T extends TruffleType<O>, F extends TruffleLanguageHeapFragment<O, T>, L extends TruffleLanguage<O, T, F>> extends TruffleSummarySection {
 
         private static final int PREVIEW_ITEMS = 5;
+        private static final int PREVIEW_REFRESH_RATE = 1000;
+        
+        private static final RequestProcessor PREVIEW_PROCESSOR = new RequestProcessor("Truffle Summary Preview Worker"); // NOI18N
         
         private final L language;
         
@@ -396,6 +411,9 @@ public class TruffleSummaryView extends HeapViewerFeature {
         private ResultsSnippet dominatorsByRetainedSize;
         
         private boolean retainedAvailable;
+        
+        private volatile boolean typesComputed;
+        private volatile boolean closed;
 
 
         public ObjectsSection(L language, HeapContext context, HeapViewerActions actions, Collection<HeapViewerNodeAction.Provider> actionProviders) {
@@ -426,44 +444,19 @@ public class TruffleSummaryView extends HeapViewerFeature {
             TruffleLanguageHeapFragment<O, T> fragment = (TruffleLanguageHeapFragment)context.getFragment();
             Heap heap = fragment.getHeap();
             
-            List<TruffleType> allTypes = new ArrayList(fragment.getTypes(null));
-
-            // --- Classes by Instances Count ------------------------------
-            Collections.sort(allTypes, new Comparator<TruffleType>() {
-                @Override
-                public int compare(TruffleType t1, TruffleType t2) {
-                    return Integer.compare(t2.getObjectsCount(), t1.getObjectsCount());
-                }
-            });
-            int items = Math.min(PREVIEW_ITEMS, allTypes.size());
-            TruffleType[] typesByCountArr = allTypes.subList(0, items).toArray(new TruffleType[0]);
-            Object[][] typesByCountData = new Object[typesByCountArr.length][2];
-            for (int i = 0; i < typesByCountData.length; i++) {
-                typesByCountData[i][0] = language.createTypeNode((T)typesByCountArr[i], heap);
-                typesByCountData[i][1] = typesByCountArr[i].getObjectsCount();
+            List<TruffleType> allTypes;
+            try {
+                allTypes = new ArrayList(fragment.getTypes(null));
+            } finally {
+                // stops the preview also when the computation fails
+                typesComputed = true;
             }
-            configureSnippet(typesByCount, typesByCountData);
-
-
-            // --- Classes by Instances Size -------------------------------
-            Collections.sort(allTypes, new Comparator<TruffleType>() {
-                @Override
-                public int compare(TruffleType t1, TruffleType t2) {
-                    return Long.compare(t2.getAllObjectsSize(), t1.getAllObjectsSize());
-                }
-            });
-            TruffleType[] typesBySizeArr = allTypes.subList(0, items).toArray(new TruffleType[0]);
-            Object[][] typesBySizeData = new Object[typesBySizeArr.length][2];
-            for (int i = 0; i < typesBySizeData.length; i++) {
-                typesBySizeData[i][0] = language.createTypeNode((T)typesBySizeArr[i], heap);
-                typesBySizeData[i][1] = typesBySizeArr[i].getAllObjectsSize();
-            }
-            configureSnippet(typesBySize, typesBySizeData);
+            computeTypes(allTypes, heap, false);
 
 
             // --- Instances by Size ---------------------------------------
 
-            items = (int)Math.min(PREVIEW_ITEMS, heap.getSummary().getTotalLiveInstances());
+            int items = (int)Math.min(PREVIEW_ITEMS, heap.getSummary().getTotalLiveInstances());
             PriorityQueue<TruffleObject> pqBySize = new PriorityQueue(items, new Comparator<TruffleObject>() {
                 @Override
                 public int compare(TruffleObject o1, TruffleObject o2) {
@@ -493,6 +486,71 @@ public class TruffleSummaryView extends HeapViewerFeature {
             // --- Dominators by Retained Size -----------------------------
             if (retainedAvailable) computeDominators(dominatorsByRetainedSize);
         }
+        
+        private void computeTypes(List<TruffleType> allTypes, Heap heap, boolean preview) {
+            // --- Classes by Instances Count ------------------------------
+            Collections.sort(allTypes, new Comparator<TruffleType>() {
+                @Override
+                public int compare(TruffleType t1, TruffleType t2) {
+                    return Integer.compare(t2.getObjectsCount(), t1.getObjectsCount());
+                }
+            });
+            int items = Math.min(PREVIEW_ITEMS, allTypes.size());
+            TruffleType[] typesByCountArr = allTypes.subList(0, items).toArray(new TruffleType[0]);
+            Object[][] typesByCountData = new Object[typesByCountArr.length][2];
+            for (int i = 0; i < typesByCountData.length; i++) {
+                typesByCountData[i][0] = language.createTypeNode((T)typesByCountArr[i], heap);
+                typesByCountData[i][1] = typesByCountArr[i].getObjectsCount();
+            }
+            configureSnippet(typesByCount, typesByCountData, preview);
+
+
+            // --- Classes by Instances Size -------------------------------
+            Collections.sort(allTypes, new Comparator<TruffleType>() {
+                @Override
+                public int compare(TruffleType t1, TruffleType t2) {
+                    return Long.compare(t2.getAllObjectsSize(), t1.getAllObjectsSize());
+                }
+            });
+            TruffleType[] typesBySizeArr = allTypes.subList(0, items).toArray(new TruffleType[0]);
+            Object[][] typesBySizeData = new Object[typesBySizeArr.length][2];
+            for (int i = 0; i < typesBySizeData.length; i++) {
+                typesBySizeData[i][0] = language.createTypeNode((T)typesBySizeArr[i], heap);
+                typesBySizeData[i][1] = typesBySizeArr[i].getAllObjectsSize();
+            }
+            configureSnippet(typesBySize, typesBySizeData, preview);
+        }
+        
+        @Override
+        protected void closed() {
+            closed = true;
+        }
+        
+        // Displays the top types computed so far until the statistics are available,
+        // the view is closed or the computation of the statistics has ended
+        private void previewTypes() {
+            final TruffleLanguageHeapFragment<O, T> fragment = (TruffleLanguageHeapFragment)context.getFragment();
+            final Heap heap = fragment.getHeap();
+            
+            PREVIEW_PROCESSOR.post(new Runnable() {
+                private List<T> previewed;
+                
+                public void run() {
+                    if (typesComputed || closed) return;
+                    
+                    List<T> preview = fragment.getTypesPreview();
+                    if (preview == null) {
+                        // computation finished or failed
+                        if (previewed != null) return;
+                    } else if (preview != previewed) {
+                        computeTypes(new ArrayList(preview), heap, true);
+                        previewed = preview;
+                    }
+                    
+                    PREVIEW_PROCESSOR.post(this, PREVIEW_REFRESH_RATE);
+                }
+            });
+        }
 
 
         private void init() {
@@ -720,6 +778,8 @@ public class TruffleSummaryView extends HeapViewerFeature {
 
             component.add(classesRow);
             component.add(instancesRow);
+            
+            previewTypes();
         }
 
 
@@ -765,6 +825,10 @@ public class TruffleSummaryView extends HeapViewerFeature {
 
 
         private void configureSnippet(final ResultsSnippet snippet, final Object[][] data) {
+            configureSnippet(snippet, data, false);
+        }
+        
+        private void configureSnippet(final ResultsSnippet snippet, final Object[][] data, final boolean preview) {
             final TableModel model = new DefaultTableModel(data, new Object[] {
                                                 Bundle.TruffleObjectsSection_NameColumn(),
                                                 Bundle.TruffleObjectsSection_ValueColumn() }) {
@@ -773,7 +837,8 @@ public class TruffleSummaryView extends HeapViewerFeature {
 
             SwingUtilities.invokeLater(new Runnable() {
                 public void run() {
-                    snippet.setRealModel(model);
+                    // do not replace the final data by a late preview
+                    if (!preview || !typesComputed) snippet.setRealModel(model);
                 }
             });
         }
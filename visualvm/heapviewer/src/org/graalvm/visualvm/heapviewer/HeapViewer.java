@@ -54,6 +54,10 @@ import org.openide.util.NbBundle;
     "HeapViewer_HeapDumpOOME=heap dump (not enough memory)" // Displays 'Not supported for this heap dump (not enough memory)'
 })
 public final class HeapViewer {
+    
+    // Precompute references, GC roots and retained sizes in background once the heap is opened
+    private static final boolean BACKGROUND_ANALYSIS = Boolean.getBoolean("heapviewer.backgroundAnalysis"); // NOI18N
+
 
     private final File heapDumpFile;
     private final Lookup.Provider heapDumpProject;
@@ -69,7 +73,10 @@ public final class HeapViewer {
         heapDumpFile = file;
         heapDumpProject = null;
         
-        heapFragments = computeHeapFragments(heapDumpFile, heapDumpProject, createHeap(heapDumpFile));
+        Heap heap = createHeap(heapDumpFile);
+        heapFragments = computeHeapFragments(heapDumpFile, heapDumpProject, heap);
+        
+        if (heap != null && BACKGROUND_ANALYSIS) HeapOperations.scheduleAnalysis(heap);
     }
 
     
@@ -105,6 +112,10 @@ public final class HeapViewer {
     public void closed() {
         if (component instanceof HeapViewerComponent)
             ((HeapViewerComponent)component).closed();
+        
+        if (heapFragments != null)
+            for (HeapFragment fragment : heapFragments)
+                HeapOperations.cancelPending(fragment.getHeap());
     }
 
     
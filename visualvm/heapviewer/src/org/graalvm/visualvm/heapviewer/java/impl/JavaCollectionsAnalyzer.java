@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.heapviewer.java.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.graalvm.visualvm.heapviewer.model.Progress;
+import org.graalvm.visualvm.lib.jfluid.heap.FieldValue;
+import org.graalvm.visualvm.lib.jfluid.heap.Heap;
+import org.graalvm.visualvm.lib.jfluid.heap.Instance;
+import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
+import org.graalvm.visualvm.lib.jfluid.heap.ObjectArrayInstance;
+import org.graalvm.visualvm.lib.jfluid.heap.Value;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Computes fill ratio and over-allocated bytes of the known JDK collections.
+ * Capacity and size of each collection is read from its fields in parallel,
+ * the results are grouped by collection class, by the referring field (heap
+ * dumps don't contain allocation sites) and by fill ratio.
+ *
+ * @author Jiri Sedlacek
+ */
+final class JavaCollectionsAnalyzer {
+    
+    static final int FILL_EMPTY = 0;
+    static final int FILL_25 = 1;
+    static final int FILL_50 = 2;
+    static final int FILL_75 = 3;
+    static final int FILL_100 = 4;
+    static final int FILL_BUCKETS = 5;
+    
+    private static final int THREADS = Integer.getInteger("heapviewer.collectionsThreads", // NOI18N
+                                       Math.max(1, Runtime.getRuntime().availableProcessors()));
+    private static final int CHUNK_SIZE = 4096;
+    
+    private static final RequestProcessor PROCESSOR = new RequestProcessor("Collections Analyzer", THREADS); // NOI18N
+    
+    
+    private static enum Kind {
+        
+        HASH_MAP("java.util.HashMap", "table", "size", true), // NOI18N
+        HASHTABLE("java.util.Hashtable", "table", "count", true), // NOI18N
+        WEAK_HASH_MAP("java.util.WeakHashMap", "table", "size", true), // NOI18N
+        CONCURRENT_HASH_MAP("java.util.concurrent.ConcurrentHashMap", "table", null, true) { // NOI18N
+            int getSize(Instance instance, int length) {
+                // size is baseCount plus the values of the contended counter cells
+                long size = longValue(instance.getValueOfField("baseCount")); // NOI18N
+                Object cells = instance.getValueOfField("counterCells"); // NOI18N
+                if (cells instanceof ObjectArrayInstance)
+                    for (Instance cell : ((ObjectArrayInstance)cells).getValues())
+                        if (cell != null) size += longValue(cell.getValueOfField("value")); // NOI18N
+                return (int)Math.max(0, Math.min(Integer.MAX_VALUE, size));
+            }
+            float getLoadFactor(Instance instance) {
+                return 0.75f;
+            }
+        },
+        IDENTITY_HASH_MAP("java.util.IdentityHashMap", "table", "size", true) { // NOI18N
+            int getCapacity(int length) {
+                return length / 2; // keys and values share the table
+            }
+            float getLoadFactor(Instance instance) {
+                return 2f / 3;
+            }
+        },
+        ARRAY_LIST("java.util.ArrayList", "elementData", "size", false), // NOI18N
+        VECTOR("java.util.Vector", "elementData", "elementCount", false), // NOI18N
+        ARRAY_DEQUE("java.util.ArrayDeque", "elements", null, false) { // NOI18N
+            int getSize(Instance instance, int length) {
+                if (length == 0) return 0;
+                int head = (int)longValue(instance.getValueOfField("head")); // NOI18N
+                int tail = (int)longValue(instance.getValueOfField("tail")); // NOI18N
+                return ((tail - head) % length + length) % length;
+            }
+        };
+        
+        private final String className;
+        private final String arrayField;
+        private final String sizeField;
+        private final boolean hashed;
+        
+        Kind(String className, String arrayField, String sizeField, boolean hashed) {
+            this.className = className;
+            this.arrayField = arrayField;
+            this.sizeField = sizeField;
+            this.hashed = hashed;
+        }
+        
+        int getSize(Instance instance, int length) {
+            return (int)longValue(instance.getValueOfField(sizeField));
+        }
+        
+        int getCapacity(int length) {
+            return length;
+        }
+        
+        float getLoadFactor(Instance instance) {
+            if (!hashed) return 1f;
+            Object loadFactor = instance.getValueOfField("loadFactor"); // NOI18N
+            float lf = loadFactor instanceof Number ? ((Number)loadFactor).floatValue() : 0.75f;
+            return lf > 0 ? Math.min(lf, 1f) : 0.75f;
+        }
+        
+        private static long longValue(Object value) {
+            return value instanceof Number ? ((Number)value).longValue() : 0;
+        }
+        
+    }
+    
+    
+    private JavaCollectionsAnalyzer() {}
+    
+    
+    /**
+     * Analyzes all instances of the known collection classes and their subclasses.
+     * Requires computed references to resolve the referring fields.
+     */
+    static Result analyze(Heap heap, Progress progress) throws InterruptedException {
+        Map<JavaClass, Kind> classes = new LinkedHashMap();
+        int instancesCount = 0;
+        
+        for (Kind kind : Kind.values()) {
+            JavaClass jclass = heap.getJavaClassByName(kind.className);
+            if (jclass == null) continue;
+            
+            List<JavaClass> kindClasses = new ArrayList();
+            kindClasses.add(jclass);
+            kindClasses.addAll(jclass.getSubClasses());
+            
+            for (JavaClass kindClass : kindClasses)
+                if (!classes.containsKey(kindClass)) {
+                    classes.put(kindClass, kind);
+                    instancesCount += kindClass.getInstancesCount();
+                }
+        }
+        
+        Result result = new Result();
+        Thread worker = Thread.currentThread();
+        
+        progress.setupKnownSteps(instancesCount);
+        List<Chunk> pending = new ArrayList();
+        boolean finished = false;
+        try {
+            for (Map.Entry<JavaClass, Kind> entry : classes.entrySet()) {
+                JavaClass jclass = entry.getKey();
+                Kind kind = entry.getValue();
+                
+                Iterator<Instance> instances = jclass.getInstancesIterator();
+                if (!instances.hasNext()) continue;
+                
+                Instance first = instances.next();
+                // resolves the cached fields of the class before the parallel phase
+                first.getValueOfField(kind.arrayField);
+                
+                Chunk chunk = new Chunk(kind);
+                chunk.add(first);
+                
+                while (instances.hasNext()) {
+                    if (chunk.isFull()) {
+                        pending.add(chunk.post());
+                        if (pending.size() > THREADS * 2) merge(pending.remove(0), result, heap, progress, worker);
+                        chunk = new Chunk(kind);
+                    }
+                    chunk.add(instances.next());
+                }
+                
+                pending.add(chunk.post());
+            }
+            
+            while (!pending.isEmpty()) merge(pending.remove(0), result, heap, progress, worker);
+            finished = true;
+        } finally {
+            // interrupted or failed, stop the chunks still scanning the heap
+            if (!finished) for (Chunk chunk : pending) chunk.cancel();
+            progress.finish();
+        }
+        
+        return result;
+    }
+    
+    
+    private static void merge(Chunk chunk, Result result, Heap heap, Progress progress, Thread worker) throws InterruptedException {
+        try {
+            chunk.task.waitFinished();
+            
+            for (int i = 0; i < chunk.count; i++) {
+                Instance instance = chunk.instances[i];
+                // references are resolved sequentially, the analysis itself ran in parallel
+                result.add(instance, getReferrer(instance), chunk.sizes[i], chunk.capacities[i], chunk.buckets[i], chunk.wasted[i]);
+                
+                progress.step();
+                if (worker.isInterrupted()) throw new InterruptedException();
+            }
+        } catch (InterruptedException e) {
+            chunk.cancel();
+            throw e;
+        }
+    }
+    
+    private static String getReferrer(Instance instance) {
+        List<Value> references = instance.getReferences();
+        if (references.isEmpty()) return null;
+        
+        Value reference = references.get(0);
+        if (reference instanceof FieldValue) {
+            FieldValue field = (FieldValue)reference;
+            return field.getField().getDeclaringClass().getName() + "." + field.getField().getName(); // NOI18N
+        } else {
+            Instance referrer = reference.getDefiningInstance();
+            return referrer == null ? null : referrer.getJavaClass().getName();
+        }
+    }
+    
+    
+    private static final class Chunk implements Runnable {
+        
+        private final Kind kind;
+        
+        private final Instance[] instances = new Instance[CHUNK_SIZE];
+        private final int[] sizes = new int[CHUNK_SIZE];
+        private final int[] capacities = new int[CHUNK_SIZE];
+        private final byte[] buckets = new byte[CHUNK_SIZE];
+        private final long[] wasted = new long[CHUNK_SIZE];
+        private int count;
+        
+        private RequestProcessor.Task task;
+        private volatile boolean cancelled;
+        
+        
+        Chunk(Kind kind) {
+            this.kind = kind;
+        }
+        
+        
+        void add(Instance instance) {
+            instances[count++] = instance;
+        }
+        
+        boolean isFull() {
+            return count == CHUNK_SIZE;
+        }
+        
+        Chunk post() {
+            task = PROCESSOR.post(this);
+            return this;
+        }
+        
+        // Drops the chunk if still queued, stops it if already running
+        void cancel() {
+            cancelled = true;
+            task.cancel();
+        }
+        
+        
+        public void run() {
+            for (int i = 0; i < count && !cancelled; i++) {
+                Instance instance = instances[i];
+                
+                Object array = instance.getValueOfField(kind.arrayField);
+                int length = array instanceof ObjectArrayInstance ? ((ObjectArrayInstance)array).getLength() : 0;
+                long arraySize = array instanceof Instance ? ((Instance)array).getSize() : 0;
+                
+                int capacity = kind.getCapacity(length);
+                int size = Math.max(0, kind.getSize(instance, length));
+                float loadFactor = kind.getLoadFactor(instance);
+                
+                sizes[i] = size;
+                capacities[i] = capacity;
+                
+                if (capacity == 0 || size == 0) {
+                    buckets[i] = FILL_EMPTY;
+                    wasted[i] = arraySize;
+                } else {
+                    double fill = size / (capacity * (double)loadFactor);
+                    if (fill <= 0.25d) buckets[i] = FILL_25;
+                    else if (fill <= 0.5d) buckets[i] = FILL_50;
+                    else if (fill <= 0.75d) buckets[i] = FILL_75;
+                    else buckets[i] = FILL_100;
+                    
+                    // slots which wouldn't be needed for the current size at the load factor
+                    long needed = (long)Math.ceil(size / (double)loadFactor);
+                    long unused = Math.max(0, capacity - needed);
+                    wasted[i] = arraySize * unused / capacity;
+                }
+            }
+        }
+        
+    }
+    
+    
+    static final class Result {
+        
+        private final Map<JavaClass, ClassStats> classes = new LinkedHashMap();
+        private long wasted;
+        
+        
+        Collection<ClassStats> getClasses() {
+            return Collections.unmodifiableCollection(classes.values());
+        }
+        
+        long getWastedBytes() {
+            return wasted;
+        }
+        
+        
+        private void add(Instance instance, String referrer, int size, int capacity, int bucket, long wastedBytes) {
+            JavaClass jclass = instance.getJavaClass();
+            ClassStats stats = classes.get(jclass);
+            if (stats == null) {
+                stats = new ClassStats(jclass);
+                classes.put(jclass, stats);
+            }
+            stats.add(instance, referrer, size, capacity, bucket, wastedBytes);
+            wasted += wastedBytes;
+        }
+        
+    }
+    
+    static final class ClassStats {
+        
+        private final JavaClass jclass;
+        private final Map<String, ReferrerStats> referrers = new HashMap();
+        private long wasted;
+        
+        
+        private ClassStats(JavaClass jclass) {
+            this.jclass = jclass;
+        }
+        
+        
+        JavaClass getJavaClass() {
+            return jclass;
+        }
+        
+        Collection<ReferrerStats> getReferrers() {
+            return Collections.unmodifiableCollection(referrers.values());
+        }
+        
+        long getWastedBytes() {
+            return wasted;
+        }
+        
+        long getTotalSize() {
+            long total = 0;
+            for (ReferrerStats stats : referrers.values()) total += stats.getTotalSize();
+            return total;
+        }
+        
+        long getTotalCapacity() {
+            long total = 0;
+            for (ReferrerStats stats : referrers.values()) total += stats.getTotalCapacity();
+            return total;
+        }
+        
+        
+        private void add(Instance instance, String referrer, int size, int capacity, int bucket, long wastedBytes) {
+            ReferrerStats stats = referrers.get(referrer);
+            if (stats == null) {
+                stats = new ReferrerStats(referrer);
+                referrers.put(referrer, stats);
+            }
+            stats.add(instance, size, capacity, bucket, wastedBytes);
+            wasted += wastedBytes;
+        }
+        
+    }
+    
+    static final class ReferrerStats {
+        
+        private final String referrer;
+        
+        // instance ids per bucket, Instance objects are not retained
+        private final long[][] instanceIds = new long[FILL_BUCKETS][];
+        private final int[] counts = new int[FILL_BUCKETS];
+        private final long[] wasted = new long[FILL_BUCKETS];
+        private long totalSize;
+        private long totalCapacity;
+        
+        
+        private ReferrerStats(String referrer) {
+            this.referrer = referrer;
+        }
+        
+        
+        /**
+         * Returns the referring field or class, null for collections referenced only from GC roots.
+         */
+        String getReferrer() {
+            return referrer;
+        }
+        
+        int getInstancesCount(int bucket) {
+            return counts[bucket];
+        }
+        
+        long[] getInstanceIds(int bucket) {
+            long[] ids = instanceIds[bucket];
+            return ids == null ? new long[0] : Arrays.copyOf(ids, counts[bucket]);
+        }
+        
+        long getWastedBytes(int bucket) {
+            return wasted[bucket];
+        }
+        
+        long getWastedBytes() {
+            long total = 0;
+            for (long w : wasted) total += w;
+            return total;
+        }
+        
+        long getTotalSize() {
+            return totalSize;
+        }
+        
+        long getTotalCapacity() {
+            return totalCapacity;
+        }
+        
+        
+        private void add(Instance instance, int size, int capacity, int bucket, long wastedBytes) {
+            long[] ids = instanceIds[bucket];
+            if (ids == null) ids = instanceIds[bucket] = new long[4];
+            else if (counts[bucket] == ids.length) ids = instanceIds[bucket] = Arrays.copyOf(ids, ids.length * 2);
+            ids[counts[bucket]++] = instance.getInstanceId();
+            wasted[bucket] += wastedBytes;
+            totalSize += size;
+            totalCapacity += capacity;
+        }
+        
+    }
+    
+}
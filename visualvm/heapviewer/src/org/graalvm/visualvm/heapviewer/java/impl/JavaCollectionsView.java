@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.heapviewer.java.impl;
+
+import java.awt.BorderLayout;
+import java.text.Format;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.SortOrder;
+import org.graalvm.visualvm.heapviewer.HeapContext;
+import org.graalvm.visualvm.heapviewer.java.InstanceNode;
+import org.graalvm.visualvm.heapviewer.java.InstancesContainer;
+import org.graalvm.visualvm.heapviewer.java.JavaHeapFragment;
+import org.graalvm.visualvm.heapviewer.model.ContainerNode;
+import org.graalvm.visualvm.heapviewer.model.DataType;
+import org.graalvm.visualvm.heapviewer.model.HeapViewerNode;
+import org.graalvm.visualvm.heapviewer.model.HeapViewerNodeFilter;
+import org.graalvm.visualvm.heapviewer.model.Progress;
+import org.graalvm.visualvm.heapviewer.model.RootNode;
+import org.graalvm.visualvm.heapviewer.ui.HeapViewerActions;
+import org.graalvm.visualvm.heapviewer.ui.HeapViewerFeature;
+import org.graalvm.visualvm.heapviewer.ui.HeapViewerNumberRenderer;
+import org.graalvm.visualvm.heapviewer.ui.PluggableTreeTableView;
+import org.graalvm.visualvm.heapviewer.ui.TreeTableViewColumn;
+import org.graalvm.visualvm.heapviewer.utils.HeapOperations;
+import org.graalvm.visualvm.lib.jfluid.heap.Heap;
+import org.graalvm.visualvm.lib.jfluid.heap.Instance;
+import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
+import org.graalvm.visualvm.lib.profiler.api.icons.Icons;
+import org.graalvm.visualvm.lib.profiler.api.icons.LanguageIcons;
+import org.graalvm.visualvm.lib.ui.Formatters;
+import org.graalvm.visualvm.lib.ui.components.ProfilerToolbar;
+import org.graalvm.visualvm.lib.ui.swing.GrayLabel;
+import org.graalvm.visualvm.lib.ui.swing.renderer.HideableBarRenderer;
+import org.graalvm.visualvm.lib.ui.swing.renderer.ProfilerRenderer;
+import org.openide.util.NbBundle;
+import org.openide.util.lookup.ServiceProvider;
+
+/**
+ *
+ * @author Jiri Sedlacek
+ */
+@NbBundle.Messages({
+    "JavaCollectionsView_Name=Collections",
+    "JavaCollectionsView_Description=Collections Fill Ratio",
+    "JavaCollectionsView_Details=Details:",
+    "JavaCollectionsView_ColWasted=Wasted",
+    "JavaCollectionsView_NoReferrer=<no referrer>",
+    "# {0} - total size, {1} - total capacity",
+    "JavaCollectionsView_SizeCapacity=size {0}, capacity {1}",
+    "JavaCollectionsView_FillEmpty=empty",
+    "JavaCollectionsView_Fill25=filled up to 25%",
+    "JavaCollectionsView_Fill50=filled up to 50%",
+    "JavaCollectionsView_Fill75=filled up to 75%",
+    "JavaCollectionsView_Fill100=filled over 75%"
+})
+class JavaCollectionsView extends HeapViewerFeature {
+    
+    private static final String FEATURE_ID = "java_collections"; // NOI18N
+    
+    static final DataType<Long> WASTED_SIZE = new DataType<>(Long.class, DataType.NO_VALUE_LONG, DataType.UNSUPPORTED_VALUE_LONG);
+    
+    private final PluggableTreeTableView objectsView;
+    
+    private JComponent component;
+    private ProfilerToolbar toolbar;
+    
+    
+    JavaCollectionsView(HeapContext context, HeapViewerActions actions) {
+        super(FEATURE_ID, Bundle.JavaCollectionsView_Name(), Bundle.JavaCollectionsView_Description(), Icons.getIcon(LanguageIcons.LIBRARIES), 350);
+        
+        Heap heap = context.getFragment().getHeap();
+        
+        TreeTableViewColumn[] columns = new TreeTableViewColumn[] {
+            new TreeTableViewColumn.Name(),
+            new TreeTableViewColumn.LogicalValue(true, false),
+            new TreeTableViewColumn.Count(heap),
+            new WastedSize(heap),
+            new TreeTableViewColumn.OwnSize(heap, true, false),
+            new TreeTableViewColumn.RetainedSize(heap, false, false),
+            new TreeTableViewColumn.ObjectID()
+        };
+        
+        objectsView = new PluggableTreeTableView(FEATURE_ID, context, actions, columns) {
+            protected HeapViewerNode[] computeData(RootNode root, Heap heap, String viewID, HeapViewerNodeFilter viewFilter, List<DataType> dataTypes, List<SortOrder> sortOrders, Progress progress) throws InterruptedException {
+                return computeCollections(heap, progress);
+            }
+        };
+        objectsView.setViewName(Bundle.JavaCollectionsView_Name());
+    }
+    
+    
+    public JComponent getComponent() {
+        if (component == null) init();
+        return component;
+    }
+
+    public ProfilerToolbar getToolbar() {
+        if (toolbar == null) init();
+        return toolbar;
+    }
+    
+    
+    @Override
+    protected void closed() {
+        objectsView.closed();
+    }
+    
+    
+    private void init() {
+        toolbar = ProfilerToolbar.create(false);
+        
+        if (objectsView.hasPlugins()) {
+            toolbar.addSpace(2);
+            toolbar.addSeparator();
+            toolbar.addSpace(5);
+            
+            toolbar.add(new GrayLabel(Bundle.JavaCollectionsView_Details()));
+            toolbar.addSpace(2);
+            
+            toolbar.add(objectsView.getToolbar());
+        }
+        
+        component = new JPanel(new BorderLayout());
+        component.add(objectsView.getComponent(), BorderLayout.CENTER);
+    }
+    
+    
+    private static HeapViewerNode[] computeCollections(Heap heap, Progress progress) throws InterruptedException {
+        HeapOperations.initializeReferences(heap);
+        
+        JavaCollectionsAnalyzer.Result result = JavaCollectionsAnalyzer.analyze(heap, progress);
+        
+        List<JavaCollectionsAnalyzer.ClassStats> classes = new ArrayList(result.getClasses());
+        HeapViewerNode[] nodes = new HeapViewerNode[classes.size()];
+        
+        for (int i = 0; i < nodes.length; i++) {
+            JavaCollectionsAnalyzer.ClassStats classStats = classes.get(i);
+            JavaClass jclass = classStats.getJavaClass();
+            
+            CollectionsNode classNode = new CollectionsNode(jclass.getName(), jclass, classStats.getWastedBytes(),
+                                                          getSizeCapacity(classStats.getTotalSize(), classStats.getTotalCapacity()));
+            
+            for (JavaCollectionsAnalyzer.ReferrerStats referrerStats : classStats.getReferrers()) {
+                String referrer = referrerStats.getReferrer();
+                if (referrer == null) referrer = Bundle.JavaCollectionsView_NoReferrer();
+                
+                CollectionsNode referrerNode = new CollectionsNode(referrer, jclass, referrerStats.getWastedBytes(),
+                                                             getSizeCapacity(referrerStats.getTotalSize(), referrerStats.getTotalCapacity()));
+                
+                for (int bucket = 0; bucket < JavaCollectionsAnalyzer.FILL_BUCKETS; bucket++) {
+                    if (referrerStats.getInstancesCount(bucket) == 0) continue;
+                    
+                    CollectionsInstances bucketNode = new CollectionsInstances(getBucketName(bucket), jclass, referrerStats.getWastedBytes(bucket));
+                    for (long instanceId : referrerStats.getInstanceIds(bucket)) {
+                        Instance instance = heap.getInstanceByID(instanceId);
+                        if (instance != null) bucketNode.add(instance, heap);
+                    }
+                    referrerNode.add(bucketNode, heap);
+                }
+                
+                classNode.add(referrerNode, heap);
+            }
+            
+            nodes[i] = classNode;
+        }
+        
+        return nodes;
+    }
+    
+    private static String getSizeCapacity(long size, long capacity) {
+        Format format = Formatters.numberFormat();
+        return Bundle.JavaCollectionsView_SizeCapacity(format.format(size), format.format(capacity));
+    }
+    
+    private static String getBucketName(int bucket) {
+        switch (bucket) {
+            case JavaCollectionsAnalyzer.FILL_EMPTY: return Bundle.JavaCollectionsView_FillEmpty();
+            case JavaCollectionsAnalyzer.FILL_25: return Bundle.JavaCollectionsView_Fill25();
+            case JavaCollectionsAnalyzer.FILL_50: return Bundle.JavaCollectionsView_Fill50();
+            case JavaCollectionsAnalyzer.FILL_75: return Bundle.JavaCollectionsView_Fill75();
+            default: return Bundle.JavaCollectionsView_Fill100();
+        }
+    }
+    
+    
+    static class CollectionsNode extends ContainerNode.Nodes<HeapViewerNode> {
+        
+        private final JavaClass javaClass;
+        private final long wastedSize;
+        private final String sizeCapacity;
+        
+        CollectionsNode(String name, JavaClass javaClass, long wastedSize, String sizeCapacity) {
+            super(name);
+            this.javaClass = javaClass;
+            this.wastedSize = wastedSize;
+            this.sizeCapacity = sizeCapacity;
+        }
+        
+        protected Object getValue(DataType type, Heap heap) {
+            if (type == DataType.CLASS) return javaClass;
+            if (type == DataType.LOGICAL_VALUE) return sizeCapacity;
+            if (type == WASTED_SIZE) return wastedSize;
+            
+            return super.getValue(type, heap);
+        }
+        
+    }
+    
+    private static class CollectionsInstances extends InstancesContainer.Objects {
+        
+        private final long wastedSize;
+        
+        CollectionsInstances(String name, JavaClass javaClass, long wastedSize) {
+            super(name, javaClass);
+            this.wastedSize = wastedSize;
+        }
+        
+        protected InstanceNode createNode(Instance instance) {
+            return new InstanceNode(instance) {
+                protected Object getValue(DataType type, Heap heap) {
+                    if (type == WASTED_SIZE) return WASTED_SIZE.getUnsupportedValue();
+                    
+                    return super.getValue(type, heap);
+                }
+            };
+        }
+        
+        protected Object getValue(DataType type, Heap heap) {
+            if (type == WASTED_SIZE) return wastedSize;
+            
+            return super.getValue(type, heap);
+        }
+        
+    }
+    
+    
+    private static class WastedSize extends TreeTableViewColumn {
+        
+        private final HideableBarRenderer renderer;
+        private final int preferredWidth;
+        
+        WastedSize(Heap heap) {
+            super(Bundle.JavaCollectionsView_ColWasted(), 250, WASTED_SIZE, true, true);
+            
+            renderer = new HideableBarRenderer(HeapViewerNumberRenderer.bytesInstance(WASTED_SIZE)) {
+                public void setValue(Object value, int row) {
+                    super.setValue(value == null ? WASTED_SIZE.getUnsupportedValue() : value, row);
+                }
+            };
+            renderer.setMaxValue(Integer.MAX_VALUE / 100);
+            preferredWidth = renderer.getMaxNoBarWidth() - 20;
+            renderer.setMaxValue(heap.getSummary().getTotalLiveBytes());
+        }
+        
+        public int getPreferredWidth() { return preferredWidth; }
+        
+        public ProfilerRenderer getRenderer() { return renderer; }
+        
+    }
+    
+    
+    @ServiceProvider(service=HeapViewerFeature.Provider.class)
+    public static class Provider extends HeapViewerFeature.Provider {
+
+        public HeapViewerFeature getFeature(HeapContext context, HeapViewerActions actions) {
+            if (JavaHeapFragment.isJavaHeap(context))
+                return new JavaCollectionsView(context, actions);
+            
+            return null;
+        }
+
+    }
+    
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.heapviewer.java.impl;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+import org.graalvm.visualvm.heapviewer.HeapContext;
+import org.graalvm.visualvm.heapviewer.java.ClassNodeRenderer;
+import org.graalvm.visualvm.heapviewer.java.InstancesContainer;
+import org.graalvm.visualvm.heapviewer.java.JavaHeapFragment;
+import org.graalvm.visualvm.heapviewer.model.HeapViewerNode;
+import org.graalvm.visualvm.heapviewer.swing.Splitter;
+import org.graalvm.visualvm.heapviewer.ui.HeapView;
+import org.graalvm.visualvm.heapviewer.ui.HeapViewerActions;
+import org.graalvm.visualvm.heapviewer.ui.HeapViewerNodeAction;
+import org.graalvm.visualvm.heapviewer.ui.SummaryView;
+import org.graalvm.visualvm.heapviewer.ui.TreeTableViewColumn;
+import org.graalvm.visualvm.heapviewer.utils.HeapOperations;
+import org.graalvm.visualvm.lib.jfluid.heap.DuplicateArrays;
+import org.graalvm.visualvm.lib.jfluid.heap.Field;
+import org.graalvm.visualvm.lib.jfluid.heap.Heap;
+import org.graalvm.visualvm.lib.jfluid.heap.Instance;
+import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
+import org.graalvm.visualvm.lib.profiler.api.icons.Icons;
+import org.graalvm.visualvm.lib.profiler.heapwalk.ui.icons.HeapWalkerIcons;
+import org.graalvm.visualvm.lib.ui.Formatters;
+import org.graalvm.visualvm.lib.ui.UIUtils;
+import org.graalvm.visualvm.lib.ui.components.ProfilerToolbar;
+import org.graalvm.visualvm.lib.ui.swing.ProfilerTable;
+import org.graalvm.visualvm.lib.ui.swing.renderer.HideableBarRenderer;
+import org.graalvm.visualvm.uisupport.SeparatorLine;
+import org.graalvm.visualvm.uisupport.VerticalLayout;
+import org.openide.util.NbBundle;
+import org.openide.util.RequestProcessor;
+import org.openide.util.lookup.ServiceProvider;
+
+/**
+ *
+ * @author Jiri Sedlacek
+ */
+@NbBundle.Messages({
+    "JavaDuplicatesSummary_Name=Duplicates",
+    "JavaDuplicatesSummary_Description=Duplicates",
+    "JavaDuplicatesSummary_DuplicatesSection=Duplicated Strings and Arrays",
+    "JavaDuplicatesSummary_ComputeDuplicatesLbl=Duplicated byte[] and char[] arrays must be computed first:",
+    "JavaDuplicatesSummary_ComputeDuplicatesBtn=Compute Duplicates",
+    "JavaDuplicatesSummary_ComputingDuplicates=computing duplicates...",
+    "JavaDuplicatesSummary_ComputeFailed=Failed to compute duplicates: {0}",
+    "JavaDuplicatesSummary_ComputeCancelled=Computing duplicates has been cancelled.",
+    "JavaDuplicatesSummary_NoDuplicates=No duplicated arrays found",
+    "JavaDuplicatesSummary_WastedBytes=Total wasted: {0} in {1} groups of duplicated arrays",
+    "JavaDuplicatesSummary_ArraysByWastedSize=Duplicated Arrays by Wasted Size",
+    "JavaDuplicatesSummary_FieldsByWastedSize=Fields by Wasted Size",
+    "JavaDuplicatesSummary_GroupName={0}[{1}] ({2} copies)",
+    "JavaDuplicatesSummary_NoOwner=<unreferenced>",
+    "JavaDuplicatesSummary_NameColumn=Name",
+    "JavaDuplicatesSummary_WastedColumn=Wasted"
+})
+class JavaDuplicatesSummary extends HeapView {
+    
+    private static final Logger LOGGER = Logger.getLogger(JavaDuplicatesSummary.class.getName());
+    
+    private static final int PREVIEW_ITEMS = 10;
+    
+    private final HeapContext context;
+    private final HeapViewerActions actions;
+    private final Collection<HeapViewerNodeAction.Provider> actionProviders;
+    
+    private JComponent component;
+    private JPanel content;
+    
+    
+    private JavaDuplicatesSummary(HeapContext context, HeapViewerActions actions, Collection<HeapViewerNodeAction.Provider> actionProviders) {
+        super(Bundle.JavaDuplicatesSummary_Name(), Bundle.JavaDuplicatesSummary_Description());
+        
+        this.context = context;
+        this.actions = actions;
+        this.actionProviders = actionProviders;
+    }
+    
+
+    @Override
+    public JComponent getComponent() {
+        if (component == null) init();
+        return component;
+    }
+
+    @Override
+    public ProfilerToolbar getToolbar() {
+        return null;
+    }
+    
+    
+    private void init() {
+        JPanel sectionSeparator = new JPanel(new GridBagLayout());
+        sectionSeparator.setOpaque(false);
+
+        JLabel caption = new JLabel(Bundle.JavaDuplicatesSummary_DuplicatesSection());
+        caption.setFont(caption.getFont().deriveFont(Font.BOLD));
+        GridBagConstraints c = new GridBagConstraints();
+        c.gridx = 0;
+        c.gridy = 0;
+        c.weighty = 1d;
+        sectionSeparator.add(caption, c);
+
+        c = new GridBagConstraints();
+        c.gridx = 1;
+        c.gridy = 0;
+        c.weightx = 1d;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.insets = new Insets(1, 4, 0, 0);
+        sectionSeparator.add(new SeparatorLine(), c);
+        
+        content = new JPanel(new BorderLayout());
+        content.setOpaque(false);
+        content.add(createComputeComponent(Bundle.JavaDuplicatesSummary_ComputeDuplicatesLbl()), BorderLayout.CENTER);
+        
+        component = new JPanel(new BorderLayout(0, 6)) {
+            public Dimension getMinimumSize() {
+                Dimension dim = super.getMinimumSize();
+                dim.width = 0;
+                return dim;
+            }
+
+            public Dimension getPreferredSize() {
+                Dimension dim = super.getPreferredSize();
+                dim.width = 100;
+                return dim;
+            }
+        };
+        component.setOpaque(false);
+        component.setBorder(BorderFactory.createEmptyBorder(10, 5, 5, 5));
+        component.add(sectionSeparator, BorderLayout.NORTH);
+        component.add(content, BorderLayout.CENTER);
+    }
+    
+    private JComponent createComputeComponent(String message) {
+        final JPanel p = new JPanel(new GridBagLayout());
+        p.setOpaque(false);
+
+        final JLabel l = new JLabel(message, JLabel.LEADING);
+        GridBagConstraints c = new GridBagConstraints();
+        c.gridx = 0;
+        c.gridy = 0;
+        c.fill = GridBagConstraints.NONE;
+        c.anchor = GridBagConstraints.NORTHWEST;
+        c.insets = new Insets(2, 2, 2, 2);
+        p.add(l, c);
+
+        c = new GridBagConstraints();
+        c.gridx = 1;
+        c.gridy = 0;
+        c.weightx = 1d;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.anchor = GridBagConstraints.NORTHWEST;
+        c.insets = new Insets(0, 0, 0, 0);
+        p.add(UIUtils.createFillerPanel(), c);
+
+        c = new GridBagConstraints();
+        c.gridx = 0;
+        c.gridy = 1;
+        c.fill = GridBagConstraints.NONE;
+        c.anchor = GridBagConstraints.NORTHWEST;
+        c.insets = new Insets(2, 2, 2, 2);
+
+        JButton lb = new JButton(Bundle.JavaDuplicatesSummary_ComputeDuplicatesBtn()) {
+            protected void fireActionPerformed(ActionEvent e) {
+                p.remove(this);
+                l.setText(Bundle.JavaDuplicatesSummary_ComputingDuplicates());
+                l.setIcon(Icons.getIcon(HeapWalkerIcons.PROGRESS));
+                p.invalidate();
+                p.revalidate();
+                p.repaint();
+                
+                computeDuplicates();
+            }
+        };
+        p.add(lb, c);
+        
+        return p;
+    }
+    
+    private void computeDuplicates() {
+        new RequestProcessor("Duplicates Summary Worker").post(new Runnable() { // NOI18N
+            public void run() {
+                try {
+                    computeDuplicatesImpl();
+                } catch (InterruptedException ex) {
+                    showFailure(Bundle.JavaDuplicatesSummary_ComputeCancelled());
+                } catch (Throwable t) {
+                    if (t.getCause() instanceof InterruptedException) {
+                        // DuplicateArrays wraps the interrupt when hashing arrays
+                        showFailure(Bundle.JavaDuplicatesSummary_ComputeCancelled());
+                        return;
+                    }
+                    LOGGER.log(Level.INFO, "Failed to compute duplicates", t); // NOI18N
+                    String message = t.getLocalizedMessage();
+                    showFailure(Bundle.JavaDuplicatesSummary_ComputeFailed(message != null ? message : t.getClass().getName()));
+                }
+            }
+        });
+    }
+    
+    private void computeDuplicatesImpl() throws InterruptedException {
+        Heap heap = context.getFragment().getHeap();
+        
+        HeapOperations.initializeReferences(heap);
+        
+        DuplicateArrays duplicates = DuplicateArrays.compute(heap);
+        
+        List<DuplicateArrays.Group> groups = duplicates.getGroups();
+        int items = Math.min(PREVIEW_ITEMS, groups.size());
+        Object[][] groupsData = new Object[items][2];
+        for (int i = 0; i < items; i++) {
+            DuplicateArrays.Group group = groups.get(i);
+            JavaClass arrayClass = group.getArrayClass();
+            String elementType = arrayClass.getName().substring(0, arrayClass.getName().length() - 2);
+            String name = Bundle.JavaDuplicatesSummary_GroupName(elementType, group.getLength(), group.getCount());
+            groupsData[i][0] = new DuplicatesNode(name, arrayClass, group.getInstanceIds(), heap);
+            groupsData[i][1] = group.getWastedBytes();
+        }
+        
+        List<DuplicateArrays.Owner> owners = duplicates.getOwners();
+        items = Math.min(PREVIEW_ITEMS, owners.size());
+        Object[][] ownersData = new Object[items][2];
+        for (int i = 0; i < items; i++) {
+            DuplicateArrays.Owner owner = owners.get(i);
+            Field field = owner.getField();
+            String name = field == null ? Bundle.JavaDuplicatesSummary_NoOwner() :
+                          field.getDeclaringClass().getName() + "." + field.getName(); // NOI18N
+            long[] instanceIds = owner.getInstanceIds();
+            JavaClass arrayClass = heap.getInstanceByID(instanceIds[0]).getJavaClass();
+            ownersData[i][0] = new DuplicatesNode(name, arrayClass, instanceIds, heap);
+            ownersData[i][1] = owner.getWastedBytes();
+        }
+        
+        showResults(duplicates, groupsData, ownersData);
+    }
+    
+    private void showFailure(final String message) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                content.removeAll();
+                content.add(createComputeComponent(message), BorderLayout.CENTER);
+                content.invalidate();
+                content.revalidate();
+                content.repaint();
+            }
+        });
+    }
+    
+    private void showResults(final DuplicateArrays duplicates, final Object[][] groupsData, final Object[][] ownersData) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                content.removeAll();
+                
+                if (duplicates.getGroups().isEmpty()) {
+                    content.add(new JLabel(Bundle.JavaDuplicatesSummary_NoDuplicates(), JLabel.LEADING), BorderLayout.CENTER);
+                } else {
+                    String wasted = Formatters.bytesFormat().format(new Object[] { Formatters.numberFormat().format(duplicates.getWastedBytes()) });
+                    String groups = Formatters.numberFormat().format(duplicates.getGroups().size());
+                    JPanel results = new JPanel(new VerticalLayout(false, 6));
+                    results.setOpaque(false);
+                    results.add(new JLabel(Bundle.JavaDuplicatesSummary_WastedBytes(wasted, groups), JLabel.LEADING));
+                    results.add(new Splitter(Splitter.HORIZONTAL_SPLIT,
+                                createTable(Bundle.JavaDuplicatesSummary_ArraysByWastedSize(), groupsData),
+                                createTable(Bundle.JavaDuplicatesSummary_FieldsByWastedSize(), ownersData)));
+                    content.add(results, BorderLayout.CENTER);
+                }
+                
+                content.invalidate();
+                content.revalidate();
+                content.repaint();
+            }
+        });
+    }
+    
+    private JComponent createTable(String caption, Object[][] data) {
+        Heap heap = context.getFragment().getHeap();
+        
+        TableModel model = new DefaultTableModel(data, new Object[] {
+                                            Bundle.JavaDuplicatesSummary_NameColumn(),
+                                            Bundle.JavaDuplicatesSummary_WastedColumn() }) {
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+        
+        final ProfilerTable table = new SummaryView.SimpleTable(model, 0) {
+            protected void populatePopup(JPopupMenu popup, Object value, Object userValue) {
+                if (!(value instanceof HeapViewerNode)) return;
+
+                HeapViewerNode node = (HeapViewerNode)value;
+                HeapViewerNodeAction.Actions nodeActions = HeapViewerNodeAction.Actions.forNode(node, actionProviders, context, actions);
+                nodeActions.populatePopup(popup);
+
+                if (popup.getComponentCount() > 0) popup.addSeparator();
+                popup.add(createCopyMenuItem());
+            }
+            public void performDefaultAction(ActionEvent e) {
+                int row = getSelectedRow();
+                if (row == -1) return;
+
+                Object value = getValueForRow(row);
+                if (!(value instanceof HeapViewerNode)) return;
+
+                HeapViewerNodeAction.Actions nodeActions =
+                        HeapViewerNodeAction.Actions.forNode((HeapViewerNode)value, actionProviders, context, actions);
+                nodeActions.performDefaultAction(e);
+            }
+        };
+        table.setRowSelectionAllowed(true);
+        table.providePopupMenu(true);
+        
+        table.setColumnRenderer(0, new ClassNodeRenderer(heap));
+        HideableBarRenderer sizeRenderer = (HideableBarRenderer)new TreeTableViewColumn.OwnSize(heap).getRenderer();
+        table.setColumnRenderer(1, sizeRenderer);
+        table.setDefaultColumnWidth(1, sizeRenderer.getNoBarWidth() + 10);
+        
+        JLabel captionL = new JLabel(caption);
+        
+        JPanel p = new JPanel(new BorderLayout(0, 4)) {
+            public Dimension getMinimumSize() {
+                Dimension dim = super.getMinimumSize();
+                dim.width = 0;
+                return dim;
+            }
+        };
+        p.setOpaque(false);
+        p.setBorder(BorderFactory.createEmptyBorder(5, 0, 0, 5));
+        p.add(captionL, BorderLayout.NORTH);
+        p.add(table, BorderLayout.CENTER);
+        
+        return p;
+    }
+    
+    
+    // Drill-down to the duplicated arrays
+    private static class DuplicatesNode extends InstancesContainer.Objects {
+        
+        private final long[] instanceIds;
+        private final Heap heap;
+        
+        DuplicatesNode(String name, JavaClass arrayClass, long[] instanceIds, Heap heap) {
+            super(name, arrayClass);
+            
+            this.instanceIds = instanceIds;
+            this.heap = heap;
+            
+            for (long instanceId : instanceIds) {
+                Instance instance = heap.getInstanceByID(instanceId);
+                if (instance != null) add(instance, heap);
+            }
+        }
+        
+        public HeapViewerNode createCopy() {
+            DuplicatesNode copy = new DuplicatesNode(name, getJavaClass(), instanceIds, heap);
+            setupCopy(copy);
+            return copy;
+        }
+        
+    }
+    
+    
+    @ServiceProvider(service=SummaryView.ContentProvider.class, position = 350)
+    public static class Provider extends SummaryView.ContentProvider {
+
+        @Override
+        public HeapView createSummary(String viewID, HeapContext context, HeapViewerActions actions, Collection<HeapViewerNodeAction.Provider> actionProviders) {
+            if (JavaHeapFragment.isJavaHeap(context)) return new JavaDuplicatesSummary(context, actions, actionProviders);
+            return null;
+        }
+        
+    }
+    
+}
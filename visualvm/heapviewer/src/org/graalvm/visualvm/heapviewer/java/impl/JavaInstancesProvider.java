@@ -38,6 +38,7 @@ import org.graalvm.visualvm.heapviewer.model.TextNode;
 import org.graalvm.visualvm.heapviewer.ui.UIThresholds;
 import org.graalvm.visualvm.heapviewer.utils.NodesComputer;
 import org.graalvm.visualvm.heapviewer.utils.ProgressIterator;
+import org.graalvm.visualvm.heapviewer.utils.SortedInstancesIndex;
 import org.graalvm.visualvm.lib.jfluid.heap.Heap;
 import org.graalvm.visualvm.lib.jfluid.heap.Instance;
 import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
@@ -87,6 +88,9 @@ public class JavaInstancesProvider extends HeapViewerNode.Provider {
                 Iterator<Instance> iterator = jclass.getInstancesIterator();
                 return new ProgressIterator(iterator, index, true, progress);
             }
+            protected Iterator<Instance> sortedObjectsIterator(int index, DataType dataType, SortOrder sortOrder, Heap heap, Progress progress) throws InterruptedException {
+                return SortedInstancesIndex.sortedInstances(jclass, dataType, sortOrder, index, heap, progress);
+            }
             protected String getMoreNodesString(String moreNodesCount)  {
                 return Bundle.JavaInstancesProvider_MoreNodes(moreNodesCount);
             }
@@ -74,6 +74,7 @@ public class JavaNodesRendererProvider extends HeapViewerRenderer.Provider {
         renderers.put(ClassNode.class, classRenderer);
         renderers.put(InstancesContainer.Objects.class, classRenderer);
         renderers.put(InstancesContainer.Nodes.class, classRenderer);
+        renderers.put(JavaCollectionsView.CollectionsNode.class, classRenderer);
         
         // instances
         renderers.put(InstanceNode.class, new InstanceNodeRenderer(heap));
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2018, 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.heapviewer.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared bounded pool running the long heap analysis stages (references,
+ * GC roots, retained sizes) of all opened heap dumps. Stages requested by the
+ * user are executed before background precomputations, pending stages of
+ * a closed heap dump can be cancelled.
+ *
+ * @author Jiri Sedlacek
+ */
+public final class HeapAnalysisScheduler {
+
+    public static final int PRIORITY_USER = 0;
+    public static final int PRIORITY_BACKGROUND = 10;
+
+    private static final Logger LOGGER = Logger.getLogger(HeapAnalysisScheduler.class.getName());
+
+    // Stages mostly walk the memory mapped dump files, running more of them concurrently
+    // than the storage can serve only makes them compete for I/O
+    private static final int IO_LIMIT = Math.max(1, Integer.getInteger("heapviewer.analysisIOLimit", 4)); // NOI18N
+
+    private static final int POOL_SIZE = Math.max(1, Integer.getInteger("heapviewer.analysisThreads", // NOI18N
+                                         Math.min(IO_LIMIT, Math.max(1, Runtime.getRuntime().availableProcessors() / 2))));
+
+    private static HeapAnalysisScheduler DEFAULT;
+
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<Object, List<Task>> pendingTasks = new WeakHashMap();
+    private final Map<Object, Map<String, Long>> stageTimes = new WeakHashMap();
+
+
+    public static synchronized HeapAnalysisScheduler getDefault() {
+        if (DEFAULT == null) DEFAULT = new HeapAnalysisScheduler(POOL_SIZE);
+        return DEFAULT;
+    }
+
+
+    private HeapAnalysisScheduler(int poolSize) {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Heap Analysis Scheduler " + counter.incrementAndGet()); // NOI18N
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        };
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                                          new PriorityBlockingQueue(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+
+    /**
+     * Schedules a stage for the given owner (typically a Heap).
+     *
+     * @param owner object owning the stage, used for cancellation and diagnostics
+     * @param stageName name of the stage used for diagnostics
+     * @param stage the work to be done
+     * @param priority {@link #PRIORITY_USER} or {@link #PRIORITY_BACKGROUND}
+     * @return task handle for the scheduled stage
+     */
+    public Task schedule(Object owner, String stageName, Runnable stage, int priority) {
+        Task task = new Task(owner, stageName, stage, sequence.incrementAndGet());
+
+        synchronized (this) {
+            List<Task> tasks = pendingTasks.get(owner);
+            if (tasks == null) {
+                tasks = new ArrayList();
+                pendingTasks.put(owner, tasks);
+            }
+            tasks.add(task);
+        }
+
+        task.enqueue(priority);
+
+        return task;
+    }
+
+    /**
+     * Raises priority of a pending task, has no effect for a running, finished or cancelled task.
+     */
+    public void prioritize(Task task, int priority) {
+        // The task is queued again with the new priority, the former queue entry
+        // is removed or becomes a no-op. The task itself runs at most once.
+        task.enqueue(priority);
+    }
+
+    /**
+     * Cancels all pending tasks of the given owner, running tasks will finish normally.
+     */
+    public void cancel(Object owner) {
+        List<Task> tasks;
+        synchronized (this) {
+            tasks = pendingTasks.remove(owner);
+        }
+
+        if (tasks != null) for (Task task : tasks) task.cancel();
+    }
+
+
+    /**
+     * Returns the number of stages waiting for execution.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of stages being executed.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Returns execution times in milliseconds of the finished stages of the given owner.
+     */
+    public synchronized Map<String, Long> getStageTimes(Object owner) {
+        Map<String, Long> times = stageTimes.get(owner);
+        return times == null ? Collections.EMPTY_MAP : new LinkedHashMap(times);
+    }
+
+
+    private synchronized void finished(Task task, long queuedTime, long runTime) {
+        List<Task> tasks = pendingTasks.get(task.owner);
+        if (tasks != null) {
+            tasks.remove(task);
+            if (tasks.isEmpty()) pendingTasks.remove(task.owner);
+        }
+
+        Map<String, Long> times = stageTimes.get(task.owner);
+        if (times == null) {
+            times = new LinkedHashMap();
+            stageTimes.put(task.owner, times);
+        }
+        times.put(task.stageName, runTime);
+
+        if (LOGGER.isLoggable(Level.FINE))
+            LOGGER.log(Level.FINE, "Stage {0} finished in {1} ms, queued for {2} ms, {3} stages pending", // NOI18N
+                       new Object[] { task.stageName, runTime, queuedTime, getQueueDepth() });
+    }
+
+
+    // Queue entry of a task, a task may have several entries after prioritize()
+    private static final class Entry implements Runnable, Comparable<Entry> {
+
+        private final Task task;
+        private final int priority;
+        private final long seq;
+
+
+        Entry(Task task, int priority, long seq) {
+            this.task = task;
+            this.priority = priority;
+            this.seq = seq;
+        }
+
+
+        public void run() {
+            task.run();
+        }
+
+        public int compareTo(Entry e) {
+            if (priority != e.priority) return priority < e.priority ? -1 : 1;
+            return Long.compare(seq, e.seq);
+        }
+
+    }
+
+
+    public final class Task {
+
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int FINISHED = 2;
+        private static final int CANCELLED = 3;
+
+        private final Object owner;
+        private final String stageName;
+        private final Runnable stage;
+        private final long seq;
+        private final long created;
+
+        private int state = PENDING;
+        private Entry entry;
+        private Throwable failure;
+
+
+        private Task(Object owner, String stageName, Runnable stage, long seq) {
+            this.owner = owner;
+            this.stageName = stageName;
+            this.stage = stage;
+            this.seq = seq;
+            this.created = System.currentTimeMillis();
+        }
+
+
+        private void enqueue(int priority) {
+            Entry previous;
+            Entry next;
+            synchronized (this) {
+                if (state != PENDING || (entry != null && entry.priority <= priority)) return;
+                previous = entry;
+                next = new Entry(this, priority, seq);
+                entry = next;
+            }
+
+            executor.execute(next);
+            if (previous != null) executor.remove(previous);
+        }
+
+        private void run() {
+            synchronized (this) {
+                if (state != PENDING) return;
+                state = RUNNING;
+                entry = null;
+            }
+
+            long start = System.currentTimeMillis();
+            Throwable _failure = null;
+            try {
+                stage.run();
+            } catch (Throwable t) {
+                _failure = t;
+                LOGGER.log(Level.INFO, "Stage " + stageName + " failed", t); // NOI18N
+            } finally {
+                long end = System.currentTimeMillis();
+                synchronized (this) {
+                    state = FINISHED;
+                    failure = _failure;
+                    notifyAll();
+                }
+                finished(this, start - created, end - start);
+            }
+        }
+
+        /**
+         * Waits for the task to finish.
+         *
+         * @throws InterruptedException if the waiting thread is interrupted or the task has been cancelled
+         * @throws IllegalStateException if the stage failed, the failure is available as its cause
+         */
+        public synchronized void waitFinished() throws InterruptedException {
+            while (state == PENDING || state == RUNNING) wait();
+            if (state == CANCELLED) throw new InterruptedException("Stage " + stageName + " cancelled"); // NOI18N
+            if (failure != null) throw new IllegalStateException("Stage " + stageName + " failed", failure); // NOI18N
+        }
+
+        public synchronized boolean isFailed() {
+            return failure != null;
+        }
+
+        public synchronized boolean isFinished() {
+            return state == FINISHED;
+        }
+
+        public synchronized boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        private void cancel() {
+            Entry _entry;
+            synchronized (this) {
+                if (state != PENDING) return;
+                state = CANCELLED;
+                _entry = entry;
+                entry = null;
+                notifyAll();
+            }
+
+            if (_entry != null) executor.remove(_entry);
+        }
+
+    }
+
+}
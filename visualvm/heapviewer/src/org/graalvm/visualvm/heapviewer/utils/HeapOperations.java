@@ -37,7 +37,6 @@ import org.graalvm.visualvm.lib.jfluid.heap.Instance;
 import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
 import org.netbeans.api.progress.ProgressHandle;
 import org.openide.util.NbBundle;
-import org.openide.util.RequestProcessor;
 
 /**
  *
@@ -70,167 +69,172 @@ public final class HeapOperations {
     
     
     public static void initializeReferences(Heap heap) throws InterruptedException {
-        get(heap).initializeReferencesImpl(heap);
+        get(heap).references.initialize(heap, HeapAnalysisScheduler.PRIORITY_USER);
     }
     
     public static void initializeGCRoots(Heap heap) throws InterruptedException {
-        get(heap).initializeGCRootsImpl(heap);
+        get(heap).gcroots.initialize(heap, HeapAnalysisScheduler.PRIORITY_USER);
     }
     
     public static void initializeRetainedSizes(Heap heap) throws InterruptedException {
-        get(heap).initializeRetainedSizesImpl(heap);
+        get(heap).retained.initialize(heap, HeapAnalysisScheduler.PRIORITY_USER);
     }
     
+    /**
+     * Schedules the references - GC roots - retained sizes pipeline for the heap
+     * in background, requests from the UI are always processed before it.
+     */
+    public static void scheduleAnalysis(Heap heap) {
+        get(heap).references.schedule(heap, HeapAnalysisScheduler.PRIORITY_BACKGROUND, true);
+    }
     
-    // --- References ----------------------------------------------------------
+    /**
+     * Cancels all pending (not yet running) operations for the heap.
+     */
+    public static void cancelPending(Heap heap) {
+        HeapAnalysisScheduler.getDefault().cancel(heap);
+    }
     
-    private volatile boolean referencesInitialized;
-    private volatile RequestProcessor.Task referencesComputer;
     
-    private void initializeReferencesImpl(Heap heap) throws InterruptedException {
-        RequestProcessor.Task _referencesComputer;
-        
-        synchronized (this) {
-            if (referencesInitialized) return;
-            
-            if (referencesComputer == null) {
-                Runnable workerR = new Runnable() {
-                    public void run() {
-                        OpProgressHandle pHandle = null;
-
-                        try {
-                            pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingReferences());
-                            pHandle.setInitialDelay(1000);
-                            pHandle.start(HeapProgress.PROGRESS_MAX);
+    // --- References ----------------------------------------------------------
+    
+    private final Stage references = new Stage("References", null) { // NOI18N
+        void compute(Heap heap) {
+            OpProgressHandle pHandle = null;
 
-                            pHandle.setProgress(0);
+            try {
+                pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingReferences());
+                pHandle.setInitialDelay(1000);
+                pHandle.start(HeapProgress.PROGRESS_MAX);
 
-                            Instance dummy = heap.getAllInstancesIterator().next();
-                            dummy.getReferences();
-                        } finally {
-                            if (pHandle != null) pHandle.finish();
-                        }
+                pHandle.setProgress(0);
 
-                        synchronized (HeapOperations.this) {
-                            referencesInitialized = true;
-                            referencesComputer = null;
-                        }
-                    }
-                };
-                referencesComputer = new RequestProcessor("References Computer").post(workerR); // NO18N
-                _referencesComputer = referencesComputer;
-            } else {
-                _referencesComputer = referencesComputer;
+                Instance dummy = heap.getAllInstancesIterator().next();
+                dummy.getReferences();
+            } finally {
+                if (pHandle != null) pHandle.finish();
             }
         }
-        
-        assert !SwingUtilities.isEventDispatchThread();
-
-        _referencesComputer.waitFinished(0);
-    }
+    };
     
     
     // --- GC Roots ------------------------------------------------------------
     
-    private volatile boolean gcrootsInitialized;
-    private volatile RequestProcessor.Task gcrootsComputer;
-    
-    private void initializeGCRootsImpl(Heap heap) throws InterruptedException {
-        initializeReferencesImpl(heap);
-        
-        RequestProcessor.Task _gcrootsComputer;
-        
-        synchronized (this) {
-            if (gcrootsInitialized) return;
-            
-            if (gcrootsComputer == null) {
-                Runnable workerR = new Runnable() {
-                    public void run() {
-                        OpProgressHandle pHandle = null;
+    private final Stage gcroots = new Stage("GC Roots", references) { // NOI18N
+        void compute(Heap heap) {
+            OpProgressHandle pHandle = null;
 
-                        try {
-                            pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingGCRoots());
-                            pHandle.setInitialDelay(1000);
-                            pHandle.start(HeapProgress.PROGRESS_MAX);
+            try {
+                pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingGCRoots());
+                pHandle.setInitialDelay(1000);
+                pHandle.start(HeapProgress.PROGRESS_MAX);
 
-                            pHandle.setProgress(0);
+                pHandle.setProgress(0);
 
-                            Instance dummy = heap.getAllInstancesIterator().next();
-                            dummy.getNearestGCRootPointer();
-                        } finally {
-                            if (pHandle != null) pHandle.finish();
-                        }
-
-                        synchronized (HeapOperations.this) {
-                            gcrootsInitialized = true;
-                            gcrootsComputer = null;
-                        }
-                    }
-                };
-                gcrootsComputer = new RequestProcessor("GC Roots Computer").post(workerR); // NO18N
-                _gcrootsComputer = gcrootsComputer;
-            } else {
-                _gcrootsComputer = gcrootsComputer;
+                Instance dummy = heap.getAllInstancesIterator().next();
+                dummy.getNearestGCRootPointer();
+            } finally {
+                if (pHandle != null) pHandle.finish();
             }
         }
-        
-        assert !SwingUtilities.isEventDispatchThread();
-
-        _gcrootsComputer.waitFinished(0);
-    }
+    };
     
     // --- Retained Sizes ------------------------------------------------------------
     
-    private volatile boolean retainedInitialized;
-    private volatile RequestProcessor.Task retainedComputer;
-    
-    private void initializeRetainedSizesImpl(Heap heap) throws InterruptedException {
-        initializeGCRootsImpl(heap);
-        
-        RequestProcessor.Task _retainedComputer;
-        
-        synchronized (this) {
-            if (retainedInitialized) return;
-            
-            if (retainedComputer == null) {
-                Runnable workerR = new Runnable() {
-                    public void run() {
-                        OpProgressHandle pHandle = null;
-
-                        try {
-                            pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingRetainedSizes());
-                            pHandle.setInitialDelay(1000);
-                            pHandle.start();
+    private final Stage retained = new Stage("Retained Sizes", gcroots) { // NOI18N
+        void compute(Heap heap) {
+            OpProgressHandle pHandle = null;
 
-                            pHandle.setRetainedSizesProgress(HeapProgress.PROGRESS_MAX, 3*HeapProgress.PROGRESS_MAX);
+            try {
+                pHandle = new OpProgressHandle(Bundle.HeapOperations_ComputingRetainedSizes());
+                pHandle.setInitialDelay(1000);
+                pHandle.start();
 
-                            Instance dummy = heap.getAllInstancesIterator().next();
-                            dummy.getRetainedSize();
+                pHandle.setRetainedSizesProgress(HeapProgress.PROGRESS_MAX, 3*HeapProgress.PROGRESS_MAX);
 
-                            pHandle.setProgress(2*HeapProgress.PROGRESS_MAX);
+                Instance dummy = heap.getAllInstancesIterator().next();
+                dummy.getRetainedSize();
 
-                            List<JavaClass> classes = heap.getAllClasses();
-                            if (!classes.isEmpty()) classes.get(0).getRetainedSizeByClass();
-                        } finally {
-                            if (pHandle != null) pHandle.finish();
-                        }
+                pHandle.setProgress(2*HeapProgress.PROGRESS_MAX);
 
-                        synchronized (HeapOperations.this) {
-                            retainedInitialized = true;
-                            retainedComputer = null;
+                List<JavaClass> classes = heap.getAllClasses();
+                if (!classes.isEmpty()) classes.get(0).getRetainedSizeByClass();
+            } finally {
+                if (pHandle != null) pHandle.finish();
+            }
+        }
+    };
+    
+    
+    // --- Stages pipeline -----------------------------------------------------
+    
+    private abstract class Stage {
+        
+        private final String name;
+        private final Stage previous;
+        private Stage next;
+        
+        private volatile boolean initialized;
+        private HeapAnalysisScheduler.Task computer;
+        
+        
+        Stage(String name, Stage previous) {
+            this.name = name;
+            this.previous = previous;
+            if (previous != null) previous.next = this;
+        }
+        
+        
+        abstract void compute(Heap heap);
+        
+        
+        void initialize(Heap heap, int priority) throws InterruptedException {
+            if (previous != null) previous.initialize(heap, priority);
+            
+            HeapAnalysisScheduler.Task _computer = schedule(heap, priority, false);
+            if (_computer == null) return;
+            
+            assert !SwingUtilities.isEventDispatchThread();
+            
+            _computer.waitFinished();
+        }
+        
+        // Expects the previous stage to be already initialized or scheduled within pipeline
+        HeapAnalysisScheduler.Task schedule(final Heap heap, int priority, final boolean pipeline) {
+            HeapAnalysisScheduler scheduler = HeapAnalysisScheduler.getDefault();
+            
+            synchronized (HeapOperations.this) {
+                if (initialized) {
+                    if (pipeline && next != null) next.schedule(heap, priority, pipeline);
+                    return null;
+                }
+                
+                if (computer == null || computer.isCancelled()) {
+                    Runnable workerR = new Runnable() {
+                        public void run() {
+                            boolean success = false;
+                            try {
+                                compute(heap);
+                                success = true;
+                            } finally {
+                                synchronized (HeapOperations.this) {
+                                    initialized = success;
+                                    computer = null;
+                                }
+                            }
+                            
+                            if (pipeline && next != null) next.schedule(heap, HeapAnalysisScheduler.PRIORITY_BACKGROUND, pipeline);
                         }
-                    }
-                };
-                retainedComputer = new RequestProcessor("Retained Sizes Computer").post(workerR); // NO18N
-                _retainedComputer = retainedComputer;
-            } else {
-                _retainedComputer = retainedComputer;
+                    };
+                    computer = scheduler.schedule(heap, name, workerR, priority);
+                } else {
+                    scheduler.prioritize(computer, priority);
+                }
+                
+                return computer;
             }
         }
         
-        assert !SwingUtilities.isEventDispatchThread();
-
-        _retainedComputer.waitFinished(0);
     }
 
     public static class OpProgressHandle {
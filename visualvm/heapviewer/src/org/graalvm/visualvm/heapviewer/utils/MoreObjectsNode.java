@@ -27,6 +27,7 @@ package org.graalvm.visualvm.heapviewer.utils;
 
 import java.awt.event.ActionEvent;
 import java.text.Format;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -97,6 +98,12 @@ abstract class MoreObjectsNode<T> extends MoreNodesNode {
     // Preferably a ProgressIterator or its wrapper updating the progress
     protected abstract Iterator<T> objectsIterator(int index, Progress progress);
     
+    // Optionally provides objects already sorted according to the DataType and SortOrder,
+    // starting at the index. Returns null if not supported, the objects are sorted using nodes.
+    protected Iterator<T> sortedObjectsIterator(int index, DataType dataType, SortOrder sortOrder, Progress progress) throws InterruptedException {
+        return null;
+    }
+    
     
     protected String getSamplesContainerString(String objectsCount)  {
         return Bundle.MoreObjectsNode_SamplesContainer(objectsCount);
@@ -242,6 +249,11 @@ abstract class MoreObjectsNode<T> extends MoreNodesNode {
         return objects;
     }
     
+    private static HeapViewerNode[] precomputeDetails(HeapViewerNode[] nodes, Heap heap) {
+        NodesComputer.precomputeDetails(nodes, null, 0, heap);
+        return nodes;
+    }
+    
     private int getFirstItemIndex(int containerIndex) {
         return containerIndex <= 0 ? previousObjectOffset + 1 : AGGREGATION * (containerIndex + nodesOffset);
     }
@@ -272,17 +284,37 @@ abstract class MoreObjectsNode<T> extends MoreNodesNode {
         return nodes;
     }
     
+    private HeapViewerNode[] loadSortedChildren(int containerIndex, DataType dataType, SortOrder sortOrder, Progress progress) throws InterruptedException {
+        int start = MoreObjectsNode.this.getFirstItemIndex(containerIndex);
+        int end = MoreObjectsNode.this.getLastItemIndex(containerIndex);
+        
+        Iterator<T> objectsIt = sortedObjectsIterator(start, dataType, sortOrder, progress);
+        if (objectsIt == null) return null;
+        
+        int i = 0;
+        HeapViewerNode[] nodes = new HeapViewerNode[end - start + 1];
+        while (i < nodes.length && objectsIt.hasNext()) nodes[i++] = createNode(objectsIt.next());
+
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+        
+        return i < nodes.length ? Arrays.copyOf(nodes, i) : nodes;
+    }
+    
     private HeapViewerNode[] computeChildren(int containerIndex, Heap heap, String viewID, HeapViewerNodeFilter viewFilter, List<DataType> dataTypes, List<SortOrder> sortOrders, Progress progress) throws InterruptedException {            
 //        long start = System.currentTimeMillis();
 //        try {
         
         // No sorting - plain fetch
         SortOrder sortOrder = sortOrders == null || sortOrders.isEmpty() ? null : sortOrders.get(0);
-        if (sortOrder == null || sortOrder.equals(SortOrder.UNSORTED)) return MoreObjectsNode.this.loadChildren(containerIndex, progress);
+        if (sortOrder == null || sortOrder.equals(SortOrder.UNSORTED)) return precomputeDetails(MoreObjectsNode.this.loadChildren(containerIndex, progress), heap);
 
         // Sorting by count or own size - plain fetch
         DataType dataType = dataTypes == null || dataTypes.isEmpty() ? null : dataTypes.get(0);
-        if (dataType == null || !sorts(dataType)) return MoreObjectsNode.this.loadChildren(containerIndex, progress);
+        if (dataType == null || !sorts(dataType)) return precomputeDetails(MoreObjectsNode.this.loadChildren(containerIndex, progress), heap);
+
+        // Sorting by a presorted value - plain fetch of the sorted objects
+        HeapViewerNode[] sortedNodes = MoreObjectsNode.this.loadSortedChildren(containerIndex, dataType, sortOrder, progress);
+        if (sortedNodes != null) return precomputeDetails(sortedNodes, heap);
 
         // Sorting - must resolve instanceIDs
         T[] objects = MoreObjectsNode.this.getObjects(containerIndex, heap, null, dataType, sortOrder, progress);
@@ -296,7 +328,7 @@ abstract class MoreObjectsNode<T> extends MoreNodesNode {
             if (worker.isInterrupted()) throw new InterruptedException();
         }
 
-        return nodes;
+        return precomputeDetails(nodes, heap);
         
 //        } finally {
 //            System.err.println(">>> Container " + containerIndex + " computed in " + (System.currentTimeMillis() - start));
@@ -35,6 +35,8 @@ import org.graalvm.visualvm.heapviewer.model.HeapViewerNode;
 import org.graalvm.visualvm.heapviewer.model.HeapViewerNodeFilter;
 import org.graalvm.visualvm.heapviewer.model.Progress;
 import org.graalvm.visualvm.lib.jfluid.heap.Heap;
+import org.graalvm.visualvm.lib.jfluid.heap.Instance;
+import org.graalvm.visualvm.lib.profiler.heapwalk.details.api.DetailsSupport;
 import org.graalvm.visualvm.lib.ui.Formatters;
 import org.openide.util.NbBundle;
 
@@ -51,6 +53,8 @@ public abstract class NodesComputer<T> {
     
     private static final int EXTRA_ALLOWED_ITEMS = 10;
     
+    private static final boolean PRECOMPUTE_DETAILS = Boolean.parseBoolean(System.getProperty("heapviewer.precomputeDetails", "true")); // NOI18N
+    
     private final int itemsCount;
     private final int maxItemsCount;
     
@@ -72,6 +76,12 @@ public abstract class NodesComputer<T> {
     
     protected abstract ProgressIterator<T> objectsIterator(int index, Progress progress);
     
+    // Optionally provides objects already sorted according to the DataType and SortOrder,
+    // starting at the index. Returns null if not supported, the objects are sorted using nodes.
+    protected Iterator<T> sortedObjectsIterator(int index, DataType dataType, SortOrder sortOrder, Heap heap, Progress progress) throws InterruptedException {
+        return null;
+    }
+    
     
     protected String getMoreNodesString(String moreNodesCount)  {
         return Bundle.NodesComputer_MoreNodes(moreNodesCount);
@@ -98,6 +108,7 @@ public abstract class NodesComputer<T> {
             if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
             
             if (i < itemsCount) nodes = Arrays.copyOf(nodes, i);
+            precomputeDetails(nodes, null, 0, heap);
             return nodes;
         } else {
             // First N objects
@@ -128,6 +139,9 @@ public abstract class NodesComputer<T> {
                     protected Iterator<T> objectsIterator(int index, Progress progress) {
                         return NodesComputer.this.objectsIterator(index, 0, -1, viewFilter, heap, progress);
                     }
+                    protected Iterator<T> sortedObjectsIterator(int index, DataType dataType, SortOrder sortOrder, Progress progress) throws InterruptedException {
+                        return NodesComputer.this.sortedObjectsIterator(index, dataType, sortOrder, heap, progress);
+                    }
                     protected String getSamplesContainerString(String objectsCount)  {
                         return NodesComputer.this.getSamplesContainerString(objectsCount);
                     }
@@ -136,8 +150,55 @@ public abstract class NodesComputer<T> {
                     }
                 };
                 
+                precomputeDetails(nodes, nodesIterator(objectsIterator(maxItemsCount, new Progress())), maxItemsCount, heap);
+                
                 return nodes;
             } else {
+                Iterator<T> sortedIt = itemsCount < Integer.MAX_VALUE && viewFilter == null ?
+                                       sortedObjectsIterator(0, dataType, sortOrder, heap, progress) : null;
+                if (sortedIt != null) {
+                    // First N objects from the presorted objects
+                    int i = 0;
+                    HeapViewerNode[] nodes = new HeapViewerNode[maxItemsCount + 1];
+                    T lastObject = null;
+                    while (i < maxItemsCount && sortedIt.hasNext()) nodes[i++] = createNode(lastObject = sortedIt.next());
+                    
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                    
+                    if (!sortedIt.hasNext()) {
+                        nodes = Arrays.copyOf(nodes, i);
+                        precomputeDetails(nodes, null, 0, heap);
+                        return nodes;
+                    }
+                    
+                    Format format = Formatters.numberFormat();
+                    String moreNodesString = getMoreNodesString(format.format(itemsCount - i));
+                    nodes[i] = new MoreObjectsNode<T>(moreNodesString, itemsCount, itemsCount, lastObject, i - 1) {
+                        protected boolean sorts(DataType dataType) {
+                            return NodesComputer.this.sorts(dataType);
+                        }
+                        protected HeapViewerNode createNode(T object) {
+                            return NodesComputer.this.createNode(object);
+                        }
+                        protected Iterator<T> objectsIterator(int index, Progress progress) {
+                            return NodesComputer.this.objectsIterator(index, 0, -1, viewFilter, heap, progress);
+                        }
+                        protected Iterator<T> sortedObjectsIterator(int index, DataType dataType, SortOrder sortOrder, Progress progress) throws InterruptedException {
+                            return NodesComputer.this.sortedObjectsIterator(index, dataType, sortOrder, heap, progress);
+                        }
+                        protected String getSamplesContainerString(String objectsCount)  {
+                            return NodesComputer.this.getSamplesContainerString(objectsCount);
+                        }
+                        protected String getNodesContainerString(String firstNodeIdx, String lastNodeIdx)  {
+                            return NodesComputer.this.getNodesContainerString(firstNodeIdx, lastNodeIdx);
+                        }
+                    };
+                    
+                    precomputeDetails(nodes, nodesIterator(sortedIt), maxItemsCount, heap);
+                    
+                    return nodes;
+                }
+                
                 // First N objects according to the provided sorting
                 SortedObjectsBuffer<T> buffer = new SortedObjectsBuffer<T>(maxItemsCount, null, dataType, sortOrder, null, heap, parent) {
                     protected boolean sorts(DataType dataType) { return NodesComputer.this.sorts(dataType); }
@@ -168,6 +229,7 @@ public abstract class NodesComputer<T> {
                     // No MoreNodesNode needed
                     HeapViewerNode[] nodes = new HeapViewerNode[objectsCount];
                     for (int i = 0; i < objectsCount; i++) nodes[i] = createNode(objects[i]);
+                    precomputeDetails(nodes, null, 0, heap);
                     return nodes;
                 } else {
                     // ModeNodesNode needed
@@ -199,6 +261,8 @@ public abstract class NodesComputer<T> {
                             return NodesComputer.this.getNodesContainerString(firstNodeIdx, lastNodeIdx);
                         }
                     };
+                    
+                    precomputeDetails(nodes, null, 0, heap);
 
                     return nodes;
                 }
@@ -217,6 +281,37 @@ public abstract class NodesComputer<T> {
     }
     
     
+    // Creates nodes lazily, to be used by the background details precomputation
+    private Iterator<HeapViewerNode> nodesIterator(final Iterator<T> objects) {
+        return new Iterator<HeapViewerNode>() {
+            public boolean hasNext() { return objects.hasNext(); }
+            public HeapViewerNode next() { return createNode(objects.next()); }
+        };
+    }
+    
+    /**
+     * Precomputes details strings of instances of the provided nodes and of up
+     * to nextCount nodes of the next page in a background thread, so that
+     * the displayed nodes don't need to compute them when painted.
+     */
+    static void precomputeDetails(final HeapViewerNode[] nodes, final Iterator<HeapViewerNode> nextNodes, int nextCount, final Heap heap) {
+        if (!PRECOMPUTE_DETAILS || nodes.length == 0) return;
+        
+        Iterator<Instance> instances = new Iterator<Instance>() {
+            private int index;
+            public boolean hasNext() {
+                return index < nodes.length || nextNodes != null && nextNodes.hasNext();
+            }
+            public Instance next() {
+                HeapViewerNode node = index < nodes.length ? nodes[index++] : nextNodes.next();
+                return node == null ? null : HeapViewerNode.getValue(node, DataType.INSTANCE, heap);
+            }
+        };
+        
+        DetailsSupport.precomputeDetailsStrings(instances, nodes.length + nextCount);
+    }
+    
+    
     private ObjectsIterator objectsIterator(int index, int knownInnerStart, int knownOuterCount, HeapViewerNodeFilter viewFilter, Heap heap, Progress progress) {
         return viewFilter == null ? new PlainObjectsIterator(index, progress) :
                new FilteredObjectsIterator(index, knownInnerStart <= 0 ? 0 : knownInnerStart - 1, knownOuterCount, viewFilter, heap, progress);
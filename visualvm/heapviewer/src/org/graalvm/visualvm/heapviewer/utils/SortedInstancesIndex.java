@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2017, 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.heapviewer.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javax.swing.SortOrder;
+import org.graalvm.visualvm.heapviewer.model.DataType;
+import org.graalvm.visualvm.heapviewer.model.Progress;
+import org.graalvm.visualvm.lib.jfluid.heap.Heap;
+import org.graalvm.visualvm.lib.jfluid.heap.Instance;
+import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
+
+/**
+ * Sorted order of instances of a class computed once per heap, class, DataType
+ * and SortOrder. The sort keys are stored in primitive arrays, no nodes are
+ * created. The order is only resolved up to the last requested position
+ * (incremental quicksort), so that displaying the first pages doesn't require
+ * sorting all the instances. The index doesn't reference the heap, so that the
+ * cache doesn't prevent a closed heap from being collected.
+ *
+ * @author Jiri Sedlacek
+ */
+public final class SortedInstancesIndex {
+
+    private static final int CACHED_INDEXES = Integer.getInteger("heapviewer.cachedSortIndexes", 4); // NOI18N
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int RESOLVE_CHUNK = 1000;
+
+    private static Map<Heap, Map<IndexKey, FutureTask<SortedInstancesIndex>>> INDEXES;
+
+
+    private final boolean ascending;
+
+    private final long[] instanceIDs;
+    private final long[] keys;
+    private final int[] order;
+
+    private int resolved;
+    private int[] pivots;
+    private int pivotsCount;
+
+
+    /**
+     * Returns true if instances can be sorted by the provided DataType.
+     */
+    public static boolean supports(DataType dataType, Heap heap) {
+        if (DataType.OWN_SIZE.equals(dataType) || DataType.OBJECT_ID.equals(dataType)) return true;
+        if (DataType.RETAINED_SIZE.equals(dataType)) return DataType.RETAINED_SIZE.valuesAvailable(heap);
+        return false;
+    }
+
+    /**
+     * Returns instances of the class sorted according to dataType and sortOrder
+     * starting at the provided index, or null if the dataType is not supported.
+     */
+    public static Iterator<Instance> sortedInstances(JavaClass jclass, DataType dataType, SortOrder sortOrder, int index, Heap heap, Progress progress) throws InterruptedException {
+        if (sortOrder == null || SortOrder.UNSORTED.equals(sortOrder) || !supports(dataType, heap)) return null;
+
+        IndexKey key = new IndexKey(jclass.getJavaClassId(), dataType, SortOrder.ASCENDING.equals(sortOrder));
+
+        return getIndex(jclass, dataType, key, heap, progress).iterator(index, heap);
+    }
+
+
+    // The index is computed once per key by the first requesting thread, other threads wait for it
+    private static SortedInstancesIndex getIndex(final JavaClass jclass, final DataType dataType, final IndexKey key, Heap heap, final Progress progress) throws InterruptedException {
+        while (true) {
+            FutureTask<SortedInstancesIndex> future;
+            boolean compute = false;
+
+            synchronized (SortedInstancesIndex.class) {
+                Map<IndexKey, FutureTask<SortedInstancesIndex>> indexes = getIndexes(heap);
+                future = indexes.get(key);
+                if (future == null) {
+                    future = new FutureTask(new Callable<SortedInstancesIndex>() {
+                        public SortedInstancesIndex call() throws InterruptedException {
+                            return new SortedInstancesIndex(jclass, dataType, key.ascending, progress);
+                        }
+                    });
+                    indexes.put(key, future);
+                    compute = true;
+                }
+            }
+
+            if (compute) future.run();
+
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                removeIndex(heap, key, future);
+
+                if (compute) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof InterruptedException) throw (InterruptedException)cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+                    if (cause instanceof Error) throw (Error)cause;
+                    throw new IllegalStateException(cause);
+                }
+
+                // Computing the index by another thread failed or was interrupted, compute it again
+            }
+        }
+    }
+
+    private static Map<IndexKey, FutureTask<SortedInstancesIndex>> getIndexes(Heap heap) {
+        if (INDEXES == null) INDEXES = new WeakHashMap();
+        Map<IndexKey, FutureTask<SortedInstancesIndex>> indexes = INDEXES.get(heap);
+        if (indexes == null) {
+            indexes = new LinkedHashMap<IndexKey, FutureTask<SortedInstancesIndex>>(CACHED_INDEXES + 1, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<IndexKey, FutureTask<SortedInstancesIndex>> eldest) {
+                    return size() > CACHED_INDEXES;
+                }
+            };
+            INDEXES.put(heap, indexes);
+        }
+        return indexes;
+    }
+
+    private static synchronized void removeIndex(Heap heap, IndexKey key, FutureTask<SortedInstancesIndex> future) {
+        Map<IndexKey, FutureTask<SortedInstancesIndex>> indexes = INDEXES.get(heap);
+        if (indexes != null && indexes.get(key) == future) indexes.remove(key);
+    }
+
+
+    private SortedInstancesIndex(JavaClass jclass, DataType dataType, boolean ascending, Progress progress) throws InterruptedException {
+        this.ascending = ascending;
+
+        int count = jclass.getInstancesCount();
+
+        long[] ids = new long[count];
+        long[] values = new long[count];
+
+        Thread worker = Thread.currentThread();
+
+        int i = 0;
+        try {
+            progress.setupKnownSteps(count);
+
+            Iterator<Instance> instances = jclass.getInstancesIterator();
+            while (i < count && instances.hasNext()) {
+                Instance instance = instances.next();
+                ids[i] = instance.getInstanceId();
+                values[i] = getKey(instance, dataType);
+                i++;
+
+                progress.step();
+                if (worker.isInterrupted()) throw new InterruptedException();
+            }
+        } finally {
+            progress.finish();
+        }
+
+        instanceIDs = ids;
+        keys = values;
+
+        order = new int[i];
+        for (int o = 0; o < i; o++) order[o] = o;
+
+        pivots = new int[32];
+        pivots[pivotsCount++] = i;
+    }
+
+
+    private static long getKey(Instance instance, DataType dataType) {
+        if (DataType.OWN_SIZE.equals(dataType)) return instance.getSize();
+        if (DataType.RETAINED_SIZE.equals(dataType)) return instance.getRetainedSize();
+        return instance.getInstanceId();
+    }
+
+
+    private Iterator<Instance> iterator(final int index, final Heap heap) {
+        return new Iterator<Instance>() {
+            private int position = Math.max(0, index);
+
+            public boolean hasNext() {
+                return position < order.length;
+            }
+
+            public Instance next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                if (position % RESOLVE_CHUNK == 0 || position == index) resolve(Math.min(order.length, position + RESOLVE_CHUNK));
+                return heap.getInstanceByID(instanceIDs[order[position++]]);
+            }
+        };
+    }
+
+
+    // --- Incremental quicksort -----------------------------------------------
+
+    // Makes order[0, count) final, the rest of the array stays partitioned
+    private synchronized void resolve(int count) {
+        while (resolved < count) {
+            int top = pivots[pivotsCount - 1];
+
+            if (top == resolved) {
+                // pivot at its final position
+                pivotsCount--;
+                resolved++;
+            } else if (top - resolved <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(resolved, top);
+                resolved = top;
+            } else {
+                pushPivot(partition(resolved, top));
+            }
+        }
+    }
+
+    private void pushPivot(int pivot) {
+        if (pivotsCount == pivots.length) {
+            int[] newPivots = new int[pivots.length * 2];
+            System.arraycopy(pivots, 0, newPivots, 0, pivotsCount);
+            pivots = newPivots;
+        }
+        pivots[pivotsCount++] = pivot;
+    }
+
+    // Partitions order[from, to), returns final position of the pivot
+    private int partition(int from, int to) {
+        int last = to - 1;
+        int middle = (from + last) >>> 1;
+
+        // median of three
+        if (less(order[middle], order[from])) swap(middle, from);
+        if (less(order[last], order[from])) swap(last, from);
+        if (less(order[middle], order[last])) swap(middle, last);
+
+        int pivot = order[last];
+        int store = from;
+        for (int i = from; i < last; i++)
+            if (less(order[i], pivot)) swap(i, store++);
+        swap(store, last);
+
+        return store;
+    }
+
+    private void insertionSort(int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int item = order[i];
+            int j = i - 1;
+            while (j >= from && less(item, order[j])) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = item;
+        }
+    }
+
+    // Ties are resolved by the original order like in SortedObjectsBuffer
+    private boolean less(int item1, int item2) {
+        long key1 = keys[item1];
+        long key2 = keys[item2];
+        if (key1 == key2) return item1 < item2;
+        return ascending ? key1 < key2 : key1 > key2;
+    }
+
+    private void swap(int i, int j) {
+        int item = order[i];
+        order[i] = order[j];
+        order[j] = item;
+    }
+
+
+    private static final class IndexKey {
+
+        private final long classId;
+        private final DataType dataType;
+        private final boolean ascending;
+
+        IndexKey(long classId, DataType dataType, boolean ascending) {
+            this.classId = classId;
+            this.dataType = dataType;
+            this.ascending = ascending;
+        }
+
+        public int hashCode() {
+            return Long.hashCode(classId) ^ dataType.hashCode() ^ (ascending ? 1 : 0);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof IndexKey)) return false;
+            IndexKey k = (IndexKey)o;
+            return classId == k.classId && dataType.equals(k.dataType) && ascending == k.ascending;
+        }
+
+    }
+
+}
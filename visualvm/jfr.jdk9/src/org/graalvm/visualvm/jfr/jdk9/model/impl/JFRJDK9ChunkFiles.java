@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.jdk9.model.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.graalvm.visualvm.jfr.model.JFRChunk;
+
+/**
+ * Chunks of a JFR recording as separate files, RecordingFile can only read
+ * a whole file. A chunk is copied to a temporary file when first requested,
+ * the copy is reused by all subsequent reads of the chunk. A chunk spanning
+ * the whole recording is read directly from the recording file.
+ *
+ * @author Jiri Sedlacek
+ */
+final class JFRJDK9ChunkFiles {
+    
+    private static final Cleaner CLEANER = Cleaner.create();
+    
+    
+    private final File file;
+    private final List<JFRChunk> chunks;
+    private final ChunkFile[] chunkFiles;
+    
+    
+    JFRJDK9ChunkFiles(File file, List<JFRChunk> chunks) {
+        this.file = file;
+        this.chunks = chunks;
+        
+        chunkFiles = new ChunkFile[chunks.size()];
+        for (int i = 0; i < chunkFiles.length; i++) chunkFiles[i] = new ChunkFile();
+    }
+    
+    
+    List<JFRChunk> getChunks() {
+        return chunks;
+    }
+    
+    // Copies the chunk on first request, can be called concurrently for different chunks
+    File getFile(JFRChunk chunk) throws IOException {
+        if (chunk.getOffset() == 0 && chunk.getSize() == file.length()) return file;
+        return chunkFiles[chunk.getIndex()].get(chunk);
+    }
+    
+    // Deletes the copies once the owner is no longer reachable
+    void deleteWhenUnreachable(Object owner) {
+        CLEANER.register(owner, new Runnable() {
+            @Override
+            public void run() {
+                delete();
+            }
+        });
+    }
+    
+    void delete() {
+        for (ChunkFile chunkFile : chunkFiles) chunkFile.delete();
+    }
+    
+    
+    private final class ChunkFile {
+        
+        private File copy;
+        private boolean deleted;
+        
+        synchronized File get(JFRChunk chunk) throws IOException {
+            if (deleted) throw new IOException("JFR chunk files already deleted (" + file + ")"); // NOI18N
+            
+            if (copy == null) {
+                File chunkFile = File.createTempFile("visualvm-jfr-chunk", ".jfr"); // NOI18N
+                chunkFile.deleteOnExit();
+                try {
+                    copy(chunk, chunkFile);
+                } catch (IOException | RuntimeException e) {
+                    chunkFile.delete();
+                    throw e;
+                }
+                copy = chunkFile;
+            }
+            
+            return copy;
+        }
+        
+        synchronized void delete() {
+            deleted = true;
+            if (copy != null) {
+                copy.delete();
+                copy = null;
+            }
+        }
+        
+        private void copy(JFRChunk chunk, File chunkFile) throws IOException {
+            try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(chunkFile.toPath(), StandardOpenOption.WRITE)) {
+                long offset = chunk.getOffset();
+                long size = chunk.getSize();
+                long copied = 0;
+                while (copied < size) {
+                    long count = source.transferTo(offset + copied, size - copied, target);
+                    if (count <= 0) throw new IOException("Failed to copy JFR chunk at " + offset + " (" + file + ")"); // NOI18N
+                    copied += count;
+                }
+            }
+        }
+        
+    }
+    
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.jdk9.model.impl;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.graalvm.visualvm.jfr.model.JFRChunk;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Reads events of a JFR recording in the same order as RecordingFile. Chunks
+ * of a multi-chunk recording are independent and are parsed in parallel, each
+ * by its own RecordingFile reading the chunk file provided by JFRJDK9ChunkFiles.
+ * Each chunk parses ahead up to a bounded number of events, events are returned
+ * in chunk order. Optionally reads only the given chunks of the recording.
+ *
+ * @author Jiri Sedlacek
+ */
+final class JFRJDK9ChunkReader implements Closeable {
+    
+    // Number of chunks parsed in parallel, 1 disables parallel parsing
+    private static final int PARALLELISM = Math.max(1, Integer.getInteger("visualvm.jfr.parserThreads", // NOI18N
+                                                    Runtime.getRuntime().availableProcessors()));
+    
+    // Number of events parsed ahead by each chunk
+    private static final int CHUNK_BUFFER = Math.max(1, Integer.getInteger("visualvm.jfr.parserChunkBuffer", 65536)); // NOI18N
+    
+    private static final int BATCH_SIZE = Math.min(1024, CHUNK_BUFFER);
+    
+    private static final RequestProcessor PROCESSOR = new RequestProcessor("JFR Chunk Parser", PARALLELISM); // NOI18N
+    
+    
+    private final File file;
+    private final JFRJDK9ChunkFiles chunkFiles;
+    
+    // Single chunk or parallel parsing disabled
+    private final RecordingFile recordingFile;
+    
+    // Parallel parsing
+    private final Iterator<JFRChunk> chunks;
+    private final Deque<ChunkTask> tasks;
+    private Iterator<RecordedEvent> batch;
+    private JFRChunk chunk;
+    
+    
+    // null chunkFiles reads the whole recording sequentially
+    JFRJDK9ChunkReader(File file, JFRJDK9ChunkFiles chunkFiles) throws IOException {
+        this(file, chunkFiles, PARALLELISM);
+    }
+    
+    JFRJDK9ChunkReader(File file, JFRJDK9ChunkFiles chunkFiles, int parallelism) throws IOException {
+        this(file, chunkFiles, parallelChunks(chunkFiles, parallelism), parallelism);
+    }
+    
+    JFRJDK9ChunkReader(File file, JFRJDK9ChunkFiles chunkFiles, List<JFRChunk> chunkList) throws IOException {
+        this(file, chunkFiles, chunkList, PARALLELISM);
+    }
+    
+    // null chunkList reads the whole recording sequentially
+    private JFRJDK9ChunkReader(File file, JFRJDK9ChunkFiles chunkFiles, List<JFRChunk> chunkList, int parallelism) throws IOException {
+        this.file = file;
+        this.chunkFiles = chunkFiles;
+        
+        if (chunkList == null) {
+            recordingFile = new RecordingFile(file.toPath());
+            chunks = null;
+            tasks = null;
+        } else {
+            recordingFile = null;
+            chunks = chunkList.iterator();
+            tasks = new ArrayDeque<>();
+            batch = Collections.emptyIterator();
+            while (tasks.size() < Math.max(1, parallelism) && chunks.hasNext()) startTask();
+        }
+    }
+    
+    private static List<JFRChunk> parallelChunks(JFRJDK9ChunkFiles chunkFiles, int parallelism) {
+        List<JFRChunk> chunkList = parallelism > 1 && chunkFiles != null ? chunkFiles.getChunks() : null;
+        return chunkList == null || chunkList.size() < 2 ? null : chunkList;
+    }
+    
+    
+    boolean hasMoreEvents() throws IOException {
+        if (recordingFile != null) return recordingFile.hasMoreEvents();
+        
+        while (!batch.hasNext()) {
+            ChunkTask task = tasks.peekFirst();
+            if (task == null) return false;
+            
+            List<RecordedEvent> next = task.nextBatch();
+            if (next == null) {
+                tasks.removeFirst();
+                if (chunks.hasNext()) startTask();
+            } else {
+                batch = next.iterator();
+                chunk = task.chunk;
+            }
+        }
+        
+        return true;
+    }
+    
+    RecordedEvent readEvent() throws IOException {
+        if (recordingFile != null) return recordingFile.readEvent();
+        
+        if (!hasMoreEvents()) throw new EOFException();
+        return batch.next();
+    }
+    
+    // Chunk of the last event returned by readEvent(), null when reading the whole recording sequentially
+    JFRChunk getChunk() {
+        return chunk;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (recordingFile != null) {
+            recordingFile.close();
+        } else {
+            for (ChunkTask task : tasks) task.cancel();
+            tasks.clear();
+            batch = Collections.emptyIterator();
+        }
+    }
+    
+    
+    private void startTask() {
+        ChunkTask task = new ChunkTask(file, chunkFiles, chunks.next());
+        tasks.addLast(task);
+        PROCESSOR.post(task);
+    }
+    
+    
+    private static final class ChunkTask implements Runnable {
+        
+        private static final List<RecordedEvent> END = Collections.emptyList();
+        
+        private final File file;
+        private final JFRJDK9ChunkFiles chunkFiles;
+        private final JFRChunk chunk;
+        
+        private final BlockingQueue<List<RecordedEvent>> batches;
+        
+        private volatile boolean cancelled;
+        private volatile IOException exception;
+        
+        
+        ChunkTask(File file, JFRJDK9ChunkFiles chunkFiles, JFRChunk chunk) {
+            this.file = file;
+            this.chunkFiles = chunkFiles;
+            this.chunk = chunk;
+            
+            batches = new ArrayBlockingQueue<>(Math.max(1, CHUNK_BUFFER / BATCH_SIZE));
+        }
+        
+        
+        // Returns next batch of events, null if all events of the chunk have been read
+        List<RecordedEvent> nextBatch() throws IOException {
+            try {
+                List<RecordedEvent> batch = batches.take();
+                if (batch != END) return batch;
+                
+                if (exception != null) throw exception;
+                return null;
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        
+        void cancel() {
+            cancelled = true;
+            batches.clear();
+        }
+        
+        
+        @Override
+        public void run() {
+            try {
+                if (cancelled) return;
+                
+                try (RecordingFile events = new RecordingFile(chunkFiles.getFile(chunk).toPath())) {
+                    List<RecordedEvent> batch = new ArrayList<>(BATCH_SIZE);
+                    while (!cancelled && events.hasMoreEvents()) {
+                        batch.add(events.readEvent());
+                        if (batch.size() == BATCH_SIZE) {
+                            put(batch);
+                            batch = new ArrayList<>(BATCH_SIZE);
+                        }
+                    }
+                    if (!batch.isEmpty()) put(batch);
+                }
+            } catch (IOException e) {
+                exception = e;
+            } catch (InterruptedException e) {
+                exception = new InterruptedIOException();
+            } catch (RuntimeException e) {
+                exception = new IOException("Failed to parse JFR chunk at " + chunk.getOffset() + " (" + file + ")", e); // NOI18N
+            } finally {
+                try {
+                    put(END);
+                } catch (InterruptedException e) {}
+            }
+        }
+        
+        // Waits for the reader to consume the parsed events, gives up when cancelled
+        private void put(List<RecordedEvent> batch) throws InterruptedException {
+            while (!cancelled)
+                if (batches.offer(batch, 100, TimeUnit.MILLISECONDS)) return;
+        }
+        
+    }
+    
+}
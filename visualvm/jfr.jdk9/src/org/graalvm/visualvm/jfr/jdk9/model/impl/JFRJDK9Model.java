@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019, 2020, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2019, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -30,11 +30,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jdk.jfr.EventType;
 import jdk.jfr.consumer.RecordedEvent;
 import jdk.jfr.consumer.RecordingFile;
+import org.graalvm.visualvm.jfr.model.JFRChunk;
 import org.graalvm.visualvm.jfr.model.JFREvent;
 import org.graalvm.visualvm.jfr.model.JFREventType;
 import org.graalvm.visualvm.jfr.model.JFREventTypeVisitor;
@@ -55,6 +57,12 @@ public class JFRJDK9Model extends JFRModel {
     
     private final File snapshotFile;
     
+    // Chunks of the recording as separate files, null if the chunks cannot be read
+    private final JFRJDK9ChunkFiles chunkFiles;
+    
+    // Chunks of the time window, null when visiting the whole recording
+    private volatile List<JFRChunk> loadedChunks;
+    
     
     protected JFRJDK9Model(String id, File file) throws IOException {
         super(id);
@@ -64,20 +72,45 @@ public class JFRJDK9Model extends JFRModel {
         // Will throw IOException for an unsupported JFR format (0.9 or 2+)
         try (RecordingFile events = new RecordingFile(snapshotFile.toPath())) {}
         
-        initialize();
+        List<JFRChunk> chunks = JFRChunk.readChunks(snapshotFile);
+        if (chunks != null) {
+            chunkFiles = new JFRJDK9ChunkFiles(snapshotFile, chunks);
+            chunkFiles.deleteWhenUnreachable(this);
+        } else {
+            chunkFiles = null;
+        }
+        
+        initialize(chunks, new ChunkLoader() {
+            @Override
+            public void loadChunks(List<JFRChunk> chunks) throws IOException {
+                JFRJDK9Model.this.loadChunks(chunks);
+            }
+        });
     }
     
     
     @Override
     public void visitEvents(JFREventVisitor... visitors) {
+        // The time window doesn't change while visiting its events
+        Lock timeWindowLock = lockTimeWindow();
+        try {
+            List<JFRChunk> chunks = loadedChunks;
+            if (chunks != null) visitLoadedEvents(chunks, visitors);
+            else visitAllEvents(visitors);
+        } finally {
+            timeWindowLock.unlock();
+        }
+    }
+    
+    private void visitAllEvents(JFREventVisitor... visitors) {
         // Notify all visitors 'init'
         for (JFREventVisitor visitor : visitors) visitor.init();
         
         // Notify visitors that are not done 'visit'
-        try (RecordingFile events = new RecordingFile(snapshotFile.toPath())) {
+        try (JFRJDK9ChunkReader events = new JFRJDK9ChunkReader(snapshotFile, chunkFiles)) {
             List<JFREventVisitor> _visitors = new ArrayList(Arrays.asList(visitors));
             long id = 0;
-            while (!_visitors.isEmpty() && events.hasMoreEvents()) {
+            while (!_visitors.isEmpty() && !isTimeWindowChanging() && events.hasMoreEvents()) {
                 RecordedEvent revent = events.readEvent();
                 String typeId = getTypeId(revent.getEventType());
                 JFREvent event = createEvent(revent, id++);
@@ -94,6 +127,48 @@ public class JFRJDK9Model extends JFRModel {
         }
     }
     
+    private void visitLoadedEvents(List<JFRChunk> chunks, JFREventVisitor... visitors) {
+        // Notify all visitors 'init'
+        for (JFREventVisitor visitor : visitors) visitor.init();
+        
+        // Notify visitors that are not done 'visit'
+        // The chunks are read again for each visit, the events are not kept in memory
+        try (JFRJDK9ChunkReader events = new JFRJDK9ChunkReader(snapshotFile, chunkFiles, chunks)) {
+            List<JFREventVisitor> _visitors = new ArrayList(Arrays.asList(visitors));
+            JFRChunk chunk = null;
+            long id = 0;
+            while (!_visitors.isEmpty() && !isTimeWindowChanging() && events.hasMoreEvents()) {
+                RecordedEvent revent = events.readEvent();
+                
+                // Event IDs stay the same for chunks read by different time windows
+                if (chunk != events.getChunk()) {
+                    chunk = events.getChunk();
+                    id = (long)chunk.getIndex() << 40;
+                }
+                
+                String typeId = getTypeId(revent.getEventType());
+                JFREvent event = createEvent(revent, id++);
+                if (isInTimeWindow(typeId, event)) {
+                    Iterator<JFREventVisitor> _visitorsI = _visitors.iterator();
+                    while (_visitorsI.hasNext())
+                        if (_visitorsI.next().visit(typeId, event))
+                            _visitorsI.remove();
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.INFO, "Error visiting JFR events (" + getID()+ ")", e);   // NOI18N
+        } finally {
+            // Notify all visitors 'done'
+            for (JFREventVisitor visitor : visitors) visitor.done();
+        }
+    }
+    
+    // Makes the chunks available to visitEvents(), called with the time window locked
+    private void loadChunks(List<JFRChunk> chunks) {
+        loadedChunks = chunks;
+    }
+    
+    
     @Override
     public void visitEventTypes(JFREventTypeVisitor... visitors) {
         // Notify all visitors 'init'
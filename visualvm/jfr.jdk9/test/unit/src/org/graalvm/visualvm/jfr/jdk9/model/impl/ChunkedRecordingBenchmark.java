@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.jdk9.model.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.graalvm.visualvm.jfr.model.JFRChunk;
+
+/**
+ * This is not a test, this is a simple benchmark to measure reading multi-chunk
+ * JFR recordings by JFRJDK9ChunkReader with different parallelism, without
+ * a need to build/start the full VisualVM.
+ * 
+ * Generates a recording of the given number of chunks, each containing the given
+ * number of events, and compares the time of reading it by RecordingFile and by
+ * JFRJDK9ChunkReader. The chunk files are shared by all iterations the same way
+ * as by JFRJDK9Model, the first read copies the chunks.
+ * Arguments: [events per chunk] [chunks] [iterations]
+ *
+ * @author Jiri Sedlacek
+ */
+public class ChunkedRecordingBenchmark {
+    
+    private static final int EVENTS_PER_CHUNK = 200000;
+    private static final int CHUNKS = 16;
+    private static final int ITERATIONS = 3;
+    
+    
+    public static void main(String[] args) throws Exception {
+        int eventsPerChunk = args.length > 0 ? Integer.parseInt(args[0]) : EVENTS_PER_CHUNK;
+        int chunks = args.length > 1 ? Integer.parseInt(args[1]) : CHUNKS;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : ITERATIONS;
+        
+        File recording = generateRecording(eventsPerChunk, chunks);
+        JFRJDK9ChunkFiles chunkFiles = new JFRJDK9ChunkFiles(recording, JFRChunk.readChunks(recording));
+        try {
+            System.out.println("Recording: " + recording.length() / 1024 / 1024 + " MB, " + // NOI18N
+                               JFRChunk.readChunks(recording).size() + " chunks, " + // NOI18N
+                               eventsPerChunk * chunks + " events"); // NOI18N
+            
+            long expected = readRecordingFile(recording);
+            
+            Set<Integer> parallelisms = new LinkedHashSet<>();
+            for (int p = 1; p < Runtime.getRuntime().availableProcessors(); p *= 2) parallelisms.add(p);
+            parallelisms.add(Runtime.getRuntime().availableProcessors());
+            
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                readRecordingFile(recording);
+                report("RecordingFile", start); // NOI18N
+                
+                for (int parallelism : parallelisms) {
+                    start = System.nanoTime();
+                    long checksum = readChunkReader(recording, chunkFiles, parallelism);
+                    report("JFRJDK9ChunkReader, parallelism " + parallelism, start); // NOI18N
+                    
+                    if (checksum != expected) throw new IllegalStateException("Events differ for parallelism " + parallelism); // NOI18N
+                }
+                
+                System.out.println();
+            }
+        } finally {
+            chunkFiles.delete();
+            recording.delete();
+        }
+    }
+    
+    
+    private static long readRecordingFile(File recording) throws IOException {
+        long checksum = 0;
+        try (RecordingFile events = new RecordingFile(recording.toPath())) {
+            while (events.hasMoreEvents()) checksum = checksum(checksum, events.readEvent());
+        }
+        return checksum;
+    }
+    
+    private static long readChunkReader(File recording, JFRJDK9ChunkFiles chunkFiles, int parallelism) throws IOException {
+        long checksum = 0;
+        try (JFRJDK9ChunkReader events = new JFRJDK9ChunkReader(recording, chunkFiles, parallelism)) {
+            while (events.hasMoreEvents()) checksum = checksum(checksum, events.readEvent());
+        }
+        return checksum;
+    }
+    
+    // Order sensitive checksum of the events
+    private static long checksum(long checksum, RecordedEvent event) {
+        return checksum * 31 + event.getLong("value") + event.getStackTrace().getFrames().size(); // NOI18N
+    }
+    
+    private static void report(String reader, long start) {
+        System.out.println(reader + ": " + (System.nanoTime() - start) / 1000000 + " ms"); // NOI18N
+    }
+    
+    
+    // JFR chunks are self-contained, concatenated recordings form a valid multi-chunk recording
+    private static File generateRecording(int eventsPerChunk, int chunks) throws IOException {
+        File recording = File.createTempFile("visualvm-jfr-benchmark", ".jfr"); // NOI18N
+        
+        try (FileChannel target = FileChannel.open(recording.toPath(), StandardOpenOption.WRITE)) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                File chunkFile = generateChunk(chunk, eventsPerChunk);
+                try (FileChannel source = FileChannel.open(chunkFile.toPath(), StandardOpenOption.READ)) {
+                    long size = source.size();
+                    long copied = 0;
+                    while (copied < size) copied += source.transferTo(copied, size - copied, target);
+                } finally {
+                    chunkFile.delete();
+                }
+            }
+        }
+        
+        return recording;
+    }
+    
+    private static File generateChunk(int chunk, int events) throws IOException {
+        File chunkFile = File.createTempFile("visualvm-jfr-benchmark-chunk", ".jfr"); // NOI18N
+        Files.delete(chunkFile.toPath());
+        
+        try (Recording recording = new Recording()) {
+            recording.enable(BenchmarkEvent.class).withStackTrace();
+            recording.start();
+            
+            for (int i = 0; i < events; i++) commit(chunk * (long)events + i, i % 16);
+            
+            recording.stop();
+            recording.dump(chunkFile.toPath());
+        }
+        
+        return chunkFile;
+    }
+    
+    // Events with different stack depths
+    private static void commit(long value, int depth) {
+        if (depth > 0) {
+            commit(value, depth - 1);
+        } else {
+            BenchmarkEvent event = new BenchmarkEvent();
+            event.value = value;
+            event.text = "Event " + (value % 1000); // NOI18N
+            event.commit();
+        }
+    }
+    
+    
+    @Name("org.graalvm.visualvm.jfr.Benchmark")
+    @Label("Benchmark")
+    static class BenchmarkEvent extends Event {
+        
+        @Label("Value")
+        long value;
+        
+        @Label("Text")
+        String text;
+        
+    }
+    
+}
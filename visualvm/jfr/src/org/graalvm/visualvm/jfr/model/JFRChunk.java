@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chunk of a JFR recording as described by its header. Chunks are
+ * self-contained and can be parsed independently of each other.
+ *
+ * @author Jiri Sedlacek
+ */
+public final class JFRChunk {
+    
+    private static final byte[] CHUNK_MAGIC = new byte[] { 'F', 'L', 'R', 0 }; // NOI18N
+    
+    // magic, major, minor, size, constant pool offset, metadata offset, start nanos, duration nanos
+    private static final int CHUNK_HEADER_SIZE = 48;
+    
+    private static final int OFFSET_SIZE = 8;
+    private static final int OFFSET_START = 32;
+    private static final int OFFSET_DURATION = 40;
+    
+    
+    private final int index;
+    private final long offset;
+    private final long size;
+    private final Instant startTime;
+    private final Duration duration;
+    
+    
+    private JFRChunk(int index, long offset, long size, Instant startTime, Duration duration) {
+        this.index = index;
+        this.offset = offset;
+        this.size = size;
+        this.startTime = startTime;
+        this.duration = duration;
+    }
+    
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public long getOffset() {
+        return offset;
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public Instant getStartTime() {
+        return startTime;
+    }
+    
+    // Zero for a chunk that has not been finished yet
+    public Duration getDuration() {
+        return duration;
+    }
+    
+    public Instant getEndTime() {
+        return startTime.plus(duration);
+    }
+    
+    
+    public boolean overlaps(Instant start, Instant end) {
+        return !startTime.isAfter(end) && !getEndTime().isBefore(start);
+    }
+    
+    
+    @Override
+    public String toString() {
+        return "JFR chunk #" + index + " [" + startTime + ", " + duration + ", " + size + " bytes]"; // NOI18N
+    }
+    
+    
+    /**
+     * Reads headers of all chunks of a JFR recording, returns null if the file
+     * is not a valid uncompressed recording.
+     */
+    public static List<JFRChunk> readChunks(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<JFRChunk> chunks = new ArrayList<>();
+            
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+            
+            long offset = 0;
+            while (offset < fileSize) {
+                header.clear();
+                while (header.hasRemaining())
+                    if (channel.read(header, offset + header.position()) < 0) return null;
+                
+                for (int i = 0; i < CHUNK_MAGIC.length; i++)
+                    if (header.get(i) != CHUNK_MAGIC[i]) return null;
+                
+                long chunkSize = header.getLong(OFFSET_SIZE);
+                long startNanos = header.getLong(OFFSET_START);
+                long durationNanos = header.getLong(OFFSET_DURATION);
+                
+                // Chunk not finished yet, takes the rest of the file
+                if (chunkSize < CHUNK_HEADER_SIZE || offset + chunkSize > fileSize) chunkSize = fileSize - offset;
+                
+                chunks.add(new JFRChunk(chunks.size(), offset, chunkSize, Instant.ofEpochSecond(0, startNanos),
+                                        Duration.ofNanos(Math.max(0, durationNanos))));
+                offset += chunkSize;
+            }
+            
+            return Collections.unmodifiableList(chunks);
+        }
+    }
+    
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.model;
+
+/**
+ * Definition of a column of {@link JFREventTable}.
+ *
+ * @author Jiri Sedlacek
+ */
+public abstract class JFREventColumn {
+    
+    // Value stored in Numeric columns for events missing the property
+    public static final long NO_VALUE = Long.MIN_VALUE;
+    
+    // Id stored in Dictionary columns for events missing the property or having a null value
+    public static final int NO_ID = -1;
+    
+    
+    private final String name;
+    
+    
+    private JFREventColumn(String name) {
+        this.name = name;
+    }
+    
+    
+    public final String getName() {
+        return name;
+    }
+    
+    
+    /**
+     * Column of primitive long values - counts, sizes, durations in nanoseconds etc.
+     */
+    public static abstract class Numeric extends JFREventColumn {
+        
+        public Numeric(String name) {
+            super(name);
+        }
+        
+        public abstract long getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException;
+        
+    }
+    
+    
+    /**
+     * Column of dictionary-encoded values - strings, stack traces etc.
+     * Values must implement equals() and hashCode().
+     */
+    public static abstract class Dictionary extends JFREventColumn {
+        
+        public Dictionary(String name) {
+            super(name);
+        }
+        
+        public abstract Object getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException;
+        
+    }
+    
+}
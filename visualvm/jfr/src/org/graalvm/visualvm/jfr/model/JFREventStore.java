@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Columnar store of selected events of a JFR snapshot. Each table is built by
+ * a single pass over the events when first requested, allows the views to
+ * re-aggregate the data without visiting the events again.
+ * <p>
+ * Columns are kept in heap up to {@code visualvm.jfr.eventStoreHeapBudget}
+ * megabytes per table, the remaining data is written to a temporary file and
+ * memory-mapped.
+ *
+ * @author Jiri Sedlacek
+ */
+public final class JFREventStore {
+    
+    private static final Logger LOGGER = Logger.getLogger(JFREventStore.class.getName());
+    
+    private static final long HEAP_BUDGET = Integer.getInteger("visualvm.jfr.eventStoreHeapBudget", 64) * 1024L * 1024L; // NOI18N
+    
+    
+    private final JFRModel model;
+    private final Map<String, LazyTable> tables;
+    
+    
+    JFREventStore(JFRModel model, Collection<? extends JFREventTableDefinition> definitions) {
+        this.model = model;
+        
+        tables = new HashMap<>();
+        for (JFREventTableDefinition definition : definitions)
+            tables.put(definition.getClass().getName(), new LazyTable(definition));
+    }
+    
+    
+    // Builds the table on first request, returns null if the definition is not
+    // registered or the table could not be built
+    public JFREventTable getTable(Class<? extends JFREventTableDefinition> definitionClass) {
+        LazyTable table = tables.get(definitionClass.getName());
+        return table == null ? null : table.get();
+    }
+    
+    
+    // Tables are built independently, building one table doesn't block requests for another one
+    private final class LazyTable {
+        
+        private final JFREventTableDefinition definition;
+        
+        private JFREventTable table;
+        private boolean resolved;
+        
+        LazyTable(JFREventTableDefinition definition) {
+            this.definition = definition;
+        }
+        
+        synchronized JFREventTable get() {
+            if (!resolved) {
+                resolved = true;
+                try {
+                    table = build(model, definition);
+                } catch (IOException e) {
+                    LOGGER.log(Level.INFO, "Failed to build JFR event table " + definition + " (" + model.getID() + ")", e); // NOI18N
+                }
+            }
+            return table;
+        }
+        
+    }
+    
+    
+    private static JFREventTable build(JFRModel model, JFREventTableDefinition definition) throws IOException {
+        final Storage storage = new Storage(HEAP_BUDGET);
+        
+        try {
+            final TableBuilder builder = new TableBuilder(definition, storage);
+            final Set<String> types = definition.getTypes() == null ? null :
+                                      new HashSet<>(Arrays.asList(definition.getTypes()));
+
+            model.visitEvents(new JFREventVisitor() {
+                @Override
+                public boolean visit(String typeName, JFREvent event) {
+                    if (types == null || types.contains(typeName))
+                        builder.addRow(typeName, event);
+                    return false;
+                }
+            });
+
+            return builder.build();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            storage.close();
+        }
+    }
+    
+    
+    private static final class TableBuilder {
+        
+        private final JFREventTableDefinition definition;
+        private final Storage storage;
+        
+        private final IdsBuilder types;
+        private final JFREventColumn.Numeric[] numericColumns;
+        private final LongsBuilder[] numericValues;
+        private final JFREventColumn.Dictionary[] dictionaryColumns;
+        private final IdsBuilder[] dictionaryValues;
+        
+        private int rows;
+        
+        
+        TableBuilder(JFREventTableDefinition definition, Storage storage) {
+            this.definition = definition;
+            this.storage = storage;
+            
+            types = new IdsBuilder(storage);
+            
+            List<JFREventColumn.Numeric> numerics = new ArrayList<>();
+            List<JFREventColumn.Dictionary> dictionaries = new ArrayList<>();
+            for (JFREventColumn column : definition.getColumns()) {
+                if (column instanceof JFREventColumn.Numeric) numerics.add((JFREventColumn.Numeric)column);
+                else dictionaries.add((JFREventColumn.Dictionary)column);
+            }
+            
+            numericColumns = numerics.toArray(new JFREventColumn.Numeric[0]);
+            numericValues = new LongsBuilder[numericColumns.length];
+            for (int i = 0; i < numericValues.length; i++) numericValues[i] = new LongsBuilder(storage);
+            
+            dictionaryColumns = dictionaries.toArray(new JFREventColumn.Dictionary[0]);
+            dictionaryValues = new IdsBuilder[dictionaryColumns.length];
+            for (int i = 0; i < dictionaryValues.length; i++) dictionaryValues[i] = new IdsBuilder(storage);
+        }
+        
+        
+        void addRow(String typeName, JFREvent event) {
+            if (definition.getTypes() == null) types.addValue(typeName);
+            else types.add(definition.getTypeIndex(typeName));
+            
+            for (int i = 0; i < numericColumns.length; i++) {
+                long value;
+                try { value = numericColumns[i].getValue(typeName, event); }
+                catch (JFRPropertyNotAvailableException e) { value = JFREventColumn.NO_VALUE; }
+                numericValues[i].add(value);
+            }
+            
+            for (int i = 0; i < dictionaryColumns.length; i++) {
+                Object value;
+                try { value = dictionaryColumns[i].getValue(typeName, event); }
+                catch (JFRPropertyNotAvailableException e) { value = null; }
+                dictionaryValues[i].addValue(value);
+            }
+            
+            rows++;
+        }
+        
+        JFREventTable build() {
+            Map<String, JFREventTable.Longs> longs = new HashMap<>();
+            for (int i = 0; i < numericColumns.length; i++)
+                longs.put(numericColumns[i].getName(), numericValues[i].build());
+            
+            Map<String, JFREventTable.Ids> ids = new HashMap<>();
+            for (int i = 0; i < dictionaryColumns.length; i++)
+                ids.put(dictionaryColumns[i].getName(), dictionaryValues[i].build());
+            
+            JFREventTable.Ids typeIds = types.build();
+            String[] typeNames = definition.getTypes();
+            if (typeNames == null) {
+                typeNames = new String[typeIds.getDictionarySize()];
+                for (int i = 0; i < typeNames.length; i++) typeNames[i] = (String)typeIds.getValue(i);
+            }
+            
+            return new JFREventTable(rows, typeNames, typeIds, longs, ids);
+        }
+        
+    }
+    
+    
+    private static final class LongsBuilder {
+        
+        private final Storage storage;
+        private final List<LongBuffer> chunks = new ArrayList<>();
+        private long[] chunk = new long[JFREventTable.CHUNK_SIZE];
+        private int size;
+        
+        LongsBuilder(Storage storage) {
+            this.storage = storage;
+        }
+        
+        void add(long value) {
+            chunk[size++] = value;
+            if (size == chunk.length) {
+                chunks.add(storage.store(chunk, size));
+                chunk = new long[JFREventTable.CHUNK_SIZE];
+                size = 0;
+            }
+        }
+        
+        JFREventTable.Longs build() {
+            if (size > 0) chunks.add(storage.store(Arrays.copyOf(chunk, size), size));
+            chunk = null;
+            return new JFREventTable.Longs(chunks.toArray(new LongBuffer[0]));
+        }
+        
+    }
+    
+    
+    private static final class IdsBuilder {
+        
+        private final Storage storage;
+        private final List<IntBuffer> chunks = new ArrayList<>();
+        private int[] chunk = new int[JFREventTable.CHUNK_SIZE];
+        private int size;
+        
+        private Map<Object, Integer> dictionaryIds;
+        private List<Object> dictionary;
+        
+        IdsBuilder(Storage storage) {
+            this.storage = storage;
+        }
+        
+        void add(int id) {
+            chunk[size++] = id;
+            if (size == chunk.length) {
+                chunks.add(storage.store(chunk, size));
+                chunk = new int[JFREventTable.CHUNK_SIZE];
+                size = 0;
+            }
+        }
+        
+        void addValue(Object value) {
+            if (value == null) {
+                add(JFREventColumn.NO_ID);
+            } else {
+                if (dictionaryIds == null) {
+                    dictionaryIds = new HashMap<>();
+                    dictionary = new ArrayList<>();
+                }
+                Integer id = dictionaryIds.get(value);
+                if (id == null) {
+                    id = dictionary.size();
+                    dictionaryIds.put(value, id);
+                    dictionary.add(value);
+                }
+                add(id);
+            }
+        }
+        
+        JFREventTable.Ids build() {
+            if (size > 0) chunks.add(storage.store(Arrays.copyOf(chunk, size), size));
+            chunk = null;
+            dictionaryIds = null;
+            return new JFREventTable.Ids(chunks.toArray(new IntBuffer[0]), dictionary == null ? new Object[0] : dictionary.toArray());
+        }
+        
+    }
+    
+    
+    // Keeps chunks in heap until the budget is exhausted, then maps them from a temporary file
+    private static final class Storage {
+        
+        private final long heapBudget;
+        private long heapUsed;
+        
+        private File file;
+        private FileChannel channel;
+        private long filePosition;
+        
+        Storage(long heapBudget) {
+            this.heapBudget = heapBudget;
+        }
+        
+        LongBuffer store(long[] chunk, int length) {
+            long bytes = length * 8L;
+            if (heapUsed + bytes <= heapBudget) {
+                heapUsed += bytes;
+                return LongBuffer.wrap(chunk, 0, length);
+            }
+            
+            ByteBuffer data = ByteBuffer.allocate((int)bytes);
+            data.asLongBuffer().put(chunk, 0, length);
+            return map(data).asLongBuffer();
+        }
+        
+        IntBuffer store(int[] chunk, int length) {
+            long bytes = length * 4L;
+            if (heapUsed + bytes <= heapBudget) {
+                heapUsed += bytes;
+                return IntBuffer.wrap(chunk, 0, length);
+            }
+            
+            ByteBuffer data = ByteBuffer.allocate((int)bytes);
+            data.asIntBuffer().put(chunk, 0, length);
+            return map(data).asIntBuffer();
+        }
+        
+        private ByteBuffer map(ByteBuffer data) {
+            try {
+                if (channel == null) {
+                    file = File.createTempFile("visualvm-jfr", ".columns"); // NOI18N
+                    file.deleteOnExit();
+                    channel = new RandomAccessFile(file, "rw").getChannel(); // NOI18N
+                }
+                
+                long position = filePosition;
+                int length = data.remaining();
+                while (data.hasRemaining()) filePosition += channel.write(data, filePosition);
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        void close() throws IOException {
+            if (channel != null) {
+                // Mapped buffers stay valid after closing the channel
+                channel.close();
+                channel = null;
+                file.delete();
+            }
+        }
+        
+    }
+    
+}
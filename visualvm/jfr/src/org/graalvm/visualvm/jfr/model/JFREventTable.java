@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.model;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Map;
+
+/**
+ * Columnar snapshot of events defined by a {@link JFREventTableDefinition}.
+ * Values are accessed by row index, rows are ordered as the events were visited.
+ *
+ * @author Jiri Sedlacek
+ */
+public final class JFREventTable {
+    
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    
+    private final int rows;
+    private final String[] types;
+    private final Ids typeIds;
+    private final Map<String, Longs> longs;
+    private final Map<String, Ids> ids;
+    
+    
+    JFREventTable(int rows, String[] types, Ids typeIds, Map<String, Longs> longs, Map<String, Ids> ids) {
+        this.rows = rows;
+        this.types = types;
+        this.typeIds = typeIds;
+        this.longs = longs;
+        this.ids = ids;
+    }
+    
+    
+    public int getRowCount() {
+        return rows;
+    }
+    
+    // Number of event types, the table of all event types only counts the types present
+    public int getTypeCount() {
+        return types.length;
+    }
+    
+    // Index of the row's event type in the array passed to JFREventTableDefinition,
+    // or in the order of appearance for the table of all event types
+    public int getType(int row) {
+        return typeIds.get(row);
+    }
+    
+    public String getTypeName(int row) {
+        return types[typeIds.get(row)];
+    }
+    
+    
+    // Values of a Numeric column, JFREventColumn.NO_VALUE for events missing the property
+    public Longs getLongs(String column) {
+        Longs values = longs.get(column);
+        if (values == null) throw new IllegalArgumentException("No numeric column " + column); // NOI18N
+        return values;
+    }
+    
+    // Ids of a Dictionary column, JFREventColumn.NO_ID for events missing the property
+    public Ids getIds(String column) {
+        Ids values = ids.get(column);
+        if (values == null) throw new IllegalArgumentException("No dictionary column " + column); // NOI18N
+        return values;
+    }
+    
+    
+    public static final class Longs {
+        
+        private final LongBuffer[] chunks;
+        
+        Longs(LongBuffer[] chunks) {
+            this.chunks = chunks;
+        }
+        
+        public long get(int row) {
+            return chunks[row >>> CHUNK_BITS].get(row & CHUNK_MASK);
+        }
+        
+    }
+    
+    
+    public static final class Ids {
+        
+        private final IntBuffer[] chunks;
+        private final Object[] dictionary;
+        
+        Ids(IntBuffer[] chunks, Object[] dictionary) {
+            this.chunks = chunks;
+            this.dictionary = dictionary;
+        }
+        
+        public int get(int row) {
+            return chunks[row >>> CHUNK_BITS].get(row & CHUNK_MASK);
+        }
+        
+        // Ids are 0..getDictionarySize()-1, suitable for indexing arrays
+        public int getDictionarySize() {
+            return dictionary.length;
+        }
+        
+        public Object getValue(int id) {
+            return id == JFREventColumn.NO_ID ? null : dictionary[id];
+        }
+        
+    }
+    
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.model;
+
+import java.util.Arrays;
+
+/**
+ * Defines a table of {@link JFREventStore}. Register the definition using
+ * {@code @ServiceProvider(service=JFREventTableDefinition.class)}, the table is
+ * filled by a pass over the events of its types when first requested.
+ *
+ * @author Jiri Sedlacek
+ */
+public abstract class JFREventTableDefinition {
+    
+    private final String[] types;
+    private final JFREventColumn[] columns;
+    
+    
+    protected JFREventTableDefinition(String[] eventTypes, JFREventColumn... columns) {
+        this.types = eventTypes.clone();
+        this.columns = columns.clone();
+    }
+    
+    // Table of all event types, type indexes are assigned in the order of appearance
+    protected JFREventTableDefinition(JFREventColumn... columns) {
+        this.types = null;
+        this.columns = columns.clone();
+    }
+    
+    
+    final int getTypeIndex(String eventType) {
+        for (int i = 0; i < types.length; i++)
+            if (types[i].equals(eventType)) return i;
+        return -1;
+    }
+    
+    // Returns null for a table of all event types
+    final String[] getTypes() {
+        return types;
+    }
+    
+    final JFREventColumn[] getColumns() {
+        return columns;
+    }
+    
+    
+    @Override
+    public String toString() {
+        return getClass().getName() + (types == null ? "[*]" : Arrays.toString(types)); // NOI18N
+    }
+    
+}
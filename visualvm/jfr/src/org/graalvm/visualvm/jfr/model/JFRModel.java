@@ -24,9 +24,12 @@
  */
 package org.graalvm.visualvm.jfr.model;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,6 +37,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.graalvm.visualvm.core.model.Model;
@@ -91,6 +97,137 @@ public abstract class JFRModel extends Model {
     }
     
     
+    private static final boolean EVENT_STORE_DISABLED = Boolean.getBoolean("visualvm.jfr.disableEventStore"); // NOI18N
+    
+    private JFREventStore eventStore;
+    private boolean eventStoreResolved;
+    
+    // Returns null if disabled or no tables are registered, the tables are built on first request
+    // If null is returned or a table is not available the views are expected to fall back to visitEvents()
+    public final synchronized JFREventStore getEventStore() {
+        if (!eventStoreResolved) {
+            eventStoreResolved = true;
+            
+            if (!EVENT_STORE_DISABLED) {
+                Collection<? extends JFREventTableDefinition> definitions = Lookup.getDefault().lookupAll(JFREventTableDefinition.class);
+                if (!definitions.isEmpty()) eventStore = new JFREventStore(this, definitions);
+            }
+        }
+        
+        return eventStore;
+    }
+    
+    
+    // Recordings larger than this (in MB) are opened with the initial time window, negative value (default) opens
+    // the whole recording. The time window of a multi-chunk recording can be selected by the user anytime
+    private static final long TIME_WINDOW_THRESHOLD = Integer.getInteger("visualvm.jfr.timeWindowThreshold", -1) * 1024L * 1024L; // NOI18N
+    
+    // Length (in seconds) of the initial time window at the end of the recording
+    private static final Duration TIME_WINDOW_LENGTH = Duration.ofSeconds(Math.max(1, Integer.getInteger("visualvm.jfr.timeWindowLength", 60))); // NOI18N
+    
+    // Events describing the recording or environment, emitted at chunk boundaries
+    // Always visible regardless of the time window
+    private static final Set<String> RECORDING_TYPES = new HashSet<>(Arrays.asList(
+            JFRModel.TYPE_JVM_INFORMATION, JFRModel.TYPE_SYSTEM_PROPERTY, JFRModel.TYPE_SHUTDOWN,
+            "jdk.InitialEnvironmentVariable", "jdk.OSInformation", "jdk.CPUInformation", // NOI18N
+            "jdk.PhysicalMemory", "jdk.SystemProcess", "jdk.ActiveRecording", // NOI18N
+            "jdk.ActiveSetting", "jdk.DumpReason")); // NOI18N
+    
+    private List<JFRChunk> chunks;
+    private ChunkLoader chunkLoader;
+    
+    // Read locked by visits of models in time window mode, write locked while changing the time window
+    private final ReadWriteLock timeWindowLock = new ReentrantReadWriteLock();
+    private volatile boolean timeWindowChanging;
+    
+    private volatile Instant timeWindowStart;
+    private volatile Instant timeWindowEnd;
+    
+    // Chunks of the recording, null if the model doesn't support the time window mode
+    public final List<JFRChunk> getChunks() {
+        return chunks;
+    }
+    
+    // Start of the time window, null if the whole recording is loaded
+    public final Instant getTimeWindowStart() {
+        return timeWindowStart;
+    }
+    
+    // End of the time window, null if the whole recording is loaded
+    public final Instant getTimeWindowEnd() {
+        return timeWindowEnd;
+    }
+    
+    // Loads the chunks overlapping the time window and reinitializes the model
+    // null start and end load the whole recording, does nothing if the model doesn't support the time window mode
+    // Running visits of the previous time window are cancelled, the views are expected to be recreated for the new time window
+    public final synchronized void setTimeWindow(Instant start, Instant end) throws IOException {
+        if (chunks == null) return;
+        
+        timeWindowChanging = true;
+        timeWindowLock.writeLock().lock();
+        try {
+            timeWindowChanging = false;
+            
+            if (start == null || end == null) {
+                chunkLoader.loadChunks(null);
+                start = null;
+                end = null;
+            } else {
+                List<JFRChunk> windowChunks = new ArrayList<>();
+                for (JFRChunk chunk : chunks)
+                    if (chunk.overlaps(start, end)) windowChunks.add(chunk);
+                chunkLoader.loadChunks(windowChunks);
+            }
+            
+            timeWindowStart = start;
+            timeWindowEnd = end;
+            
+            eventStore = null;
+            eventStoreResolved = false;
+            
+            initialize();
+        } finally {
+            timeWindowLock.writeLock().unlock();
+        }
+    }
+    
+    // To be used by visitEvents() of models in time window mode, the time window
+    // doesn't change until the returned lock is unlocked
+    protected final Lock lockTimeWindow() {
+        Lock lock = timeWindowLock.readLock();
+        lock.lock();
+        return lock;
+    }
+    
+    // To be checked by visitEvents() of models in time window mode, the visit should
+    // stop delivering events and unlock the time window when true
+    protected final boolean isTimeWindowChanging() {
+        return timeWindowChanging;
+    }
+    
+    // To be used by visitEvents() of models in time window mode
+    protected final boolean isInTimeWindow(String typeName, JFREvent event) {
+        Instant start = timeWindowStart;
+        Instant end = timeWindowEnd;
+        if (start == null || end == null || RECORDING_TYPES.contains(typeName)) return true;
+        
+        try {
+            Instant eventTime = event.getInstant("eventTime"); // NOI18N
+            if (eventTime.isAfter(end)) return false;
+            if (!eventTime.isBefore(start)) return true;
+            
+            try {
+                return !eventTime.plus(event.getDuration("eventDuration")).isBefore(start); // NOI18N
+            } catch (JFRPropertyNotAvailableException e) {
+                return false;
+            }
+        } catch (JFRPropertyNotAvailableException e) {
+            return true;
+        }
+    }
+    
+    
     public JFREvent getEvent(final long eventID) {
         final JFREvent[] foundEvent = new JFREvent[] { null };
         
@@ -197,7 +334,43 @@ public abstract class JFRModel extends Model {
     }
     
     
+    // To be used by models supporting the time window mode instead of initialize()
+    // The whole recording is loaded unless the initial time window is enabled by visualvm.jfr.timeWindowThreshold
+    protected final void initialize(List<JFRChunk> chunks, ChunkLoader chunkLoader) throws IOException {
+        if (chunks == null || chunkLoader == null || chunks.size() < 2) {
+            initialize();
+            return;
+        }
+        
+        this.chunks = chunks;
+        this.chunkLoader = chunkLoader;
+        
+        long size = 0;
+        for (JFRChunk chunk : chunks) size += chunk.getSize();
+        
+        if (TIME_WINDOW_THRESHOLD < 0 || size <= TIME_WINDOW_THRESHOLD) {
+            initialize();
+        } else {
+            Instant end = chunks.get(0).getEndTime();
+            for (JFRChunk chunk : chunks)
+                if (end.isBefore(chunk.getEndTime())) end = chunk.getEndTime();
+            
+            setTimeWindow(end.minus(TIME_WINDOW_LENGTH), end);
+        }
+    }
+    
     protected final void initialize() {
+        jvmStartTime = null;
+        jvmShutdownTime = null;
+        jvmShutdownReason = null;
+        firstEventTime = null;
+        lastEventTime = null;
+        eventsCount = 0;
+        experimentalCount = 0;
+        jvmFlags = null;
+        jvmArgs = null;
+        javaArgs = null;
+        
         sysProps = new Properties();
         
         final Set<String> experimentalTypes = new HashSet<>();
@@ -232,16 +405,19 @@ public abstract class JFRModel extends Model {
                     }
                 }
 
-                try {
-                    Instant eventTime = event.getInstant("eventTime"); // NOI18N
-                    if (firstEventTime == null) {
-                        firstEventTime = eventTime;
-                        lastEventTime = eventTime;
-                    } else {
-                        if (firstEventTime.isAfter(eventTime)) firstEventTime = eventTime;
-                        if (lastEventTime.isBefore(eventTime)) lastEventTime = eventTime;
-                    }
-                } catch (JFRPropertyNotAvailableException e) {}
+                // Recording events of the time window chunks may precede the time window
+                if (timeWindowStart == null || !RECORDING_TYPES.contains(typeName)) {
+                    try {
+                        Instant eventTime = event.getInstant("eventTime"); // NOI18N
+                        if (firstEventTime == null) {
+                            firstEventTime = eventTime;
+                            lastEventTime = eventTime;
+                        } else {
+                            if (firstEventTime.isAfter(eventTime)) firstEventTime = eventTime;
+                            if (lastEventTime.isBefore(eventTime)) lastEventTime = eventTime;
+                        }
+                    } catch (JFRPropertyNotAvailableException e) {}
+                }
 
                 try {
                     switch (typeName) {
@@ -269,6 +445,12 @@ public abstract class JFRModel extends Model {
             }
         });
         
+        // No events in the time window
+        if (firstEventTime == null && timeWindowStart != null) {
+            firstEventTime = timeWindowStart;
+            lastEventTime = timeWindowStart;
+        }
+        
         firstEventTimeMs = ValuesConverter.instantToMillis(firstEventTime);
     }
     
@@ -277,6 +459,16 @@ public abstract class JFRModel extends Model {
     private static final String TYPE_SHUTDOWN = "jdk.Shutdown"; // NOI18N
     
     
+    // Capability of models supporting the time window mode, see initialize(List<JFRChunk>, ChunkLoader)
+    protected static interface ChunkLoader {
+        
+        // Makes the given chunks available to visitEvents(), other chunks can be released
+        // null chunks means the whole recording should be visited
+        public void loadChunks(List<JFRChunk> chunks) throws IOException;
+        
+    }
+    
+    
     // --- Workaround until GH-141 is available ---
     static final JFRModel OOME = new JFRModel("OOME") { // NOI18N
         @Override public void visitEvents(JFREventVisitor... visitors) {}
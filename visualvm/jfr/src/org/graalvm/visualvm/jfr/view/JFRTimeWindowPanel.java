@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.view;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import org.graalvm.visualvm.jfr.model.JFRChunk;
+import org.graalvm.visualvm.jfr.model.JFRModel;
+import org.graalvm.visualvm.jfr.utils.DurationFormatter;
+import org.graalvm.visualvm.jfr.utils.InstantFormatter;
+import org.graalvm.visualvm.lib.profiler.api.ProfilerDialogs;
+import org.graalvm.visualvm.lib.ui.UIUtils;
+import org.openide.util.NbBundle;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Timeline of the chunks of a JFR recording opened in the time window mode.
+ * Dragging selects a new time window, dragging the selection moves it, click
+ * moves the selection to the clicked time.
+ *
+ * @author Jiri Sedlacek
+ */
+abstract class JFRTimeWindowPanel extends JPanel {
+    
+    private static final Logger LOGGER = Logger.getLogger(JFRTimeWindowPanel.class.getName());
+    
+    private static final RequestProcessor PROCESSOR = new RequestProcessor("JFR Time Window Loader"); // NOI18N
+    
+    
+    private final JFRModel model;
+    private final List<JFRChunk> chunks;
+    
+    private final Instant recordingStart;
+    private final Instant recordingEnd;
+    
+    private Timeline timeline;
+    private JLabel windowLabel;
+    private JButton wholeButton;
+    
+    
+    JFRTimeWindowPanel(JFRModel model) {
+        this.model = model;
+        this.chunks = model.getChunks();
+        
+        Instant start = chunks.get(0).getStartTime();
+        Instant end = chunks.get(0).getEndTime();
+        for (JFRChunk chunk : chunks) {
+            if (start.isAfter(chunk.getStartTime())) start = chunk.getStartTime();
+            if (end.isBefore(chunk.getEndTime())) end = chunk.getEndTime();
+        }
+        recordingStart = start;
+        recordingEnd = end;
+        
+        initComponents();
+        updateWindow();
+    }
+    
+    
+    // Invoked in EDT once the model has been reinitialized for the new time window
+    abstract void timeWindowChanged();
+    
+    
+    private void setTimeWindow(final Instant start, final Instant end) {
+        setLoading(true);
+        
+        PROCESSOR.post(new Runnable() {
+            public void run() {
+                boolean loaded = false;
+                try {
+                    model.setTimeWindow(start, end);
+                    loaded = true;
+                } catch (IOException e) {
+                    LOGGER.log(Level.INFO, "Failed to load JFR time window", e); // NOI18N
+                    ProfilerDialogs.displayError(NbBundle.getMessage(JFRTimeWindowPanel.class, "MSG_TimeWindowFailed", e.getMessage())); // NOI18N
+                } catch (OutOfMemoryError e) {
+                    LOGGER.log(Level.SEVERE, "Not enough memory to load JFR time window", e); // NOI18N
+                    ProfilerDialogs.displayError(NbBundle.getMessage(JFRTimeWindowPanel.class, "MSG_TimeWindowOOME")); // NOI18N
+                }
+                
+                final boolean changed = loaded;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        setLoading(false);
+                        updateWindow();
+                        if (changed) timeWindowChanged();
+                    }
+                });
+            }
+        });
+    }
+    
+    private void setLoading(boolean loading) {
+        timeline.setEnabled(!loading);
+        wholeButton.setEnabled(!loading && model.getTimeWindowStart() != null);
+        if (loading) windowLabel.setText(NbBundle.getMessage(JFRTimeWindowPanel.class, "LBL_TimeWindowLoading")); // NOI18N
+    }
+    
+    private void updateWindow() {
+        Instant start = model.getTimeWindowStart();
+        Instant end = model.getTimeWindowEnd();
+        
+        if (start == null || end == null) {
+            windowLabel.setText(NbBundle.getMessage(JFRTimeWindowPanel.class, "LBL_TimeWindowWhole", chunks.size())); // NOI18N
+        } else {
+            int loaded = 0;
+            for (JFRChunk chunk : chunks) if (chunk.overlaps(start, end)) loaded++;
+            windowLabel.setText(NbBundle.getMessage(JFRTimeWindowPanel.class, "LBL_TimeWindow", // NOI18N
+                                InstantFormatter.format(start), DurationFormatter.format(Duration.between(start, end)),
+                                loaded, chunks.size()));
+        }
+        
+        wholeButton.setEnabled(start != null);
+        timeline.repaint();
+    }
+    
+    
+    private void initComponents() {
+        setLayout(new BorderLayout(8, 0));
+        setOpaque(false);
+        setBorder(BorderFactory.createEmptyBorder(3, 5, 3, 5));
+        
+        JLabel caption = new JLabel(NbBundle.getMessage(JFRTimeWindowPanel.class, "LBL_TimeWindowCaption")); // NOI18N
+        add(caption, BorderLayout.WEST);
+        
+        timeline = new Timeline();
+        add(timeline, BorderLayout.CENTER);
+        
+        windowLabel = new JLabel();
+        
+        wholeButton = new JButton(NbBundle.getMessage(JFRTimeWindowPanel.class, "BTN_WholeRecording")); // NOI18N
+        wholeButton.setToolTipText(NbBundle.getMessage(JFRTimeWindowPanel.class, "TOOLTIP_WholeRecording")); // NOI18N
+        wholeButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                setTimeWindow(null, null);
+            }
+        });
+        
+        JPanel east = new JPanel(new BorderLayout(8, 0));
+        east.setOpaque(false);
+        east.add(windowLabel, BorderLayout.CENTER);
+        east.add(wholeButton, BorderLayout.EAST);
+        add(east, BorderLayout.EAST);
+    }
+    
+    
+    private class Timeline extends JComponent {
+        
+        private static final int DRAG_THRESHOLD = 3;
+        
+        // Selection being dragged, not applied yet
+        private Instant dragStart;
+        private Instant dragEnd;
+        
+        
+        Timeline() {
+            setOpaque(false);
+            setToolTipText(""); // NOI18N
+            
+            MouseAdapter adapter = new MouseAdapter() {
+                private int pressX;
+                private boolean moving;
+                private long moveOffset;
+                
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    if (!isEnabled() || !SwingUtilities.isLeftMouseButton(e)) return;
+                    
+                    pressX = e.getX();
+                    Instant time = getTime(pressX);
+                    Instant start = model.getTimeWindowStart();
+                    Instant end = model.getTimeWindowEnd();
+                    
+                    moving = start != null && !time.isBefore(start) && !time.isAfter(end);
+                    if (moving) moveOffset = Duration.between(start, time).toNanos();
+                }
+                
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    if (!isEnabled() || !SwingUtilities.isLeftMouseButton(e)) return;
+                    if (dragStart == null && Math.abs(e.getX() - pressX) < DRAG_THRESHOLD) return;
+                    
+                    Instant time = getTime(e.getX());
+                    if (moving) {
+                        Duration length = Duration.between(model.getTimeWindowStart(), model.getTimeWindowEnd());
+                        dragStart = time.minusNanos(moveOffset);
+                        dragEnd = dragStart.plus(length);
+                    } else {
+                        Instant pressed = getTime(pressX);
+                        dragStart = pressed.isBefore(time) ? pressed : time;
+                        dragEnd = pressed.isBefore(time) ? time : pressed;
+                    }
+                    repaint();
+                }
+                
+                @Override
+                public void mouseReleased(MouseEvent e) {
+                    if (!isEnabled() || !SwingUtilities.isLeftMouseButton(e)) return;
+                    
+                    Instant start = dragStart;
+                    Instant end = dragEnd;
+                    dragStart = null;
+                    dragEnd = null;
+                    
+                    if (start == null && !moving) {
+                        // Click moves the current time window to the clicked time
+                        Instant windowStart = model.getTimeWindowStart();
+                        Instant windowEnd = model.getTimeWindowEnd();
+                        if (windowStart == null) return;
+                        
+                        Duration length = Duration.between(windowStart, windowEnd);
+                        start = getTime(e.getX()).minus(length.dividedBy(2));
+                        end = start.plus(length);
+                    }
+                    
+                    if (start != null && start.isBefore(end) &&
+                        (!start.equals(model.getTimeWindowStart()) || !end.equals(model.getTimeWindowEnd())))
+                        setTimeWindow(start, end);
+                    else repaint();
+                }
+            };
+            addMouseListener(adapter);
+            addMouseMotionListener(adapter);
+        }
+        
+        
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(200, new JLabel("X").getPreferredSize().height + 6); // NOI18N
+        }
+        
+        @Override
+        public String getToolTipText(MouseEvent e) {
+            Instant time = getTime(e.getX());
+            for (JFRChunk chunk : chunks)
+                if (chunk.overlaps(time, time))
+                    return NbBundle.getMessage(JFRTimeWindowPanel.class, "TOOLTIP_Chunk", // NOI18N
+                                               chunk.getIndex() + 1, InstantFormatter.format(chunk.getStartTime()),
+                                               DurationFormatter.format(chunk.getDuration()), chunk.getSize());
+            return InstantFormatter.format(time);
+        }
+        
+        
+        @Override
+        protected void paintComponent(Graphics g) {
+            Insets insets = getInsets();
+            int y = insets.top;
+            int h = getHeight() - insets.top - insets.bottom;
+            
+            Instant windowStart = model.getTimeWindowStart();
+            Instant windowEnd = model.getTimeWindowEnd();
+            
+            Color background = UIUtils.getProfilerResultsBackground();
+            Color chunkColor = UIUtils.getDarker(background);
+            Color loadedColor = UIManager.getColor("Table.selectionBackground"); // NOI18N
+            if (loadedColor == null) loadedColor = Color.GRAY;
+            Color lineColor = UIUtils.getDisabledLineColor();
+            
+            g.setColor(background);
+            g.fillRect(insets.left, y, getWidth() - insets.left - insets.right, h);
+            
+            for (JFRChunk chunk : chunks) {
+                int x1 = getX(chunk.getStartTime());
+                int x2 = Math.max(x1 + 1, getX(chunk.getEndTime()));
+                
+                boolean loaded = windowStart == null || chunk.overlaps(windowStart, windowEnd);
+                g.setColor(loaded ? blend(loadedColor, background) : chunkColor);
+                g.fillRect(x1, y, x2 - x1, h);
+                
+                g.setColor(lineColor);
+                g.drawLine(x1, y, x1, y + h - 1);
+            }
+            
+            if (windowStart != null) paintSelection(g, windowStart, windowEnd, y, h, loadedColor, false);
+            if (dragStart != null) paintSelection(g, dragStart, dragEnd, y, h, loadedColor, true);
+            
+            g.setColor(lineColor);
+            g.drawRect(insets.left, y, getWidth() - insets.left - insets.right - 1, h - 1);
+        }
+        
+        private void paintSelection(Graphics g, Instant start, Instant end, int y, int h, Color color, boolean pending) {
+            int x1 = getX(start);
+            int x2 = Math.max(x1 + 1, getX(end));
+            
+            if (!pending) {
+                g.setColor(color);
+                g.fillRect(x1, y, x2 - x1, h);
+            }
+            
+            g.setColor(pending ? color : color.darker());
+            g.drawRect(x1, y, x2 - x1 - 1, h - 1);
+            if (pending) g.drawRect(x1 + 1, y + 1, x2 - x1 - 3, h - 3);
+        }
+        
+        private Color blend(Color c1, Color c2) {
+            return new Color((c1.getRed() + c2.getRed()) / 2, (c1.getGreen() + c2.getGreen()) / 2, (c1.getBlue() + c2.getBlue()) / 2);
+        }
+        
+        
+        private int getX(Instant time) {
+            Insets insets = getInsets();
+            int width = getWidth() - insets.left - insets.right;
+            double range = Math.max(1, Duration.between(recordingStart, recordingEnd).toNanos());
+            double position = Duration.between(recordingStart, time).toNanos() / range;
+            return insets.left + (int)Math.round(Math.max(0, Math.min(1, position)) * width);
+        }
+        
+        private Instant getTime(int x) {
+            Insets insets = getInsets();
+            int width = Math.max(1, getWidth() - insets.left - insets.right);
+            double position = Math.max(0, Math.min(1, (x - insets.left) / (double)width));
+            long range = Duration.between(recordingStart, recordingEnd).toNanos();
+            return recordingStart.plusNanos((long)(position * range));
+        }
+        
+    }
+    
+}
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.ImageIcon;
+import javax.swing.JComponent;
 import javax.swing.JPanel;
 import org.graalvm.visualvm.core.datasource.descriptor.DataSourceDescriptor;
 import org.graalvm.visualvm.core.datasource.descriptor.DataSourceDescriptorFactory;
@@ -55,6 +56,7 @@ public class JFRView extends SnapshotView {
     private static final Logger LOGGER = Logger.getLogger(JFRView.class.getName());
     
     
+    private final Collection<? extends JFRViewTabProvider> tabProviders;
     private final List<JFRViewTab> tabViews = new ArrayList<>();
     
     private JFRModel model;
@@ -67,6 +69,15 @@ public class JFRView extends SnapshotView {
     private JFRView(JFRSnapshot jfrSnapshot, DataSourceDescriptor descriptor, Collection<? extends JFRViewTabProvider> tabProviders) {
         super(jfrSnapshot, descriptor.getName(), descriptor.getIcon(), 0);
         
+        this.tabProviders = tabProviders;
+        createTabViews();
+    }
+    
+    
+    private void createTabViews() {
+        JFRSnapshot jfrSnapshot = (JFRSnapshot)getDataSource();
+        
+        tabViews.clear();
         for (JFRViewTabProvider tabProvider : tabProviders) {
             tabViews.add(tabProvider.createView(jfrSnapshot));
         }
@@ -78,7 +89,7 @@ public class JFRView extends SnapshotView {
     protected DataViewComponent createComponent() {
         JFRSnapshot jfrSnapshot = (JFRSnapshot)getDataSource();
         DataViewComponent dvc = new DataViewComponent(
-                new MasterViewSupport(jfrSnapshot, tabViews).getMasterView(),
+                new MasterViewSupport(jfrSnapshot).getMasterView(),
                 new DataViewComponent.MasterViewConfiguration(true));
         
         return dvc;
@@ -104,12 +115,12 @@ public class JFRView extends SnapshotView {
     }
     
     
-    private static class MasterViewSupport extends JPanel {
+    private class MasterViewSupport extends JPanel {
         
         private ProfilerTabbedView views;
         
-        MasterViewSupport(JFRSnapshot jfrSnapshot, List<JFRViewTab> tabViews) {
-            initComponents(tabViews);
+        MasterViewSupport(JFRSnapshot jfrSnapshot) {
+            initComponents();
         }
         
         public DataViewComponent.MasterView getMasterView() {
@@ -117,7 +128,7 @@ public class JFRView extends SnapshotView {
         }
         
         
-        private void initComponents(List<JFRViewTab> tabViews) {
+        private void initComponents() {
             setLayout(new BorderLayout());
             setOpaque(false);
             
@@ -126,11 +137,40 @@ public class JFRView extends SnapshotView {
             views.setFocusMaster(this);
             add(views.getComponent(), BorderLayout.CENTER);
             
+            addTabViews();
+            
+            if (model != null && model.getChunks() != null) {
+                add(new JFRTimeWindowPanel(model) {
+                    @Override
+                    void timeWindowChanged() {
+                        reloadTabViews();
+                    }
+                }, BorderLayout.NORTH);
+            }
+        }
+        
+        private void addTabViews() {
             for (JFRViewTab tabView : tabViews) {
                 views.addView(tabView.getName(), new ImageIcon(tabView.getImage()), null, tabView.createComponent(), false);
             }
         }
         
+        // The views compute their data for the current time window of the model, new views are created for a new time window
+        private void reloadTabViews() {
+            JComponent selectedView = views.getSelectedView();
+            String selectedName = selectedView == null ? null : views.getViewName(selectedView);
+            
+            views.removeAllViews();
+            
+            createTabViews();
+            for (JFRViewTab tabView : tabViews) tabView.setModel(model);
+            
+            addTabViews();
+            
+            for (int i = 0; i < tabViews.size(); i++)
+                if (tabViews.get(i).getName().equals(selectedName)) views.selectView(i);
+        }
+        
         
         public void addNotify() {
             super.addNotify();
@@ -26,11 +26,15 @@ package org.graalvm.visualvm.jfr.views.fileio;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import org.graalvm.visualvm.jfr.model.JFREvent;
+import org.graalvm.visualvm.jfr.model.JFREventColumn;
+import org.graalvm.visualvm.jfr.model.JFREventTable;
 import org.graalvm.visualvm.jfr.model.JFREventVisitor;
 import org.graalvm.visualvm.jfr.model.JFRPropertyNotAvailableException;
 import org.graalvm.visualvm.lib.jfluid.results.CCTNode;
@@ -67,24 +71,32 @@ abstract class FileIONode extends CCTNode {
     
     
     final void processRead(Duration duration, long bytes) {
+        processReads(1, bytes, duration, duration);
+    }
+    
+    final void processWrite(Duration duration, long bytes) {
+        processWrites(1, bytes, duration, duration);
+    }
+    
+    final void processReads(long count, long bytes, Duration duration, Duration max) {
         if (parent != null) {
-            countR++;
+            countR += count;
             bytesR += bytes;
             if (durationR == null) durationR = duration; else durationR = durationR.plus(duration);
-            if (durationRMax == null || durationRMax.compareTo(duration) < 0) durationRMax = duration;
+            if (durationRMax == null || durationRMax.compareTo(max) < 0) durationRMax = max;
             
-            parent.processRead(duration, bytes);
+            parent.processReads(count, bytes, duration, max);
         }
     }
     
-    final void processWrite(Duration duration, long bytes) {
+    final void processWrites(long count, long bytes, Duration duration, Duration max) {
         if (parent != null) {
-            countW++;
+            countW += count;
             bytesW += bytes;
             if (durationW == null) durationW = duration; else durationW = durationW.plus(duration);
-            if (durationWMax == null || durationWMax.compareTo(duration) < 0) durationWMax = duration;
+            if (durationWMax == null || durationWMax.compareTo(max) < 0) durationWMax = max;
             
-            parent.processWrite(duration, bytes);
+            parent.processWrites(count, bytes, duration, max);
         }
     }
     
@@ -232,6 +244,114 @@ abstract class FileIONode extends CCTNode {
         }
         
         
+        // Aggregates the events stored in JFRSnapshotFileIOViewProvider.EventTable
+        void visit(JFREventTable table) {
+            JFREventTable.Ids primaryIds = table.getIds(getColumn(primary));
+            JFREventTable.Ids secondaryIds = secondary == null ? null : table.getIds(getColumn(secondary));
+            JFREventTable.Longs durations = table.getLongs(JFRSnapshotFileIOViewProvider.EventTable.COLUMN_DURATION);
+            JFREventTable.Longs bytes = table.getLongs(JFRSnapshotFileIOViewProvider.EventTable.COLUMN_BYTES);
+            
+            // NO_ID is stored at index 0
+            Totals[] primaryTotals = new Totals[primaryIds.getDictionarySize() + 1];
+            List<Totals> primaryOrder = new ArrayList<>();
+            
+            int rows = table.getRowCount();
+            for (int row = 0; row < rows; row++) {
+                int primaryId = primaryIds.get(row) + 1;
+                Totals totals = primaryTotals[primaryId];
+                if (totals == null) {
+                    totals = new Totals(primaryId - 1);
+                    primaryTotals[primaryId] = totals;
+                    primaryOrder.add(totals);
+                }
+                
+                if (secondaryIds != null) totals = totals.getChild(secondaryIds.get(row));
+                
+                long duration = durations.get(row);
+                long size = bytes.get(row);
+                if (duration != JFREventColumn.NO_VALUE && size != JFREventColumn.NO_VALUE)
+                    totals.add(table.getType(row) == 0, duration, size);
+            }
+            
+            for (Totals totals : primaryOrder) {
+                String primaryName = getName(primaryIds, totals.id);
+                FileIONode primaryNode = getChild(primaryName);
+                if (primaryNode == null) {
+                    primaryNode = createNode(primaryName, primary, this, secondary == null);
+                    addChild(primaryNode);
+                }
+                
+                if (secondary != null) {
+                    for (Totals secondaryTotals : totals.children.values()) {
+                        String secondaryName = getName(secondaryIds, secondaryTotals.id);
+                        FileIONode secondaryNode = primaryNode.getChild(secondaryName);
+                        if (secondaryNode == null) {
+                            secondaryNode = createNode(secondaryName, secondary, primaryNode, true);
+                            primaryNode.addChild(secondaryNode);
+                        }
+                        secondaryTotals.process(secondaryNode);
+                    }
+                } else {
+                    totals.process(primaryNode);
+                }
+            }
+        }
+        
+        private static String getColumn(FileIOViewSupport.Aggregation aggregation) {
+            if (FileIOViewSupport.Aggregation.FILE.equals(aggregation)) return JFRSnapshotFileIOViewProvider.EventTable.COLUMN_PATH;
+            else return JFRSnapshotFileIOViewProvider.EventTable.COLUMN_THREAD;
+        }
+        
+        private static String getName(JFREventTable.Ids ids, int id) {
+            Object name = ids.getValue(id);
+            return name == null ? "<unknown>" : name.toString(); // NOI18N
+        }
+        
+        
+        private static final class Totals {
+            
+            final int id;
+            // first seen order, same as when visiting the events
+            final Map<Integer, Totals> children = new LinkedHashMap<>();
+            
+            long countR, bytesR, durationR, durationRMax;
+            long countW, bytesW, durationW, durationWMax;
+            
+            Totals(int id) {
+                this.id = id;
+            }
+            
+            Totals getChild(int childId) {
+                Totals child = children.get(childId);
+                if (child == null) {
+                    child = new Totals(childId);
+                    children.put(childId, child);
+                }
+                return child;
+            }
+            
+            void add(boolean read, long duration, long bytes) {
+                if (read) {
+                    countR++;
+                    bytesR += bytes;
+                    durationR += duration;
+                    if (durationRMax < duration) durationRMax = duration;
+                } else {
+                    countW++;
+                    bytesW += bytes;
+                    durationW += duration;
+                    if (durationWMax < duration) durationWMax = duration;
+                }
+            }
+            
+            void process(FileIONode node) {
+                if (countR > 0) node.processReads(countR, bytesR, Duration.ofNanos(durationR), Duration.ofNanos(durationRMax));
+                if (countW > 0) node.processWrites(countW, bytesW, Duration.ofNanos(durationW), Duration.ofNanos(durationWMax));
+            }
+            
+        }
+        
+        
         private static void processEvent(FileIONode node, JFREvent event, Boolean rw) {
             try {
                 if (Boolean.FALSE.equals(rw)) node.processRead(event.getDuration("eventDuration"), event.getLong("bytesRead")); // NOI18N
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2019, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -28,6 +28,8 @@ import javax.swing.ImageIcon;
 import javax.swing.SwingUtilities;
 import org.graalvm.visualvm.core.ui.components.DataViewComponent;
 import org.graalvm.visualvm.jfr.JFRSnapshot;
+import org.graalvm.visualvm.jfr.model.JFREventStore;
+import org.graalvm.visualvm.jfr.model.JFREventTable;
 import org.graalvm.visualvm.jfr.model.JFRModel;
 import org.graalvm.visualvm.jfr.view.JFRViewTab;
 import org.openide.util.ImageUtilities;
@@ -91,7 +93,12 @@ final class JFRSnapshotFileIOView extends JFRViewTab {
         new RequestProcessor("JFR FileIO Initializer").post(new Runnable() { // NOI18N
             public void run() {
                 final FileIONode.Root root = new FileIONode.Root(primary, secondary);
-                getModel().visitEvents(root);
+                
+                JFRModel model = getModel();
+                JFREventStore store = model.getEventStore();
+                JFREventTable table = store == null ? null : store.getTable(JFRSnapshotFileIOViewProvider.EventTable.class);
+                if (table != null) root.visit(table);
+                else model.visitEvents(root);
                 
                 SwingUtilities.invokeLater(new Runnable() {
                     public void run() {
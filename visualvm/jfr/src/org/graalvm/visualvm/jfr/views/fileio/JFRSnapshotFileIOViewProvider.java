@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2019, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -24,8 +24,14 @@
  */
 package org.graalvm.visualvm.jfr.views.fileio;
 
+import java.time.Duration;
 import org.graalvm.visualvm.jfr.JFRSnapshot;
+import org.graalvm.visualvm.jfr.model.JFREvent;
 import org.graalvm.visualvm.jfr.model.JFREventChecker;
+import org.graalvm.visualvm.jfr.model.JFREventColumn;
+import org.graalvm.visualvm.jfr.model.JFREventTableDefinition;
+import org.graalvm.visualvm.jfr.model.JFRPropertyNotAvailableException;
+import org.graalvm.visualvm.jfr.model.JFRThread;
 import org.graalvm.visualvm.jfr.view.JFRViewTab;
 import org.graalvm.visualvm.jfr.view.JFRViewTabProvider;
 import org.openide.util.lookup.ServiceProvider;
@@ -61,4 +67,46 @@ public final class JFRSnapshotFileIOViewProvider extends JFRViewTabProvider {
         
     }
     
+    
+    @ServiceProvider(service=JFREventTableDefinition.class)
+    public static final class EventTable extends JFREventTableDefinition {
+        
+        static final String COLUMN_PATH = "path"; // NOI18N
+        static final String COLUMN_THREAD = "thread"; // NOI18N
+        static final String COLUMN_DURATION = "duration"; // NOI18N
+        static final String COLUMN_BYTES = "bytes"; // NOI18N
+        
+        public EventTable() {
+            // EVENT_FILE_READ is type 0, EVENT_FILE_WRITE is type 1
+            super(EventChecker.checkedTypes(),
+                new JFREventColumn.Dictionary(COLUMN_PATH) {
+                    @Override
+                    public Object getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        return event.getString("path"); // NOI18N
+                    }
+                },
+                new JFREventColumn.Dictionary(COLUMN_THREAD) {
+                    @Override
+                    public Object getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        JFRThread thread = event.getThread("eventThread"); // NOI18N
+                        return thread == null ? null : thread.getName();
+                    }
+                },
+                new JFREventColumn.Numeric(COLUMN_DURATION) {
+                    @Override
+                    public long getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        Duration duration = event.getDuration("eventDuration"); // NOI18N
+                        return duration == null ? JFREventColumn.NO_VALUE : duration.toNanos();
+                    }
+                },
+                new JFREventColumn.Numeric(COLUMN_BYTES) {
+                    @Override
+                    public long getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        return EVENT_FILE_READ.equals(typeName) ? event.getLong("bytesRead") : event.getLong("bytesWritten"); // NOI18N
+                    }
+                });
+        }
+        
+    }
+    
 }
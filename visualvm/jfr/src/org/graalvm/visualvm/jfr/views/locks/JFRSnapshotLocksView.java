@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2019, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -27,6 +27,8 @@ package org.graalvm.visualvm.jfr.views.locks;
 import javax.swing.SwingUtilities;
 import org.graalvm.visualvm.core.ui.components.DataViewComponent;
 import org.graalvm.visualvm.jfr.JFRSnapshot;
+import org.graalvm.visualvm.jfr.model.JFREventStore;
+import org.graalvm.visualvm.jfr.model.JFREventTable;
 import org.graalvm.visualvm.jfr.model.JFRModel;
 import org.graalvm.visualvm.jfr.view.JFRViewTab;
 import org.graalvm.visualvm.lib.profiler.api.icons.Icons;
@@ -88,7 +90,12 @@ final class JFRSnapshotLocksView extends JFRViewTab {
         new RequestProcessor("JFR Locks Initializer").post(new Runnable() { // NOI18N
             public void run() {
                 final LocksNode.Root root = new LocksNode.Root(mode, primary, secondary);
-                getModel().visitEvents(root);
+                
+                JFRModel model = getModel();
+                JFREventStore store = model.getEventStore();
+                JFREventTable table = store == null ? null : store.getTable(JFRSnapshotLocksViewProvider.EventTable.class);
+                if (table != null) root.visit(table);
+                else model.visitEvents(root);
                 
                 SwingUtilities.invokeLater(new Runnable() {
                     public void run() {
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2019, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -24,8 +24,15 @@
  */
 package org.graalvm.visualvm.jfr.views.locks;
 
+import java.time.Duration;
 import org.graalvm.visualvm.jfr.JFRSnapshot;
+import org.graalvm.visualvm.jfr.model.JFRClass;
+import org.graalvm.visualvm.jfr.model.JFREvent;
 import org.graalvm.visualvm.jfr.model.JFREventChecker;
+import org.graalvm.visualvm.jfr.model.JFREventColumn;
+import org.graalvm.visualvm.jfr.model.JFREventTableDefinition;
+import org.graalvm.visualvm.jfr.model.JFRPropertyNotAvailableException;
+import org.graalvm.visualvm.jfr.model.JFRThread;
 import org.graalvm.visualvm.jfr.view.JFRViewTab;
 import org.graalvm.visualvm.jfr.view.JFRViewTabProvider;
 import org.openide.util.lookup.ServiceProvider;
@@ -60,4 +67,59 @@ public final class JFRSnapshotLocksViewProvider extends JFRViewTabProvider {
         
     }
     
+    
+    @ServiceProvider(service=JFREventTableDefinition.class)
+    public static final class EventTable extends JFREventTableDefinition {
+        
+        static final String COLUMN_CLASS = "class"; // NOI18N
+        static final String COLUMN_OBJECT = "object"; // NOI18N
+        static final String COLUMN_THREAD_BLOCKED = "threadBlocked"; // NOI18N
+        static final String COLUMN_THREAD_BLOCKING = "threadBlocking"; // NOI18N
+        static final String COLUMN_DURATION = "duration"; // NOI18N
+        
+        public EventTable() {
+            // EVENT_MONITOR_ENTER is type 0, EVENT_MONITOR_WAIT is type 1
+            super(EventChecker.checkedTypes(),
+                new JFREventColumn.Dictionary(COLUMN_CLASS) {
+                    @Override
+                    public Object getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        return getClassName(event);
+                    }
+                },
+                new JFREventColumn.Dictionary(COLUMN_OBJECT) {
+                    @Override
+                    public Object getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        String className = getClassName(event);
+                        return className == null ? null : className + "(0x" + Long.toHexString(event.getLong("address")) + ")"; // NOI18N
+                    }
+                },
+                new JFREventColumn.Dictionary(COLUMN_THREAD_BLOCKED) {
+                    @Override
+                    public Object getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        JFRThread thread = event.getThread("eventThread"); // NOI18N
+                        return thread == null ? null : thread.getName();
+                    }
+                },
+                new JFREventColumn.Dictionary(COLUMN_THREAD_BLOCKING) {
+                    @Override
+                    public Object getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        return LocksNode.Root.getThreadName(event, EVENT_MONITOR_WAIT.equals(typeName));
+                    }
+                },
+                new JFREventColumn.Numeric(COLUMN_DURATION) {
+                    @Override
+                    public long getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        Duration duration = event.getDuration("eventDuration"); // NOI18N
+                        return duration == null ? JFREventColumn.NO_VALUE : duration.toNanos();
+                    }
+                });
+        }
+        
+        private static String getClassName(JFREvent event) throws JFRPropertyNotAvailableException {
+            JFRClass monitorClass = event.getClass("monitorClass"); // NOI18N
+            return monitorClass == null ? null : LocksNode.Root.decodeClassName(monitorClass.getName());
+        }
+        
+    }
+    
 }
@@ -26,11 +26,15 @@ package org.graalvm.visualvm.jfr.views.locks;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import org.graalvm.visualvm.jfr.model.JFREvent;
+import org.graalvm.visualvm.jfr.model.JFREventColumn;
+import org.graalvm.visualvm.jfr.model.JFREventTable;
 import org.graalvm.visualvm.jfr.model.JFREventVisitor;
 import org.graalvm.visualvm.jfr.model.JFRPropertyNotAvailableException;
 import org.graalvm.visualvm.jfr.model.JFRThread;
@@ -69,12 +73,16 @@ abstract class LocksNode extends CCTNode {
     
     
     final void processData(Duration duration) {
+        processData(1, duration, duration);
+    }
+    
+    final void processData(long count, Duration duration, Duration max) {
         if (parent != null) {
-            count++;
+            this.count += count;
             if (this.duration == null) this.duration = duration; else this.duration = this.duration.plus(duration);
-            if (durationMax == null || durationMax.compareTo(duration) < 0) durationMax = duration;
+            if (durationMax == null || durationMax.compareTo(max) < 0) durationMax = max;
             
-            parent.processData(duration);
+            parent.processData(count, duration, max);
         }
     }
     
@@ -262,6 +270,106 @@ abstract class LocksNode extends CCTNode {
         }
         
         
+        // Aggregates the events stored in JFRSnapshotLocksViewProvider.EventTable
+        void visit(JFREventTable table) {
+            JFREventTable.Ids primaryIds = table.getIds(getColumn(primary));
+            JFREventTable.Ids secondaryIds = secondary == null ? null : table.getIds(getColumn(secondary));
+            JFREventTable.Longs durations = table.getLongs(JFRSnapshotLocksViewProvider.EventTable.COLUMN_DURATION);
+            
+            // NO_ID is stored at index 0
+            Totals[] primaryTotals = new Totals[primaryIds.getDictionarySize() + 1];
+            List<Totals> primaryOrder = new ArrayList<>();
+            
+            int rows = table.getRowCount();
+            for (int row = 0; row < rows; row++) {
+                int type = table.getType(row);
+                if (mode == 2 && type == 0 || mode == 1 && type == 1) continue;
+                
+                int primaryId = primaryIds.get(row) + 1;
+                Totals totals = primaryTotals[primaryId];
+                if (totals == null) {
+                    totals = new Totals(primaryId - 1);
+                    primaryTotals[primaryId] = totals;
+                    primaryOrder.add(totals);
+                }
+                
+                if (secondaryIds != null) totals = totals.getChild(secondaryIds.get(row));
+                
+                long duration = durations.get(row);
+                if (duration != JFREventColumn.NO_VALUE) totals.add(duration);
+            }
+            
+            for (Totals totals : primaryOrder) {
+                String primaryName = getName(primaryIds, totals.id);
+                LocksNode primaryNode = getChild(primaryName);
+                if (primaryNode == null) {
+                    primaryNode = createNode(primaryName, primary, this, secondary == null);
+                    addChild(primaryNode);
+                }
+                
+                if (secondary != null) {
+                    for (Totals secondaryTotals : totals.children.values()) {
+                        String secondaryName = getName(secondaryIds, secondaryTotals.id);
+                        LocksNode secondaryNode = primaryNode.getChild(secondaryName);
+                        if (secondaryNode == null) {
+                            secondaryNode = createNode(secondaryName, secondary, primaryNode, true);
+                            primaryNode.addChild(secondaryNode);
+                        }
+                        secondaryTotals.process(secondaryNode);
+                    }
+                } else {
+                    totals.process(primaryNode);
+                }
+            }
+        }
+        
+        private static String getColumn(LocksViewSupport.Aggregation aggregation) {
+            if (LocksViewSupport.Aggregation.CLASS.equals(aggregation)) return JFRSnapshotLocksViewProvider.EventTable.COLUMN_CLASS;
+            if (LocksViewSupport.Aggregation.OBJECT.equals(aggregation)) return JFRSnapshotLocksViewProvider.EventTable.COLUMN_OBJECT;
+            if (LocksViewSupport.Aggregation.THREAD_BLOCKED.equals(aggregation)) return JFRSnapshotLocksViewProvider.EventTable.COLUMN_THREAD_BLOCKED;
+            else return JFRSnapshotLocksViewProvider.EventTable.COLUMN_THREAD_BLOCKING;
+        }
+        
+        private static String getName(JFREventTable.Ids ids, int id) {
+            Object name = ids.getValue(id);
+            return name == null ? "<unknown>" : name.toString(); // NOI18N
+        }
+        
+        
+        private static final class Totals {
+            
+            final int id;
+            // first seen order, same as when visiting the events
+            final Map<Integer, Totals> children = new LinkedHashMap<>();
+            
+            long count, duration, durationMax;
+            
+            Totals(int id) {
+                this.id = id;
+            }
+            
+            Totals getChild(int childId) {
+                Totals child = children.get(childId);
+                if (child == null) {
+                    child = new Totals(childId);
+                    children.put(childId, child);
+                }
+                return child;
+            }
+            
+            void add(long duration) {
+                count++;
+                this.duration += duration;
+                if (durationMax < duration) durationMax = duration;
+            }
+            
+            void process(LocksNode node) {
+                if (count > 0) node.processData(count, Duration.ofNanos(duration), Duration.ofNanos(durationMax));
+            }
+            
+        }
+        
+        
         private static String getName(LocksViewSupport.Aggregation aggregation, JFREvent event, boolean eventMode) {
             try {
                 if (LocksViewSupport.Aggregation.CLASS.equals(aggregation)) return decodeClassName(event.getClass("monitorClass").getName()); // NOI18N
@@ -272,7 +380,7 @@ abstract class LocksNode extends CCTNode {
             return null;
         }
         
-        private static String getThreadName(JFREvent event, boolean eventMode) throws JFRPropertyNotAvailableException {
+        static String getThreadName(JFREvent event, boolean eventMode) throws JFRPropertyNotAvailableException {
             JFRThread thread = eventMode ? event.getThread("notifier") : event.getThread("previousOwner"); // NOI18N
             return thread == null ? (eventMode ? "<timed out>" : "<unknown thread>") : thread.getName(); // NOI18N
         }
@@ -286,7 +394,7 @@ abstract class LocksNode extends CCTNode {
         }
         
         
-        private static String decodeClassName(String className) {
+        static String decodeClassName(String className) {
             className = StringUtils.userFormClassName(className);
             
             if (className.startsWith("L") && className.contains(";")) // NOI18N
@@ -29,8 +29,7 @@ import java.awt.Font;
 import java.text.Format;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -42,6 +41,9 @@ import javax.swing.SwingUtilities;
 import javax.swing.table.AbstractTableModel;
 import org.graalvm.visualvm.core.ui.components.DataViewComponent;
 import org.graalvm.visualvm.jfr.model.JFREvent;
+import org.graalvm.visualvm.jfr.model.JFREventColumn;
+import org.graalvm.visualvm.jfr.model.JFREventStore;
+import org.graalvm.visualvm.jfr.model.JFREventTable;
 import org.graalvm.visualvm.jfr.model.JFREventVisitor;
 import org.graalvm.visualvm.jfr.model.JFRModel;
 import org.graalvm.visualvm.jfr.model.JFRPropertyNotAvailableException;
@@ -70,30 +72,71 @@ import org.openide.util.NbBundle;
  */
 final class CPUSamplerViewSupport {
     
+    // Thread of an event included into the sampled snapshot
+    static JFRThread getThread(String type, JFREvent event) throws JFRPropertyNotAvailableException {
+        return isProfilingEvent(type) ? event.getThread("sampledThread") : event.getThread("eventThread"); // NOI18N
+    }
+    
+    // Thread state of an event included into the sampled snapshot
+    static Thread.State getState(String type, JFREvent event) throws JFRPropertyNotAvailableException {
+        if (isProfilingEvent(type)) return JFRThreadInfoSupport.state(event.getString("state")); // NOI18N
+        
+        switch (type) {
+            case (JFRSnapshotSamplerViewProvider.EVENT_MONITOR_WAIT):   return Thread.State.WAITING;
+            case (JFRSnapshotSamplerViewProvider.EVENT_MONITOR_ENTER):  return Thread.State.BLOCKED;
+            case (JFRSnapshotSamplerViewProvider.EVENT_THREAD_PARK):    return Thread.State.WAITING;
+            case (JFRSnapshotSamplerViewProvider.EVENT_THREAD_SLEEP):   return Thread.State.TIMED_WAITING;
+            default:                        return Thread.State.RUNNABLE;
+        }
+    }
+    
+    private static boolean isProfilingEvent(String type) {
+        return JFRSnapshotSamplerViewProvider.EVENT_EXECUTION_SAMPLE.equals(type) ||
+               JFRSnapshotSamplerViewProvider.EVENT_NATIVE_SAMPLE.equals(type);
+    }
+    
+    
     static final class CPUViewSupport extends JPanel implements JFREventVisitor {
         
         private final JFRModel model;
         
         private final boolean hasData;
         
-        private List<JFREventWithStack> data;
+        private CPUSamples data;
         private Set<String> ignoredEvents;
         
         
         CPUViewSupport(JFRModel model) {
             this.model = model;
             
-            hasData = true; // all events used, let's assume some of them contain stack traces
+            hasData = true; // several event types used, let's assume some of them are recorded
 //            hasData = model.containsEvent(JFRSnapshotSamplerViewProvider.CPUSampleChecker.class);
             
             initComponents();
         }
         
         
+        // Processes the samples from the event store if available, otherwise
+        // returns false and the events have to be visited
+        boolean processEventTable() {
+            if (!hasData) return false;
+            
+            JFREventStore store = model.getEventStore();
+            JFREventTable table = store == null ? null : store.getTable(JFRSnapshotSamplerViewProvider.CPUSampleTable.class);
+            if (table == null) return false;
+            
+            init();
+            data.addEvents(table);
+            done();
+            
+            return true;
+        }
+        
+        
         @Override
         public void init() {
             if (hasData) {
-                data = new ArrayList<>();
+                data = new CPUSamples(model);
                 ignoredEvents = new HashSet<>();
             }
         }
@@ -104,7 +147,7 @@ final class CPUSamplerViewSupport {
             
             try {
                 if (!ignoredEvents.contains(typeName))
-                    data.add(new JFREventWithStack(typeName, event, model));
+                    data.addEvent(typeName, event);
             } catch (JFRPropertyNotAvailableException e) {
                 ignoredEvents.add(typeName);
             }
@@ -115,24 +158,10 @@ final class CPUSamplerViewSupport {
         @Override
         public void done() {
             if (hasData) {
-                StackTraceSnapshotBuilder builder = new StackTraceSnapshotBuilder();
-                Map<Long, Map<String, Object>> threads = new HashMap<>();
-
-                Collections.sort(data);
-                
-                long baseTime = System.nanoTime();
-                for (JFREventWithStack ev : data) {
-                    if (ev.isThreadEnd()) {
-                        threads.remove(ev.getThreadId());
-                    } else {
-                        threads.put(ev.getThreadId(), ev.getThreadInfo());
-                        builder.addStacktrace(getAllThreads(threads), baseTime + ev.getRelativeTime());
-                    }
-                }
+                StackTraceSnapshotBuilder builder = data.createBuilder();
 
                 data = null;
                 ignoredEvents = null;
-                threads = null;
 
                 try {
                     final CPUResultsSnapshot snapshot = builder.createSnapshot(ValuesConverter.instantToMillis(model.getFirstEventTime()));
@@ -184,77 +213,292 @@ final class CPUSamplerViewSupport {
                 @Override protected void selectForProfiling(ClientUtils.SourceCodeSelection value) {}
             };
         }
-
-        private Map<String, Object>[] getAllThreads(Map<Long, Map<String, Object>> threads) {
-            Collection<Map<String, Object>> allThreds = threads.values();
-
-            return  allThreds.toArray(new Map[0]);
-        }
         
     }
     
     
-    private static class JFREventWithStack implements Comparable<JFREventWithStack> {
+    // Samples of the JFRSnapshotSamplerViewProvider.CPU_SAMPLE_TYPES events, stacks are interned to JFRStackTraces ids
+    static final class CPUSamples {
+        
+        private static final int THREAD_END = -1;
+        private static final int STATES = Thread.State.values().length;
+        
+        private static final Set<String> SAMPLE_TYPES = new HashSet<>(Arrays.asList(JFRSnapshotSamplerViewProvider.CPU_SAMPLE_TYPES));
+        
+        private final JFRModel model;
+        private final JFRStackTraces stackTraces = new JFRStackTraces();
         
-        private final long eventTime;
-        private final Map<String, Object> threadInfo;
+        private final Map<Long, Integer> threadIndexes = new HashMap<>();
+        private final List<SampledThread> threads = new ArrayList<>();
         
+        private int size;
+        private long[] times = new long[1024];
+        private int[] threadIdxs = new int[1024];
+        private int[] keys = new int[1024]; // stack id * STATES + state ordinal, THREAD_END
         
-        JFREventWithStack(String type, JFREvent event, JFRModel model) throws JFRPropertyNotAvailableException {
+        
+        CPUSamples(JFRModel model) {
+            this.model = model;
+        }
+        
+        
+        void addEvent(String type, JFREvent event) throws JFRPropertyNotAvailableException {
+            if (!SAMPLE_TYPES.contains(type)) throw new JFRPropertyNotAvailableException("Not included into sampled snapshot"); // NOI18N
+            
             JFRStackTrace stack;
-            if ("jdk.ThreadEnd".equals(type)) { // NOI18N
+            if (JFRSnapshotSamplerViewProvider.EVENT_THREAD_END.equals(type)) {
                 stack = null;
             } else {
                 stack = event.getStackTrace("eventStackTrace"); // NOI18N
                 if (stack == null) throw new JFRPropertyNotAvailableException("Must define stackTrace to include into sampled snapshot"); // NOI18N
             }
             
-            boolean profilingEvent = JFRSnapshotSamplerViewProvider.EVENT_EXECUTION_SAMPLE.equals(type) ||
-                                     JFRSnapshotSamplerViewProvider.EVENT_NATIVE_SAMPLE.equals(type);
-            
-            JFRThread thread = profilingEvent ? event.getThread("sampledThread") : event.getThread("eventThread"); // NOI18N
+            JFRThread thread = getThread(type, event);
             if (thread == null) throw new JFRPropertyNotAvailableException("Must define eventThread to include into sampled snapshot"); // NOI18N
             
             Instant eventTimeI = event.getInstant("eventTime"); // NOI18N
             if (eventTimeI == null) throw new JFRPropertyNotAvailableException("Must define eventTime to include into sampled snapshot"); // NOI18N
-            eventTime = ValuesConverter.instantToRelativeNanos(eventTimeI, model);
+            long eventTime = ValuesConverter.instantToRelativeNanos(eventTimeI, model);
+            
+            int key;
+            if (stack == null) {
+                key = THREAD_END;
+            } else {
+                Thread.State state = getState(type, event);
+                key = stackTraces.getId(stack) * STATES + state.ordinal();
+            }
             
-            if (profilingEvent) threadInfo = JFRThreadInfoSupport.getThreadInfo(thread, stack, event.getString("state")); // NOI18N
-            else threadInfo = JFRThreadInfoSupport.getThreadInfo(thread, stack, getState(type));
+            addSample(eventTime, thread.getId(), stack == null ? null : thread.getName(), key);
         }
         
-        
-        long getRelativeTime() {
-            return eventTime;
+        // Same as calling addEvent() for each row, a type is ignored since its first event missing a value
+        void addEvents(JFREventTable table) {
+            JFREventTable.Ids stacks = table.getIds(JFRSnapshotSamplerViewProvider.CPUSampleTable.COLUMN_STACK);
+            JFREventTable.Longs threadIds = table.getLongs(JFRSnapshotSamplerViewProvider.CPUSampleTable.COLUMN_THREAD_ID);
+            JFREventTable.Ids threadNames = table.getIds(JFRSnapshotSamplerViewProvider.CPUSampleTable.COLUMN_THREAD_NAME);
+            JFREventTable.Longs eventTimes = table.getLongs(JFRSnapshotSamplerViewProvider.CPUSampleTable.COLUMN_TIME);
+            JFREventTable.Longs states = table.getLongs(JFRSnapshotSamplerViewProvider.CPUSampleTable.COLUMN_STATE);
+            
+            long firstEventTime = ValuesConverter.instantToNanos(model.getFirstEventTime());
+            
+            boolean[] threadEnd = new boolean[table.getTypeCount()];
+            boolean[] resolved = new boolean[threadEnd.length];
+            boolean[] ignored = new boolean[threadEnd.length];
+            
+            int[] stackIds = new int[stacks.getDictionarySize()];
+            Arrays.fill(stackIds, -1);
+            
+            for (int row = 0; row < table.getRowCount(); row++) {
+                int type = table.getType(row);
+                if (ignored[type]) continue;
+                
+                if (!resolved[type]) {
+                    threadEnd[type] = JFRSnapshotSamplerViewProvider.EVENT_THREAD_END.equals(table.getTypeName(row));
+                    resolved[type] = true;
+                }
+                
+                int stack = stacks.get(row);
+                long threadId = threadIds.get(row);
+                long eventTime = eventTimes.get(row);
+                long state = states.get(row);
+                
+                if (threadId == JFREventColumn.NO_VALUE || eventTime == JFREventColumn.NO_VALUE ||
+                    !threadEnd[type] && (stack == JFREventColumn.NO_ID || state == JFREventColumn.NO_VALUE)) {
+                    ignored[type] = true;
+                    continue;
+                }
+                
+                int key;
+                String name;
+                if (threadEnd[type]) {
+                    key = THREAD_END;
+                    name = null;
+                } else {
+                    if (stackIds[stack] == -1) stackIds[stack] = stackTraces.getId((JFRStackTrace)stacks.getValue(stack));
+                    key = stackIds[stack] * STATES + (int)state;
+                    name = (String)threadNames.getValue(threadNames.get(row));
+                }
+                
+                addSample(eventTime - firstEventTime, threadId, name, key);
+            }
         }
         
-        long getThreadId() {
-            return (Long)threadInfo.get(JFRThreadInfoSupport.THREAD_ID);
+        private void addSample(long eventTime, long threadId, String name, int key) {
+            if (size == times.length) {
+                int newLength = size * 2;
+                times = Arrays.copyOf(times, newLength);
+                threadIdxs = Arrays.copyOf(threadIdxs, newLength);
+                keys = Arrays.copyOf(keys, newLength);
+            }
+            
+            times[size] = eventTime;
+            threadIdxs[size] = getThreadIndex(threadId, name, eventTime);
+            keys[size] = key;
+            size++;
         }
         
-        Map<String, Object> getThreadInfo() {
-            return threadInfo;
+        private int getThreadIndex(long threadId, String name, long eventTime) {
+            Integer index = threadIndexes.get(threadId);
+            
+            if (index == null) {
+                index = threads.size();
+                threads.add(new SampledThread(threadId));
+                threadIndexes.put(threadId, index);
+            }
+            
+            threads.get(index).updateName(name, eventTime);
+            return index;
         }
         
-        boolean isThreadEnd() {
-            return threadInfo.get(JFRThreadInfoSupport.THREAD_STACK) == null;
-        }
         
+        /**
+         * Computes the sequence of stacks and states of each thread by replaying
+         * the samples in time order, subsequent samples of the same stack and state
+         * are merged into a single run. Then creates the CCT by adding each run
+         * just once, weighted by its time. The CCT times and hits are the same as
+         * when dumping all threads for each sample.
+         */
+        StackTraceSnapshotBuilder createBuilder() {
+            int[] order = sortByTime();
+            
+            List<SampledThread> dumpedThreads = new ArrayList<>();
+            int[] dirtyThreads = new int[threads.size()];
+            int dirtyCount = 0;
+            
+            long lastDump = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                int event = order[i];
+                SampledThread thread = threads.get(threadIdxs[event]);
+                
+                thread.pendingKey = keys[event];
+                if (!thread.dirty) {
+                    thread.dirty = true;
+                    dirtyThreads[dirtyCount++] = threadIdxs[event];
+                }
+                
+                // ThreadEnd only removes the thread from the next dump,
+                // samples with the time of the previous dump are not dumped
+                long time = times[event];
+                if (keys[event] != THREAD_END && time > lastDump) {
+                    for (int j = 0; j < dirtyCount; j++) {
+                        SampledThread dirty = threads.get(dirtyThreads[j]);
+                        if (dirty.dumpedKey != THREAD_END) dirty.addRun(dirty.dumpedKey, time - dirty.dumpedTime);
+                        else if (dirty.pendingKey != THREAD_END && dirty.runCount > 0) dirty.addRun(THREAD_END, 0);
+                        if (dirty.pendingKey != THREAD_END && !dirty.dumped) {
+                            dirty.dumped = true;
+                            dumpedThreads.add(dirty);
+                        }
+                        dirty.dumpedKey = dirty.pendingKey;
+                        dirty.dumpedTime = time;
+                        dirty.dirty = false;
+                    }
+                    dirtyCount = 0;
+                    lastDump = time;
+                }
+            }
+            
+            for (SampledThread thread : dumpedThreads)
+                if (thread.dumpedKey != THREAD_END) thread.addRun(thread.dumpedKey, lastDump - thread.dumpedTime);
+            
+            StackTraceSnapshotBuilder builder = new StackTraceSnapshotBuilder();
+            
+            // Threads are independent, each is added alone and terminated by the next dump
+            // Changing the stack between the runs enters the new frames, which counts the hits
+            long timestamp = 0;
+            for (SampledThread thread : dumpedThreads) {
+                for (int i = 0; i < thread.runCount; i++) {
+                    int key = thread.runKeys[i];
+                    if (key == THREAD_END) {
+                        // the thread has ended and started again, exit all its frames
+                        builder.addStacktrace(new Map[0], ++timestamp);
+                        continue;
+                    }
+                    
+                    StackTraceElement[] stack = stackTraces.getStackTrace(key / STATES);
+                    Thread.State state = Thread.State.values()[key % STATES];
+                    
+                    Map<String, Object>[] dump = new Map[] { JFRThreadInfoSupport.getThreadInfo(thread.id, thread.name, stack, state) };
+                    builder.addStacktrace(dump, ++timestamp);
+                    
+                    // zero time samples still create their nodes
+                    timestamp += Math.max(thread.runTimes[i], 1) - 1;
+                }
+            }
+            if (!dumpedThreads.isEmpty()) builder.addStacktrace(new Map[0], ++timestamp);
+            
+            return builder;
+        }
         
-        private static Thread.State getState(String type) {
-            switch (type) {
-                case ("jdk.JavaMonitorWait"):   return Thread.State.WAITING;        // NOI18N
-                case ("jdk.JavaMonitorEnter"):  return Thread.State.BLOCKED;        // NOI18N
-                case ("jdk.ThreadPark"):        return Thread.State.WAITING;        // NOI18N
-                case ("jdk.ThreadSleep"):       return Thread.State.TIMED_WAITING;  // NOI18N
-                default:                        return Thread.State.RUNNABLE;
+        // Stable sort of event indexes by event time
+        private int[] sortByTime() {
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            
+            boolean sorted = true;
+            for (int i = 1; sorted && i < size; i++) sorted = times[i - 1] <= times[i];
+            if (sorted) return order;
+            
+            int[] buffer = new int[size];
+            for (int width = 1; width < size; width *= 2) {
+                for (int from = 0; from < size; from += 2 * width) {
+                    int mid = Math.min(from + width, size);
+                    int to = Math.min(from + 2 * width, size);
+                    int left = from, right = mid, target = from;
+                    while (left < mid && right < to)
+                        buffer[target++] = times[order[right]] < times[order[left]] ? order[right++] : order[left++];
+                    while (left < mid) buffer[target++] = order[left++];
+                    while (right < to) buffer[target++] = order[right++];
+                }
+                int[] swap = order; order = buffer; buffer = swap;
             }
+            return order;
         }
         
-
-        @Override
-        public int compareTo(JFREventWithStack o) {
-            return Long.compare(eventTime, o.eventTime);
+        
+        private static final class SampledThread {
+            
+            final long id;
+            
+            String name;
+            long nameTime = Long.MAX_VALUE;
+            
+            // stack and state of each run and the time spent in it, THREAD_END for no stack
+            int[] runKeys = new int[8];
+            long[] runTimes = new long[8];
+            int runCount;
+            
+            int pendingKey = THREAD_END;
+            int dumpedKey = THREAD_END;
+            long dumpedTime;
+            boolean dumped;
+            boolean dirty;
+            
+            SampledThread(long id) {
+                this.id = id;
+            }
+            
+            // The name of the first sample in time order is used, like when dumping all samples
+            void updateName(String name, long time) {
+                if (name != null && time < nameTime) {
+                    this.name = name;
+                    nameTime = time;
+                }
+            }
+            
+            void addRun(int key, long time) {
+                if (runCount > 0 && runKeys[runCount - 1] == key) {
+                    runTimes[runCount - 1] += time;
+                } else {
+                    if (runCount == runKeys.length) {
+                        runKeys = Arrays.copyOf(runKeys, runCount * 2);
+                        runTimes = Arrays.copyOf(runTimes, runCount * 2);
+                    }
+                    runKeys[runCount] = key;
+                    runTimes[runCount] = time;
+                    runCount++;
+                }
+            }
+            
         }
         
     }
@@ -94,7 +94,7 @@ final class JFRSnapshotSamplerView extends JFRViewTab {
         
         currentDetails = new DataViewComponent.DetailsView[] { cpuViewW, threadsCpuViewW };
         
-        initialize(cpuView, threadCpuView);
+        initializeCPU(cpuView, threadCpuView);
     }
     
     private void showMemory(JFRModel model) {
@@ -115,6 +115,17 @@ final class JFRSnapshotSamplerView extends JFRViewTab {
     }
     
     
+    private void initializeCPU(final CPUSamplerViewSupport.CPUViewSupport cpuView, final JFREventVisitor threadCpuView) {
+        new RequestProcessor("JFR Sampler Initializer").post(new Runnable() { // NOI18N
+            public void run() {
+                masterView.showProgress();
+                if (cpuView.processEventTable()) getModel().visitEvents(threadCpuView);
+                else getModel().visitEvents(cpuView, threadCpuView);
+                masterView.hideProgress();
+            }
+        });
+    }
+    
     private void initialize(JFREventVisitor... visitors) {
         new RequestProcessor("JFR Sampler Initializer").post(new Runnable() { // NOI18N
             public void run() {
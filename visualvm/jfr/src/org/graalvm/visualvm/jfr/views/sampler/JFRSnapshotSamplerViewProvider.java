@@ -25,8 +25,15 @@
 
 package org.graalvm.visualvm.jfr.views.sampler;
 
+import java.time.Instant;
 import org.graalvm.visualvm.jfr.JFRSnapshot;
+import org.graalvm.visualvm.jfr.model.JFREvent;
 import org.graalvm.visualvm.jfr.model.JFREventChecker;
+import org.graalvm.visualvm.jfr.model.JFREventColumn;
+import org.graalvm.visualvm.jfr.model.JFREventTableDefinition;
+import org.graalvm.visualvm.jfr.model.JFRPropertyNotAvailableException;
+import org.graalvm.visualvm.jfr.model.JFRThread;
+import org.graalvm.visualvm.jfr.utils.ValuesConverter;
 import org.graalvm.visualvm.jfr.view.JFRViewTab;
 import org.graalvm.visualvm.jfr.view.JFRViewTabProvider;
 import org.openide.util.lookup.ServiceProvider;
@@ -43,6 +50,18 @@ public final class JFRSnapshotSamplerViewProvider extends JFRViewTabProvider {
     static final String EVENT_THREAD_CPU = "jdk.ThreadCPULoad"; // NOI18N
     static final String EVENT_OBJECT_COUNT = "jdk.ObjectCount"; // NOI18N
     static final String EVENT_THREAD_ALLOCATIONS = "jdk.ThreadAllocationStatistics"; // NOI18N
+    static final String EVENT_THREAD_END = "jdk.ThreadEnd"; // NOI18N
+    
+    static final String EVENT_MONITOR_WAIT = "jdk.JavaMonitorWait"; // NOI18N
+    static final String EVENT_MONITOR_ENTER = "jdk.JavaMonitorEnter"; // NOI18N
+    static final String EVENT_THREAD_PARK = "jdk.ThreadPark"; // NOI18N
+    static final String EVENT_THREAD_SLEEP = "jdk.ThreadSleep"; // NOI18N
+    
+    // Events included into the sampled snapshot, see CPUSamplerViewSupport.CPUSamples
+    static final String[] CPU_SAMPLE_TYPES = new String[] {
+        EVENT_EXECUTION_SAMPLE, EVENT_NATIVE_SAMPLE, EVENT_MONITOR_WAIT, EVENT_MONITOR_ENTER,
+        EVENT_THREAD_PARK, EVENT_THREAD_SLEEP, EVENT_THREAD_END
+    };
     
     
     protected JFRViewTab createView(JFRSnapshot jfrSnapshot) {
@@ -63,6 +82,55 @@ public final class JFRSnapshotSamplerViewProvider extends JFRViewTabProvider {
 //        
 //    }
     
+    // Same events as CPUSamplerViewSupport.CPUSamples
+    @ServiceProvider(service=JFREventTableDefinition.class)
+    public static final class CPUSampleTable extends JFREventTableDefinition {
+        
+        static final String COLUMN_STACK = "stack"; // NOI18N
+        static final String COLUMN_THREAD_ID = "threadId"; // NOI18N
+        static final String COLUMN_THREAD_NAME = "threadName"; // NOI18N
+        static final String COLUMN_TIME = "time"; // NOI18N
+        static final String COLUMN_STATE = "state"; // NOI18N
+        
+        public CPUSampleTable() {
+            super(CPU_SAMPLE_TYPES,
+                new JFREventColumn.Dictionary(COLUMN_STACK) {
+                    @Override
+                    public Object getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        return EVENT_THREAD_END.equals(typeName) ? null : event.getStackTrace("eventStackTrace"); // NOI18N
+                    }
+                },
+                new JFREventColumn.Numeric(COLUMN_THREAD_ID) {
+                    @Override
+                    public long getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        JFRThread thread = CPUSamplerViewSupport.getThread(typeName, event);
+                        return thread == null ? JFREventColumn.NO_VALUE : thread.getId();
+                    }
+                },
+                new JFREventColumn.Dictionary(COLUMN_THREAD_NAME) {
+                    @Override
+                    public Object getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        JFRThread thread = CPUSamplerViewSupport.getThread(typeName, event);
+                        return thread == null ? null : thread.getName();
+                    }
+                },
+                new JFREventColumn.Numeric(COLUMN_TIME) {
+                    @Override
+                    public long getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        Instant time = event.getInstant("eventTime"); // NOI18N
+                        return time == null ? JFREventColumn.NO_VALUE : ValuesConverter.instantToNanos(time);
+                    }
+                },
+                new JFREventColumn.Numeric(COLUMN_STATE) {
+                    @Override
+                    public long getValue(String typeName, JFREvent event) throws JFRPropertyNotAvailableException {
+                        return EVENT_THREAD_END.equals(typeName) ? JFREventColumn.NO_VALUE : CPUSamplerViewSupport.getState(typeName, event).ordinal();
+                    }
+                });
+        }
+        
+    }
+    
     @ServiceProvider(service=JFREventChecker.class)
     public static final class ThreadCPUChecker extends JFREventChecker {
         
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.views.sampler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.graalvm.visualvm.jfr.model.JFRStackFrame;
+import org.graalvm.visualvm.jfr.model.JFRStackTrace;
+
+/**
+ * Table of unique stack traces of a recording. Each stack trace is converted
+ * to StackTraceElement[] only once, equal frames share the same element.
+ *
+ * @author Jiri Sedlacek
+ */
+final class JFRStackTraces {
+    
+    // JFRStackTrace equality is based on the recording's own stack trace
+    // objects, which are shared by all events referencing the same stack id
+    private final Map<JFRStackTrace, Integer> recordedIds = new HashMap<>();
+    
+    // The same stack may be recorded under different ids, for example in different chunks
+    private final Map<List<StackTraceElement>, Integer> contentIds = new HashMap<>();
+    
+    private final Map<StackTraceElement, StackTraceElement> frames = new HashMap<>();
+    
+    private final List<StackTraceElement[]> stackTraces = new ArrayList<>();
+    
+    
+    int getId(JFRStackTrace stackTrace) {
+        Integer id = recordedIds.get(stackTrace);
+        
+        if (id == null) {
+            StackTraceElement[] elements = convert(stackTrace);
+            List<StackTraceElement> content = Arrays.asList(elements);
+            
+            id = contentIds.get(content);
+            if (id == null) {
+                id = stackTraces.size();
+                stackTraces.add(elements);
+                contentIds.put(content, id);
+            }
+            
+            recordedIds.put(stackTrace, id);
+        }
+        
+        return id;
+    }
+    
+    StackTraceElement[] getStackTrace(int id) {
+        return stackTraces.get(id);
+    }
+    
+    int size() {
+        return stackTraces.size();
+    }
+    
+    
+    private StackTraceElement[] convert(JFRStackTrace stackTrace) {
+        List<JFRStackFrame> stackFrames = stackTrace.getFrames();
+        StackTraceElement[] elements = new StackTraceElement[stackFrames.size()];
+        
+        for (int i = 0; i < elements.length; i++) {
+            StackTraceElement element = JFRThreadInfoSupport.stackTraceElement(stackFrames.get(i));
+            StackTraceElement shared = frames.get(element);
+            if (shared == null) frames.put(element, element);
+            else element = shared;
+            elements[i] = element;
+        }
+        
+        return elements;
+    }
+    
+}
@@ -25,12 +25,9 @@
 package org.graalvm.visualvm.jfr.views.sampler;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import org.graalvm.visualvm.jfr.model.JFRMethod;
 import org.graalvm.visualvm.jfr.model.JFRStackFrame;
-import org.graalvm.visualvm.jfr.model.JFRStackTrace;
-import org.graalvm.visualvm.jfr.model.JFRThread;
 
 /**
  *
@@ -41,19 +38,14 @@ final class JFRThreadInfoSupport {
     static final String THREAD_ID = "tid"; // NOI18N
     static final String THREAD_STACK = "stack"; // NOI18N
     
-    static Map<String,Object> getThreadInfo(JFRThread thread, JFRStackTrace stack, String state) {
-        return getThreadInfo(thread, stack, state(state));
-    }
-    
-    static Map<String,Object> getThreadInfo(JFRThread thread, JFRStackTrace stack, Thread.State state) {
+    static Map<String,Object> getThreadInfo(long threadId, String threadName, StackTraceElement[] stack, Thread.State state) {
         Map<String,Object> threadInfo = new HashMap<>();
         
-        Long id = Long.valueOf(thread.getId());
-        threadInfo.put(THREAD_ID, id);
+        threadInfo.put(THREAD_ID, Long.valueOf(threadId));
         
         if (stack != null) {
-            threadInfo.put(THREAD_STACK, stackTrace(stack));
-            threadInfo.put("name", thread.getName()); // NOI18N
+            threadInfo.put(THREAD_STACK, stack);
+            threadInfo.put("name", threadName); // NOI18N
             threadInfo.put("state", state); // NOI18N
         }
 
@@ -61,17 +53,7 @@ final class JFRThreadInfoSupport {
     }
     
     
-    private static StackTraceElement[] stackTrace(JFRStackTrace stack) {
-        List<JFRStackFrame> frames = stack.getFrames();
-        StackTraceElement[] elements = new StackTraceElement[frames.size()];
-        
-        for (int i = 0; i < frames.size(); i++)
-            elements[i] = stackTraceElement(frames.get(i));
-        
-        return elements;
-    }
-    
-    private static StackTraceElement stackTraceElement(JFRStackFrame frame) {
+    static StackTraceElement stackTraceElement(JFRStackFrame frame) {
         JFRMethod method = frame.getMethod();
         
         String className = method == null ? null : method.getType().getName(); // NOI18N
@@ -85,7 +67,7 @@ final class JFRThreadInfoSupport {
         return new StackTraceElement(className, methodName, null, lineNumber);
     }
     
-    private static Thread.State state(String state) {
+    static Thread.State state(String state) {
         if ("STATE_RUNNABLE".equals(state)) return Thread.State.RUNNABLE; // NOI18N
         return Thread.State.WAITING; // safe fallback, no other states seem to be used for jdk.ExecutionSample and jdk.NativeMethodSample
     }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory JFRModel for tests, events are defined as property maps.
+ * Properties not defined for an event throw JFRPropertyNotAvailableException.
+ *
+ * @author Jiri Sedlacek
+ */
+public final class TestJFRModel extends JFRModel {
+    
+    private final List<String> types = new ArrayList<>();
+    private final List<Map<String, Object>> events = new ArrayList<>();
+    
+    
+    public TestJFRModel() {
+        super("test"); // NOI18N
+    }
+    
+    
+    // Adds an event defined by property name and value pairs
+    public void addEvent(String typeName, Object... properties) {
+        Map<String, Object> event = new HashMap<>();
+        for (int i = 0; i < properties.length; i += 2) event.put((String)properties[i], properties[i + 1]);
+        types.add(typeName);
+        events.add(event);
+    }
+    
+    // Computes the model data like first event time, to be called after adding the events
+    public void load() {
+        initialize();
+    }
+    
+    
+    @Override
+    public void visitEvents(JFREventVisitor... visitors) {
+        for (JFREventVisitor visitor : visitors) visitor.init();
+        
+        boolean[] finished = new boolean[visitors.length];
+        for (int i = 0; i < events.size(); i++) {
+            JFREvent event = new TestEvent(i, events.get(i));
+            for (int j = 0; j < visitors.length; j++)
+                if (!finished[j]) finished[j] = visitors[j].visit(types.get(i), event);
+        }
+        
+        for (JFREventVisitor visitor : visitors) visitor.done();
+    }
+    
+    @Override
+    public void visitEventTypes(JFREventTypeVisitor... visitors) {
+        for (JFREventTypeVisitor visitor : visitors) {
+            visitor.initTypes();
+            visitor.doneTypes();
+        }
+    }
+    
+    
+    public static JFRThread thread(final long id, final String name) {
+        return new JFRThread() {
+            @Override public long getId() { return id; }
+            @Override public String getName() { return name; }
+        };
+    }
+    
+    public static JFRClass type(final String name) {
+        return new JFRClass() {
+            @Override public String getName() { return name; }
+        };
+    }
+    
+    // Frames are defined as "class.method", top frame first
+    public static JFRStackTrace stackTrace(String... frames) {
+        final List<JFRStackFrame> stackFrames = new ArrayList<>(frames.length);
+        for (String frame : frames) {
+            int separator = frame.lastIndexOf('.'); // NOI18N
+            final JFRClass frameClass = type(frame.substring(0, separator));
+            final String frameMethod = frame.substring(separator + 1);
+            stackFrames.add(new JFRStackFrame() {
+                @Override
+                public JFRMethod getMethod() {
+                    return new JFRMethod() {
+                        @Override public String getName() { return frameMethod; }
+                        @Override public String getDescriptor() { return "()V"; } // NOI18N
+                        @Override public JFRClass getType() { return frameClass; }
+                    };
+                }
+                @Override public int getLine() { return 1; }
+                @Override public int getBCI() { return 0; }
+                @Override public String getType() { return "Interpreted"; } // NOI18N
+            });
+        }
+        
+        return new JFRStackTrace() {
+            @Override public List<JFRStackFrame> getFrames() { return Collections.unmodifiableList(stackFrames); }
+            @Override public boolean isTruncated() { return false; }
+        };
+    }
+    
+    
+    private static final class TestEvent extends JFREvent {
+        
+        private final Map<String, Object> properties;
+        
+        TestEvent(long id, Map<String, Object> properties) {
+            super(id);
+            this.properties = properties;
+        }
+        
+        private Object getProperty(String key) throws JFRPropertyNotAvailableException {
+            if (!properties.containsKey(key)) throw new JFRPropertyNotAvailableException("No property " + key); // NOI18N
+            return properties.get(key);
+        }
+        
+        @Override
+        public Instant getInstant(String key) throws JFRPropertyNotAvailableException {
+            return (Instant)getProperty(key);
+        }
+        
+        @Override
+        public Duration getDuration(String key) throws JFRPropertyNotAvailableException {
+            return (Duration)getProperty(key);
+        }
+        
+        @Override
+        public JFRClass getClass(String key) throws JFRPropertyNotAvailableException {
+            return (JFRClass)getProperty(key);
+        }
+        
+        @Override
+        public JFRThread getThread(String key) throws JFRPropertyNotAvailableException {
+            return (JFRThread)getProperty(key);
+        }
+        
+        @Override
+        public JFRStackTrace getStackTrace(String key) throws JFRPropertyNotAvailableException {
+            return (JFRStackTrace)getProperty(key);
+        }
+        
+        @Override
+        public Object getValue(String key) throws JFRPropertyNotAvailableException {
+            return getProperty(key);
+        }
+        
+        @Override
+        public List<Comparable> getDisplayableValues(boolean includeExperimental) {
+            return Collections.emptyList();
+        }
+        
+    }
+    
+}
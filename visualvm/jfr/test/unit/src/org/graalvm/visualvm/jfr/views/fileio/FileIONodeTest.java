@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.views.fileio;
+
+import java.time.Duration;
+import java.util.Random;
+import org.graalvm.visualvm.jfr.model.JFREventStore;
+import org.graalvm.visualvm.jfr.model.JFREventTable;
+import org.graalvm.visualvm.jfr.model.TestJFRModel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Aggregating the File I/O events from the event store must produce the same
+ * tree as visiting the events.
+ *
+ * @author Jiri Sedlacek
+ */
+public class FileIONodeTest {
+    
+    private static TestJFRModel model;
+    
+    
+    @BeforeClass
+    public static void createModel() {
+        model = new TestJFRModel();
+        
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            boolean read = random.nextBoolean();
+            String type = read ? JFRSnapshotFileIOViewProvider.EVENT_FILE_READ : JFRSnapshotFileIOViewProvider.EVENT_FILE_WRITE;
+            String path = random.nextInt(50) == 0 ? null : "/file" + random.nextInt(300); // NOI18N
+            int thread = random.nextInt(20);
+            String bytes = read ? "bytesRead" : "bytesWritten"; // NOI18N
+            
+            if (random.nextInt(100) == 0)
+                model.addEvent(type, "path", path, "eventThread", TestJFRModel.thread(thread, "Thread " + thread), // NOI18N
+                               bytes, (long)random.nextInt(10000));
+            else
+                model.addEvent(type, "path", path, "eventThread", TestJFRModel.thread(thread, "Thread " + thread), // NOI18N
+                               "eventDuration", Duration.ofNanos(random.nextInt(1000000)), bytes, (long)random.nextInt(10000)); // NOI18N
+            
+            if (i % 3 == 0) model.addEvent("jdk.Other", "value", (long)i); // NOI18N
+        }
+    }
+    
+    
+    @Test
+    public void testTableAggregation() {
+        JFREventStore store = model.getEventStore();
+        assertNotNull(store);
+        JFREventTable table = store.getTable(JFRSnapshotFileIOViewProvider.EventTable.class);
+        assertNotNull(table);
+        
+        FileIOViewSupport.Aggregation[] primaries = { FileIOViewSupport.Aggregation.FILE, FileIOViewSupport.Aggregation.THREAD };
+        for (FileIOViewSupport.Aggregation primary : primaries) {
+            for (FileIOViewSupport.Aggregation secondary : FileIOViewSupport.Aggregation.values()) {
+                FileIONode.Root visited = new FileIONode.Root(primary, secondary);
+                model.visitEvents(visited);
+                
+                FileIONode.Root aggregated = new FileIONode.Root(primary, secondary);
+                aggregated.visit(table);
+                
+                assertEquals(primary + "/" + secondary, dump(visited, ""), dump(aggregated, "")); // NOI18N
+            }
+        }
+    }
+    
+    
+    private static String dump(FileIONode node, String indent) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(indent).append(node.name).append(": "); // NOI18N
+        sb.append(node.countR).append('/').append(node.bytesR).append('/').append(node.durationR).append('/').append(node.durationRMax).append(' ');
+        sb.append(node.countW).append('/').append(node.bytesW).append('/').append(node.durationW).append('/').append(node.durationWMax).append('\n');
+        for (int i = 0; i < node.getNChildren(); i++) sb.append(dump(node.getChild(i), indent + "  ")); // NOI18N
+        return sb.toString();
+    }
+    
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.views.locks;
+
+import java.time.Duration;
+import java.util.Random;
+import org.graalvm.visualvm.jfr.model.JFREventStore;
+import org.graalvm.visualvm.jfr.model.JFREventTable;
+import org.graalvm.visualvm.jfr.model.TestJFRModel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Aggregating the Locks events from the event store must produce the same
+ * tree as visiting the events.
+ *
+ * @author Jiri Sedlacek
+ */
+public class LocksNodeTest {
+    
+    private static TestJFRModel model;
+    
+    
+    @BeforeClass
+    public static void createModel() {
+        model = new TestJFRModel();
+        
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            boolean wait = random.nextBoolean();
+            String type = wait ? JFRSnapshotLocksViewProvider.EVENT_MONITOR_WAIT : JFRSnapshotLocksViewProvider.EVENT_MONITOR_ENTER;
+            int thread = random.nextInt(20);
+            int other = random.nextInt(20);
+            
+            model.addEvent(type, "monitorClass", TestJFRModel.type("Ljava/lang/Class" + random.nextInt(10) + ";"), // NOI18N
+                           "address", (long)random.nextInt(8), "eventThread", TestJFRModel.thread(thread, "Thread " + thread), // NOI18N
+                           wait ? "notifier" : "previousOwner", TestJFRModel.thread(other, "Thread " + other), // NOI18N
+                           "eventDuration", Duration.ofNanos(random.nextInt(1000000))); // NOI18N
+            
+            if (i % 3 == 0) model.addEvent("jdk.Other", "value", (long)i); // NOI18N
+        }
+    }
+    
+    
+    @Test
+    public void testTableAggregation() {
+        JFREventStore store = model.getEventStore();
+        assertNotNull(store);
+        JFREventTable table = store.getTable(JFRSnapshotLocksViewProvider.EventTable.class);
+        assertNotNull(table);
+        
+        LocksViewSupport.Aggregation[] aggregations = LocksViewSupport.Aggregation.values();
+        for (int mode = 0; mode < 3; mode++) {
+            for (int i = 1; i < aggregations.length; i++) {
+                for (LocksViewSupport.Aggregation secondary : aggregations) {
+                    LocksNode.Root visited = new LocksNode.Root(mode, aggregations[i], secondary);
+                    model.visitEvents(visited);
+
+                    LocksNode.Root aggregated = new LocksNode.Root(mode, aggregations[i], secondary);
+                    aggregated.visit(table);
+
+                    assertEquals(mode + " " + aggregations[i] + "/" + secondary, dump(visited, ""), dump(aggregated, "")); // NOI18N
+                }
+            }
+        }
+    }
+    
+    
+    private static String dump(LocksNode node, String indent) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(indent).append(node.name).append(": "); // NOI18N
+        sb.append(node.count).append('/').append(node.duration).append('/').append(node.durationMax).append('\n');
+        for (int i = 0; i < node.getNChildren(); i++) sb.append(dump(node.getChild(i), indent + "  ")); // NOI18N
+        return sb.toString();
+    }
+    
+}
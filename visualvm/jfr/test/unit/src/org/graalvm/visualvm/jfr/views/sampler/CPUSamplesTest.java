@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.jfr.views.sampler;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import org.graalvm.visualvm.jfr.model.JFREvent;
+import org.graalvm.visualvm.jfr.model.JFREventStore;
+import org.graalvm.visualvm.jfr.model.JFREventTable;
+import org.graalvm.visualvm.jfr.model.JFREventVisitor;
+import org.graalvm.visualvm.jfr.model.JFRPropertyNotAvailableException;
+import org.graalvm.visualvm.jfr.model.JFRStackTrace;
+import org.graalvm.visualvm.jfr.model.JFRThread;
+import org.graalvm.visualvm.jfr.model.TestJFRModel;
+import org.graalvm.visualvm.jfr.utils.ValuesConverter;
+import org.graalvm.visualvm.lib.jfluid.results.CCTNode;
+import org.graalvm.visualvm.lib.jfluid.results.cpu.CPUResultsSnapshot;
+import org.graalvm.visualvm.lib.jfluid.results.cpu.PrestimeCPUCCTNode;
+import org.graalvm.visualvm.lib.jfluid.results.cpu.StackTraceSnapshotBuilder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * CCT created from the sampled events, computed by visiting the events and
+ * from the event store, compared to dumping all threads for each sample.
+ *
+ * @author Jiri Sedlacek
+ */
+public class CPUSamplesTest {
+    
+    private static final String[] TYPES = {
+        JFRSnapshotSamplerViewProvider.EVENT_EXECUTION_SAMPLE, JFRSnapshotSamplerViewProvider.EVENT_NATIVE_SAMPLE,
+        "jdk.ThreadPark", "jdk.JavaMonitorEnter", "jdk.ThreadSleep", // NOI18N
+        JFRSnapshotSamplerViewProvider.EVENT_THREAD_END, "jdk.Other" // NOI18N
+    };
+    
+    
+    @Test
+    public void testEventTable() throws Exception {
+        for (int seed = 0; seed < 50; seed++) {
+            TestJFRModel model = createModel(new Random(seed), 500);
+            
+            JFREventStore store = model.getEventStore();
+            assertNotNull(store);
+            JFREventTable table = store.getTable(JFRSnapshotSamplerViewProvider.CPUSampleTable.class);
+            assertNotNull(table);
+            
+            CPUSamplerViewSupport.CPUSamples samples = new CPUSamplerViewSupport.CPUSamples(model);
+            samples.addEvents(table);
+            
+            assertEquals("seed " + seed, dump(visitEvents(model).createBuilder()), dump(samples.createBuilder())); // NOI18N
+        }
+    }
+    
+    
+    @Test
+    public void testOtherEventsIgnored() throws Exception {
+        TestJFRModel model = new TestJFRModel();
+        for (int i = 0; i < 10; i++)
+            model.addEvent("jdk.Other", "eventTime", Instant.ofEpochSecond(1000, i * 1000000L), // NOI18N
+                           "eventThread", TestJFRModel.thread(1, "Thread 1"), // NOI18N
+                           "eventStackTrace", TestJFRModel.stackTrace("Class0.method0")); // NOI18N
+        model.load();
+        
+        JFREventTable table = model.getEventStore().getTable(JFRSnapshotSamplerViewProvider.CPUSampleTable.class);
+        assertEquals(0, table.getRowCount());
+        
+        try {
+            visitEvents(model).createBuilder().createSnapshot(0);
+            fail("No samples expected"); // NOI18N
+        } catch (CPUResultsSnapshot.NoDataAvailableException e) {}
+    }
+    
+    
+    @Test
+    public void testPreviousImplementation() throws Exception {
+        for (int seed = 0; seed < 50; seed++) {
+            TestJFRModel model = createModel(new Random(seed), 500);
+            assertEquals("seed " + seed, dump(dumpAllThreads(model)), dump(visitEvents(model).createBuilder())); // NOI18N
+        }
+    }
+    
+    
+    // Random samples of a few threads and stacks, including events to be ignored
+    static TestJFRModel createModel(Random random, int count) {
+        List<JFRStackTrace> stacks = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            String[] frames = new String[1 + random.nextInt(4)];
+            for (int j = 0; j < frames.length; j++) frames[j] = "Class" + random.nextInt(3) + ".method" + random.nextInt(3); // NOI18N
+            stacks.add(TestJFRModel.stackTrace(frames));
+        }
+        
+        TestJFRModel model = new TestJFRModel();
+        for (int i = 0; i < count; i++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            int thread = random.nextInt(4);
+            Instant time = Instant.ofEpochSecond(1000, random.nextInt(50) * 1000000L);
+            JFRStackTrace stack = stacks.get(random.nextInt(stacks.size()));
+            
+            // The same stack recorded under another id
+            if (random.nextInt(10) == 0) stack = TestJFRModel.stackTrace(frames(stack));
+            
+            if (JFRSnapshotSamplerViewProvider.EVENT_THREAD_END.equals(type) || "jdk.Other".equals(type)) // NOI18N
+                model.addEvent(type, "eventTime", time, "eventThread", TestJFRModel.thread(thread, "Thread " + thread)); // NOI18N
+            else if (type.endsWith("Sample") && random.nextInt(50) == 0) // NOI18N
+                model.addEvent(type, "eventTime", time, "sampledThread", TestJFRModel.thread(thread, "Thread " + thread), // NOI18N
+                               "eventStackTrace", stack); // NOI18N
+            else if (type.endsWith("Sample")) // NOI18N
+                model.addEvent(type, "eventTime", time, "sampledThread", TestJFRModel.thread(thread, "Thread " + thread), // NOI18N
+                               "eventStackTrace", stack, "state", random.nextBoolean() ? "STATE_RUNNABLE" : "STATE_SLEEPING"); // NOI18N
+            else
+                model.addEvent(type, "eventTime", time, "eventThread", TestJFRModel.thread(thread, "Thread " + thread), // NOI18N
+                               "eventStackTrace", stack); // NOI18N
+        }
+        
+        model.load();
+        return model;
+    }
+    
+    // Same as CPUSamplerViewSupport.CPUViewSupport
+    static CPUSamplerViewSupport.CPUSamples visitEvents(TestJFRModel model) {
+        final CPUSamplerViewSupport.CPUSamples samples = new CPUSamplerViewSupport.CPUSamples(model);
+        final Set<String> ignoredEvents = new HashSet<>();
+        
+        model.visitEvents(new JFREventVisitor() {
+            @Override
+            public boolean visit(String typeName, JFREvent event) {
+                try {
+                    if (!ignoredEvents.contains(typeName)) samples.addEvent(typeName, event);
+                } catch (JFRPropertyNotAvailableException e) {
+                    ignoredEvents.add(typeName);
+                }
+                return false;
+            }
+        });
+        
+        return samples;
+    }
+    
+    // The previous implementation, dumps all live threads for each sample
+    static StackTraceSnapshotBuilder dumpAllThreads(final TestJFRModel model) {
+        final List<Object[]> samples = new ArrayList<>();
+        final Set<String> ignoredEvents = new HashSet<>();
+        
+        model.visitEvents(new JFREventVisitor() {
+            @Override
+            public boolean visit(String typeName, JFREvent event) {
+                try {
+                    if (!ignoredEvents.contains(typeName)) samples.add(sample(typeName, event, model));
+                } catch (JFRPropertyNotAvailableException e) {
+                    ignoredEvents.add(typeName);
+                }
+                return false;
+            }
+        });
+        
+        Collections.sort(samples, new Comparator<Object[]>() {
+            @Override
+            public int compare(Object[] sample1, Object[] sample2) {
+                return Long.compare((Long)sample1[0], (Long)sample2[0]);
+            }
+        });
+        
+        StackTraceSnapshotBuilder builder = new StackTraceSnapshotBuilder();
+        Map<Long, Map<String, Object>> threads = new LinkedHashMap<>();
+        long baseTime = 1000000000L;
+        for (Object[] sample : samples) {
+            Map<String, Object> threadInfo = (Map<String, Object>)sample[1];
+            Long threadId = (Long)threadInfo.get(JFRThreadInfoSupport.THREAD_ID);
+            if (threadInfo.get(JFRThreadInfoSupport.THREAD_STACK) == null) {
+                threads.remove(threadId);
+            } else {
+                threads.put(threadId, threadInfo);
+                builder.addStacktrace(threads.values().toArray(new Map[0]), baseTime + (Long)sample[0]);
+            }
+        }
+        
+        return builder;
+    }
+    
+    // Relative time and thread info of a sample
+    private static Object[] sample(String type, JFREvent event, TestJFRModel model) throws JFRPropertyNotAvailableException {
+        JFRStackTrace stack = null;
+        if (!JFRSnapshotSamplerViewProvider.EVENT_THREAD_END.equals(type)) {
+            stack = event.getStackTrace("eventStackTrace"); // NOI18N
+            if (stack == null) throw new JFRPropertyNotAvailableException("No stack trace"); // NOI18N
+        }
+        
+        JFRThread thread = CPUSamplerViewSupport.getThread(type, event);
+        if (thread == null) throw new JFRPropertyNotAvailableException("No thread"); // NOI18N
+        
+        Instant time = event.getInstant("eventTime"); // NOI18N
+        if (time == null) throw new JFRPropertyNotAvailableException("No time"); // NOI18N
+        
+        StackTraceElement[] elements = null;
+        Thread.State state = null;
+        if (stack != null) {
+            elements = new StackTraceElement[stack.getFrames().size()];
+            for (int i = 0; i < elements.length; i++) elements[i] = JFRThreadInfoSupport.stackTraceElement(stack.getFrames().get(i));
+            state = CPUSamplerViewSupport.getState(type, event);
+        }
+        
+        return new Object[] { ValuesConverter.instantToRelativeNanos(time, model),
+                              JFRThreadInfoSupport.getThreadInfo(thread.getId(), thread.getName(), elements, state) };
+    }
+    
+    // Total time and hits of each call path
+    static Map<String, String> dump(StackTraceSnapshotBuilder builder) throws CPUResultsSnapshot.NoDataAvailableException {
+        Map<String, String> nodes = new TreeMap<>();
+        dump(builder.createSnapshot(0).getRootNode(CPUResultsSnapshot.METHOD_LEVEL_VIEW), "", nodes); // NOI18N
+        return nodes;
+    }
+    
+    private static void dump(PrestimeCPUCCTNode node, String parentPath, Map<String, String> nodes) {
+        String path = parentPath + "/" + node.getNodeName(); // NOI18N
+        nodes.put(path, node.getTotalTime0() + "/" + node.getNCalls()); // NOI18N
+        
+        CCTNode[] children = node.getChildren();
+        if (children != null) for (CCTNode child : children) dump((PrestimeCPUCCTNode)child, path, nodes);
+    }
+    
+    private static String[] frames(JFRStackTrace stack) {
+        String[] frames = new String[stack.getFrames().size()];
+        for (int i = 0; i < frames.length; i++)
+            frames[i] = stack.getFrames().get(i).getMethod().getType().getName() + "." + stack.getFrames().get(i).getMethod().getName(); // NOI18N
+        return frames;
+    }
+    
+}
@@ -229,5 +229,9 @@ public class JvmstatModelImpl extends JvmstatModel implements VmListener, DataRe
     public String getConnectionId() {
         return monitoredVm.getVmIdentifier().getURI().toString();
     }
+
+    public MonitoredVm getMonitoredVm() {
+        return monitoredVm;
+    }
     
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.jvmstat.application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.graalvm.visualvm.application.Application;
+import org.graalvm.visualvm.core.options.GlobalPreferences;
+import org.graalvm.visualvm.host.Host;
+import org.openide.util.RequestProcessor;
+import sun.jvmstat.monitor.MonitorException;
+import sun.jvmstat.monitor.MonitoredHost;
+
+/**
+ * Monitors all JVMs of a host discovered by jvmstat. Each refresh reads the
+ * list of active JVMs once per jstatd connection and samples the fleet
+ * counters of all JVMs in a single pass on a small shared thread pool.
+ * No per-JVM listeners or timers are used.
+ *
+ * @author Tomas Hurka
+ */
+final class FleetMonitor {
+
+    private static final Logger LOGGER = Logger.getLogger(FleetMonitor.class.getName());
+
+    private static final int SAMPLER_THREADS = Math.max(1, Integer.getInteger("visualvm.fleet.threads", 4)); // NOI18N
+    private static final int HISTORY = Math.max(2, Integer.getInteger("visualvm.fleet.history", 60)); // NOI18N
+    private static final int MIN_BATCH = 16;
+
+    private static final RequestProcessor SCHEDULER = new RequestProcessor("Fleet Monitor Scheduler", 1, true); // NOI18N
+    private static final RequestProcessor SAMPLER = new RequestProcessor("Fleet Monitor Sampler", SAMPLER_THREADS); // NOI18N
+
+
+    interface Listener {
+        void fleetRefreshed(List<FleetVm> vms, long refreshTime);
+    }
+
+
+    private final Host host;
+    private final Map<String, FleetVm> vms = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final RequestProcessor.Task refreshTask;
+
+    private volatile boolean running;
+
+
+    FleetMonitor(Host host) {
+        this.host = host;
+        refreshTask = SCHEDULER.create(new Runnable() {
+            public void run() { refresh(); }
+        });
+    }
+
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void start() {
+        running = true;
+        refreshTask.schedule(0);
+    }
+
+    void stop() {
+        running = false;
+        refreshTask.cancel();
+        SCHEDULER.post(new Runnable() {
+            public void run() { detachAll(); }
+        });
+    }
+
+
+    private void refresh() {
+        if (!running) return;
+
+        long start = System.currentTimeMillis();
+        List<FleetVm> active = updateVms();
+        sample(active, start);
+        long refreshTime = System.currentTimeMillis() - start;
+
+        List<FleetVm> refreshed = Collections.unmodifiableList(active);
+        for (Listener listener : listeners) listener.fleetRefreshed(refreshed, refreshTime);
+
+        if (LOGGER.isLoggable(Level.FINE))
+            LOGGER.log(Level.FINE, "Fleet of {0} refreshed in {1} ms, {2} JVMs", // NOI18N
+                       new Object[] { host.getHostName(), refreshTime, active.size() });
+
+        if (running) {
+            int interval = GlobalPreferences.sharedInstance().getMonitoredDataPoll() * 1000;
+            refreshTask.schedule((int)Math.max(0, interval - refreshTime));
+        }
+    }
+
+    private List<FleetVm> updateVms() {
+        Set<String> activeIds = new HashSet<>();
+        List<FleetVm> active = new ArrayList<>();
+
+        for (MonitoredHost monitoredHost : JvmstatApplicationProvider.sharedInstance().getMonitoredHosts(host)) {
+            Set<Integer> pids;
+            try {
+                pids = monitoredHost.activeVms();
+            } catch (MonitorException e) {
+                LOGGER.log(Level.FINE, "Failed to list JVMs of " + monitoredHost.getHostIdentifier(), e); // NOI18N
+                continue;
+            }
+            for (Integer pid : pids) {
+                // Do not monitor Application.CURRENT_APPLICATION
+                if (Application.CURRENT_APPLICATION.getPid() == pid && Host.LOCALHOST.equals(host)) continue;
+
+                String id = monitoredHost.getHostIdentifier() + "-" + pid; // NOI18N
+                FleetVm vm = vms.get(id);
+                if (vm == null) {
+                    vm = new FleetVm(host, monitoredHost, pid, HISTORY);
+                    vms.put(id, vm);
+                }
+                activeIds.add(id);
+                active.add(vm);
+            }
+        }
+
+        // Detach terminated JVMs
+        for (String id : new ArrayList<>(vms.keySet())) {
+            if (!activeIds.contains(id)) vms.remove(id).detach();
+        }
+
+        return active;
+    }
+
+    private static void sample(final List<FleetVm> active, final long timestamp) {
+        final int batches = Math.max(1, Math.min(SAMPLER_THREADS, active.size() / MIN_BATCH));
+
+        List<RequestProcessor.Task> tasks = new ArrayList<>(batches - 1);
+        for (int i = 1; i < batches; i++) {
+            final int batch = i;
+            tasks.add(SAMPLER.post(new Runnable() {
+                public void run() { sample(active, batch, batches, timestamp); }
+            }));
+        }
+
+        sample(active, 0, batches, timestamp);
+
+        for (RequestProcessor.Task task : tasks) task.waitFinished();
+    }
+
+    private static void sample(List<FleetVm> active, int batch, int batches, long timestamp) {
+        for (int i = batch; i < active.size(); i += batches)
+            active.get(i).sample(timestamp);
+    }
+
+    private void detachAll() {
+        for (FleetVm vm : vms.values()) vm.detach();
+        vms.clear();
+    }
+
+}
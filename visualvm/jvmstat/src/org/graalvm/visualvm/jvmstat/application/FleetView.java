@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.jvmstat.application;
+
+import java.awt.BorderLayout;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.BorderFactory;
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import org.graalvm.visualvm.core.datasupport.DataRemovedListener;
+import org.graalvm.visualvm.core.ui.DataSourceView;
+import org.graalvm.visualvm.core.ui.DataSourceWindowManager;
+import org.graalvm.visualvm.core.ui.components.DataViewComponent;
+import org.graalvm.visualvm.host.Host;
+import org.openide.util.ImageUtilities;
+import org.openide.util.NbBundle;
+
+/**
+ * Sortable overview of all JVMs of a host refreshed by FleetMonitor.
+ * Double-click opens the application.
+ *
+ * @author Tomas Hurka
+ */
+class FleetView extends DataSourceView implements DataRemovedListener<Host>, FleetMonitor.Listener {
+
+    private static final String IMAGE_PATH = "org/graalvm/visualvm/application/resources/application.png";    // NOI18N
+
+    private FleetMonitor monitor;
+    private FleetTableModel model;
+    private JLabel status;
+
+
+    FleetView(Host host) {
+        super(host, NbBundle.getMessage(FleetView.class, "LBL_Fleet"), new ImageIcon(ImageUtilities.loadImage(IMAGE_PATH, true)).getImage(), 50, false);    // NOI18N
+    }
+
+
+    protected void removed() {
+        if (monitor != null) monitor.stop();
+    }
+
+    public void dataRemoved(Host dataSource) {
+        if (monitor != null) monitor.stop();
+    }
+
+    public void fleetRefreshed(final List<FleetVm> vms, final long refreshTime) {
+        final List<FleetVm> rows = new ArrayList<>(vms);
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                model.setRows(rows);
+                status.setText(NbBundle.getMessage(FleetView.class, "LBL_FleetStatus", rows.size(), refreshTime)); // NOI18N
+            }
+        });
+    }
+
+
+    protected DataViewComponent createComponent() {
+        final Host host = (Host)getDataSource();
+
+        model = new FleetTableModel();
+        final JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(FleetTableModel.HEAP_USED).setCellRenderer(new BytesRenderer());
+        table.getColumnModel().getColumn(FleetTableModel.HEAP_SIZE).setCellRenderer(new BytesRenderer());
+        table.getColumnModel().getColumn(FleetTableModel.GC_ACTIVITY).setCellRenderer(new ActivityRenderer());
+        table.getColumnModel().getColumn(FleetTableModel.JIT_ACTIVITY).setCellRenderer(new ActivityRenderer());
+        table.getColumnModel().getColumn(FleetTableModel.APPLICATION).setPreferredWidth(250);
+        table.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() != 2 || !SwingUtilities.isLeftMouseButton(e)) return;
+                int row = table.rowAtPoint(e.getPoint());
+                if (row == -1) return;
+                FleetVm vm = model.getVm(table.convertRowIndexToModel(row));
+                JvmstatApplication application = JvmstatApplicationProvider.sharedInstance().getApplication(host, vm.getPid());
+                if (application != null) DataSourceWindowManager.sharedInstance().openDataSource(application);
+            }
+        });
+
+        status = new JLabel(NbBundle.getMessage(FleetView.class, "LBL_FleetLoading")); // NOI18N
+        status.setBorder(BorderFactory.createEmptyBorder(5, 8, 5, 8));
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setOpaque(false);
+        panel.add(status, BorderLayout.NORTH);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        DataViewComponent dvc = new DataViewComponent(
+                new DataViewComponent.MasterView(NbBundle.getMessage(FleetView.class, "LBL_Fleet"), null, panel), // NOI18N
+                new DataViewComponent.MasterViewConfiguration(false));
+
+        monitor = new FleetMonitor(host);
+        monitor.addListener(this);
+        monitor.start();
+        host.notifyWhenRemoved(this);
+
+        return dvc;
+    }
+
+
+    private static class FleetTableModel extends AbstractTableModel {
+
+        static final int APPLICATION = 0;
+        static final int PID = 1;
+        static final int HEAP_USED = 2;
+        static final int HEAP_SIZE = 3;
+        static final int GC_ACTIVITY = 4;
+        static final int JIT_ACTIVITY = 5;
+        static final int THREADS = 6;
+
+        private static final String[] COLUMNS = new String[] {
+            NbBundle.getMessage(FleetView.class, "COL_Application"), // NOI18N
+            NbBundle.getMessage(FleetView.class, "COL_Pid"), // NOI18N
+            NbBundle.getMessage(FleetView.class, "COL_HeapUsed"), // NOI18N
+            NbBundle.getMessage(FleetView.class, "COL_HeapSize"), // NOI18N
+            NbBundle.getMessage(FleetView.class, "COL_GcActivity"), // NOI18N
+            NbBundle.getMessage(FleetView.class, "COL_JitActivity"), // NOI18N
+            NbBundle.getMessage(FleetView.class, "COL_Threads") // NOI18N
+        };
+
+        private List<FleetVm> rows = new ArrayList<>();
+
+
+        void setRows(List<FleetVm> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        FleetVm getVm(int row) {
+            return rows.get(row);
+        }
+
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case APPLICATION: return String.class;
+                case PID: return Integer.class;
+                case GC_ACTIVITY:
+                case JIT_ACTIVITY: return Integer.class;
+                default: return Long.class;
+            }
+        }
+
+        public Object getValueAt(int row, int column) {
+            FleetVm vm = rows.get(row);
+            switch (column) {
+                case APPLICATION:
+                    String name = vm.getName();
+                    return name != null ? name : NbBundle.getMessage(FleetView.class, vm.isFailed() ? // NOI18N
+                                                 "LBL_FleetUnavailable" : "LBL_FleetUnknown"); // NOI18N
+                case PID: return vm.getPid();
+                case HEAP_USED: return vm.getValue(FleetVm.HEAP_USED, 0);
+                case HEAP_SIZE: return vm.getValue(FleetVm.HEAP_CAPACITY, 0);
+                case GC_ACTIVITY: return vm.getLastActivity(FleetVm.GC_TIME);
+                case JIT_ACTIVITY: return vm.getLastActivity(FleetVm.JIT_TIME);
+                case THREADS: return vm.getValue(FleetVm.THREADS, 0);
+                default: return null;
+            }
+        }
+
+    }
+
+    private static class BytesRenderer extends DefaultTableCellRenderer {
+
+        private final NumberFormat format = NumberFormat.getInstance();
+
+        BytesRenderer() {
+            setHorizontalAlignment(SwingConstants.TRAILING);
+        }
+
+        protected void setValue(Object value) {
+            long bytes = value == null ? 0 : ((Long)value).longValue();
+            setText(NbBundle.getMessage(FleetView.class, "LBL_FleetMB", format.format((bytes + 512 * 1024) / (1024 * 1024)))); // NOI18N
+        }
+
+    }
+
+    private static class ActivityRenderer extends DefaultTableCellRenderer {
+
+        private final NumberFormat format = NumberFormat.getPercentInstance();
+
+        ActivityRenderer() {
+            setHorizontalAlignment(SwingConstants.TRAILING);
+            format.setMinimumFractionDigits(1);
+            format.setMaximumFractionDigits(1);
+        }
+
+        protected void setValue(Object value) {
+            int perMille = value == null ? 0 : ((Integer)value).intValue();
+            setText(format.format(perMille / 1000d));
+        }
+
+    }
+
+}
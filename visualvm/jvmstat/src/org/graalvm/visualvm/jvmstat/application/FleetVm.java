@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.jvmstat.application;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.graalvm.visualvm.application.Application;
+import org.graalvm.visualvm.host.Host;
+import org.graalvm.visualvm.jvmstat.JvmstatModelImpl;
+import org.graalvm.visualvm.tools.jvmstat.JvmstatModel;
+import org.graalvm.visualvm.tools.jvmstat.JvmstatModelFactory;
+import sun.jvmstat.monitor.LongMonitor;
+import sun.jvmstat.monitor.Monitor;
+import sun.jvmstat.monitor.MonitorException;
+import sun.jvmstat.monitor.MonitoredHost;
+import sun.jvmstat.monitor.MonitoredVm;
+
+/**
+ * A JVM monitored by FleetMonitor. Keeps the last samples of the fleet
+ * counters in a ring buffer, the counters are resolved once when the JVM
+ * is attached. The JVM is read using the MonitoredVm of its JvmstatModel,
+ * no listeners are registered and it doesn't poll the counters itself, it
+ * is sampled by the FleetMonitor pass. The MonitoredVm of a remote JVM is
+ * attached with the monitored data poll interval, its buffer is refreshed
+ * by the sampler of the shared MonitoredHost timer. A JVM which cannot be
+ * sampled is retried with a growing delay while it is listed by its host.
+ *
+ * @author Tomas Hurka
+ */
+final class FleetVm {
+
+    private static final Logger LOGGER = Logger.getLogger(FleetVm.class.getName());
+
+    static final int HEAP_USED = 0;
+    static final int HEAP_CAPACITY = 1;
+    static final int GC_TIME = 2;
+    static final int JIT_TIME = 3;
+    static final int THREADS = 4;
+    static final int TICKS = 5;
+
+    // The fleet counter set, values of all counters matching a pattern are summed.
+    // A pattern can be redefined by the visualvm.fleet.counter.<name> property.
+    private static final String[] COUNTER_NAMES = new String[] {
+        "heapUsed", "heapCapacity", "gcTime", "jitTime", "threads", "ticks" // NOI18N
+    };
+    private static final String[] DEFAULT_COUNTERS = new String[] {
+        "sun\\.gc\\.generation\\.[01]\\.space\\.[0-9]+\\.used",   // NOI18N
+        "sun\\.gc\\.generation\\.[01]\\.capacity",                // NOI18N
+        "sun\\.gc\\.collector\\.[0-9]+\\.time",                   // NOI18N
+        "java\\.ci\\.totalTime",                                  // NOI18N
+        "java\\.threads\\.live",                                  // NOI18N
+        "sun\\.os\\.hrt\\.ticks"                                  // NOI18N
+    };
+    private static final String[] COUNTERS = getCounters();
+    private static final int COLUMNS = COUNTERS.length;
+
+    // Number of samples skipped after a failure, doubled for each next failure
+    private static final int MAX_RETRY_DELAY = 32;
+
+    private static final String JAVA_COMMAND = "sun.rt.javaCommand";   // NOI18N
+
+    private final Host host;
+    private final MonitoredHost monitoredHost;
+    private final int pid;
+
+    private Application application;
+    private LongMonitor[][] monitors;
+    private String name;
+    private boolean failed;
+    private int failures;
+    private int skippedSamples;
+
+    // ring buffer of the last samples, guarded by this
+    private final long[] timestamps;
+    private final long[] values;
+    private int position;
+    private int count;
+
+
+    FleetVm(Host host, MonitoredHost monitoredHost, int pid, int history) {
+        this.host = host;
+        this.monitoredHost = monitoredHost;
+        this.pid = pid;
+        timestamps = new long[history];
+        values = new long[history * COLUMNS];
+    }
+
+
+    int getPid() {
+        return pid;
+    }
+
+    MonitoredHost getMonitoredHost() {
+        return monitoredHost;
+    }
+
+    synchronized String getName() {
+        return name;
+    }
+
+    synchronized boolean isFailed() {
+        return failed;
+    }
+
+    synchronized int getSamplesCount() {
+        return count;
+    }
+
+    /**
+     * Returns value of the counter, age 0 is the last sample.
+     */
+    synchronized long getValue(int counter, int age) {
+        if (age >= count) return 0;
+        int index = (position - 1 - age + timestamps.length) % timestamps.length;
+        return values[index * COLUMNS + counter];
+    }
+
+    /**
+     * Returns difference of the counter between the last two samples.
+     */
+    synchronized long getLastDelta(int counter) {
+        return count < 2 ? 0 : getValue(counter, 0) - getValue(counter, 1);
+    }
+
+    /**
+     * Returns the share of the last sample period spent in the counter
+     * measuring time in ticks, 1000 = 100%.
+     */
+    synchronized int getLastActivity(int timeCounter) {
+        long ticks = getLastDelta(TICKS);
+        return ticks <= 0 ? 0 : (int)Math.min(1000, getLastDelta(timeCounter) * 1000 / ticks);
+    }
+
+
+    // Invoked by the FleetMonitor sampler, one thread at a time
+    void sample(long timestamp) {
+        if (skippedSamples > 0) {
+            skippedSamples--;
+            return;
+        }
+
+        try {
+            if (monitors != null && application.isRemoved()) detach();
+            if (monitors == null && !attach()) {
+                retryLater();
+                return;
+            }
+
+            long[] sample = new long[COLUMNS];
+            for (int i = 0; i < COLUMNS; i++)
+                for (LongMonitor monitor : monitors[i])
+                    sample[i] += monitor.longValue();
+
+            synchronized (this) {
+                timestamps[position] = timestamp;
+                System.arraycopy(sample, 0, values, position * COLUMNS, COLUMNS);
+                position = (position + 1) % timestamps.length;
+                if (count < timestamps.length) count++;
+                failed = false;
+            }
+            failures = 0;
+        } catch (Exception e) {
+            // Typically the JVM has just terminated, it is retried while still listed
+            LOGGER.log(Level.FINE, "Failed to sample JVM " + pid, e); // NOI18N
+            detach();
+            retryLater();
+        }
+    }
+
+    void detach() {
+        application = null;
+        monitors = null;
+    }
+
+
+    private void retryLater() {
+        skippedSamples = Math.min(MAX_RETRY_DELAY, 1 << Math.min(failures, 5));
+        failures++;
+        synchronized (this) {
+            failed = true;
+        }
+    }
+
+    // Returns false if the JVM has no JvmstatModel (yet)
+    private boolean attach() throws MonitorException {
+        Application app = JvmstatApplicationProvider.sharedInstance().getApplication(host, pid);
+        JvmstatModel jvmstat = app == null ? null : JvmstatModelFactory.getJvmstatFor(app);
+        if (!(jvmstat instanceof JvmstatModelImpl)) return false;
+        MonitoredVm monitoredVm = ((JvmstatModelImpl)jvmstat).getMonitoredVm();
+
+        LongMonitor[][] resolved = new LongMonitor[COLUMNS][];
+        for (int i = 0; i < COLUMNS; i++) {
+            List<Monitor> list = monitoredVm.findByPattern(COUNTERS[i]);
+            int longs = 0;
+            for (Monitor monitor : list) if (monitor instanceof LongMonitor) longs++;
+            resolved[i] = new LongMonitor[longs];
+            longs = 0;
+            for (Monitor monitor : list) if (monitor instanceof LongMonitor) resolved[i][longs++] = (LongMonitor)monitor;
+        }
+
+        Monitor command = monitoredVm.findByName(JAVA_COMMAND);
+        String commandStr = command == null ? null : command.getValue().toString().trim();
+        String vmName = commandStr == null || commandStr.isEmpty() ? null : commandStr.split(" ")[0]; // NOI18N
+        synchronized (this) {
+            name = vmName;
+        }
+
+        application = app;
+        monitors = resolved;
+        return true;
+    }
+
+    private static String[] getCounters() {
+        String[] counters = new String[COUNTER_NAMES.length];
+        for (int i = 0; i < counters.length; i++)
+            counters[i] = System.getProperty("visualvm.fleet.counter." + COUNTER_NAMES[i], DEFAULT_COUNTERS[i]); // NOI18N
+        return counters;
+    }
+
+}
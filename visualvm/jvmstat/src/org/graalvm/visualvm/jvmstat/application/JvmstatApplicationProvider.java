@@ -48,6 +48,7 @@ import org.graalvm.visualvm.core.datasupport.DataChangeEvent;
 import org.graalvm.visualvm.core.datasupport.DataChangeListener;
 import org.graalvm.visualvm.core.datasupport.Stateful;
 import org.graalvm.visualvm.core.options.GlobalPreferences;
+import org.graalvm.visualvm.core.ui.DataSourceViewsManager;
 import org.graalvm.visualvm.core.ui.DesktopUtils;
 import org.graalvm.visualvm.host.Host;
 import org.graalvm.visualvm.uisupport.HTMLLabel;
@@ -296,6 +297,24 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
         applications.remove(jvmstatApplication.getId());
     }
     
+    JvmstatApplication getApplication(Host host, int pid) {
+        return applications.get(createId(host, pid));
+    }
+    
+    // Returns MonitoredHosts of all active jvmstat connections of the host
+    Set<MonitoredHost> getMonitoredHosts(Host host) {
+        Set<MonitoredHost> monitoredHosts = new HashSet<>();
+        synchronized (hostsListeners) {
+            Map<HostIdentifier,JvmstatConnection> hostListeners = hostsListeners.get(host);
+            if (hostListeners != null) {
+                for (JvmstatConnection listener : hostListeners.values()) {
+                    monitoredHosts.add(listener.monitoredHost);
+                }
+            }
+        }
+        return monitoredHosts;
+    }
+    
     // TODO: reimplement to listen for Host.getState() == STATE_UNAVAILABLE
     //    private void processAllTerminatedApplications(Host host) {
     //        Set<JvmstatApplication> applicationsSet = host.getRepository().getDataSources(JvmstatApplication.class);
@@ -426,6 +445,7 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
     
     public static void register() {
         DataSourceRepository.sharedInstance().addDataChangeListener(sharedInstance(), Host.class);
+        DataSourceViewsManager.sharedInstance().addViewProvider(new FleetViewProvider(), Host.class);
     }
     
     public static MonitoredHost findMonitoredHost(Application app) {
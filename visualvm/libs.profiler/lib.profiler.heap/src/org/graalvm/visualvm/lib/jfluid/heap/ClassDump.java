@@ -39,6 +39,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import static org.graalvm.visualvm.lib.jfluid.heap.ObjectSizeSettings.OBJECT_ALIGNMENT;
 
 
@@ -63,6 +64,10 @@ class ClassDump extends HprofObject implements JavaClass {
     private int instances;
     private int instanceSize;
     private long firstInstanceOffset;
+    private long[] instanceOffsetBlocks;
+    private int instanceOffsetBlocksCount;
+    private int instanceOffsetsFree;
+    private volatile Map<String,FieldAccessor> fieldAccessors;
     private long loadClassOffset;
     private long retainedSizeByClass;
 
@@ -159,6 +164,16 @@ class ClassDump extends HprofObject implements JavaClass {
             return Collections.emptyList();
         }
 
+        if (hasInstanceOffsets()) {
+            List<Instance> instancesList = new ArrayList<>(instancesCount);
+            Iterator<Instance> it = new IndexedInstancesIterator(instancesCount);
+
+            while (it.hasNext()) {
+                instancesList.add(it.next());
+            }
+            return instancesList;
+        }
+
         long classId = getJavaClassId();
         HprofHeap heap = getHprof();
         HprofByteBuffer dumpBuffer = getHprofBuffer();
@@ -218,6 +233,9 @@ class ClassDump extends HprofObject implements JavaClass {
         if (instancesCount == 0) {
             return Collections.emptyIterator();
         }
+        if (hasInstanceOffsets()) {
+            return new IndexedInstancesIterator(instancesCount);
+        }
         return new InstancesIterator(instancesCount);
     }
 
@@ -367,6 +385,26 @@ class ClassDump extends HprofObject implements JavaClass {
         return fields;
     }
 
+    FieldAccessor getFieldAccessor(String name) {
+        Map<String,FieldAccessor> accessors = fieldAccessors;
+
+        if (accessors == null) {
+            synchronized (this) {
+                if (fieldAccessors == null) {
+                    fieldAccessors = new ConcurrentHashMap<>();
+                }
+                accessors = fieldAccessors;
+            }
+        }
+        FieldAccessor accessor = accessors.get(name);
+
+        if (accessor == null) {
+            accessor = FieldAccessor.create(this, name);
+            accessors.put(name, accessor);
+        }
+        return accessor;
+    }
+
     void setClassLoadOffset(long offset) {
         loadClassOffset = offset;
     }
@@ -492,6 +530,25 @@ class ClassDump extends HprofObject implements JavaClass {
         }
     }
 
+    long nextInstanceOffsetSlot(InstanceOffsets offsets) throws IOException {
+        if (instanceOffsetsFree == 0) {
+            if (instanceOffsetBlocks == null) {
+                instanceOffsetBlocks = new long[4];
+            } else if (instanceOffsetBlocksCount == instanceOffsetBlocks.length) {
+                instanceOffsetBlocks = Arrays.copyOf(instanceOffsetBlocks, instanceOffsetBlocksCount * 2);
+            }
+            instanceOffsetBlocks[instanceOffsetBlocksCount] = offsets.allocateBlock(instanceOffsetBlocksCount);
+            instanceOffsetsFree = InstanceOffsets.getBlockSize(instanceOffsetBlocksCount);
+            instanceOffsetBlocksCount++;
+        }
+        int lastBlock = instanceOffsetBlocksCount - 1;
+        return instanceOffsetBlocks[lastBlock] + InstanceOffsets.getBlockSize(lastBlock) - instanceOffsetsFree--;
+    }
+
+    private boolean hasInstanceOffsets() {
+        return instanceOffsetBlocks != null && classDumpSegment.instanceOffsets != null;
+    }
+
     void addSizeForInstance(Instance i) {
         retainedSizeByClass+=i.getRetainedSize();
     }
@@ -565,11 +622,49 @@ class ClassDump extends HprofObject implements JavaClass {
         } 
     }
 
+    private class IndexedInstancesIterator implements Iterator<Instance> {
+
+        private int count;
+        private int block;
+        private long slot;
+        private int blockFree;
+        private final HprofHeap heap;
+        private final long classId;
+
+        private IndexedInstancesIterator(int ic) {
+            count = ic;
+            heap = getHprof();
+            classId = getJavaClassId();
+        }
+
+        public boolean hasNext() {
+            return count > 0;
+        }
+
+        public Instance next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (blockFree == 0) {
+                slot = instanceOffsetBlocks[block];
+                blockFree = InstanceOffsets.getBlockSize(block++);
+            }
+            long[] offset = new long[] { classDumpSegment.getInstanceOffset(slot++) };
+            blockFree--;
+            count--;
+            return heap.getInstanceByOffset(offset, ClassDump.this, classId);
+        }
+    }
+
     //---- Serialization support
     void writeToStream(DataOutputStream out) throws IOException {
         out.writeLong(fileOffset);
         out.writeInt(instances);
         out.writeLong(firstInstanceOffset);
+        out.writeInt(instanceOffsetBlocksCount);
+        for (int i = 0; i < instanceOffsetBlocksCount; i++) {
+            out.writeLong(instanceOffsetBlocks[i]);
+        }
         out.writeLong(loadClassOffset);
         out.writeLong(retainedSizeByClass);        
     }
@@ -578,6 +673,13 @@ class ClassDump extends HprofObject implements JavaClass {
         this(segment, offset);
         instances = dis.readInt();
         firstInstanceOffset = dis.readLong();
+        instanceOffsetBlocksCount = dis.readInt();
+        if (instanceOffsetBlocksCount > 0) {
+            instanceOffsetBlocks = new long[instanceOffsetBlocksCount];
+            for (int i = 0; i < instanceOffsetBlocksCount; i++) {
+                instanceOffsetBlocks[i] = dis.readLong();
+            }
+        }
         loadClassOffset = dis.readLong();
         retainedSizeByClass = dis.readLong();        
     }
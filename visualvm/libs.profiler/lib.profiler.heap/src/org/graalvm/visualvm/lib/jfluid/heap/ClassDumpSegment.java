@@ -66,6 +66,8 @@ class ClassDumpSegment extends TagBounds {
     ClassDump java_lang_Class;
     boolean newSize;
     Map<JavaClass,List<Field>> fieldsCache;
+    // file offsets of all instances, instances of one class are stored contiguously
+    InstanceOffsets instanceOffsets;
     private List<JavaClass> classes;
     private Map<Integer,JavaClass> primitiveArrayMap;
     private Map<JavaClass,Integer> primitiveTypeMap;
@@ -192,6 +194,27 @@ class ClassDumpSegment extends TagBounds {
         }
     }
 
+    void createInstanceOffsets() {
+        instanceOffsets = new InstanceOffsets(hprofHeap.cacheDirectory);
+    }
+
+    void addInstanceOffset(ClassDump cls, long instanceOffset) {
+        if (instanceOffsets != null) {
+            try {
+                instanceOffsets.putOffset(cls.nextInstanceOffsetSlot(instanceOffsets), instanceOffset);
+            } catch (IOException ex) {
+                // instances will be found by scanning the dump
+                ex.printStackTrace(System.err);
+                instanceOffsets.delete();
+                instanceOffsets = null;
+            }
+        }
+    }
+
+    long getInstanceOffset(long slot) {
+        return instanceOffsets.getOffset(slot);
+    }
+
     long alignObjectSize(long size) {
         return (size+OBJECT_ALIGNMENT-1) & (~(OBJECT_ALIGNMENT-1));
     }
@@ -317,6 +340,10 @@ class ClassDumpSegment extends TagBounds {
                 }
             }
         }
+        out.writeBoolean(instanceOffsets != null);
+        if (instanceOffsets != null) {
+            instanceOffsets.writeToStream(out);
+        }
     }
 
     ClassDumpSegment(HprofHeap heap, long start, long end, DataInputStream dis) throws IOException {
@@ -339,6 +366,9 @@ class ClassDumpSegment extends TagBounds {
             }
             classes = Collections.unmodifiableList(cls);
         }
+        if (dis.readBoolean()) {
+            instanceOffsets = new InstanceOffsets(dis, heap.cacheDirectory);
+        }
     }
     
     int getArrayElSize(ClassDump cls) {
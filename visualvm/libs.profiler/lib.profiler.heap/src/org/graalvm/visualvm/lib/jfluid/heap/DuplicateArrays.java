@@ -0,0 +1,566 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Analysis of primitive arrays with identical content. The array contents are
+ * hashed in parallel directly from the heap dump, arrays with the same hash are
+ * compared and grouped, only arrays of the same element type form a group. Wasted bytes are reported per group and per the owning
+ * class and field. Duplicated {@code String}s are reported by their value arrays,
+ * owner of such array is the field referencing the {@code String}.
+ *
+ * @author Tomas Hurka
+ */
+public final class DuplicateArrays {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final String[] DEFAULT_CLASSES = { "byte[]", "char[]" };   // NOI18N
+    private static final String STRING_CLASS = "java.lang.String";  // NOI18N
+    private static final int CHUNK_SIZE = 16384;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int HASHING_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    // shared by all computations, idle threads are released after a while
+    private static ThreadPoolExecutor hashingExecutor;
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final Heap heap;
+    private final List<Group> groups;
+    private final long wastedBytes;
+    private List<Owner> owners;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    private DuplicateArrays(Heap heap, List<Group> groups) {
+        long wasted = 0;
+
+        for (Group group : groups) {
+            wasted += group.getWastedBytes();
+        }
+        this.heap = heap;
+        this.groups = Collections.unmodifiableList(groups);
+        wastedBytes = wasted;
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * computes duplicated <CODE>byte[]</CODE> and <CODE>char[]</CODE> arrays.
+     * <br>
+     * Speed: slow
+     * @param heap analyzed heap
+     * @return duplicated arrays
+     */
+    public static DuplicateArrays compute(Heap heap) {
+        List<JavaClass> classes = new ArrayList<>();
+
+        for (String className : DEFAULT_CLASSES) {
+            JavaClass jcls = heap.getJavaClassByName(className);
+
+            if (jcls != null) {
+                classes.add(jcls);
+            }
+        }
+        return compute(heap, classes);
+    }
+
+    /**
+     * computes duplicated arrays of the provided primitive array classes.
+     * <br>
+     * Speed: slow
+     * @param heap analyzed heap
+     * @param arrayClasses primitive array classes to be analyzed
+     * @return duplicated arrays
+     */
+    public static DuplicateArrays compute(Heap heap, Collection<JavaClass> arrayClasses) {
+        ArraysList arrays = collectArrays(arrayClasses);
+
+        if (arrays.size == 0) {
+            return new DuplicateArrays(heap, new ArrayList<>());
+        }
+        long[] hashes = computeHashes(arrays);
+
+        return new DuplicateArrays(heap, computeGroups(heap, arrays, hashes));
+    }
+
+    /**
+     * returns groups of arrays with identical content, ordered by wasted bytes.
+     * <br>
+     * Speed: fast
+     * @return groups of duplicated arrays
+     */
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * returns number of bytes which would be saved if all the duplicated arrays
+     * were shared.
+     * <br>
+     * Speed: fast
+     * @return total wasted bytes
+     */
+    public long getWastedBytes() {
+        return wastedBytes;
+    }
+
+    /**
+     * returns fields referencing duplicated arrays, ordered by wasted bytes.
+     * <br>
+     * Speed: slow for the first time, computes references if not already computed
+     * @return owners of duplicated arrays
+     */
+    public synchronized List<Owner> getOwners() {
+        if (owners == null) {
+            owners = Collections.unmodifiableList(computeOwners());
+        }
+        return owners;
+    }
+
+    private List<Owner> computeOwners() {
+        Map<Field, Owner> fieldOwners = new HashMap<>();
+        Owner noOwner = new Owner(null);
+        long processed = 0;
+        long total = 0;
+
+        for (Group group : groups) {
+            total += group.getCount();
+        }
+        HeapProgress.progressStart();
+        for (Group group : groups) {
+            long wasted = group.getWastedBytes();
+            int count = group.getCount();
+
+            for (long instanceId : group.instanceIds) {
+                Instance array = heap.getInstanceByID(instanceId);
+                Field field = getOwnerField(array);
+                Owner owner = noOwner;
+
+                if (field != null) {
+                    owner = fieldOwners.get(field);
+                    if (owner == null) {
+                        owner = new Owner(field);
+                        fieldOwners.put(field, owner);
+                    }
+                }
+                owner.add(instanceId, (double)wasted / count);
+                HeapProgress.progress(processed++, 0, processed, total);
+            }
+        }
+        HeapProgress.progressFinish();
+        List<Owner> ownersList = new ArrayList<>(fieldOwners.values());
+
+        if (noOwner.getCount() > 0) {
+            ownersList.add(noOwner);
+        }
+        Collections.sort(ownersList, new Comparator<Owner>() {
+            public int compare(Owner o1, Owner o2) {
+                return Long.compare(o2.getWastedBytes(), o1.getWastedBytes());
+            }
+        });
+        return ownersList;
+    }
+
+    private static Field getOwnerField(Instance array) {
+        Iterator<Value> references = array.getReferences().iterator();
+
+        if (references.hasNext()) {
+            Value reference = references.next();
+            Instance referrer = reference.getDefiningInstance();
+
+            if (referrer != null && STRING_CLASS.equals(referrer.getJavaClass().getName())) {
+                // owner of String value is the field referencing the String
+                Iterator<Value> stringReferences = referrer.getReferences().iterator();
+
+                if (stringReferences.hasNext()) {
+                    reference = stringReferences.next();
+                }
+            }
+            if (reference instanceof FieldValue) {
+                return ((FieldValue)reference).getField();
+            }
+        }
+        return null;
+    }
+
+    private static ArraysList collectArrays(Collection<JavaClass> arrayClasses) {
+        ArraysList arrays = new ArraysList();
+
+        for (JavaClass jcls : arrayClasses) {
+            arrays.ensureCapacity(arrays.size + jcls.getInstancesCount());
+        }
+        HeapProgress.progressStart();
+        for (JavaClass jcls : arrayClasses) {
+            Iterator<Instance> instances = jcls.getInstancesIterator();
+
+            while (instances.hasNext()) {
+                Instance instance = instances.next();
+
+                if (instance instanceof PrimitiveArrayDump) {
+                    PrimitiveArrayDump array = (PrimitiveArrayDump)instance;
+                    int length = array.getLength();
+
+                    if (length > 0) {
+                        HprofHeap hprofHeap = array.dumpClass.getHprof();
+                        long byteLength = (long)length * hprofHeap.getValueSize(array.getType());
+
+                        arrays.buffer = array.dumpClass.getHprofBuffer();
+                        arrays.add(array.fileOffset, array.getArrayStartOffset(), byteLength, array.getType());
+                    }
+                }
+                HeapProgress.progress(arrays.size, 0, arrays.size, arrays.offsets.length);
+            }
+        }
+        HeapProgress.progressFinish();
+        return arrays;
+    }
+
+    private static synchronized ThreadPoolExecutor getHashingExecutor() {
+        if (hashingExecutor == null) {
+            ThreadFactory factory = new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "DuplicateArrays hashing");   // NOI18N
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            hashingExecutor = new ThreadPoolExecutor(HASHING_THREADS, HASHING_THREADS, 30, TimeUnit.SECONDS,
+                                                     new LinkedBlockingQueue<Runnable>(), factory);
+            hashingExecutor.allowCoreThreadTimeOut(true);
+        }
+        return hashingExecutor;
+    }
+
+    private static long[] computeHashes(final ArraysList arrays) {
+        final long[] hashes = new long[arrays.size];
+        ThreadPoolExecutor executor = getHashingExecutor();
+        List<Future<?>> results = new ArrayList<>();
+        boolean finished = false;
+
+        try {
+            for (int start = 0; start < arrays.size; start += CHUNK_SIZE) {
+                final int from = start;
+                final int to = Math.min(arrays.size, start + CHUNK_SIZE);
+
+                results.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        for (int i = from; i < to; i++) {
+                            hashes[i] = hash(arrays.buffer, arrays.dataOffsets[i], arrays.lengths[i], arrays.types[i]);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                results.get(i).get();
+                HeapProgress.progress(i, results.size());
+            }
+            finished = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            if (!finished) {
+                // the pool is shared, only drop the chunks of this computation
+                for (Future<?> result : results) {
+                    result.cancel(true);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private static long hash(HprofByteBuffer buffer, long offset, long length, byte type) {
+        long hash = (FNV_OFFSET ^ type) * FNV_PRIME ^ length;
+        long end = offset + length;
+        long i = offset;
+
+        for (; i + 8 <= end; i += 8) {
+            hash ^= buffer.getLong(i);
+            hash *= FNV_PRIME;
+        }
+        for (; i < end; i++) {
+            hash ^= buffer.get(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static List<Group> computeGroups(Heap heap, ArraysList arrays, long[] hashes) {
+        long[] sortedHashes = hashes.clone();
+        List<Group> groups = new ArrayList<>();
+
+        // distinct hashes occurring more than once, sorted
+        Arrays.sort(sortedHashes);
+        int candidatesCount = 0;
+
+        for (int i = 1; i < sortedHashes.length; i++) {
+            if (sortedHashes[i] == sortedHashes[i - 1]
+                && (candidatesCount == 0 || sortedHashes[candidatesCount - 1] != sortedHashes[i])) {
+                sortedHashes[candidatesCount++] = sortedHashes[i];
+            }
+        }
+        long[] candidates = Arrays.copyOf(sortedHashes, candidatesCount);
+
+        sortedHashes = null;
+
+        // arrays of each candidate hash stored consecutively in items, starting at starts[candidate]
+        int[] starts = new int[candidatesCount + 1];
+
+        for (long hash : hashes) {
+            int candidate = Arrays.binarySearch(candidates, hash);
+
+            if (candidate >= 0) {
+                starts[candidate + 1]++;
+            }
+        }
+        for (int i = 0; i < candidatesCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] items = new int[starts[candidatesCount]];
+        int[] positions = Arrays.copyOf(starts, candidatesCount);
+
+        for (int i = 0; i < hashes.length; i++) {
+            int candidate = Arrays.binarySearch(candidates, hashes[i]);
+
+            if (candidate >= 0) {
+                items[positions[candidate]++] = i;
+            }
+        }
+        positions = null;
+
+        int[] same = new int[0];
+
+        for (int candidate = 0; candidate < candidatesCount; candidate++) {
+            int from = starts[candidate];
+            int to = starts[candidate + 1];
+
+            // resolve hash collisions by comparing contents, arrays different from the
+            // first one are moved to the end of the range and processed in the next round
+            while (to - from > 1) {
+                int first = items[from];
+                int sameCount = 0;
+                int different = from;
+
+                if (same.length < to - from) {
+                    same = new int[to - from];
+                }
+                for (int i = from; i < to; i++) {
+                    int item = items[i];
+
+                    if (equalContents(arrays, first, item)) {
+                        same[sameCount++] = item;
+                    } else {
+                        items[different++] = item;
+                    }
+                }
+                if (sameCount > 1) {
+                    groups.add(createGroup(heap, arrays, same, sameCount));
+                }
+                to = different;
+            }
+        }
+        Collections.sort(groups, new Comparator<Group>() {
+            public int compare(Group g1, Group g2) {
+                return Long.compare(g2.getWastedBytes(), g1.getWastedBytes());
+            }
+        });
+        return groups;
+    }
+
+    private static boolean equalContents(ArraysList arrays, int index1, int index2) {
+        if (index1 == index2) {
+            return true;
+        }
+        long length = arrays.lengths[index1];
+
+        // byte[16] and char[8] with the same bytes are not duplicates
+        if (length != arrays.lengths[index2] || arrays.types[index1] != arrays.types[index2]) {
+            return false;
+        }
+        HprofByteBuffer buffer = arrays.buffer;
+        long offset1 = arrays.dataOffsets[index1];
+        long offset2 = arrays.dataOffsets[index2];
+
+        for (long i = 0; i < length; i++) {
+            if (buffer.get(offset1 + i) != buffer.get(offset2 + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Group createGroup(Heap heap, ArraysList arrays, int[] items, int count) {
+        HprofByteBuffer buffer = arrays.buffer;
+        long[] instanceIds = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            instanceIds[i] = buffer.getID(arrays.offsets[items[i]] + 1);
+        }
+        Instance first = heap.getInstanceByID(instanceIds[0]);
+
+        return new Group(first.getJavaClass(), ((PrimitiveArrayInstance)first).getLength(), first.getSize(), instanceIds);
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------------------------------------
+
+    /**
+     * group of arrays with identical content
+     */
+    public static final class Group {
+
+        private final JavaClass arrayClass;
+        private final int length;
+        private final long instanceSize;
+        private final long[] instanceIds;
+
+        private Group(JavaClass arrayClass, int length, long instanceSize, long[] instanceIds) {
+            this.arrayClass = arrayClass;
+            this.length = length;
+            this.instanceSize = instanceSize;
+            this.instanceIds = instanceIds;
+        }
+
+        public JavaClass getArrayClass() {
+            return arrayClass;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public long getInstanceSize() {
+            return instanceSize;
+        }
+
+        public int getCount() {
+            return instanceIds.length;
+        }
+
+        public long getWastedBytes() {
+            return instanceSize * (instanceIds.length - 1);
+        }
+
+        public long[] getInstanceIds() {
+            return instanceIds.clone();
+        }
+    }
+
+    /**
+     * field referencing duplicated arrays
+     */
+    public static final class Owner {
+
+        private final Field field;
+        private long[] instanceIds = new long[4];
+        private int count;
+        private double wastedBytes;
+
+        private Owner(Field field) {
+            this.field = field;
+        }
+
+        /**
+         * returns the owning field.
+         * @return owning field or <CODE>null</CODE> for unreferenced arrays
+         */
+        public Field getField() {
+            return field;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getWastedBytes() {
+            return Math.round(wastedBytes);
+        }
+
+        public long[] getInstanceIds() {
+            return Arrays.copyOf(instanceIds, count);
+        }
+
+        private void add(long instanceId, double wasted) {
+            if (count == instanceIds.length) {
+                instanceIds = Arrays.copyOf(instanceIds, count * 2);
+            }
+            instanceIds[count++] = instanceId;
+            wastedBytes += wasted;
+        }
+    }
+
+    private static final class ArraysList {
+
+        private HprofByteBuffer buffer;
+        private long[] offsets = new long[0];
+        private long[] dataOffsets = new long[0];
+        private long[] lengths = new long[0];
+        private byte[] types = new byte[0];
+        private int size;
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > offsets.length) {
+                offsets = Arrays.copyOf(offsets, capacity);
+                dataOffsets = Arrays.copyOf(dataOffsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                types = Arrays.copyOf(types, capacity);
+            }
+        }
+
+        private void add(long offset, long dataOffset, long length, byte type) {
+            if (size == offsets.length) {
+                ensureCapacity(Math.max(16, size * 2));
+            }
+            offsets[size] = offset;
+            dataOffsets[size] = dataOffset;
+            lengths[size] = length;
+            types[size] = type;
+            size++;
+        }
+    }
+}
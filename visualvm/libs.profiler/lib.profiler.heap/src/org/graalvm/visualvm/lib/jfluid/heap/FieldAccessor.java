@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+
+/**
+ * Precompiled access to an instance field. The field is resolved once for
+ * the given class, values are then read directly from the heap dump without
+ * creating {@link FieldValue}s. The accessor can be used for instances of
+ * subclasses too, the field is resolved once for each such class.
+ * If the same field name is declared in more classes of the hierarchy, the
+ * field declared in the top-most class is used, same as by
+ * {@link Instance#getValueOfField(String)}.
+ *
+ * @author Tomas Hurka
+ */
+public final class FieldAccessor {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    // marks a missing field in ClassDump cache
+    static final FieldAccessor NONE = new FieldAccessor(null, null, null, 0);
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final ClassDump classDump;
+    private final String name;
+    private final HprofField field;
+    private final int offset;
+    private final byte type;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    private FieldAccessor(ClassDump cls, String fieldName, HprofField f, int fieldOffset) {
+        classDump = cls;
+        name = fieldName;
+        field = f;
+        offset = fieldOffset;
+        type = f == null ? 0 : f.getValueType();
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns accessor of instance field <code>fieldName</code> of class <code>jcls</code>.
+     * @param jcls class declaring or inheriting the field
+     * @param fieldName name of the field
+     * @return accessor for the field or <code>null</code> if the class has no such instance field
+     */
+    public static FieldAccessor get(JavaClass jcls, String fieldName) {
+        if (jcls instanceof ClassDump) {
+            FieldAccessor accessor = ((ClassDump) jcls).getFieldAccessor(fieldName);
+            return accessor == NONE ? null : accessor;
+        }
+        return null;
+    }
+
+    /**
+     * Returns accessor of instance field <code>fieldName</code> of the class of <code>instance</code>.
+     * @param instance instance of the class declaring or inheriting the field
+     * @param fieldName name of the field
+     * @return accessor for the field or <code>null</code> if the class has no such instance field
+     */
+    public static FieldAccessor get(Instance instance, String fieldName) {
+        return get(instance.getJavaClass(), fieldName);
+    }
+
+    static FieldAccessor create(ClassDump cls, String fieldName) {
+        int idSize = cls.getHprofBuffer().getIDSize();
+        int fieldOffset = 1 + idSize + 4 + idSize + 4;
+        HprofField found = null;
+        int foundOffset = 0;
+
+        for (Field f : cls.getAllInstanceFields()) {
+            HprofField field = (HprofField) f;
+
+            if (field.getName().equals(fieldName)) {
+                // the last one wins, see InstanceDump.getValueOfField()
+                found = field;
+                foundOffset = fieldOffset;
+            }
+            fieldOffset += field.getValueSize();
+        }
+        if (found == null) {
+            return NONE;
+        }
+        return new FieldAccessor(cls, fieldName, found, foundOffset);
+    }
+
+    /**
+     * @return the accessed field
+     */
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return type of the accessed field
+     */
+    public Type getType() {
+        return field.getType();
+    }
+
+    /**
+     * @return <code>true</code> if the field is an object reference
+     */
+    public boolean isObject() {
+        return type == HprofHeap.OBJECT;
+    }
+
+    public boolean getBoolean(Instance instance) {
+        return getByte(instance, HprofHeap.BOOLEAN) != 0;
+    }
+
+    public byte getByte(Instance instance) {
+        return getByte(instance, HprofHeap.BYTE);
+    }
+
+    public char getChar(Instance instance) {
+        FieldAccessor accessor = resolve(instance, HprofHeap.CHAR);
+        return accessor == null ? ((Character) getFallbackValue(instance)).charValue()
+                                : accessor.getBuffer().getChar(accessor.getPosition(instance));
+    }
+
+    public short getShort(Instance instance) {
+        FieldAccessor accessor = resolve(instance, HprofHeap.SHORT);
+        return accessor == null ? ((Short) getFallbackValue(instance)).shortValue()
+                                : accessor.getBuffer().getShort(accessor.getPosition(instance));
+    }
+
+    public int getInt(Instance instance) {
+        FieldAccessor accessor = resolve(instance, HprofHeap.INT);
+        return accessor == null ? ((Integer) getFallbackValue(instance)).intValue()
+                                : accessor.getBuffer().getInt(accessor.getPosition(instance));
+    }
+
+    public long getLong(Instance instance) {
+        FieldAccessor accessor = resolve(instance, HprofHeap.LONG);
+        return accessor == null ? ((Long) getFallbackValue(instance)).longValue()
+                                : accessor.getBuffer().getLong(accessor.getPosition(instance));
+    }
+
+    public float getFloat(Instance instance) {
+        FieldAccessor accessor = resolve(instance, HprofHeap.FLOAT);
+        return accessor == null ? ((Float) getFallbackValue(instance)).floatValue()
+                                : accessor.getBuffer().getFloat(accessor.getPosition(instance));
+    }
+
+    public double getDouble(Instance instance) {
+        FieldAccessor accessor = resolve(instance, HprofHeap.DOUBLE);
+        return accessor == null ? ((Double) getFallbackValue(instance)).doubleValue()
+                                : accessor.getBuffer().getDouble(accessor.getPosition(instance));
+    }
+
+    /**
+     * Returns the id of the referenced instance.
+     * @param instance instance to read the field from
+     * @return instance id or 0 for <code>null</code> reference
+     */
+    public long getObjectId(Instance instance) {
+        FieldAccessor accessor = resolve(instance, HprofHeap.OBJECT);
+        if (accessor == null) {
+            Instance value = (Instance) getFallbackValue(instance);
+            return value == null ? 0 : value.getInstanceId();
+        }
+        return accessor.getBuffer().getID(accessor.getPosition(instance));
+    }
+
+    /**
+     * Returns the referenced instance.
+     * @param instance instance to read the field from
+     * @return referenced instance or <code>null</code>
+     */
+    public Instance getInstance(Instance instance) {
+        FieldAccessor accessor = resolve(instance, HprofHeap.OBJECT);
+        if (accessor == null) {
+            return (Instance) getFallbackValue(instance);
+        }
+        long id = accessor.getBuffer().getID(accessor.getPosition(instance));
+        return id == 0 ? null : accessor.classDump.getHprof().getInstanceByID(id);
+    }
+
+    /**
+     * Returns value of the field, same as {@link Instance#getValueOfField(String)}.
+     * @param instance instance to read the field from
+     * @return {@link Instance} for object fields, boxed value for primitive fields
+     */
+    public Object getValue(Instance instance) {
+        FieldAccessor accessor = resolve(instance, -1);
+        if (accessor == null) {
+            return getFallbackValue(instance);
+        }
+        return accessor.getValue((InstanceDump) instance);
+    }
+
+    Object getValue(InstanceDump instance) {
+        if (type == HprofHeap.OBJECT) {
+            long id = getBuffer().getID(getPosition(instance));
+            return id == 0 ? null : classDump.getHprof().getInstanceByID(id);
+        }
+        return HprofInstanceValue.getTypeValue(getBuffer(), getPosition(instance), type);
+    }
+
+    public String toString() {
+        return classDump.getName() + "." + name;   // NOI18N
+    }
+
+    private byte getByte(Instance instance, int expectedType) {
+        FieldAccessor accessor = resolve(instance, expectedType);
+        if (accessor == null) {
+            Object value = getFallbackValue(instance);
+            if (value instanceof Boolean) {
+                return (byte) (((Boolean) value).booleanValue() ? 1 : 0);
+            }
+            return ((Byte) value).byteValue();
+        }
+        return accessor.getBuffer().get(accessor.getPosition(instance));
+    }
+
+    // returns accessor for the class of the instance, null if the instance is not an InstanceDump
+    private FieldAccessor resolve(Instance instance, int expectedType) {
+        if (!(instance instanceof InstanceDump)) {
+            return null;
+        }
+        ClassDump instanceClass = ((InstanceDump) instance).dumpClass;
+        FieldAccessor accessor = this;
+
+        if (instanceClass != classDump) {
+            accessor = instanceClass.getFieldAccessor(name);
+            if (accessor == NONE) {
+                throw new IllegalArgumentException("Class " + instanceClass.getName() + " has no field " + name); // NOI18N
+            }
+        }
+        if (expectedType != -1 && accessor.type != expectedType) {
+            throw new IllegalArgumentException("Field " + accessor + " is " + accessor.field.getType().getName()); // NOI18N
+        }
+        return accessor;
+    }
+
+    private Object getFallbackValue(Instance instance) {
+        return instance.getValueOfField(name);
+    }
+
+    private long getPosition(Instance instance) {
+        return ((InstanceDump) instance).fileOffset + offset;
+    }
+
+    private HprofByteBuffer getBuffer() {
+        return classDump.getHprofBuffer();
+    }
+}
@@ -103,7 +103,7 @@ class HprofHeap implements Heap {
     private static final boolean DEBUG = false;
 
     private static final String SNAPSHOT_ID = "NBPHD";
-    private static final int SNAPSHOT_VERSION  = 4;
+    private static final int SNAPSHOT_VERSION  = 6;
     private static final String OS_PROP = "os.name";
     
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
@@ -530,6 +530,7 @@ class HprofHeap implements Heap {
         long[] offset = new long[] { allInstanceDumpBounds.startOffset };
         Map<Long,JavaClass> classIdToClassMap = classDumpBounds.getClassIdToClassMap();
 
+        classDumpBounds.createInstanceOffsets();
         for (long counter = 0; offset[0] < allInstanceDumpBounds.endOffset; counter++) {
             int classIdOffset = 0;
             int instanceIdOffset = 0;
@@ -564,6 +565,7 @@ class HprofHeap implements Heap {
                 classDump.registerInstance(start);
                 instanceEntry.setIndex(classDump.getInstancesCount());
                 classDumpBounds.addInstanceSize(classDump, tag, start);
+                classDumpBounds.addInstanceOffset(classDump, start);
             }
             HeapProgress.progress(counter,allInstanceDumpBounds.startOffset,start,allInstanceDumpBounds.endOffset);
         }
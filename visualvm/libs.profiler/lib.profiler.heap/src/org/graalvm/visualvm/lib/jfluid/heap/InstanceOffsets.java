@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File offsets of instances grouped by class, filled during the single scan
+ * of instance dumps when the number of instances per class is not known yet.
+ * Each class allocates blocks of slots, the blocks double in size up to
+ * MAX_BLOCK_SLOTS. Slots are stored in cache files (pages), which double in
+ * size as well.
+ *
+ * @author Tomas Hurka
+ */
+class InstanceOffsets {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final int FIRST_BLOCK_SLOTS = 8;
+    private static final int DOUBLING_BLOCKS = 13;
+    private static final int MAX_BLOCK_SLOTS = FIRST_BLOCK_SLOTS << DOUBLING_BLOCKS;
+    private static final long FIRST_PAGE_SLOTS = 1L << 20;
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final CacheDirectory cacheDirectory;
+    private final List<AbstractLongMap.Data> pages;
+    private long capacity;
+    private long allocated;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    InstanceOffsets(CacheDirectory cacheDir) {
+        cacheDirectory = cacheDir;
+        pages = new ArrayList<>();
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    static int getBlockSize(int block) {
+        return block < DOUBLING_BLOCKS ? FIRST_BLOCK_SLOTS << block : MAX_BLOCK_SLOTS;
+    }
+
+    /**
+     * returns first slot of a new block of getBlockSize(block) slots
+     */
+    long allocateBlock(int block) throws IOException {
+        int size = getBlockSize(block);
+
+        while (allocated + size > capacity) {
+            long pageSlots = FIRST_PAGE_SLOTS << pages.size();
+
+            pages.add(cacheDirectory.createDumpBuffer(pageSlots * 8, 8));
+            capacity += pageSlots;
+        }
+        long start = allocated;
+        allocated += size;
+        return start;
+    }
+
+    void putOffset(long slot, long offset) {
+        int page = getPage(slot);
+
+        pages.get(page).putLong((slot - getPageStart(page)) * 8, offset);
+    }
+
+    long getOffset(long slot) {
+        int page = getPage(slot);
+
+        return pages.get(page).getLong((slot - getPageStart(page)) * 8);
+    }
+
+    void delete() {
+        for (AbstractLongMap.Data page : pages) {
+            page.deleteFile();
+        }
+        pages.clear();
+    }
+
+    // page p holds slots [FIRST_PAGE_SLOTS * (2^p - 1), FIRST_PAGE_SLOTS * (2^(p+1) - 1))
+    private static int getPage(long slot) {
+        return 63 - Long.numberOfLeadingZeros(slot / FIRST_PAGE_SLOTS + 1);
+    }
+
+    private static long getPageStart(int page) {
+        return FIRST_PAGE_SLOTS * ((1L << page) - 1);
+    }
+
+    //---- Serialization support
+    void writeToStream(DataOutputStream out) throws IOException {
+        out.writeLong(allocated);
+        out.writeInt(pages.size());
+        for (AbstractLongMap.Data page : pages) {
+            page.writeToStream(out);
+        }
+    }
+
+    InstanceOffsets(DataInputStream dis, CacheDirectory cacheDir) throws IOException {
+        this(cacheDir);
+        allocated = dis.readLong();
+        int pagesCount = dis.readInt();
+        for (int i = 0; i < pagesCount; i++) {
+            pages.add(AbstractLongMap.Data.readFromStream(dis, cacheDir, 8));
+            capacity += FIRST_PAGE_SLOTS << i;
+        }
+    }
+}
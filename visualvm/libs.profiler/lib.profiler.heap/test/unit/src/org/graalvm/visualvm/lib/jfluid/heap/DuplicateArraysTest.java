@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.lib.jfluid.heap;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of DuplicateArrays on a generated heap dump.
+ *
+ * @author Tomas Hurka
+ */
+public class DuplicateArraysTest {
+
+    private static final int STRING = 0x01;
+    private static final int LOAD_CLASS = 0x02;
+    private static final int HEAP_DUMP = 0x0C;
+    private static final int CLASS_DUMP = 0x20;
+    private static final int PRIMITIVE_ARRAY_DUMP = 0x23;
+
+    private File dumpFile;
+
+    @Before
+    public void setUp() throws IOException {
+        dumpFile = File.createTempFile("duplicates", ".hprof");  // NOI18N
+    }
+
+    @After
+    public void tearDown() {
+        delete(new File(dumpFile.getPath() + ".hwcache"));   // NOI18N
+        dumpFile.delete();
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Arrays of different element types with the same bytes are not duplicates.
+     */
+    @Test
+    public void testMixedArrayTypes() throws IOException {
+        System.out.println("mixedArrayTypes");
+        HeapDumpWriter writer = new HeapDumpWriter();
+        writer.addClass(1, "[B");   // NOI18N
+        writer.addClass(2, "[C");   // NOI18N
+        // 16 zero bytes each
+        writer.addArray(101, HprofHeap.BYTE, new byte[16]);
+        writer.addArray(102, HprofHeap.BYTE, new byte[16]);
+        writer.addArray(201, HprofHeap.CHAR, new byte[16]);
+        writer.addArray(202, HprofHeap.CHAR, new byte[16]);
+        writer.addArray(203, HprofHeap.CHAR, new byte[16]);
+        // unique byte[16]
+        writer.addArray(103, HprofHeap.BYTE, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+        writer.write(dumpFile);
+
+        Heap heap = HeapFactory.createHeap(dumpFile);
+        DuplicateArrays result = DuplicateArrays.compute(heap);
+        List<DuplicateArrays.Group> groups = result.getGroups();
+        assertEquals(2, groups.size());
+
+        DuplicateArrays.Group chars = groups.get(0);
+        assertEquals("char[]", chars.getArrayClass().getName());   // NOI18N
+        assertEquals(8, chars.getLength());
+        assertEquals(3, chars.getCount());
+        assertGroupClass(heap, chars);
+
+        DuplicateArrays.Group bytes = groups.get(1);
+        assertEquals("byte[]", bytes.getArrayClass().getName());   // NOI18N
+        assertEquals(16, bytes.getLength());
+        assertEquals(2, bytes.getCount());
+        assertGroupClass(heap, bytes);
+
+        assertEquals(chars.getWastedBytes() + bytes.getWastedBytes(), result.getWastedBytes());
+    }
+
+    private static void assertGroupClass(Heap heap, DuplicateArrays.Group group) {
+        for (long instanceId : group.getInstanceIds()) {
+            assertEquals(group.getArrayClass(), heap.getInstanceByID(instanceId).getJavaClass());
+        }
+    }
+
+    // Writes a minimal HPROF file with 4 byte identifiers
+    private static final class HeapDumpWriter {
+
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream heapDump = new ByteArrayOutputStream();
+        private final DataOutputStream recordsOut = new DataOutputStream(records);
+        private final DataOutputStream heapDumpOut = new DataOutputStream(heapDump);
+        private int serial;
+
+        private void addClass(int classId, String name) throws IOException {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            int nameId = 1000 + classId;
+
+            writeRecordHeader(recordsOut, STRING, 4 + nameBytes.length);
+            recordsOut.writeInt(nameId);
+            recordsOut.write(nameBytes);
+
+            writeRecordHeader(recordsOut, LOAD_CLASS, 16);
+            recordsOut.writeInt(++serial);
+            recordsOut.writeInt(classId);
+            recordsOut.writeInt(0);
+            recordsOut.writeInt(nameId);
+
+            heapDumpOut.writeByte(CLASS_DUMP);
+            heapDumpOut.writeInt(classId);
+            heapDumpOut.writeInt(0);
+            for (int i = 0; i < 6; i++) {
+                heapDumpOut.writeInt(0);   // super, loader, signers, domain, reserved
+            }
+            heapDumpOut.writeInt(0);       // instance size
+            heapDumpOut.writeShort(0);     // constant pool
+            heapDumpOut.writeShort(0);     // static fields
+            heapDumpOut.writeShort(0);     // instance fields
+        }
+
+        private void addArray(int arrayId, int type, byte[] data) throws IOException {
+            int elementSize = type == HprofHeap.CHAR ? 2 : 1;
+
+            heapDumpOut.writeByte(PRIMITIVE_ARRAY_DUMP);
+            heapDumpOut.writeInt(arrayId);
+            heapDumpOut.writeInt(0);
+            heapDumpOut.writeInt(data.length / elementSize);
+            heapDumpOut.writeByte(type);
+            heapDumpOut.write(data);
+        }
+
+        private void write(File file) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                out.write("JAVA PROFILE 1.0.2".getBytes(StandardCharsets.US_ASCII));   // NOI18N
+                out.writeByte(0);
+                out.writeInt(4);
+                out.writeLong(System.currentTimeMillis());
+                recordsOut.flush();
+                out.write(records.toByteArray());
+                heapDumpOut.flush();
+                writeRecordHeader(out, HEAP_DUMP, heapDump.size());
+                out.write(heapDump.toByteArray());
+            }
+        }
+
+        private static void writeRecordHeader(DataOutputStream out, int tag, int length) throws IOException {
+            out.writeByte(tag);
+            out.writeInt(0);
+            out.writeInt(length);
+        }
+    }
+}
@@ -361,6 +361,24 @@ public class HeapTest {
         outFile.delete();
     }
 
+    /**
+     * Test of DuplicateArrays.
+     */
+    @Test
+    public void testDuplicateArrays() {
+        System.out.println("duplicateArrays");
+        DuplicateArrays result = DuplicateArrays.compute(heap);
+        assertEquals(30, result.getGroups().size());
+        assertEquals(35648, result.getWastedBytes());
+        DuplicateArrays.Group group = result.getGroups().get(0);
+        assertEquals("byte[]", group.getArrayClass().getName());
+        assertEquals(8192, group.getLength());
+        assertEquals(3, group.getCount());
+        DuplicateArrays.Owner owner = result.getOwners().get(0);
+        assertEquals("java.io.BufferedWriter", owner.getField().getDeclaringClass().getName());
+        assertEquals("cb", owner.getField().getName());
+    }
+
     private void compareTextFiles(File goledFile, File outFile) throws IOException {
         InputStreamReader goldenIsr = new InputStreamReader(new FileInputStream(goledFile),"UTF-8");
         LineNumberReader goldenReader = new LineNumberReader(goldenIsr);
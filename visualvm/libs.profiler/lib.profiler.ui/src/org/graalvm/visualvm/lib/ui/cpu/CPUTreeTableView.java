@@ -30,7 +30,9 @@ import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.event.ActionEvent;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import javax.swing.Box;
 import javax.swing.JCheckBoxMenuItem;
@@ -82,6 +84,10 @@ abstract class CPUTreeTableView extends CPUView {
     private boolean hitsVisible = false;
     private boolean invocationsVisible = true;
     
+    private int lastAggregation = -1;
+    private Set<Integer> lastSelectedThreads;
+    private boolean lastMergeThreads;
+    
     private boolean filterTopMethods = true;
     private boolean filterCallerMethods = false;
     private boolean searchTopMethods = true;
@@ -106,9 +112,26 @@ abstract class CPUTreeTableView extends CPUView {
         renderers[1].setDiffMode(_diff);
         renderers[2].setDiffMode(_diff);
         if (treeTableModel != null) {
-            treeTableModel.setRoot(newData == null ? PrestimeCPUCCTNode.EMPTY :
+            PrestimeCPUCCTNode newRoot = newData == null ? PrestimeCPUCCTNode.EMPTY :
                                    !reverse ? newData.getRootNode(aggregation, selectedThreads, mergeThreads):
-                                   newData.getReverseRootNode(aggregation, selectedThreads, mergeThreads));
+                                   newData.getReverseRootNode(aggregation, selectedThreads, mergeThreads);
+            
+            TreeNode oldRoot = treeTableModel.getRoot();
+            boolean sameView = aggregation == lastAggregation && mergeThreads == lastMergeThreads &&
+                               Objects.equals(selectedThreads == null ? null : new HashSet(selectedThreads), lastSelectedThreads);
+            
+            if (!reverse && !_diff && !structureChange && twoTimeStamps == _twoTimeStamps && sameView &&
+                newRoot != PrestimeCPUCCTNode.EMPTY && oldRoot != PrestimeCPUCCTNode.EMPTY &&
+                oldRoot instanceof PrestimeCPUCCTNode && supportsInPlaceUpdates()) {
+                // Live results, patch the displayed tree to keep its nodes, expansion and selection
+                if (((PrestimeCPUCCTNode)oldRoot).updateFrom(newRoot)) treeTableModel.structureChanged();
+            } else {
+                treeTableModel.setRoot(newRoot);
+            }
+            
+            lastAggregation = newData == null ? -1 : aggregation;
+            lastSelectedThreads = selectedThreads == null ? null : new HashSet(selectedThreads);
+            lastMergeThreads = mergeThreads;
         }
         if (structureChange) {
             // Resolve Hits/Invocations column
@@ -176,6 +199,11 @@ abstract class CPUTreeTableView extends CPUView {
         return HideableBarRenderer.BarDiffMode.MODE_BAR_DIFF;
     }
     
+    // Live views update the displayed tree from newer results instead of replacing it
+    boolean supportsInPlaceUpdates() {
+        return false;
+    }
+    
     private void initUI() {
         treeTableModel = new CPUTreeTableModel(PrestimeCPUCCTNode.EMPTY);
         
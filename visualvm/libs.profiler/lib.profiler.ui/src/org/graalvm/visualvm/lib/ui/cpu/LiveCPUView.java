@@ -257,6 +257,7 @@ public abstract class LiveCPUView extends JPanel {
             protected void popupHidden()  { LiveCPUView.this.popupHidden(); }
             protected boolean hasBottomFilterFindMargin() { return true; }
             HideableBarRenderer.BarDiffMode barDiffMode() { return HideableBarRenderer.BarDiffMode.MODE_BAR_NORMAL; }
+            boolean supportsInPlaceUpdates() { return true; }
         };
         forwardCallsView.notifyOnFocus(new Runnable() {
             public void run() { lastFocused = forwardCallsView; }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 1997, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 1997, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -62,6 +62,7 @@
 #define BASE_ADDRESS_MASK (~OFFSET_MASK)
 
 #define MAX_FRAMES 16384
+#define LOCAL_FRAMES 128
 
 #define PACKEDARR_ITEMS 4
 
@@ -70,6 +71,21 @@ static jint *_stack_id_buffer = NULL;
 static jclass threadType = NULL;
 static jclass intArrType = NULL;
 static long long base_addresses[NO_OF_BASE_ADDRESS]={-1LL,-1LL,-1LL,-1LL};
+static jrawMonitorID base_addresses_lock = NULL;
+
+static void register_base_address(unsigned int i, long long base_address) {
+    /* getCurrentStackFrameIds is called concurrently, two threads must not register different bases in one slot */
+    if (base_addresses_lock != NULL) {
+        (*_jvmti)->RawMonitorEnter(_jvmti, base_addresses_lock);
+    }
+    if (base_addresses[i] == -1LL) {
+        base_addresses[i] = base_address;
+        //fprintf(stderr,"Profiler Agent: Registering new base %llx\n",base_address);
+    }
+    if (base_addresses_lock != NULL) {
+        (*_jvmti)->RawMonitorExit(_jvmti, base_addresses_lock);
+    }
+}
 
 static jint convert_jmethodID_to_jint(jmethodID jmethod) {
     if (NEEDS_CONVERSION) {
@@ -78,8 +94,7 @@ static jint convert_jmethodID_to_jint(jmethodID jmethod) {
 
         for (i=0;i<NO_OF_BASE_ADDRESS;i++) {
             if (base_addresses[i] == -1LL) {
-                base_addresses[i] = base_address;
-                //fprintf(stderr,"Profiler Agent: Registering new base %llx\n",base_address);
+                register_base_address(i, base_address);
             }
             if (base_addresses[i]==base_address) {
                 jint offset = (long long)jmethod&OFFSET_MASK;
@@ -135,6 +150,9 @@ JNIEXPORT void JNICALL Java_org_graalvm_visualvm_lib_jfluid_server_system_Stacks
     if (_stack_frames_buffer != NULL) {
         Java_org_graalvm_visualvm_lib_jfluid_server_system_Stacks_clearNativeStackFrameBuffer(env, clz);
     }
+    if (base_addresses_lock == NULL) {
+        (*_jvmti)->CreateRawMonitor(_jvmti, "_profiler_base_addresses_lock", &base_addresses_lock);
+    }
     _stack_frames_buffer = calloc(sizeInFrames, sizeof(jvmtiFrameInfo));
     _stack_id_buffer = calloc(sizeInFrames, sizeof(jint));
 }
@@ -167,23 +185,54 @@ JNIEXPORT void JNICALL Java_org_graalvm_visualvm_lib_jfluid_server_system_Stacks
 JNIEXPORT jint JNICALL Java_org_graalvm_visualvm_lib_jfluid_server_system_Stacks_getCurrentStackFrameIds
     (JNIEnv *env, jclass clz, jthread jni_thread, jint depth, jintArray ret)
 {
-    jint i, count;
+    /* Uses buffers of the calling thread, so that several threads can take their stacks concurrently */
+    jvmtiFrameInfo local_frames[LOCAL_FRAMES];
+    jint local_ids[LOCAL_FRAMES];
+    jvmtiFrameInfo *frames = local_frames;
+    jint *ids = local_ids;
+    jint i, count = 0;
+
     if (_stack_frames_buffer == NULL) {
         /* Can happen if profiling stopped concurrently */
         return 0;
     }
+    if (depth > LOCAL_FRAMES) {
+        frames = malloc(depth * sizeof(jvmtiFrameInfo));
+        ids = malloc(depth * sizeof(jint));
+        if (frames == NULL || ids == NULL) {
+            free(frames);
+            free(ids);
+            return 0;
+        }
+    }
 
-    (*_jvmti)->GetStackTrace(_jvmti, jni_thread, 0, depth, _stack_frames_buffer, &count);
+    (*_jvmti)->GetStackTrace(_jvmti, jni_thread, 0, depth, frames, &count);
 
     for (i = 0; i < count; i++) {
-        _stack_id_buffer[i] = convert_jmethodID_to_jint(_stack_frames_buffer[i].method);
+        ids[i] = convert_jmethodID_to_jint(frames[i].method);
     }
-    (*env)->SetIntArrayRegion(env, ret, 0, count, _stack_id_buffer);
+    (*env)->SetIntArrayRegion(env, ret, 0, count, ids);
 
+    if (frames != local_frames) {
+        free(frames);
+        free(ids);
+    }
     return count;
 }
 
 
+/*
+ * Class:     org_graalvm_visualvm_lib_jfluid_server_system_Stacks
+ * Method:    stackFrameIdsThreadSafe
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_graalvm_visualvm_lib_jfluid_server_system_Stacks_stackFrameIdsThreadSafe
+    (JNIEnv *env, jclass clz)
+{
+    return JNI_TRUE;
+}
+
+
 static jbyte *byteData;
 static jint *strOffsets;
 static int byteDataLen, dataOfs, ofsIdx;
@@ -47,6 +47,14 @@ JNIEXPORT jint JNICALL Java_org_graalvm_visualvm_lib_jfluid_server_system_Stacks
 JNIEXPORT jint JNICALL Java_org_graalvm_visualvm_lib_jfluid_server_system_Stacks_getCurrentStackFrameIds
   (JNIEnv *, jclass, jobject, jint, jintArray);
 
+/*
+ * Class:     org_graalvm_visualvm_lib_jfluid_server_system_Stacks
+ * Method:    stackFrameIdsThreadSafe
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_graalvm_visualvm_lib_jfluid_server_system_Stacks_stackFrameIdsThreadSafe
+  (JNIEnv *, jclass);
+
 /*
  * Class:     org_graalvm_visualvm_lib_jfluid_server_system_Stacks
  * Method:    getMethodNamesForJMethodIds
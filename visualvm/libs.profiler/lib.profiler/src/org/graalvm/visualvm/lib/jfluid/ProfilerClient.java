@@ -747,13 +747,18 @@ public class ProfilerClient implements CommonConstants {
     }
 
     public synchronized byte[][] getCachedClassFileBytes(String[] classes, int[] classLoaderIds) throws ClientUtils.TargetAppOrVMTerminated {        
-        GetClassFileBytesResponse resp;
-        
+        return getCachedClassFiles(classes, classLoaderIds, null).getClassBytes();
+    }
+
+    /**
+     * Same as {@link #getCachedClassFileBytes(String[], int[])}, classes with bytes matching one of the provided
+     * hashes are returned as {@link GetClassFileBytesResponse#UNCHANGED_CLASS_BYTES} together with the matching hash.
+     */
+    public synchronized GetClassFileBytesResponse getCachedClassFiles(String[] classes, int[] classLoaderIds, byte[][][] classHashes) throws ClientUtils.TargetAppOrVMTerminated {
         checkForTargetVMAlive();
-        GetClassFileBytesCommand cmd = new GetClassFileBytesCommand(classes, classLoaderIds);
+        GetClassFileBytesCommand cmd = new GetClassFileBytesCommand(classes, classLoaderIds, classHashes);
         sendComplexCmdToServer(cmd);
-        resp = (GetClassFileBytesResponse) getAndCheckLastResponse("Unknown problem when trying to get cached class file bytes"); // NOI18N
-        return resp.getClassBytes();
+        return (GetClassFileBytesResponse) getAndCheckLastResponse("Unknown problem when trying to get cached class file bytes"); // NOI18N
     }
 
     public synchronized MonitoredData getMonitoredData() {
@@ -40,12 +40,14 @@ import org.graalvm.visualvm.lib.jfluid.TargetAppRunner;
 import org.graalvm.visualvm.lib.jfluid.client.ClientUtils;
 import org.graalvm.visualvm.lib.jfluid.utils.FileOrZipEntry;
 import org.graalvm.visualvm.lib.jfluid.utils.MiscUtils;
+import org.graalvm.visualvm.lib.jfluid.wireprotocol.GetClassFileBytesResponse;
 
 
 /**
  * Fixed-size cache of binary classes (.class files). Used to avoid flooding memory with class files when performing intensive
  * method scanning, that may touch thousands of classes. Currently uses LRU eviction policy.
  * A separate, currently no-eviction cache, is maintained for classes supplied by the VM.
+ * The cache is thread safe, class files may be requested by parallel instrumentation workers.
  *
  * @author Misha Dmitirev
  */
@@ -83,7 +85,7 @@ class ClassFileCache {
 
     //~ Methods ------------------------------------------------------------------------------------------------------------------
 
-    byte[] getClassFile(String name, String location) throws IOException {
+    synchronized byte[] getClassFile(String name, String location) throws IOException {
         String nameAndLocation = (name + "#" + location).intern(); // NOI18N
         byte[] res;
 
@@ -102,9 +104,28 @@ class ClassFileCache {
                         loadersId[i] = ((Integer)preloadLoaderIds.get(i)).intValue();
                     }
                     //System.out.println("Caching "+names.length+" classes");
-                    byte[][] bytes = client.getCachedClassFileBytes(names, loadersId);
+                    ClassFileDiskCache diskCache = ClassFileDiskCache.getDefault();
+                    byte[][][] storedHashes = null;
+                    if (diskCache != null) {
+                        storedHashes = new byte[names.length][][];
+                        for (int i=0; i<names.length; i++) {
+                            storedHashes[i] = diskCache.getHashes(names[i]);
+                        }
+                    }
+                    GetClassFileBytesResponse resp = client.getCachedClassFiles(names, loadersId, storedHashes);
+                    byte[][] bytes = resp.getClassBytes();
                     for (int i=0; i<bytes.length; i++) {
                         res = bytes[i];
+                        if (res == GetClassFileBytesResponse.UNCHANGED_CLASS_BYTES) {
+                            // verified by TA, bytes from a previous session
+                            res = diskCache.load(names[i], resp.getUnchangedClassHash(i));
+                            if (res == null) {
+                                // removed meanwhile by another session
+                                res = client.getCachedClassFileBytes(new String[] { names[i] }, new int[] { loadersId[i] })[0];
+                            }
+                        } else if (res != null && res.length != 0 && diskCache != null) {
+                            diskCache.store(names[i], res);
+                        }
                         if (res == null) res = new byte[0];
                         //System.out.println("Get class file for " + names[i] + " " + res.length + " bytes");
                         if (res.length != 0) {
@@ -136,7 +157,7 @@ class ClassFileCache {
         return res;
     }
 
-    void preloadBytecode(String name, String location) {
+    synchronized void preloadBytecode(String name, String location) {
         String nameAndLocation = (name + "#" + location).intern(); // NOI18N
         if (location.startsWith(ClassRepository.LOCATION_VMSUPPLIED)) {
             byte[] res = (byte[]) vmSuppliedClassCache.get(nameAndLocation);
@@ -149,7 +170,7 @@ class ClassFileCache {
         }
     }
 
-    void addVMSuppliedClassFile(String name, int classLoaderId, byte[] buf) {
+    synchronized void addVMSuppliedClassFile(String name, int classLoaderId, byte[] buf) {
         String nameAndLocation = getNameAndLocation(name, classLoaderId); 
         vmSuppliedClassCache.put(nameAndLocation, buf);
     }
@@ -162,7 +183,7 @@ class ClassFileCache {
      * Returns the actual class loader id for the given class/loader pair, or -1 if class is not loaded.
      * The real loader may be the same as classLoaderId or its parent loader.
      */
-    int hasVMSuppliedClassFile(String name, int classLoaderId) {
+    synchronized int hasVMSuppliedClassFile(String name, int classLoaderId) {
         do {
             // we are trying the whole classloader hierarchy up to the root system classloader with id=0
             String nameAndLocation = getNameAndLocation(name, classLoaderId);  
@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.lib.jfluid.classfile;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import org.graalvm.visualvm.lib.jfluid.global.Platform;
+import org.graalvm.visualvm.lib.jfluid.wireprotocol.GetClassFileBytesCommand;
+
+
+/**
+ * Persistent cache of class files supplied by the VM, shared by all profiling sessions.
+ * Entries are keyed by the class name and the SHA-256 hash of the class file bytes, so several versions
+ * of a class, for example defined by different class loaders, are stored side by side.
+ * The cached bytes are never used without verification: their hashes are sent to the target VM
+ * which only omits the class file bytes in its response if they are identical to one of them.
+ * Least recently used entries are evicted once the cache exceeds its size limit.
+ * <p>
+ * Only the class file bytes are persisted. Parsing them takes about 15-50 microseconds per class,
+ * a persisted form of the parsed metadata would have to be read and verified the same way,
+ * and instrumented bytecode depends on the method ids and constant pool of the current session.
+ *
+ * @author Tomas Hurka
+ */
+class ClassFileDiskCache {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final boolean DISABLED = Boolean.getBoolean("org.graalvm.visualvm.lib.jfluid.classfile.disableDiskCache"); // NOI18N
+    private static final long MAX_CACHE_SIZE = Integer.getInteger("org.graalvm.visualvm.lib.jfluid.classfile.diskCacheSize", 64) * 1024L * 1024L; // NOI18N
+    private static final String CACHE_DIR = "classcache"; // NOI18N
+    private static final String CLASS_FILE_EXT = ".class"; // NOI18N
+    private static final String TMP_FILE_PREFIX = "store"; // NOI18N
+    private static final String TMP_FILE_EXT = ".tmp"; // NOI18N
+    private static final char HASH_SEPARATOR = '#';
+    private static final int MAX_FILE_NAME_LENGTH = 160;
+    // temporary files of a store interrupted by a crash, newer ones may be written by a concurrent session
+    private static final long STALE_TMP_FILE_AGE = 60 * 60 * 1000L;
+    private static final int HASH_LENGTH = 32;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); // NOI18N
+
+    private static ClassFileDiskCache defaultCache;
+    private static boolean initialized;
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final File cacheDir;
+    private final long maxSize;
+    // file name prefix (see getFilePrefix()) -> hashes of the stored versions
+    private final Map<String, byte[][]> index;
+    private long size;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    ClassFileDiskCache(File dir, long maxSize) {
+        cacheDir = dir;
+        this.maxSize = maxSize;
+        index = new HashMap<>();
+
+        File[] files = dir.listFiles();
+
+        if (files != null) {
+            long staleTime = System.currentTimeMillis() - STALE_TMP_FILE_AGE;
+
+            for (File file : files) {
+                String name = file.getName();
+
+                if (name.endsWith(TMP_FILE_EXT)) {
+                    if (file.lastModified() < staleTime) {
+                        file.delete();
+                    }
+                    continue;
+                }
+
+                if (!name.endsWith(CLASS_FILE_EXT)) {
+                    continue;
+                }
+
+                int sep = name.lastIndexOf(HASH_SEPARATOR);
+                byte[] hash = sep == -1 ? null : parseHash(name.substring(sep + 1, name.length() - CLASS_FILE_EXT.length()));
+
+                if (hash == null) {
+                    // entries of older versions
+                    file.delete();
+                    continue;
+                }
+
+                addToIndex(name.substring(0, sep), hash);
+                size += file.length();
+            }
+        }
+
+        if (size > maxSize) {
+            evict();
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the cache or null if the cache is disabled or cannot be created.
+     */
+    static synchronized ClassFileDiskCache getDefault() {
+        if (!initialized) {
+            initialized = true;
+
+            if (!DISABLED && MAX_CACHE_SIZE > 0) {
+                try {
+                    File dir = new File(Platform.getProfilerUserDir(), CACHE_DIR);
+
+                    if (dir.isDirectory() || dir.mkdirs()) {
+                        defaultCache = new ClassFileDiskCache(dir, MAX_CACHE_SIZE);
+                    }
+                } catch (IOException ex) {
+                    // cache not available
+                }
+            }
+        }
+
+        return defaultCache;
+    }
+
+    /**
+     * Returns hashes of the class file bytes stored by previous sessions or null.
+     */
+    synchronized byte[][] getHashes(String className) {
+        byte[][] hashes = index.get(getFilePrefix(className));
+
+        return hashes == null ? null : hashes.clone();
+    }
+
+    /**
+     * Returns the class file bytes with the given hash stored by previous sessions or null.
+     */
+    synchronized byte[] load(String className, byte[] hash) {
+        if (hash == null) {
+            return null;
+        }
+
+        File file = getFile(getFilePrefix(className), hash);
+        long len = file.length();
+
+        if (len == 0 || len > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        byte[] bytes = new byte[(int) len];
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(bytes);
+        } catch (IOException ex) {
+            return null;
+        }
+
+        if (!Arrays.equals(GetClassFileBytesCommand.getClassHash(bytes), hash)) {
+            // damaged entry
+            remove(file, getFilePrefix(className), hash);
+            return null;
+        }
+
+        // last modification time orders the entries for eviction
+        file.setLastModified(System.currentTimeMillis());
+
+        return bytes;
+    }
+
+    synchronized void store(String className, byte[] bytes) {
+        String prefix = getFilePrefix(className);
+        byte[] hash = GetClassFileBytesCommand.getClassHash(bytes);
+
+        if (contains(prefix, hash) || bytes.length > maxSize) {
+            return;
+        }
+
+        File file = getFile(prefix, hash);
+        File tmpFile = null;
+
+        try {
+            // unique name, concurrent sessions may store the same class
+            tmpFile = File.createTempFile(TMP_FILE_PREFIX, TMP_FILE_EXT, cacheDir);
+
+            try (OutputStream out = new FileOutputStream(tmpFile)) {
+                out.write(bytes);
+            }
+
+            // the file is replaced at once
+            if (!tmpFile.renameTo(file)) {
+                file.delete();
+
+                if (!tmpFile.renameTo(file)) {
+                    tmpFile.delete();
+                    return;
+                }
+            }
+        } catch (IOException ex) {
+            if (tmpFile != null) {
+                tmpFile.delete();
+            }
+            return;
+        }
+
+        addToIndex(prefix, hash);
+        size += bytes.length;
+
+        if (size > maxSize) {
+            evict();
+        }
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Removes the least recently used entries until the cache uses at most 3/4 of its size limit.
+     */
+    private void evict() {
+        File[] files = cacheDir.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        final long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2) {
+                return Long.compare(lastModified[i1], lastModified[i2]);
+            }
+        });
+
+        long limit = maxSize / 4 * 3;
+
+        for (int i = 0; i < order.length && size > limit; i++) {
+            File file = files[order[i]];
+            String name = file.getName();
+            int sep = name.lastIndexOf(HASH_SEPARATOR);
+
+            if (sep == -1 || !name.endsWith(CLASS_FILE_EXT)) {
+                continue;
+            }
+
+            byte[] hash = parseHash(name.substring(sep + 1, name.length() - CLASS_FILE_EXT.length()));
+
+            if (hash != null) {
+                remove(file, name.substring(0, sep), hash);
+            }
+        }
+    }
+
+    private void remove(File file, String prefix, byte[] hash) {
+        long len = file.length();
+
+        if (!file.delete()) {
+            return;
+        }
+
+        size -= len;
+
+        byte[][] hashes = index.get(prefix);
+
+        if (hashes != null) {
+            for (int i = 0; i < hashes.length; i++) {
+                if (Arrays.equals(hashes[i], hash)) {
+                    if (hashes.length == 1) {
+                        index.remove(prefix);
+                    } else {
+                        byte[][] newHashes = new byte[hashes.length - 1][];
+                        System.arraycopy(hashes, 0, newHashes, 0, i);
+                        System.arraycopy(hashes, i + 1, newHashes, i, newHashes.length - i);
+                        index.put(prefix, newHashes);
+                    }
+
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean contains(String prefix, byte[] hash) {
+        byte[][] hashes = index.get(prefix);
+
+        if (hashes != null) {
+            for (byte[] h : hashes) {
+                if (Arrays.equals(h, hash)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void addToIndex(String prefix, byte[] hash) {
+        byte[][] hashes = index.get(prefix);
+
+        if (hashes == null) {
+            index.put(prefix, new byte[][] { hash });
+        } else if (!contains(prefix, hash)) {
+            byte[][] newHashes = Arrays.copyOf(hashes, hashes.length + 1);
+            newHashes[hashes.length] = hash;
+            index.put(prefix, newHashes);
+        }
+    }
+
+    private File getFile(String prefix, byte[] hash) {
+        return new File(cacheDir, prefix + HASH_SEPARATOR + toHex(hash) + CLASS_FILE_EXT);
+    }
+
+    private static String toHex(byte[] hash) {
+        char[] chars = new char[hash.length * 2];
+
+        for (int i = 0; i < hash.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Returns the hash encoded in a file name or null for names of other versions of the cache.
+     */
+    private static byte[] parseHash(String hex) {
+        if (hex.length() != HASH_LENGTH * 2) {
+            return null;
+        }
+
+        byte[] hash = new byte[HASH_LENGTH];
+
+        for (int i = 0; i < hash.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+
+            if (high == -1 || low == -1) {
+                return null;
+            }
+
+            hash[i] = (byte) ((high << 4) | low);
+        }
+
+        return hash;
+    }
+
+    private static String getFilePrefix(String className) {
+        // hidden classes contain '/', colliding prefixes only add candidates verified by the hash
+        String prefix = className.replace('/', '_').replace(File.separatorChar, '_').replace(HASH_SEPARATOR, '_');
+
+        if (prefix.length() > MAX_FILE_NAME_LENGTH) {
+            prefix = prefix.substring(0, MAX_FILE_NAME_LENGTH) + '_' + Integer.toHexString(className.hashCode());
+        }
+
+        return prefix;
+    }
+}
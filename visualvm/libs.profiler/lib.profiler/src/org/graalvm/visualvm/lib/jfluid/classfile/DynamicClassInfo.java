@@ -438,6 +438,14 @@ public class DynamicClassInfo extends ClassInfo {
         // NO-OP bytecode is loaded from file/jar
     }
 
+    /**
+     * Makes sure the class file is parsed. Different classes can be parsed in parallel,
+     * lazily created classes are otherwise parsed on first use.
+     */
+    public void ensureClassFileParsed() {
+        // NO-OP class file is parsed when the class is created
+    }
+
     public void setInterface() {
         // NO-OP, information is read from class file
     }
@@ -69,6 +69,10 @@ public class LazyDynamicClassInfo extends DynamicClassInfo {
         }
     }
 
+    public void ensureClassFileParsed() {
+        initializeClassFile();
+    }
+
     public boolean isInterface() {
         if (!isInitilaized) {
             return isInterface;
@@ -183,6 +183,36 @@ public class ClassManager implements JavaClassConstants, CommonConstants {
         return null;
     }
 
+    /**
+     * Parses class files of the given (typically lazily created) classes in parallel. The bytecode of all
+     * the classes is preloaded first, so that VM-supplied class files are obtained using a single request.
+     *
+     * @param classes collection of DynamicClassInfo, may contain nulls
+     */
+    protected void parseClassFiles(Collection classes) {
+        List<DynamicClassInfo> toParse = new ArrayList<>(classes.size());
+
+        for (Object clazz : classes) {
+            if (clazz != null) {
+                ((DynamicClassInfo) clazz).preloadBytecode();
+                toParse.add((DynamicClassInfo) clazz);
+            }
+        }
+
+        if (toParse.isEmpty()) {
+            return;
+        }
+
+        // The first class file request fetches all the preloaded VM-supplied class files, keep it in the calling thread
+        toParse.get(0).ensureClassFileParsed();
+
+        ParallelClassProcessor.process(toParse.subList(1, toParse.size()), new ParallelClassProcessor.Task<DynamicClassInfo>() {
+            public void process(DynamicClassInfo clazz) {
+                clazz.ensureClassFileParsed();
+            }
+        });
+    }
+
     protected BaseClassInfo javaClassForObjectArrayType(String elementTypeName) {
         return classRepo.lookupSpecialClass("[" + elementTypeName); // NOI18N
     }
@@ -115,19 +115,24 @@ public abstract class Injector extends SingleMethodScaner {
 
     // Increment to possible stack depth -- two instrumentation arguments
     private static final int STACK_INCREMENT = 2;
-    private static Stack changes = new Stack(); // Stack of additional changes to bytecodes that may be caused by our main injection change
-    private static byte[] _overwrite = new byte[3]; // Stores overwritten bytes for shrunken instructions
-
-    // The following array is re-used,to avoid excessive object allocations - which means that the class is not multi thread safe
-    private static byte[] reusableExcTable = new byte[100];
+    // The following array is re-used per thread, to avoid excessive object allocations. Instances of this class
+    // are not multithread-safe, but different methods can be instrumented in parallel.
+    private static final ThreadLocal<byte[]> reusableExcTable = new ThreadLocal<byte[]>() {
+        protected byte[] initialValue() {
+            return new byte[100];
+        }
+    };
 
     // ProfilerRuntime.profilePointHit instrumentation
-    private static final byte[] injProfilePointHitCode = new byte[] { opc_sipush, 0, 0, (byte) opc_invokestatic, 0, 0, 0, 0 };
+    private static final int injProfilePointHitCodeLen = 8;
     private static final int injProfilePointHitIDCodeIdx = 1;
     private static final int injProfilePointHitMethodIdx = 4;
 
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
 
+    private final Stack changes = new Stack(); // Stack of additional changes to bytecodes that may be caused by our main injection change
+    private final byte[] _overwrite = new byte[3]; // Stores overwritten bytes for shrunken instructions
+    private final byte[] injProfilePointHitCode = new byte[] { opc_sipush, 0, 0, (byte) opc_invokestatic, 0, 0, 0, 0 };
     protected byte[] exceptionTable; // Current updateable copy of exception table (what is in MethodInfo Code attribute after exception_table_length)
     protected int baseCPoolCount; // The "base" constant pool index, after which the set of entries containing the calls that
                                   // we inject, plus supporting entries, are located.
@@ -325,7 +330,7 @@ public abstract class Injector extends SingleMethodScaner {
             RuntimeProfilingPoint point = points[i];
             assert (i == 0) || (point.getBci() >= points[i - 1].getBci());
 
-            int ppbci = point.getBci() + (i * injProfilePointHitCode.length);
+            int ppbci = point.getBci() + (i * injProfilePointHitCodeLen);
             injectProfilePointHit(point, ppbci, ppHitCPMethodIdx);
             maxStack = Math.max(maxStack, 4);
         }
@@ -570,12 +575,15 @@ public abstract class Injector extends SingleMethodScaner {
 
         int len = excTableEntryCount * 8;
 
-        if (reusableExcTable.length < (len + 40)) {
-            reusableExcTable = new byte[(len * 2) + 40]; // Can add at least 8*5 = 40 entries.
+        byte[] reusable = reusableExcTable.get();
+
+        if (reusable.length < (len + 40)) {
+            reusable = new byte[(len * 2) + 40]; // Can add at least 8*5 = 40 entries.
+            reusableExcTable.set(reusable);
         }
 
-        System.arraycopy(origMethodInfo, startOfs + 2, reusableExcTable, 0, len);
-        exceptionTable = reusableExcTable;
+        System.arraycopy(origMethodInfo, startOfs + 2, reusable, 0, len);
+        exceptionTable = reusable;
     }
 
     private void injectProfilePointHit(RuntimeProfilingPoint point, int bci, int ppHitCPMethodIdx) {
@@ -168,6 +168,7 @@ public abstract class MemoryProfMethodInstrumentor extends ClassManager {
 
     public Object[] getInitialMethodsToInstrument(RootClassLoadedCommand rootLoaded) {
         List classes = new ArrayList();
+        List<DynamicClassInfo> classesToParse = new ArrayList<>();
         resetLoadedClassData();
         initInstrumentationPackData();
         instrClassId = 0;
@@ -180,10 +181,11 @@ public abstract class MemoryProfMethodInstrumentor extends ClassManager {
             DynamicClassInfo clazz = javaClassForName(loadedClasses[i], loadedClassLoaderIds[i]);
 
             if (classNeedsInstrumentation(clazz)) {
-                clazz.preloadBytecode();
+                classesToParse.add(clazz);
             }
             classes.add(clazz);
         }
+        parseClassFiles(classesToParse);
         for (Object clazz : classes) {
             findAndMarkMethodsToInstrumentInClass((DynamicClassInfo) clazz);
         }
@@ -40,31 +40,28 @@ import static org.graalvm.visualvm.lib.jfluid.utils.VMUtils.*;
  * @author Misha Dmitriev
  */
 class MethodEntryExitCallsInjector extends Injector implements CommonConstants {
-    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    // Injected code templates are per instance, methods can be instrumented in parallel
 
     // Stuff used for rootEntry(char), methodEntry(char), and methodExit(char) injection interchangeably
-    protected static byte[] injCode1;
-    protected static int injCodeLen1;
-    protected static int injCodeMethodIdxPos1;
-    protected static int injCodeMethodIdPos1;
+    protected byte[] injCode1;
+    protected int injCodeLen1;
+    protected int injCodeMethodIdxPos1;
+    protected int injCodeMethodIdPos1;
 
     // Stuff used for the equivalent of try { .. } catch (Throwable ex) { methodExit(methodId); throw ex; } around the whole method
-    protected static byte[] injCode2;
-    protected static int injCodeLen2;
-    protected static int injCodeMethodIdxPos2;
-    protected static int injCodeMethodIdPos2;
+    protected byte[] injCode2;
+    protected int injCodeLen2;
+    protected int injCodeMethodIdxPos2;
+    protected int injCodeMethodIdPos2;
 
     // Stuff used for markerMethodExit(Object, char) injection
-    protected static byte[] injCode3;
-    protected static int injCodeLen3;
-    protected static int injCodeMethodIdxPos3;
-    protected static int injCodeMethodIdPos3;
+    protected byte[] injCode3;
+    protected int injCodeLen3;
+    protected int injCodeMethodIdxPos3;
+    protected int injCodeMethodIdPos3;
 
-    static {
-        initializeInjectedCode();
-    }
-
-    //~ Instance fields ----------------------------------------------------------------------------------------------------------
     protected int baseRootCPoolCount; // cpool base for root method type injection cpool fragment
     protected int injType; // INJ_RECURSIVE_NORMAL_METHOD, INJ_RECURSIVE_ROOT_METHOD, or same with _SAMPLED_ added
     protected int methodId; // methodId (char parameter value) that methodEntry(methodId) etc. should be invoked with
@@ -77,6 +74,7 @@ class MethodEntryExitCallsInjector extends Injector implements CommonConstants {
         this.methodId = methodId;
         baseCPoolCount = normalInstrBaseCPoolCount;
         baseRootCPoolCount = rootInstrBaseCPoolCount;
+        initializeInjectedCode();
     }
 
     //~ Methods ------------------------------------------------------------------------------------------------------------------
@@ -105,7 +103,7 @@ class MethodEntryExitCallsInjector extends Injector implements CommonConstants {
         return createPackedMethodInfo();
     }
 
-    private static void initializeInjectedCode() {
+    private void initializeInjectedCode() {
         // Injection for methodEntry(char methodId) (rootMethodEntry(char methodId)) and methodExit(char methodId)
         // the length of the injected code is extended to 8, to avoid worrying about switch statement 4-byte alignment
         injCodeLen1 = 8;
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.instrumentation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Processes independent classes of a large instrumentation batch (class file parsing, bytecode injection)
+ * using a shared pool of worker threads. The calling thread participates in the work and the method returns
+ * after all the items have been processed. The first failure stops the processing of the remaining items. Idle worker
+ * threads are released after a while. Each item is processed by a single thread, the caller must make sure
+ * that processing an item doesn't touch state shared with other items.
+ *
+ * @author Tomas Hurka
+ */
+final class ParallelClassProcessor {
+    //~ Inner Interfaces ---------------------------------------------------------------------------------------------------------
+
+    static interface Task<T> {
+        //~ Methods --------------------------------------------------------------------------------------------------------------
+
+        void process(T item);
+    }
+
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final String THREADS_PROPERTY = "org.graalvm.visualvm.lib.jfluid.instrumentation.threads"; // NOI18N
+    private static final int MAX_THREADS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    private static final int MIN_ITEMS_PER_THREAD = 32;
+    private static final int CHUNK_SIZE = 16;
+    private static final long WORKER_KEEP_ALIVE = 30;
+
+    private static ThreadPoolExecutor workers;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    private ParallelClassProcessor() {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Number of threads used to process a batch, 1 means that batches are processed by the calling thread only.
+     */
+    static int getThreadsCount() {
+        int threads = Integer.getInteger(THREADS_PROPERTY, MAX_THREADS).intValue();
+
+        return Math.max(1, Math.min(MAX_THREADS, threads));
+    }
+
+    static <T> void process(final List<T> items, final Task<T> task) {
+        int threads = Math.min(getThreadsCount(), items.size() / MIN_ITEMS_PER_THREAD);
+
+        if (threads <= 1) {
+            for (T item : items) {
+                task.process(item);
+            }
+
+            return;
+        }
+
+        final int size = items.size();
+        final AtomicInteger nextChunk = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            public void run() {
+                int from;
+
+                try {
+                    while ((from = nextChunk.getAndAdd(CHUNK_SIZE)) < size) {
+                        int to = Math.min(size, from + CHUNK_SIZE);
+
+                        for (int i = from; i < to; i++) {
+                            task.process(items.get(i));
+                        }
+                    }
+                } catch (RuntimeException | Error ex) {
+                    nextChunk.set(size); // stop the other workers
+                    throw ex;
+                }
+            }
+        };
+
+        List<FutureTask<Void>> results = new ArrayList<>(threads - 1);
+        ThreadPoolExecutor executor = getWorkers();
+
+        for (int i = 0; i < threads - 1; i++) {
+            FutureTask<Void> result = new FutureTask<>(worker, null);
+            executor.execute(result);
+            results.add(result);
+        }
+
+        Throwable failure = null;
+
+        try {
+            worker.run();
+        } catch (RuntimeException | Error ex) {
+            failure = ex;
+        }
+
+        boolean interrupted = false;
+
+        for (FutureTask<Void> result : results) {
+            if (failure != null && executor.remove(result)) {
+                // not started yet, nothing to wait for
+                continue;
+            }
+
+            // all the running workers must finish before the results are used
+            while (true) {
+                try {
+                    result.get();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor getWorkers() {
+        if (workers == null) {
+            ThreadFactory factory = new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Profiler Instrumentation Worker " + counter.incrementAndGet()); // NOI18N
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            };
+            int threads = Math.max(1, MAX_THREADS - 1);
+
+            workers = new ThreadPoolExecutor(threads, threads, WORKER_KEEP_ALIVE, TimeUnit.SECONDS,
+                                             new LinkedBlockingQueue<Runnable>(), factory);
+            workers.allowCoreThreadTimeOut(true);
+        }
+
+        return workers;
+    }
+}
@@ -26,6 +26,7 @@
 package org.graalvm.visualvm.lib.jfluid.instrumentation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -79,6 +80,35 @@ public abstract class RecursiveMethodInstrumentor extends ClassManager {
         }
     }
 
+    /** Instrumentation of a single class, prepared sequentially and processed by ParallelClassProcessor */
+    private static class ClassInstrumentation {
+        //~ Static fields/initializers -------------------------------------------------------------------------------------------
+
+        static final int NOT_INSTRUMENTED = -1;
+        static final int PROFILE_POINTS_ONLY = -2;
+        static final int ALREADY_INSTRUMENTED = -3;
+
+        //~ Instance fields ------------------------------------------------------------------------------------------------------
+
+        final DynamicClassInfo clazz;
+        final int classIdx;
+        final int[] methodIds; // methodId assigned to the method or one of the constants above
+        RuntimeProfilingPoint[] pointsForClass;
+        boolean hasRootMethods;
+        boolean hasMarkerMethods;
+        boolean servletDoMethods;
+        int imInClass;
+
+        //~ Constructors ---------------------------------------------------------------------------------------------------------
+
+        ClassInstrumentation(DynamicClassInfo clazz, int classIdx, int nMethods) {
+            this.clazz = clazz;
+            this.classIdx = classIdx;
+            methodIds = new int[nMethods];
+            Arrays.fill(methodIds, NOT_INSTRUMENTED);
+        }
+    }
+
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
 
     protected Map instrClasses = new HashMap();
@@ -463,32 +493,24 @@ public abstract class RecursiveMethodInstrumentor extends ClassManager {
         String[] instrMethodClasses = new String[nInstrClasses];
         int[] instrClassLoaderIds = new int[nInstrClasses];
         boolean[] instrMethodLeaf = new boolean[nInstrMethods];
-        byte[][] replacementClassFileBytes = new byte[nInstrClasses][];
+        final byte[][] replacementClassFileBytes = new byte[nInstrClasses][];
+        List<ClassInstrumentation> classInstrumentations = new ArrayList<>(instrClasses.size());
         int methodId = status.getStartingMethodId();
         int classIdx = 0;
         int methodIdx = 0;
 
+        // Method ids and other shared state are assigned sequentially in a deterministic order,
+        // only the independent per-class bytecode injection runs in parallel
         for (Iterator e = instrClasses.values().iterator(); e.hasNext();) {
             DynamicClassInfo clazz = (DynamicClassInfo) e.next();
             int nMethods = clazz.getMethodNames().length;
             instrMethodClasses[classIdx] = clazz.getName().replace('/', '.').intern(); // NOI18N
             instrClassLoaderIds[classIdx] = clazz.getLoaderId();
 
-            boolean hasRootMethods = clazz.hasUninstrumentedRootMethods();
-            boolean hasMarkerMethods = clazz.hasUninstrumentedMarkerMethods();
-            DynamicConstantPoolExtension.getCPFragment(clazz, normalInjectionType);
-
-            if (hasRootMethods) {
-                DynamicConstantPoolExtension.getCPFragment(clazz, rootInjectionType);
-            }
-
-            if (hasMarkerMethods) {
-                DynamicConstantPoolExtension.getCPFragment(clazz, markerInjectionType);
-            }
-
-            int imInClass = 0;
-            byte[][] replacementMethodInfos = new byte[nMethods][];
-            RuntimeProfilingPoint[] pointsForClass = getRuntimeProfilingPoints(engineSettings.getRuntimeProfilingPoints(), clazz);
+            ClassInstrumentation ci = new ClassInstrumentation(clazz, classIdx, nMethods);
+            ci.hasRootMethods = clazz.hasUninstrumentedRootMethods();
+            ci.hasMarkerMethods = clazz.hasUninstrumentedMarkerMethods();
+            ci.pointsForClass = getRuntimeProfilingPoints(engineSettings.getRuntimeProfilingPoints(), clazz);
 
             //System.err.println("CLazz: "+clazz.getName());
             for (int i = 0; i < nMethods; i++) {
@@ -498,56 +520,38 @@ public abstract class RecursiveMethodInstrumentor extends ClassManager {
                 // and processed twice, leading to double instrumentation
 
                 //System.err.println("Method: "+clazz.getMethodName(i)+" " + clazz.getMethodSignature(i));
-                RuntimeProfilingPoint[] points = getRuntimeProfilingPoints(pointsForClass, i);
-
                 if (!clazz.isMethodInstrumented(i)) {
                     if (clazz.isMethodReachable(i) && !clazz.isMethodUnscannable(i)) {
                         clazz.setMethodInstrumented(i);
                         instrMethodLeaf[methodIdx] = clazz.isMethodLeaf(i);
                         //System.err.println(">>>1 For method " + clazz.getName() + "." + clazz.getMethodName(i) + clazz.getMethodSignature(i) + " gonna use methodId = " + methodId);
-                        replacementMethodInfos[i] = InstrumentationFactory.instrumentMethod(clazz, i, normalInjectionType,
-                                                                                            rootInjectionType,
-                                                                                            markerInjectionType, methodId++,
-                                                                                            points);
-                        clazz.saveMethodInfo(i, replacementMethodInfos[i]);
+                        ci.methodIds[i] = methodId++;
 
                         status.updateInstrMethodsInfo(instrMethodClasses[classIdx], instrClassLoaderIds[classIdx],
                                                       clazz.getMethodNames()[i], clazz.getMethodSignatures()[i]);
-                        imInClass++;
+                        ci.imInClass++;
                         methodIdx++;
-                    } else if (points.length > 0) {
-                        replacementMethodInfos[i] = InstrumentationFactory.instrumentAsProiflePointHitMethod(clazz, i,
-                                                                                                             normalInjectionType,
-                                                                                                             points);
-                        clazz.saveMethodInfo(i, replacementMethodInfos[i]);
-                        imInClass++;
+                    } else if (getRuntimeProfilingPoints(ci.pointsForClass, i).length > 0) {
+                        ci.methodIds[i] = ClassInstrumentation.PROFILE_POINTS_ONLY;
+                        ci.imInClass++;
                     }
                 } else {
-                    replacementMethodInfos[i] = clazz.getMethodInfo(i); // Will return the previously instrumented methodInfo
-                    imInClass++;
+                    ci.methodIds[i] = ClassInstrumentation.ALREADY_INSTRUMENTED;
+                    ci.imInClass++;
                 }
             }
 
-            instrumentServletDoMethods(clazz, replacementMethodInfos);
-
-            if (imInClass > 0) {
-                if (hasRootMethods) {
-                    clazz.setHasUninstrumentedRootMethods(false);
-                }
-
-                if (hasMarkerMethods) {
-                    clazz.setHasUninstrumentedMarkerMethods(false);
-                }
-
-                DynamicConstantPoolExtension wholeECP = DynamicConstantPoolExtension.getAllAddedCPFragments(clazz);
-                int nAddedCPEntries = wholeECP.getNEntries();
-                byte[] addedCPContents = wholeECP.getContents();
-                replacementClassFileBytes[classIdx] = ClassRewriter.rewriteClassFile(clazz, replacementMethodInfos,
-                                                                                     nAddedCPEntries, addedCPContents);
-            }
+            ci.servletDoMethods = isServletDoMethodsInstrumentationNeeded(clazz);
+            classInstrumentations.add(ci);
             classIdx++;
         }
 
+        ParallelClassProcessor.process(classInstrumentations, new ParallelClassProcessor.Task<ClassInstrumentation>() {
+            public void process(ClassInstrumentation ci) {
+                replacementClassFileBytes[ci.classIdx] = instrumentClass(ci);
+            }
+        });
+
         if (!reflectInvokeInstrumented) { // Special instrumentation of java.lang.reflect.Method.invoke()
             int nMethods = reflectMethodClass.getMethodNames().length;
             byte[][] replacementMethodInfos = new byte[nMethods][];
@@ -581,21 +585,82 @@ public abstract class RecursiveMethodInstrumentor extends ClassManager {
         return new Object[] { instrMethodClasses, instrClassLoaderIds, instrMethodLeaf, replacementClassFileBytes };
     }
 
-    private void instrumentServletDoMethods(DynamicClassInfo clazz, byte[][] replacementMethodInfos) {
+    /** Instruments a single class prepared by createInstrumentedMethodPack15(), may be called from a worker thread */
+    private byte[] instrumentClass(ClassInstrumentation ci) {
+        DynamicClassInfo clazz = ci.clazz;
+        int nMethods = ci.methodIds.length;
+
+        DynamicConstantPoolExtension.getCPFragment(clazz, normalInjectionType);
+
+        if (ci.hasRootMethods) {
+            DynamicConstantPoolExtension.getCPFragment(clazz, rootInjectionType);
+        }
+
+        if (ci.hasMarkerMethods) {
+            DynamicConstantPoolExtension.getCPFragment(clazz, markerInjectionType);
+        }
+
+        byte[][] replacementMethodInfos = new byte[nMethods][];
+
+        for (int i = 0; i < nMethods; i++) {
+            int methodId = ci.methodIds[i];
+
+            if (methodId >= 0) {
+                RuntimeProfilingPoint[] points = getRuntimeProfilingPoints(ci.pointsForClass, i);
+                replacementMethodInfos[i] = InstrumentationFactory.instrumentMethod(clazz, i, normalInjectionType,
+                                                                                    rootInjectionType,
+                                                                                    markerInjectionType, methodId,
+                                                                                    points);
+                clazz.saveMethodInfo(i, replacementMethodInfos[i]);
+            } else if (methodId == ClassInstrumentation.PROFILE_POINTS_ONLY) {
+                RuntimeProfilingPoint[] points = getRuntimeProfilingPoints(ci.pointsForClass, i);
+                replacementMethodInfos[i] = InstrumentationFactory.instrumentAsProiflePointHitMethod(clazz, i,
+                                                                                                     normalInjectionType,
+                                                                                                     points);
+                clazz.saveMethodInfo(i, replacementMethodInfos[i]);
+            } else if (methodId == ClassInstrumentation.ALREADY_INSTRUMENTED) {
+                replacementMethodInfos[i] = clazz.getMethodInfo(i); // Will return the previously instrumented methodInfo
+            }
+        }
+
+        if (ci.servletDoMethods) {
+            instrumentServletDoMethods(clazz, replacementMethodInfos);
+        }
+
+        if (ci.imInClass == 0) {
+            return null;
+        }
+
+        if (ci.hasRootMethods) {
+            clazz.setHasUninstrumentedRootMethods(false);
+        }
+
+        if (ci.hasMarkerMethods) {
+            clazz.setHasUninstrumentedMarkerMethods(false);
+        }
+
+        DynamicConstantPoolExtension wholeECP = DynamicConstantPoolExtension.getAllAddedCPFragments(clazz);
+        int nAddedCPEntries = wholeECP.getNEntries();
+        byte[] addedCPContents = wholeECP.getContents();
+
+        return ClassRewriter.rewriteClassFile(clazz, replacementMethodInfos, nAddedCPEntries, addedCPContents);
+    }
+
+    private boolean isServletDoMethodsInstrumentationNeeded(DynamicClassInfo clazz) {
         if (!Boolean.getBoolean("org.graalvm.visualvm.lib.jfluid.servletTracking")) { // NOI18N
-            return;
+            return false;
         }
 
         if (clazz.isServletDoMethodScanned()) {
-            return;
+            return false;
         }
 
         clazz.setServletDoMethodScanned();
 
-        if (!clazz.isSubclassOf(HandleServletDoMethodCallInjector.getClassName())) {
-            return;
-        }
+        return clazz.isSubclassOf(HandleServletDoMethodCallInjector.getClassName());
+    }
 
+    private void instrumentServletDoMethods(DynamicClassInfo clazz, byte[][] replacementMethodInfos) {
         DynamicConstantPoolExtension.getCPFragment(clazz, INJ_SERVLET_DO_METHOD);
 
         String[] methods = HandleServletDoMethodCallInjector.getMethodNames();
@@ -534,8 +534,6 @@ public class RecursiveMethodInstrumentor1 extends RecursiveMethodInstrumentor {
     }
     
     void preloadBytecodeForAllSubclasses(Collection classes) {
-        for (Object clazz : classes) {
-            ((DynamicClassInfo)clazz).preloadBytecode();
-        }
+        parseClassFiles(classes);
     }
 }
@@ -25,6 +25,8 @@
 
 package org.graalvm.visualvm.lib.jfluid.instrumentation;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.graalvm.visualvm.lib.jfluid.ProfilerEngineSettings;
 import org.graalvm.visualvm.lib.jfluid.classfile.ClassRepository;
 import org.graalvm.visualvm.lib.jfluid.classfile.DynamicClassInfo;
@@ -230,6 +232,17 @@ public class RecursiveMethodInstrumentor3 extends RecursiveMethodInstrumentor {
         rootMethods = roots;
         checkForNoRootsSpecified(roots);
 
+        // All the methods of loaded classes are checked below, parse the class files in advance
+        List<DynamicClassInfo> classesToParse = new ArrayList<>(loadedClassInfos.length);
+
+        for (DynamicClassInfo loadedClassInfo : loadedClassInfos) {
+            if (loadedClassInfo != null && !loadedClassInfo.isInterface()) {
+                classesToParse.add(loadedClassInfo);
+            }
+        }
+
+        parseClassFiles(classesToParse);
+
         // Check which root classes have already been loaded, and mark their root methods accordingly
         for (DynamicClassInfo loadedClassInfo : loadedClassInfos) {
             if (loadedClassInfo == null) {
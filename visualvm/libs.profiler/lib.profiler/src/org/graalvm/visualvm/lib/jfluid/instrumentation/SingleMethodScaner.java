@@ -36,8 +36,13 @@ import org.graalvm.visualvm.lib.jfluid.classfile.ClassInfo;
 public class SingleMethodScaner implements JavaClassConstants {
     //~ Static fields/initializers -----------------------------------------------------------------------------------------------
 
-    // The following array is re-used,to avoid excessive object allocations - which means that THIS CLASS IS NOT MULTITHREAD-SAFE!
-    private static byte[] reusableBytecodes = new byte[100];
+    // The following array is re-used per thread, to avoid excessive object allocations. Instances of this class
+    // are not multithread-safe, but different methods can be scanned in parallel.
+    private static final ThreadLocal<byte[]> reusableBytecodes = new ThreadLocal<byte[]>() {
+        protected byte[] initialValue() {
+            return new byte[100];
+        }
+    };
 
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
 
@@ -173,12 +178,15 @@ public class SingleMethodScaner implements JavaClassConstants {
     }
 
     protected void initBytecodesArray() {
-        if (reusableBytecodes.length < (bytecodesLength * 8)) {
-            reusableBytecodes = new byte[bytecodesLength * 8];
+        byte[] reusable = reusableBytecodes.get();
+
+        if (reusable.length < (bytecodesLength * 8)) {
+            reusable = new byte[bytecodesLength * 8];
+            reusableBytecodes.set(reusable);
         }
 
-        System.arraycopy(origMethodInfo, bytecodesStartIdx, reusableBytecodes, 0, bytecodesLength);
-        bytecodes = reusableBytecodes;
+        System.arraycopy(origMethodInfo, bytecodesStartIdx, reusable, 0, bytecodesLength);
+        bytecodes = reusable;
     }
 
     protected void putInt(int pos, int value) {
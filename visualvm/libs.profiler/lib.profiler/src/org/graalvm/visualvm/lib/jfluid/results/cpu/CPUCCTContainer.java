@@ -174,12 +174,60 @@ public class CPUCCTContainer {
         this.cpuResSnapshot = cpuResSnapshot;
     }
 
+    /**
+     * Creates a container for another snapshot of an unchanged thread CCT. The compact data are shared
+     * with the original container, which is fine since they are never modified once generated.
+     */
+    CPUCCTContainer(CPUCCTContainer container, CPUResultsSnapshot cpuResSnapshot, double[] threadActiveTimesInCounts) {
+        this(cpuResSnapshot);
+
+        threadId = container.threadId;
+        threadName = container.threadName;
+
+        methodInfoMapper = container.methodInfoMapper;
+        timingAdjuster = container.timingAdjuster;
+        filter = container.filter;
+
+        collectingTwoTimeStamps = container.collectingTwoTimeStamps;
+
+        compactData = container.compactData;
+        childOfsSize = container.childOfsSize;
+        nodeSize = container.nodeSize;
+        totalInvNo = container.totalInvNo;
+
+        calculateThreadActiveTimesInMS(threadActiveTimesInCounts);
+
+        rootNode = new PrestimeCPUCCTNodeBacked(this, null, 0);
+
+        if (container.rootNode.isThreadNode()) {
+            rootNode.setThreadNode();
+        }
+    }
+
     //~ Methods ------------------------------------------------------------------------------------------------------------------
 
     public CPUResultsSnapshot getCPUResSnapshot() {
         return cpuResSnapshot;
     }
 
+    /**
+     * Returns true if the compact data of this container can be shared by a container for the provided snapshot.
+     */
+    boolean isReusableFor(CPUResultsSnapshot snapshot, MethodInfoMapper mapper, TimingAdjusterOld adjuster,
+                          InstrumentationFilter usedFilter, String name) {
+        return compactData != null && collectingTwoTimeStamps == snapshot.isCollectingTwoTimeStamps() &&
+               methodInfoMapper == mapper && timingAdjuster == adjuster && filter == usedFilter &&
+               threadName != null && threadName.equals(name);
+    }
+
+    /**
+     * Returns true if this container shares the compact data with the provided container,
+     * which means that the thread CCT didn't change between the two snapshots.
+     */
+    boolean sharesDataWith(CPUCCTContainer container) {
+        return compactData != null && container != null && compactData == container.compactData;
+    }
+
     public int getChildOfsForNodeOfs(int nodeOfs, int childIdx) {
         if (childOfsSize == CHILD_OFS_SIZE_4) {
             return get4Bytes(nodeOfs + (collectingTwoTimeStamps ? OFS_SUBNODE02 : OFS_SUBNODE01) + (childOfsSize * childIdx));
@@ -25,6 +25,7 @@
 
 package org.graalvm.visualvm.lib.jfluid.results.cpu;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
@@ -137,20 +138,33 @@ public class CPUCallGraphBuilder extends BaseCallGraphBuilder implements CPUProf
                     continue; // Can happen if thread just created, but nothing has been executed on its behalf yet
                 }
 
-                // Fix the problem with inconsistent thread times that otherwise will occur for e.g. threads sitting in wait()
-                // for long enough time when "get results" is pressed
-                applyDiffAtGetResultsMoment(ti);
-                double[] activeTimes = calculateThreadActiveTimes(ti);
+                CPUCCTContainer cct;
+                CPUCCTContainer lastCct = ti.lastPresentationCCT == null ? null : ti.lastPresentationCCT.get();
 
-                TimedCPUCCTNode rootNode = ti.stack[0];
+                if (lastCct != null && ti.lastPresentationModCount == ti.modCount && isOutsideProfiledCode(ti) &&
+                    lastCct.isReusableFor(cpuSnapshot, methodInfoMapper, timingAdjuster, instrFilter, threadNames[i])) {
+                    // The CCT didn't change since the last snapshot, only reuse the already generated compact data
+                    cct = new CPUCCTContainer(lastCct, cpuSnapshot, calculateThreadActiveTimes(ti));
+                } else {
+                    // Fix the problem with inconsistent thread times that otherwise will occur for e.g. threads sitting in wait()
+                    // for long enough time when "get results" is pressed
+                    applyDiffAtGetResultsMoment(ti);
+                    double[] activeTimes = calculateThreadActiveTimes(ti);
+
+                    TimedCPUCCTNode rootNode = ti.stack[0];
+
+                    cct = new CPUCCTContainer(rootNode, cpuSnapshot, methodInfoMapper, timingAdjuster, 
+                                              instrFilter, ti.totalNNodes, activeTimes, ti.threadId, threadNames[i]);
+
+                    undoDiffAtGetResultsMoment(ti);
+                }
 
-                CPUCCTContainer cct = new CPUCCTContainer(rootNode, cpuSnapshot, methodInfoMapper, timingAdjuster, 
-                                                          instrFilter, ti.totalNNodes, activeTimes, ti.threadId, threadNames[i]);
+                ti.lastPresentationCCT = new WeakReference<>(cct);
+                ti.lastPresentationModCount = ti.modCount;
 
                 if ((cct.rootNode != null) && (cct.rootNode.getNChildren() > 0)) {
                     ccts.add(cct);
                 }
-                undoDiffAtGetResultsMoment(ti);
             }
 
             return (CPUCCTContainer[]) ccts.toArray(new CPUCCTContainer[0]);
@@ -159,6 +173,14 @@ public class CPUCallGraphBuilder extends BaseCallGraphBuilder implements CPUProf
         }
     }
 
+    /**
+     * Returns true if no method of the thread is on the stack. Times of such thread's CCT nodes
+     * don't change until a new method is entered.
+     */
+    private static boolean isOutsideProfiledCode(ThreadInfo ti) {
+        return ti.stackTopIdx == -1 || (ti.stackTopIdx == 0 && ti.stack[0] instanceof ThreadCPUCCTNode);
+    }
+
     public void setMethodInfoMapper(MethodInfoMapper mapper) {
         this.methodInfoMapper = mapper != null ? mapper : MethodInfoMapper.DEFAULT;
     }
@@ -30,7 +30,9 @@ import org.graalvm.visualvm.lib.jfluid.utils.formatting.MethodNameFormatterFacto
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import javax.swing.tree.TreeNode;
 import org.graalvm.visualvm.lib.jfluid.results.FilterSortSupport;
@@ -199,6 +201,87 @@ public abstract class PrestimeCPUCCTNode extends CCTNode implements Cloneable {
         }
     }
 
+    // --- Live results support ---
+    
+    /**
+     * Updates this tree in place to match the corresponding tree of newer live results. Values of this
+     * node and of its already created descendants are taken from the matching nodes of the new tree,
+     * new children are adopted from the new tree and children that no longer exist are removed. Nodes
+     * not created yet are created on demand from the new data. Subtrees of threads which didn't change
+     * since the previous results are only relinked to the new data.
+     * 
+     * @param node the corresponding node of the newer tree
+     * @return true if any node of the tree changed, false otherwise
+     */
+    public boolean updateFrom(PrestimeCPUCCTNode node) {
+        if (parent != null && isThreadNode() && container.sharesDataWith(node.container)) {
+            // The thread CCT didn't change, only release the previous results
+            updateValues(node);
+            relinkContainer(node.container);
+            return false;
+        }
+        
+        boolean changed = !hasSameValues(node);
+        updateValues(node);
+        
+        if (children != null) {
+            PrestimeCPUCCTNode[] newChildren = (PrestimeCPUCCTNode[])node.getChildren();
+            if (newChildren == null) newChildren = new PrestimeCPUCCTNode[0];
+            
+            Map<PrestimeCPUCCTNode, PrestimeCPUCCTNode> oldChildren = new HashMap<>();
+            for (PrestimeCPUCCTNode child : children) oldChildren.put(child, child);
+            if (oldChildren.size() != newChildren.length) changed = true;
+            
+            PrestimeCPUCCTNode[] updatedChildren = new PrestimeCPUCCTNode[newChildren.length];
+            for (int i = 0; i < newChildren.length; i++) {
+                PrestimeCPUCCTNode newChild = newChildren[i];
+                PrestimeCPUCCTNode oldChild = oldChildren.remove(newChild);
+                if (oldChild != null) {
+                    if (oldChild.updateFrom(newChild)) changed = true;
+                    updatedChildren[i] = oldChild;
+                } else {
+                    // Self time nodes reference the parent of their method node
+                    if (newChild.parent == node) newChild.parent = this;
+                    else if (newChild.parent == node.parent) newChild.parent = parent;
+                    updatedChildren[i] = newChild;
+                    changed = true;
+                }
+            }
+            if (!oldChildren.isEmpty()) changed = true;
+            
+            setUpdatedChildren(updatedChildren);
+        }
+        
+        return changed;
+    }
+    
+    boolean hasSameValues(PrestimeCPUCCTNode node) {
+        return nCalls == node.nCalls && sleepTime0 == node.sleepTime0 && totalTime0 == node.totalTime0 &&
+               totalTime1 == node.totalTime1 && waitTime0 == node.waitTime0;
+    }
+    
+    void updateValues(PrestimeCPUCCTNode node) {
+        container = node.container;
+        
+        nCalls = node.nCalls;
+        
+        sleepTime0 = node.sleepTime0;
+        totalTime0 = node.totalTime0;
+        totalTime1 = node.totalTime1;
+        waitTime0 = node.waitTime0;
+    }
+    
+    void setUpdatedChildren(PrestimeCPUCCTNode[] updatedChildren) {
+        children = updatedChildren;
+    }
+    
+    private void relinkContainer(CPUCCTContainer newContainer) {
+        if (children != null) for (PrestimeCPUCCTNode child : children) {
+            child.container = newContainer;
+            child.relinkContainer(newContainer);
+        }
+    }
+
     protected static Collection<PrestimeCPUCCTNode> resolveChildren(PrestimeCPUCCTNode node) {
         List<PrestimeCPUCCTNode> chldrn = new ArrayList();
         PrestimeCPUCCTNode[] chld = (PrestimeCPUCCTNode[])node.getChildren();
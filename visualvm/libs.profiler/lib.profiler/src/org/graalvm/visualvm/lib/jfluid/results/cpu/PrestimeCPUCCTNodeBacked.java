@@ -131,6 +131,27 @@ public class PrestimeCPUCCTNodeBacked extends PrestimeCPUCCTNode {
         nChildren = children.length;
     }
     
+    boolean hasSameValues(PrestimeCPUCCTNode node) {
+        if (!super.hasSameValues(node)) return false;
+        if (children != null || !(node instanceof PrestimeCPUCCTNodeBacked)) return true;
+        return nChildren == ((PrestimeCPUCCTNodeBacked)node).nChildren;
+    }
+    
+    void updateValues(PrestimeCPUCCTNode node) {
+        super.updateValues(node);
+        if (node instanceof PrestimeCPUCCTNodeBacked) {
+            PrestimeCPUCCTNodeBacked _node = (PrestimeCPUCCTNodeBacked)node;
+            selfCompactDataOfs = _node.selfCompactDataOfs;
+            compactDataOfs = _node.compactDataOfs;
+            if (children == null) nChildren = _node.nChildren;
+        }
+    }
+    
+    void setUpdatedChildren(PrestimeCPUCCTNode[] updatedChildren) {
+        super.setUpdatedChildren(updatedChildren);
+        nChildren = updatedChildren.length;
+    }
+    
     public PrestimeCPUCCTNodeBacked createRootCopy() {
         PrestimeCPUCCTNodeBacked copy = new PrestimeCPUCCTNodeBacked(container, parent, selfCompactDataOfs);
         
@@ -24,6 +24,7 @@
  */
 package org.graalvm.visualvm.lib.jfluid.results.cpu;
 
+import java.lang.ref.WeakReference;
 import org.graalvm.visualvm.lib.jfluid.results.cpu.cct.nodes.TimedCPUCCTNode;
 
 public class ThreadInfo {
@@ -63,6 +64,12 @@ public class ThreadInfo {
     public long topMethodEntryTime1;
     // Entry (or "re-entry" upon return from the callee) time for the topmost method
     public long totalNInv;
+    // Number of push/pop operations, used to detect threads which didn't change since the last results snapshot
+    int modCount;
+    // Presentation CCT created for the last results snapshot and the modCount it was created for,
+    // held weakly to not retain the last snapshot once it's no longer displayed
+    WeakReference<CPUCCTContainer> lastPresentationCCT;
+    int lastPresentationModCount;
 
     ThreadInfo(int threadId) {
         super();
@@ -89,6 +96,7 @@ public class ThreadInfo {
                 node = stack[stackTopIdx];
                 stack[stackTopIdx] = null;
                 stackTopIdx--;
+                modCount++;
             }
             return node;
         }
@@ -103,6 +111,7 @@ public class ThreadInfo {
             stack[stackTopIdx] = node;
             node.addNCalls(1);
             totalNInv++;
+            modCount++;
         }
     }
 
@@ -111,6 +111,9 @@ public class ThreadInfos {
     public void reset() {
         beginTrans(true);
         try {
+            // ThreadInfo instances may still be referenced elsewhere, don't let them hold the last results
+            if (threadInfos != null) for (ThreadInfo ti : threadInfos)
+                if (ti != null) ti.lastPresentationCCT = null;
             threadInfos = null;
             threadNames = null;
             threadClassNames = null;
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.server;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * Allocation counts and sampling thresholds of the instrumented classes, striped by the allocating
+ * thread. Threads running on different cores update different stripes, so that counting an allocation
+ * doesn't require a global lock and the counters don't bounce between caches. The stripes are summed
+ * when the results are requested.
+ *
+ * @author Tomas Hurka
+ */
+final class AllocationCounters {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    static final int STRIPES = getStripesCount();
+
+    //~ Instance fields ----------------------------------------------------------------------------------------------------------
+
+    private final AtomicIntegerArray[] counts;
+    private final short[][] thresholds;
+    private final int length;
+
+    //~ Constructors -------------------------------------------------------------------------------------------------------------
+
+    AllocationCounters(int length) {
+        this.length = length;
+        counts = new AtomicIntegerArray[STRIPES];
+        thresholds = new short[STRIPES][];
+
+        for (int i = 0; i < STRIPES; i++) {
+            counts[i] = new AtomicIntegerArray(length);
+            thresholds[i] = new short[length];
+        }
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------------------------------------
+
+    static int getStripe(ThreadInfo ti) {
+        return ti.threadId & (STRIPES - 1);
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /** Returns counters for newLength classes, with the current counts and thresholds copied */
+    AllocationCounters grow(int newLength) {
+        AllocationCounters newCounters = new AllocationCounters(newLength);
+
+        for (int i = 0; i < STRIPES; i++) {
+            AtomicIntegerArray stripe = counts[i];
+            AtomicIntegerArray newStripe = newCounters.counts[i];
+
+            for (int j = 0; j < length; j++) {
+                newStripe.set(j, stripe.get(j));
+            }
+            System.arraycopy(thresholds[i], 0, newCounters.thresholds[i], 0, length);
+        }
+
+        return newCounters;
+    }
+
+    /** Counts an allocation, returns the number of allocations of the class counted by the stripe */
+    int increment(int stripe, int classId) {
+        return counts[stripe].incrementAndGet(classId);
+    }
+
+    // The thresholds are intentionally not synchronized, a lost update of a stripe shared by several threads
+    // only shifts the next sampled allocation
+    short getThreshold(int stripe, int classId) {
+        return thresholds[stripe][classId];
+    }
+
+    void setThreshold(int stripe, int classId, short threshold) {
+        thresholds[stripe][classId] = threshold;
+    }
+
+    void decrementThreshold(int stripe, int classId) {
+        thresholds[stripe][classId]--;
+    }
+
+    /** Stores the total allocation counts of all stripes into target */
+    void sum(int[] target) {
+        int len = Math.min(length, target.length);
+
+        for (int j = 0; j < len; j++) {
+            int sum = 0;
+
+            for (int i = 0; i < STRIPES; i++) {
+                sum += counts[i].get(j);
+            }
+
+            target[j] = sum;
+        }
+    }
+
+    private static int getStripesCount() {
+        int stripes = Integer.getInteger("org.graalvm.visualvm.lib.jfluid.server.allocationStripes", // NOI18N
+                                         Runtime.getRuntime().availableProcessors()).intValue();
+        int count = 1;
+
+        while ((count < stripes) && (count < 256)) {
+            count <<= 1;
+        }
+
+        return count;
+    }
+}
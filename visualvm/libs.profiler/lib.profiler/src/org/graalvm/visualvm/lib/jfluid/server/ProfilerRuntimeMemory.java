@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 1997, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 1997, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -43,21 +43,22 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
 
     protected static final int MAX_STACK_FRAMES = 100; // Maximum number of stack frames that we can sample
     protected static final int NO_OF_PROFILER_FRAMES = 3; // Number of our own frames on stack when we take a stack sample
-    protected static int[] allocatedInstancesCount;
+    protected static int[] allocatedInstancesCount; // Totals, summed from allocationCounters when results are requested
     protected static int allocatedInstArrayLength;
-    protected static short[] allocatedInstThreshold;
+    protected static volatile AllocationCounters allocationCounters;
     protected static char[] objectSize;
     protected static short samplingInterval;
     protected static int stackSamplingDepth;
     static final Object classIdMapLock = new Object();
-    private static int currentStackDepth;
-    private static int[] stackFrameIds;
+    static final Object stacksLock = new Object();
+    private static boolean stackFrameIdsThreadSafe;
     private static Map classIdMap;
     private static volatile boolean resultsAvailable;
     private static final boolean DEBUG = false;
 
     // -------------------------------------- Miscellaneous support routines ------------------------------------------
-    private static long randSeed;
+    private static final int RAND_SEED_PADDING = 8; // Keeps seeds of different stripes in different cache lines
+    private static final long[] randSeeds = new long[AllocationCounters.STRIPES * RAND_SEED_PADDING];
     private static int bits;
     private static short samplingIntervalBase;
 
@@ -67,19 +68,15 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
         allocatedInstancesCount = aic;
 
         if (aic == null) {
-            allocatedInstThreshold = null;
+            allocationCounters = null;
             objectSize = null;
-            stackFrameIds = null;
+            allocatedInstArrayLength = 0;
             Stacks.clearNativeStackFrameBuffer();
 
             return;
         } else if (allocatedInstArrayLength < aic.length) {
-            short[] oldThresh = (allocatedInstThreshold != null) ? allocatedInstThreshold : null;
-            allocatedInstThreshold = new short[aic.length];
-
-            if (oldThresh != null) {
-                System.arraycopy(oldThresh, 0, allocatedInstThreshold, 0, allocatedInstArrayLength);
-            }
+            AllocationCounters oldCounters = allocationCounters;
+            allocationCounters = (oldCounters != null) ? oldCounters.grow(aic.length) : new AllocationCounters(aic.length);
 
             char[] oldObjectSize = (objectSize != null) ? objectSize : null;
             objectSize = new char[aic.length];
@@ -102,8 +99,6 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
             if (val > MAX_STACK_FRAMES) {
                 val = MAX_STACK_FRAMES;
             }
-        } else {
-            currentStackDepth = 0;
         }
 
         stackSamplingDepth = val;
@@ -119,10 +114,13 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
         if (allocatedInstancesCount != null) {
             for (int i = 0; i < allocatedInstancesCount.length; i++) {
                 allocatedInstancesCount[i] = 0;
-                allocatedInstThreshold[i] = 0;
             }
         }
 
+        if (allocationCounters != null) {
+            allocationCounters = new AllocationCounters(allocatedInstArrayLength);
+        }
+
         if (instrType == INSTR_OBJECT_LIVENESS) {
             ProfilerRuntimeObjLiveness.resetProfilerCollectors();
         }
@@ -195,41 +193,75 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
         return classIdInt.intValue();
     }
     
+    /** Stores the allocation counts of all threads into the allocatedInstancesCount array */
+    static void sumAllocatedInstancesCount() {
+        AllocationCounters counters = allocationCounters;
+        int[] aic = allocatedInstancesCount;
+
+        if ((counters != null) && (aic != null)) {
+            counters.sum(aic);
+        }
+    }
+
     static boolean isInternalClass(Class clazz) {
         return clazz == ThreadInfo.class || clazz == ThreadInfo[].class;
     }
     
     // ------------------------------------------ Stack trace obtaining -----------------------------------------------
 
+    // The stack is taken into the thread's own stackFrameIds[] array, only writing the event into the shared
+    // eventBuffer is synchronized. Stacks.getCurrentStackFrameIds() has to be called directly from
+    // getAndSendCurrentStackTrace(), see NO_OF_PROFILER_FRAMES.
+
     /** This is used in Object Allocation profiling mode */
-    protected static synchronized void getAndSendCurrentStackTrace(int classId, long objSize) {
-        if (eventBuffer == null) {
+    protected static void getAndSendCurrentStackTrace(ThreadInfo ti, int classId, long objSize) {
+        byte[] evBuf = eventBuffer;
+
+        if (evBuf == null) {
             return; // Chances are that instrumentation has been removed while we were executing instrumentation code
         }
 
-        synchronized (eventBuffer) { // Note that we have to use synchronization here due to the static stackFrameIds[] array
+        int[] stackFrameIds = ti.getStackFrameIdsBuffer(MAX_STACK_FRAMES);
+        int depth = 0;
 
-            if (stackSamplingDepth != 0) {
-                currentStackDepth = Stacks.getCurrentStackFrameIds(Thread.currentThread(), stackSamplingDepth, stackFrameIds);
+        if (stackSamplingDepth != 0) {
+            if (stackFrameIdsThreadSafe) {
+                depth = Stacks.getCurrentStackFrameIds(Thread.currentThread(), stackSamplingDepth, stackFrameIds);
+            } else {
+                synchronized (stacksLock) {
+                    depth = Stacks.getCurrentStackFrameIds(Thread.currentThread(), stackSamplingDepth, stackFrameIds);
+                }
             }
+        }
 
-            writeObjAllocStackTraceEvent(classId, objSize);
+        synchronized (evBuf) {
+            writeObjAllocStackTraceEvent(classId, objSize, stackFrameIds, depth);
         }
     }
 
     /** This is used in Object Liveness profiling mode */
-    protected static synchronized void getAndSendCurrentStackTrace(int classId, char epoch, int objCount, long objSize) {
-        if (eventBuffer == null) {
+    protected static void getAndSendCurrentStackTrace(ThreadInfo ti, int classId, char epoch, int objCount, long objSize) {
+        byte[] evBuf = eventBuffer;
+
+        if (evBuf == null) {
             return; // Chances are that instrumentation has been removed while we were executing instrumentation code
         }
 
-        synchronized (eventBuffer) { // Note that we have to use synchronization here due to the static stackFrameIds[] array
+        int[] stackFrameIds = ti.getStackFrameIdsBuffer(MAX_STACK_FRAMES);
+        int depth = 0;
 
-            if (stackSamplingDepth != 0) {
-                currentStackDepth = Stacks.getCurrentStackFrameIds(Thread.currentThread(), stackSamplingDepth, stackFrameIds);
+        if (stackSamplingDepth != 0) {
+            if (stackFrameIdsThreadSafe) {
+                depth = Stacks.getCurrentStackFrameIds(Thread.currentThread(), stackSamplingDepth, stackFrameIds);
+            } else {
+                synchronized (stacksLock) {
+                    depth = Stacks.getCurrentStackFrameIds(Thread.currentThread(), stackSamplingDepth, stackFrameIds);
+                }
             }
+        }
 
-            writeObjLivenessStackTraceEvent(classId, epoch, objCount, objSize);
+        synchronized (evBuf) {
+            writeObjLivenessStackTraceEvent(classId, epoch, objCount, objSize, stackFrameIds, depth);
         }
     }
 
@@ -264,14 +296,15 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
     protected static void clearDataStructures() {
         ProfilerRuntime.clearDataStructures();
         allocatedInstancesCount = null;
-        stackFrameIds = null;
+        allocationCounters = null;
+        allocatedInstArrayLength = 0;
         Stacks.clearNativeStackFrameBuffer();
     }
 
     protected static void createNewDataStructures() {
         ProfilerRuntime.createNewDataStructures();
-        stackFrameIds = new int[MAX_STACK_FRAMES];
         Stacks.createNativeStackFrameBuffer(MAX_STACK_FRAMES);
+        stackFrameIdsThreadSafe = Stacks.isStackFrameIdsThreadSafe();
         classIdMap = new HashMap();
         resultsAvailable = false;
     }
@@ -281,7 +314,11 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
     }
 
     protected static void initRandomGenerator() {
-        randSeed = System.currentTimeMillis();
+        long seed = System.currentTimeMillis();
+
+        for (int i = 0; i < randSeeds.length; i += RAND_SEED_PADDING) {
+            randSeeds[i] = seed + i;
+        }
 
         if (samplingInterval == 1) {
             return;
@@ -312,13 +349,15 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
         }
     }
 
-    protected static short nextRandomizedInterval() {
+    protected static short nextRandomizedInterval(int stripe) {
         if (samplingInterval == 1) {
             return 1;
         }
 
         // This is copied from 'int java.util.Random.next(int bits)'
-        randSeed = ((randSeed * 0x5DEECE66DL) + 0xBL) & ((1L << 48) - 1);
+        int idx = stripe * RAND_SEED_PADDING;
+        long randSeed = ((randSeeds[idx] * 0x5DEECE66DL) + 0xBL) & ((1L << 48) - 1);
+        randSeeds[idx] = randSeed;
 
         return (short) (samplingIntervalBase + ((int) (randSeed >>> (48 - bits))));
     }
@@ -326,13 +365,13 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
     // ---------------------------------------- Writing profiler events -----------------------------------------
 
     /** Note that there is no synchronized(eventBuffer) in this method, since synchronization is already required by its callers */
-    protected static void writeObjAllocStackTraceEvent(int classId, long objSize) {
+    protected static void writeObjAllocStackTraceEvent(int classId, long objSize, int[] stackFrameIds, int depth) {
         if (eventBuffer == null) {
             return; // Instrumentation removal happened when we were in instrumentation 
         }
 
-        if (currentStackDepth != 0) {
-            currentStackDepth -= NO_OF_PROFILER_FRAMES; // Top frames are our own methods
+        if (depth != 0) {
+            depth -= NO_OF_PROFILER_FRAMES; // Top frames are our own methods
         }
 
         if (!resultsAvailable) {
@@ -342,7 +381,7 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
 
         int curPos = globalEvBufPos;
 
-        if ((curPos + 16 + (currentStackDepth * 4)) > globalEvBufPosThreshold) { // Dump the buffer
+        if ((curPos + 16 + (depth * 4)) > globalEvBufPosThreshold) { // Dump the buffer
             externalActionsHandler.handleEventBufferDump(eventBuffer, 0, curPos);
             curPos = 0;
         }
@@ -357,7 +396,7 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
         eventBuffer[curPos++] = (byte) ((objSize >> 8) & 0xFF);
         eventBuffer[curPos++] = (byte) (objSize & 0xFF);
 
-        curPos = writeStack(curPos);
+        curPos = writeStack(curPos, stackFrameIds, depth);
         globalEvBufPos = curPos;
     }
 
@@ -388,13 +427,14 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
     }
 
     /** Note that there is no synchronized(eventBuffer) in this method, since synchronization is already required by its callers */
-    protected static void writeObjLivenessStackTraceEvent(int classId, char epoch, int objCount, long objSize) {
+    protected static void writeObjLivenessStackTraceEvent(int classId, char epoch, int objCount, long objSize,
+                                                          int[] stackFrameIds, int depth) {
         if (eventBuffer == null) {
             return; // Instrumentation removal happened when we were in instrumentation 
         }
 
-        if (currentStackDepth != 0) {
-            currentStackDepth -= NO_OF_PROFILER_FRAMES; // Top 4 frames are our own methods
+        if (depth != 0) {
+            depth -= NO_OF_PROFILER_FRAMES; // Top 4 frames are our own methods
         }
 
         if (!resultsAvailable) {
@@ -404,7 +444,7 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
 
         int curPos = globalEvBufPos;
 
-        if ((curPos + 24 + (currentStackDepth * 4)) > globalEvBufPosThreshold) { // Dump the buffer
+        if ((curPos + 24 + (depth * 4)) > globalEvBufPosThreshold) { // Dump the buffer
             externalActionsHandler.handleEventBufferDump(eventBuffer, 0, curPos);
             curPos = 0;
         }
@@ -425,14 +465,14 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
         eventBuffer[curPos++] = (byte) ((objSize >> 8) & 0xFF);
         eventBuffer[curPos++] = (byte) (objSize & 0xFF);
 
-        curPos = writeStack(curPos);
+        curPos = writeStack(curPos, stackFrameIds, depth);
         globalEvBufPos = curPos;
     }
 
-    private static int writeStack(int curPos) {
-        eventBuffer[curPos++] = (byte) ((currentStackDepth >> 16) & 0xFF);
-        eventBuffer[curPos++] = (byte) ((currentStackDepth >> 8) & 0xFF);
-        eventBuffer[curPos++] = (byte) ((currentStackDepth) & 0xFF);
+    private static int writeStack(int curPos, int[] stackFrameIds, int depth) {
+        eventBuffer[curPos++] = (byte) ((depth >> 16) & 0xFF);
+        eventBuffer[curPos++] = (byte) ((depth >> 8) & 0xFF);
+        eventBuffer[curPos++] = (byte) ((depth) & 0xFF);
 
         /// A variant when we send non-reversed call graph
         //int base = depth + NO_OF_PROFILER_FRAMES - 1;
@@ -442,7 +482,7 @@ public class ProfilerRuntimeMemory extends ProfilerRuntime {
         //}
         int frameIdx = NO_OF_PROFILER_FRAMES;
 
-        for (int i = 0; i < currentStackDepth; i++) {
+        for (int i = 0; i < depth; i++) {
             eventBuffer[curPos++] = (byte) ((stackFrameIds[frameIdx] >> 24) & 0xFF);
             eventBuffer[curPos++] = (byte) ((stackFrameIds[frameIdx] >> 16) & 0xFF);
             eventBuffer[curPos++] = (byte) ((stackFrameIds[frameIdx] >> 8) & 0xFF);
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 1997, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 1997, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -103,17 +103,24 @@ public class ProfilerRuntimeObjAlloc extends ProfilerRuntimeMemory {
             classInt = classId&0xff;
             classInt |= classId&0xff00;
         }
-        synchronized (allocatedInstancesCount) {
-            allocatedInstancesCount[classInt]++;
+        AllocationCounters counters = allocationCounters;
+
+        if (counters == null || classInt >= counters.getLength()) {
+            // Profiling stopped concurrently or the counters are being resized
+            ti.inProfilingRuntimeMethod--;
+            return;
         }
 
-        if (allocatedInstThreshold[classInt] <= 0) {
+        int stripe = AllocationCounters.getStripe(ti);
+        counters.increment(stripe, classInt);
+
+        if (counters.getThreshold(stripe, classInt) <= 0) {
             long objSize = getCachedObjectSize(classInt, object);
-            getAndSendCurrentStackTrace(classInt, objSize);
-            allocatedInstThreshold[classInt] = nextRandomizedInterval();
+            getAndSendCurrentStackTrace(ti, classInt, objSize);
+            counters.setThreshold(stripe, classInt, nextRandomizedInterval(stripe));
         }
 
-        allocatedInstThreshold[classInt]--;
+        counters.decrementThreshold(stripe, classInt);
         ti.inProfilingRuntimeMethod--;
     }
 
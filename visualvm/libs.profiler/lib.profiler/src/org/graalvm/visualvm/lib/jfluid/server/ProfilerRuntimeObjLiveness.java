@@ -29,6 +29,9 @@ import org.graalvm.visualvm.lib.jfluid.server.system.GC;
 import org.graalvm.visualvm.lib.jfluid.server.system.Threads;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 
 /**
@@ -44,6 +47,8 @@ public class ProfilerRuntimeObjLiveness extends ProfilerRuntimeMemory {
         //~ Instance fields ------------------------------------------------------------------------------------------------------
 
         long objId;
+        volatile WeakRefSet.Chunk chunk; // Position in the WeakRefSet, set when the reference is inserted or removed
+        int slot;
 
         //~ Constructors ---------------------------------------------------------------------------------------------------------
 
@@ -57,6 +62,8 @@ public class ProfilerRuntimeObjLiveness extends ProfilerRuntimeMemory {
     static class ReferenceManagerThread extends Thread {
         //~ Instance fields ------------------------------------------------------------------------------------------------------
 
+        private static final int CLEANUP_INTERVAL = 4096;
+
         private volatile boolean terminated;
 
         //~ Constructors ---------------------------------------------------------------------------------------------------------
@@ -69,12 +76,25 @@ public class ProfilerRuntimeObjLiveness extends ProfilerRuntimeMemory {
         //~ Methods --------------------------------------------------------------------------------------------------------------
 
         public void run() {
+            int removed = 0;
+
             while (!terminated) {
                 try {
                     ProfilerRuntimeObjLivenessWeakRef wr = (ProfilerRuntimeObjLivenessWeakRef) rq.remove(200);
 
                     if (wr != null && !terminated) {
                         signalObjGC(wr);
+                        removed++;
+                    }
+
+                    if ((wr == null && removed > 0) || removed >= CLEANUP_INTERVAL) {
+                        WeakRefSet set = objSet;
+
+                        if (set != null) {
+                            set.cleanup();
+                        }
+
+                        removed = 0;
                     }
                 } catch (InterruptedException ex) { /* Should not happen */
                 }
@@ -88,74 +108,127 @@ public class ProfilerRuntimeObjLiveness extends ProfilerRuntimeMemory {
         }
     }
 
-    /** A hashtable keeping a set of all tracked objects */
+    /**
+     * A set keeping all tracked objects strongly reachable until they are enqueued. Allocating threads insert
+     * without locking into per-stripe lists of fixed size chunks, the ReferenceManagerThread clears the slots of
+     * the enqueued references and from time to time unlinks the chunks which have been emptied completely.
+     */
     static class WeakRefSet {
+        //~ Static fields/initializers -------------------------------------------------------------------------------------------
+
+        private static final int CHUNK_SIZE = 1024;
+
+        // Marks a reference removed before put() published its position, put() then clears the slot itself
+        private static final Chunk REMOVED = new Chunk(null);
+        private static final AtomicReferenceFieldUpdater<ProfilerRuntimeObjLivenessWeakRef, Chunk> KEY_CHUNK =
+                AtomicReferenceFieldUpdater.newUpdater(ProfilerRuntimeObjLivenessWeakRef.class, Chunk.class, "chunk"); // NOI18N
+
         //~ Instance fields ------------------------------------------------------------------------------------------------------
 
-        private WeakReference[] keys;
-        private int capacity;
-        private int nObjects;
-        private int threshold;
+        private final AtomicReferenceArray<Chunk> heads;
 
         //~ Constructors ---------------------------------------------------------------------------------------------------------
 
         WeakRefSet() {
-            capacity = 1003;
-            setThreshold();
-            keys = new WeakReference[capacity];
+            heads = new AtomicReferenceArray<Chunk>(AllocationCounters.STRIPES);
+
+            for (int i = 0; i < AllocationCounters.STRIPES; i++) {
+                heads.set(i, new Chunk(null));
+            }
         }
 
         //~ Methods --------------------------------------------------------------------------------------------------------------
 
-        public synchronized void put(WeakReference key) {
-            if (nObjects > threshold) {
-                rehash();
-            }
+        /** Lock-free, called by the allocating threads */
+        void put(ProfilerRuntimeObjLivenessWeakRef key, int stripe) {
+            while (true) {
+                Chunk chunk = heads.get(stripe);
 
-            int pos = (key.hashCode() & 0x7FFFFFFF) % capacity;
+                // live is incremented before claiming the slot, so that cleanup() never unlinks a chunk
+                // with a pending store
+                chunk.live.incrementAndGet();
 
-            while (keys[pos] != null) {
-                pos = (pos + 1) % capacity;
-            }
+                int slot = chunk.claimed.getAndIncrement();
 
-            keys[pos] = key;
-            nObjects++;
-        }
+                if (slot < CHUNK_SIZE) {
+                    chunk.refs.set(slot, key);
+                    key.slot = slot;
+
+                    if (!KEY_CHUNK.compareAndSet(key, null, chunk)) {
+                        clear(chunk, slot); // already enqueued and removed
+                    }
+
+                    return;
+                }
 
-        public synchronized void remove(WeakReference key) {
-            int pos = (key.hashCode() & 0x7FFFFFFF) % capacity;
+                chunk.live.decrementAndGet();
+                heads.compareAndSet(stripe, chunk, new Chunk(chunk));
+            }
+        }
 
-            while (keys[pos] != key) {
-                pos = (pos + 1) % capacity;
+        /** Called by the ReferenceManagerThread only */
+        void remove(ProfilerRuntimeObjLivenessWeakRef key) {
+            if (KEY_CHUNK.compareAndSet(key, null, REMOVED)) {
+                return; // enqueued before put() published the position, put() clears the slot
             }
 
-            keys[pos] = null;
-            nObjects--;
+            Chunk chunk = key.chunk;
+
+            if (chunk != REMOVED) {
+                clear(chunk, key.slot);
+                key.chunk = REMOVED;
+            }
         }
 
-        private void setThreshold() {
-            threshold = (capacity * 3) / 4;
+        private static void clear(Chunk chunk, int slot) {
+            chunk.refs.set(slot, null);
+            chunk.live.decrementAndGet();
         }
 
-        private void rehash() {
-            WeakReference[] oldKeys = keys;
-            int oldCapacity = capacity;
-            capacity = (capacity * 2) + 1;
-            keys = new WeakReference[capacity];
+        /** Unlinks completely emptied chunks, called by the ReferenceManagerThread only */
+        void cleanup() {
+            for (int i = 0; i < heads.length(); i++) {
+                // The head is never unlinked, allocating threads only replace it, so next pointers
+                // are modified by this thread only
+                Chunk prev = heads.get(i);
+                Chunk chunk = prev.next;
+
+                while (chunk != null) {
+                    if ((chunk.claimed.get() >= CHUNK_SIZE) && (chunk.live.get() == 0)) {
+                        prev.next = chunk.next;
+                    } else {
+                        prev = chunk;
+                    }
 
-            for (int i = 0; i < oldCapacity; i++) {
-                if (oldKeys[i] != null) {
-                    int pos = (oldKeys[i].hashCode() & 0x7FFFFFFF) % capacity;
+                    chunk = prev.next;
+                }
+            }
+        }
 
-                    while (keys[pos] != null) {
-                        pos = (pos + 1) % capacity;
-                    }
+        int getChunksCount() {
+            int count = 0;
 
-                    keys[pos] = oldKeys[i];
+            for (int i = 0; i < heads.length(); i++) {
+                for (Chunk chunk = heads.get(i); chunk != null; chunk = chunk.next) {
+                    count++;
                 }
             }
 
-            setThreshold();
+            return count;
+        }
+
+        //~ Inner Classes --------------------------------------------------------------------------------------------------------
+
+        private static final class Chunk {
+            final AtomicReferenceArray<ProfilerRuntimeObjLivenessWeakRef> refs =
+                    new AtomicReferenceArray<ProfilerRuntimeObjLivenessWeakRef>(CHUNK_SIZE);
+            final AtomicInteger claimed = new AtomicInteger();
+            final AtomicInteger live = new AtomicInteger();
+            volatile Chunk next;
+
+            Chunk(Chunk next) {
+                this.next = next;
+            }
         }
     }
 
@@ -164,6 +237,7 @@ public class ProfilerRuntimeObjLiveness extends ProfilerRuntimeMemory {
     protected static ReferenceQueue rq;
     private static WeakRefSet objSet;
     private static ReferenceManagerThread rmt;
+    private static final AtomicInteger objectSerial = new AtomicInteger();
     protected static boolean runGCOnGetResults;
     protected static boolean objLivenessProfilingDisabled = true;
 
@@ -253,29 +327,36 @@ public class ProfilerRuntimeObjLiveness extends ProfilerRuntimeMemory {
             classInt |= classId&0xff00;
         }
 
-        int objCount = 0;
+        AllocationCounters counters = allocationCounters;
 
-        synchronized (allocatedInstancesCount) {
-            objCount = ++allocatedInstancesCount[classInt];
+        if (counters == null || classInt >= counters.getLength()) {
+            // Profiling stopped concurrently or the counters are being resized
+            ti.inProfilingRuntimeMethod--;
+            return;
         }
 
-        if (allocatedInstThreshold[classInt] <= 0) {
+        int stripe = AllocationCounters.getStripe(ti);
+        counters.increment(stripe, classInt);
+
+        if (counters.getThreshold(stripe, classInt) <= 0) {
             //System.out.print("+++ Alloc object "); //System.out.print((int) classId); System.out.print(" "); System.out.println(object);
             char epoch = (char) GC.getCurrentGCEpoch();
+            // Only the sampled objects need an id, so a shared serial number doesn't slow down counting
+            int objCount = objectSerial.incrementAndGet();
 
             // Generate a 64-bit object id. Make sure the function is the same at the tool side!
             long objectId = (((long) classInt) << 48) | (((long) epoch) << 32) | ((long) objCount);
             ProfilerRuntimeObjLivenessWeakRef wr = new ProfilerRuntimeObjLivenessWeakRef(object, rq, objectId);
-            objSet.put(wr);
+            objSet.put(wr, stripe);
 
             long objSize = getCachedObjectSize(classInt, object);
 
-            getAndSendCurrentStackTrace(classInt, epoch, objCount, objSize);
+            getAndSendCurrentStackTrace(ti, classInt, epoch, objCount, objSize);
 
-            allocatedInstThreshold[classInt] = nextRandomizedInterval();
+            counters.setThreshold(stripe, classInt, nextRandomizedInterval(stripe));
         }
 
-        allocatedInstThreshold[classInt]--;
+        counters.decrementThreshold(stripe, classInt);
         ti.inProfilingRuntimeMethod--;
     }
 
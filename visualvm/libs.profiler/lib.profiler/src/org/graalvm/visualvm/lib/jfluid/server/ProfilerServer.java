@@ -1675,7 +1675,24 @@ public class ProfilerServer extends Thread implements CommonConstants {
                 //System.out.println(cmd);
                 GetClassFileBytesCommand getCmd = (GetClassFileBytesCommand) cmd;
                 byte[][] bytes = ProfilerInterface.getClassFileBytes(getCmd.getClasses(), getCmd.getClassLoaderIds());
-                sendComplexResponseToClient(new GetClassFileBytesResponse(bytes));
+                byte[][][] hashes = getCmd.getClassHashes();
+                byte[][] unchangedHashes = null;
+                if (hashes != null && bytes != null) {
+                    for (int i = 0; i < bytes.length && i < hashes.length; i++) {
+                        if (hashes[i] == null || bytes[i] == null) continue;
+                        byte[] hash = GetClassFileBytesCommand.getClassHash(bytes[i]);
+                        for (int j = 0; j < hashes[i].length; j++) {
+                            if (Arrays.equals(hashes[i][j], hash)) {
+                                // the client already has these bytes, don't send them again
+                                if (unchangedHashes == null) unchangedHashes = new byte[bytes.length][];
+                                unchangedHashes[i] = hash;
+                                bytes[i] = GetClassFileBytesResponse.UNCHANGED_CLASS_BYTES;
+                                break;
+                            }
+                        }
+                    }
+                }
+                sendComplexResponseToClient(new GetClassFileBytesResponse(bytes, unchangedHashes));
                 
                 break;
         }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 1997, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 1997, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -67,6 +67,7 @@ public class ThreadInfo {
 
     Thread thread; // Thread object for this ThreadInfo
     byte[] evBuf; // Thread-local event (rough profiling data) buffer. Currently used in CPU profiling only.
+    int[] stackFrameIds; // Thread-local buffer for stack samples taken in memory profiling
     boolean inCallGraph; // Indicates whether the thread is currently in the profiled subgraph
     boolean sampleDue; // In sampled instrumentation mode, indicates that next sampling should be done
     int evBufDumpLastPos; // Used to avoid synchronization in writeEvent() and yet to allow for asynchronous event buffer dumps.
@@ -104,7 +105,8 @@ public class ThreadInfo {
     }
 
     static boolean isProfilerServerMonitor(Object monitor) {
-        return monitor == threadInfosLock || monitor == ProfilerRuntimeMemory.classIdMapLock;
+        return monitor == threadInfosLock || monitor == ProfilerRuntimeMemory.classIdMapLock
+               || monitor == ProfilerRuntimeMemory.stacksLock;
     }
     
     public static boolean isCurrentThreadProfilerServerThread() {
@@ -237,6 +239,17 @@ public class ThreadInfo {
         evBuf = new byte[evBufSize];
     }
 
+    final int[] getStackFrameIdsBuffer(int size) {
+        int[] buffer = stackFrameIds;
+
+        if ((buffer == null) || (buffer.length < size)) {
+            buffer = new int[size];
+            stackFrameIds = buffer;
+        }
+
+        return buffer;
+    }
+
     void addParameter(Object par) {
         if (parameters == null) {
             parameters = new ArrayList();
@@ -357,6 +370,7 @@ public class ThreadInfo {
                     }
                     ti.thread = null; // release dead thread
                     ti.parameters = null;
+                    ti.stackFrameIds = null;
                     hasDeadThreads = true;
                 }
             }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 1997, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 1997, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -43,6 +43,20 @@ public class Stacks {
      */
     public static native int getCurrentStackFrameIds(Thread thread, int stackDepth, int[] stackFrameIds);
 
+    /**
+     * Returns true if getCurrentStackFrameIds can be called concurrently from several threads. Native libraries
+     * built before this method existed use a single shared buffer and have to be called under a lock.
+     */
+    public static boolean isStackFrameIdsThreadSafe() {
+        try {
+            return stackFrameIdsThreadSafe();
+        } catch (UnsatisfiedLinkError e) {
+            return false;
+        }
+    }
+
+    private static native boolean stackFrameIdsThreadSafe();
+
     /**
      * For the given array of jmethodIds, returns the names of the respective methods as
      * (class name, method name and method signature) triplets.
@@ -70,11 +84,9 @@ public class Stacks {
     public static native void clearNativeStackFrameBuffer();
 
     /**
-     * Creates the internal, C-level stack frame buffer, used for intermediate storage of data obtained using
-     * getCurrentStackFrameIds. Since just a single buffer is used, getCurrentStackFrameIds is obviously not
-     * multithread-safe. The code that uses this stuff has to use a single lock - so far not a problem for memory
-     * profiling where we use it, since normally it collects data for just every 10th object, thus the probability
-     * of contention is not very high.
+     * Creates the internal, C-level stack frame buffer. getCurrentStackFrameIds returns no frames until it's created.
+     * Older native libraries use the buffer for intermediate storage of data obtained using getCurrentStackFrameIds,
+     * see isStackFrameIdsThreadSafe.
      */
     public static native void createNativeStackFrameBuffer(int sizeInFrames);
 
@@ -27,6 +27,8 @@ package org.graalvm.visualvm.lib.jfluid.wireprotocol;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
 /**
@@ -35,13 +37,26 @@ import java.util.Arrays;
  */
 public class GetClassFileBytesCommand extends Command {
 
+    private static final String CLASS_HASH_ALGORITHM = "SHA-256"; // NOI18N
+
     private String[] classes;
     private int[] classLoaderIds;
+    private byte[][][] classHashes;
 
     public GetClassFileBytesCommand(String[] classes, int[] classLoaderIds) {
+        this(classes, classLoaderIds, null);
+    }
+
+    /**
+     * @param classHashes for each class the hashes (see {@link #getClassHash(byte[])}) of class file bytes
+     *                    already known to the client, null for unknown classes. The server answers
+     *                    {@link GetClassFileBytesResponse#UNCHANGED_CLASS_BYTES} for classes with a matching hash.
+     */
+    public GetClassFileBytesCommand(String[] classes, int[] classLoaderIds, byte[][][] classHashes) {
         this();
         this.classes = classes;
         this.classLoaderIds = classLoaderIds;
+        this.classHashes = classHashes;
     }
 
     // Custom serializaion support
@@ -57,6 +72,23 @@ public class GetClassFileBytesCommand extends Command {
         return classes;
     }
 
+    public byte[][][] getClassHashes() {
+        return classHashes;
+    }
+
+    /**
+     * Returns hash of the class file bytes, SHA-256 digest. The client uses its own copy of the bytes
+     * if the hashes match, so the hash must not collide for different class files.
+     */
+    public static byte[] getClassHash(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance(CLASS_HASH_ALGORITHM).digest(bytes);
+        } catch (NoSuchAlgorithmException ex) {
+            // SHA-256 is supported by every Java platform
+            throw new IllegalStateException(ex);
+        }
+    }
+
     void readObject(ObjectInputStream in) throws IOException {
         int nClasses = in.readInt();
 
@@ -71,6 +103,23 @@ public class GetClassFileBytesCommand extends Command {
             classes[i] = in.readUTF().replace('/', '.');    // NOI18N
             classLoaderIds[i] = in.readInt();
         }
+
+        if (in.readBoolean()) {
+            classHashes = new byte[nClasses][][];
+
+            for (int i = 0; i < nClasses; i++) {
+                int nHashes = in.readInt();
+
+                if (nHashes > 0) {
+                    classHashes[i] = new byte[nHashes][];
+
+                    for (int j = 0; j < nHashes; j++) {
+                        classHashes[i][j] = new byte[in.readInt()];
+                        in.readFully(classHashes[i][j]);
+                    }
+                }
+            }
+        }
     }
 
     void writeObject(ObjectOutputStream out) throws IOException {
@@ -88,8 +137,28 @@ public class GetClassFileBytesCommand extends Command {
             out.writeInt(classLoaderIds[i]);
         }
 
+        out.writeBoolean(classHashes != null);
+
+        if (classHashes != null) {
+            for (int i = 0; i < nClasses; i++) {
+                byte[][] hashes = classHashes[i];
+
+                if (hashes == null) {
+                    out.writeInt(0);
+                } else {
+                    out.writeInt(hashes.length);
+
+                    for (int j = 0; j < hashes.length; j++) {
+                        out.writeInt(hashes[j].length);
+                        out.write(hashes[j]);
+                    }
+                }
+            }
+        }
+
         classes = null;
         classLoaderIds = null;
+        classHashes = null;
     }
 
     public String toString() {
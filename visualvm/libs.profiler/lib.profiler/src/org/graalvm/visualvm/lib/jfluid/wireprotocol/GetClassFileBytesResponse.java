@@ -33,14 +33,31 @@ import java.io.ObjectOutputStream;
  * @author Tomas Hurka
  */
 public class GetClassFileBytesResponse extends Response {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    /**
+     * Marker returned instead of class file bytes matching one of the hashes provided
+     * by the client in {@link GetClassFileBytesCommand}, see {@link #getUnchangedClassHash(int)}.
+     */
+    public static final byte[] UNCHANGED_CLASS_BYTES = new byte[0];
+
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
 
     private byte[][] classBytes;
+    private byte[][] unchangedHashes;
 
     //~ Constructors -------------------------------------------------------------------------------------------------------------
     public GetClassFileBytesResponse(byte[][] bytes) {
+        this(bytes, null);
+    }
+
+    /**
+     * @param unchangedHashes the matching hash for classes answered as {@link #UNCHANGED_CLASS_BYTES}
+     */
+    public GetClassFileBytesResponse(byte[][] bytes, byte[][] unchangedHashes) {
         this();
         classBytes = bytes;
+        this.unchangedHashes = unchangedHashes;
     }
 
     // Custom serialization support
@@ -53,6 +70,14 @@ public class GetClassFileBytesResponse extends Response {
         return classBytes;
     }
 
+    /**
+     * Returns the hash of class file bytes already known to the client for a class
+     * answered as {@link #UNCHANGED_CLASS_BYTES}, null for other classes.
+     */
+    public byte[] getUnchangedClassHash(int index) {
+        return unchangedHashes == null ? null : unchangedHashes[index];
+    }
+
     // For debugging
     public String toString() {
         return "GetClassFileBytesResponse, classes: " + classBytes.length + ", " + super.toString(); // NOI18N
@@ -73,6 +98,15 @@ public class GetClassFileBytesResponse extends Response {
             if (len > 0) {
                 classBytes[i] = new byte[len];
                 in.readFully(classBytes[i]);
+            } else if (len == -1) {
+                classBytes[i] = UNCHANGED_CLASS_BYTES;
+
+                if (unchangedHashes == null) {
+                    unchangedHashes = new byte[nClasses][];
+                }
+
+                unchangedHashes[i] = new byte[in.readInt()];
+                in.readFully(unchangedHashes[i]);
             }
         }
     }
@@ -83,6 +117,10 @@ public class GetClassFileBytesResponse extends Response {
         for (int i = 0; i < classBytes.length; i++) {
             if (classBytes[i] == null) {
                 out.writeInt(0);
+            } else if (classBytes[i] == UNCHANGED_CLASS_BYTES) {
+                out.writeInt(-1);
+                out.writeInt(unchangedHashes[i].length);
+                out.write(unchangedHashes[i]);
             } else {
                 out.writeInt(classBytes[i].length);
                 out.write(classBytes[i]);
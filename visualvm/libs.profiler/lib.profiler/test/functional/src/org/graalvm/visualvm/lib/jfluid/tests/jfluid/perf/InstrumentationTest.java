@@ -34,6 +34,7 @@ package org.graalvm.visualvm.lib.jfluid.tests.jfluid.perf;
 import junit.framework.*;
 import org.netbeans.junit.NbPerformanceTest;
 import org.graalvm.visualvm.lib.jfluid.ProfilerEngineSettings;
+import org.graalvm.visualvm.lib.jfluid.classfile.ClassRepository;
 import org.graalvm.visualvm.lib.jfluid.client.ClientUtils;
 import org.graalvm.visualvm.lib.jfluid.global.CommonConstants;
 import org.graalvm.visualvm.lib.jfluid.global.ProfilingSessionStatus;
@@ -46,6 +47,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.jar.JarEntry;
@@ -57,6 +59,10 @@ import java.util.jar.JarFile;
  * @author ehucka
  */
 public class InstrumentationTest extends CommonProfilerTestCase implements NbPerformanceTest {
+    //~ Static fields/initializers -----------------------------------------------------------------------------------------------
+
+    private static final String THREADS_PROPERTY = "org.graalvm.visualvm.lib.jfluid.instrumentation.threads"; // NOI18N
+
     //~ Instance fields ----------------------------------------------------------------------------------------------------------
 
     ArrayList<NbPerformanceTest.PerformanceData> data = new ArrayList();
@@ -117,6 +123,19 @@ public class InstrumentationTest extends CommonProfilerTestCase implements NbPer
         }
     }
 
+    public void testJaxbParallel() {
+        try {
+            String jarPath = "/perfdata/jaxb-xjc.jar";
+            File f = new File(getDataDir(), jarPath);
+            assertTrue("Instrumented jar file doesn't exist.", f.exists());
+            initTest(f.getAbsolutePath());
+            startParallelInstrumentationTest(f.getAbsolutePath());
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            fail();
+        }
+    }
+
     public void testJaxbNoGettersEmpties() {
         try {
             String jarPath = "/perfdata/jaxb-xjc.jar";
@@ -289,43 +308,20 @@ public class InstrumentationTest extends CommonProfilerTestCase implements NbPer
 
     protected void startInstrumentationTest(String jarFile)
                                      throws Exception {
-        ProfilingSessionStatus status = new ProfilingSessionStatus();
-        status.targetJDKVersionString = settings.getTargetJDKVersionString();
-
         PrintStream oldOutStream = System.out;
         PrintStream oldErrStream = System.err;
         System.setOut(getLogStream());
         System.setErr(getLogStream());
 
-        Instrumentor instr = new Instrumentor(status, settings);
-        instr.setStatusInfoFromSourceCodeSelection(settings.getInstrumentationRootMethods());
-        status.currentInstrType = CommonConstants.INSTR_RECURSIVE_FULL;
-
         setClasses(jarFile);
 
-        int[] loadersIDs = new int[classNames.length];
-
-        for (int i = 0; i < classNames.length; i++) {
-            loadersIDs[i] = 20;
-        }
-
-        int[] parentloadersIDs = new int[classNames.length];
-
-        for (int i = 0; i < classNames.length; i++) {
-            parentloadersIDs[i] = 0;
-        }
-
-        RootClassLoadedCommand cmd = new RootClassLoadedCommand(classNames, loadersIDs, classesBytes, classNames.length,
-                                                                parentloadersIDs, null);
         log("Start instrumenting ...");
 
-        InstrumentMethodGroupResponse resp = null;
         long time = System.currentTimeMillis();
-        resp = instr.createInitialInstrumentMethodGroupResponse(cmd);
+        InstrumentMethodGroupResponse resp = instrument(jarFile);
         time = System.currentTimeMillis() - time;
         ref("Number of Classes: " + classNames.length);
 
-        byte[][] clbytes = resp.getReplacementClassFileBytes();
         ref("Instrumented Classes: " + resp.getBase().getNClasses());
         ref("Instrumented Methods: " + resp.getBase().getNMethods());
 
@@ -335,7 +331,6 @@ public class InstrumentationTest extends CommonProfilerTestCase implements NbPer
 
         String[] clnames = resp.getMethodClasses();
         byte[][] bts = resp.getReplacementClassFileBytes();
-        boolean comp = false;
 
         for (int i = 0; i < clnames.length; i++) {
             if (checkBytes(clnames[i], bts[i])) {
@@ -347,4 +342,98 @@ public class InstrumentationTest extends CommonProfilerTestCase implements NbPer
         System.setErr(oldErrStream);
         reportPerformance(getName(), time, "ms");
     }
+
+    /**
+     * Instruments the jar sequentially and using the instrumentation worker threads,
+     * the results must be identical.
+     */
+    protected void startParallelInstrumentationTest(String jarFile)
+                                             throws Exception {
+        PrintStream oldOutStream = System.out;
+        PrintStream oldErrStream = System.err;
+        System.setOut(getLogStream());
+        System.setErr(getLogStream());
+
+        setClasses(jarFile);
+
+        String threadsProperty = System.getProperty(THREADS_PROPERTY);
+        InstrumentMethodGroupResponse sequentialResp;
+        InstrumentMethodGroupResponse parallelResp;
+        long sequentialTime;
+        long parallelTime;
+
+        try {
+            System.setProperty(THREADS_PROPERTY, "1");
+            instrument(jarFile); // warmup
+
+            sequentialTime = System.currentTimeMillis();
+            sequentialResp = instrument(jarFile);
+            sequentialTime = System.currentTimeMillis() - sequentialTime;
+
+            System.clearProperty(THREADS_PROPERTY);
+            instrument(jarFile); // warmup
+
+            parallelTime = System.currentTimeMillis();
+            parallelResp = instrument(jarFile);
+            parallelTime = System.currentTimeMillis() - parallelTime;
+        } finally {
+            if (threadsProperty != null) {
+                System.setProperty(THREADS_PROPERTY, threadsProperty);
+            } else {
+                System.clearProperty(THREADS_PROPERTY);
+            }
+            System.setOut(oldOutStream);
+            System.setErr(oldErrStream);
+        }
+
+        log("Sequential: " + sequentialTime + " ms, parallel: " + parallelTime + " ms");
+        assertEquals("Different number of instrumented methods", sequentialResp.getBase().getNMethods(),
+                     parallelResp.getBase().getNMethods());
+        assertTrue("Different instrumented classes",
+                   Arrays.equals(sequentialResp.getMethodClasses(), parallelResp.getMethodClasses()));
+
+        byte[][] sequentialBytes = sequentialResp.getReplacementClassFileBytes();
+        byte[][] parallelBytes = parallelResp.getReplacementClassFileBytes();
+
+        for (int i = 0; i < sequentialBytes.length; i++) {
+            assertTrue("Different bytecode of " + sequentialResp.getMethodClasses()[i],
+                       Arrays.equals(sequentialBytes[i], parallelBytes[i]));
+        }
+
+        reportPerformance(getName() + " sequential", sequentialTime, "ms");
+        reportPerformance(getName() + " parallel", parallelTime, "ms");
+    }
+
+    protected InstrumentMethodGroupResponse instrument(String jarFile)
+                                                throws Exception {
+        ProfilingSessionStatus status = new ProfilingSessionStatus();
+        status.targetJDKVersionString = settings.getTargetJDKVersionString();
+
+        ClassRepository classRepo = new ClassRepository();
+        classRepo.initClassPaths(getWorkDirPath(), new String[] { jarFile, "", "" }); // NOI18N
+
+        Instrumentor instr = new Instrumentor(classRepo, status, settings);
+        instr.setStatusInfoFromSourceCodeSelection(settings.getInstrumentationRootMethods());
+        status.currentInstrType = CommonConstants.INSTR_RECURSIVE_FULL;
+
+        int[] loadersIDs = new int[classNames.length];
+        int[] superClasses = new int[classNames.length];
+        int[][] interfaces = new int[classNames.length][0];
+
+        for (int i = 0; i < classNames.length; i++) {
+            loadersIDs[i] = 20;
+            superClasses[i] = -1;
+        }
+
+        int[] parentloadersIDs = new int[classNames.length];
+
+        for (int i = 0; i < classNames.length; i++) {
+            parentloadersIDs[i] = 0;
+        }
+
+        RootClassLoadedCommand cmd = new RootClassLoadedCommand(classNames.clone(), loadersIDs, classesBytes, superClasses,
+                                                                interfaces, classNames.length, parentloadersIDs);
+
+        return instr.createInitialInstrumentMethodGroupResponse(cmd);
+    }
 }
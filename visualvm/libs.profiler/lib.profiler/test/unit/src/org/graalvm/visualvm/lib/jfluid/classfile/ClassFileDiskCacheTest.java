@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.classfile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.graalvm.visualvm.lib.jfluid.wireprotocol.GetClassFileBytesCommand;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ *
+ * @author Tomas Hurka
+ */
+public class ClassFileDiskCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("classcache").toFile(); // NOI18N
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void testVersionsStoredSideBySide() {
+        ClassFileDiskCache cache = new ClassFileDiskCache(dir, 1024 * 1024);
+        byte[] v1 = classBytes(100, 1);
+        byte[] v2 = classBytes(100, 2);
+        byte[] h1 = GetClassFileBytesCommand.getClassHash(v1);
+        byte[] h2 = GetClassFileBytesCommand.getClassHash(v2);
+
+        assertNull(cache.getHashes("a.B"));
+        cache.store("a.B", v1);
+        cache.store("a.B", v2);
+        cache.store("a.B", v1);
+
+        byte[][] hashes = cache.getHashes("a.B");
+        assertEquals(2, hashes.length);
+        assertArrayEquals(h1, hashes[0]);
+        assertArrayEquals(h2, hashes[1]);
+        assertArrayEquals(v1, cache.load("a.B", h1));
+        assertArrayEquals(v2, cache.load("a.B", h2));
+        assertNull(cache.load("a.C", h1));
+        assertEquals(200, cache.getSize());
+
+        // index is rebuilt by the next session
+        ClassFileDiskCache cache2 = new ClassFileDiskCache(dir, 1024 * 1024);
+        assertEquals(2, cache2.getHashes("a.B").length);
+        assertArrayEquals(v2, cache2.load("a.B", h2));
+        assertEquals(200, cache2.getSize());
+    }
+
+    @Test
+    public void testDamagedEntryIgnored() throws IOException {
+        ClassFileDiskCache cache = new ClassFileDiskCache(dir, 1024 * 1024);
+        byte[] v1 = classBytes(100, 1);
+        byte[] h1 = GetClassFileBytesCommand.getClassHash(v1);
+        cache.store("a.B", v1);
+
+        File[] files = dir.listFiles();
+        assertEquals(1, files.length);
+        try (FileOutputStream out = new FileOutputStream(files[0])) {
+            out.write(classBytes(100, 3));
+        }
+
+        assertNull(cache.load("a.B", h1));
+        assertNull(cache.getHashes("a.B"));
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        ClassFileDiskCache cache = new ClassFileDiskCache(dir, 1000);
+        byte[][] hashes = new byte[9][];
+
+        for (int i = 0; i < hashes.length; i++) {
+            byte[] bytes = classBytes(100, i);
+            hashes[i] = GetClassFileBytesCommand.getClassHash(bytes);
+            cache.store("a.C" + i, bytes);
+            // distinct modification times, stored in this order
+            for (File file : dir.listFiles()) if (file.getName().startsWith("a.C" + i + "#")) file.setLastModified(1000000L * (i + 1));
+        }
+        // recently used
+        assertNotNull(cache.load("a.C0", hashes[0]));
+
+        byte[] bytes = classBytes(200, 9);
+        cache.store("a.C9", bytes);
+
+        assertTrue(cache.getSize() <= 750);
+        assertEquals(cache.getSize(), totalSize());
+        assertNotNull(cache.getHashes("a.C0"));
+        assertNotNull(cache.getHashes("a.C9"));
+        assertNull(cache.getHashes("a.C1"));
+        assertNull(cache.load("a.C1", hashes[1]));
+
+        // oversized cache is trimmed by the next session
+        ClassFileDiskCache cache2 = new ClassFileDiskCache(dir, 300);
+        assertTrue(cache2.getSize() <= 225);
+        assertEquals(cache2.getSize(), totalSize());
+    }
+
+    @Test
+    public void testTemporaryFiles() throws IOException {
+        // store in progress in a concurrent session
+        File inFlight = new File(dir, "store1.tmp"); // NOI18N
+        // store interrupted by a crash
+        File stale = new File(dir, "store2.tmp"); // NOI18N
+        // entry of an older version of the cache
+        File old = new File(dir, "a.B#1234abcd.class"); // NOI18N
+        for (File file : new File[] { inFlight, stale, old }) {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(classBytes(100, 1));
+            }
+        }
+        stale.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000L);
+
+        ClassFileDiskCache cache = new ClassFileDiskCache(dir, 1024 * 1024);
+        assertTrue(inFlight.exists());
+        assertFalse(stale.exists());
+        assertFalse(old.exists());
+        assertNull(cache.getHashes("a.B"));
+        assertEquals(0, cache.getSize());
+
+        cache.store("a.B", classBytes(100, 1));
+        assertEquals(2, dir.listFiles().length);
+        assertTrue(inFlight.exists());
+    }
+
+    @Test
+    public void testClassHash() {
+        byte[] v1 = classBytes(100, 1);
+        byte[] v2 = classBytes(100, 2);
+
+        assertEquals(32, GetClassFileBytesCommand.getClassHash(v1).length);
+        assertArrayEquals(GetClassFileBytesCommand.getClassHash(v1), GetClassFileBytesCommand.getClassHash(v1.clone()));
+        assertFalse(Arrays.equals(GetClassFileBytesCommand.getClassHash(v1), GetClassFileBytesCommand.getClassHash(v2)));
+    }
+
+    private long totalSize() {
+        long size = 0;
+        for (File file : dir.listFiles()) size += file.length();
+        return size;
+    }
+
+    private static byte[] classBytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = (byte)(i * 31 + seed * 17);
+        return bytes;
+    }
+}
@@ -231,6 +231,70 @@ public class StackTraceSnapshotBuilderTest {
         assertEquals(instance.methodInfos.size(), snapshot.nInstrMethods);
     }
 
+    @Test
+    public void testCreateSnapshotReusesUnchangedThreads() throws CPUResultsSnapshot.NoDataAvailableException {
+        System.out.println("create snapshot : unchanged thread reused");
+
+        instance.addStacktrace(stack0, 0);
+        instance.addStacktrace(stackMinus, 500000);
+
+        CPUResultsSnapshot snapshot1 = instance.createSnapshot(System.currentTimeMillis());
+
+        instance.addStacktrace(stackDif, 1000000);
+
+        CPUResultsSnapshot snapshot2 = instance.createSnapshot(System.currentTimeMillis());
+
+        CPUCCTContainer changed1 = getContainer(snapshot1, thread0.getName());
+        CPUCCTContainer changed2 = getContainer(snapshot2, thread0.getName());
+        assertNotSame(changed1.compactData, changed2.compactData);
+
+        CPUCCTContainer unchanged1 = getContainer(snapshot1, thread1.getName());
+        CPUCCTContainer unchanged2 = getContainer(snapshot2, thread1.getName());
+        assertSame(unchanged1.compactData, unchanged2.compactData);
+        assertSame(snapshot2, unchanged2.getCPUResSnapshot());
+        assertEquals(unchanged1.getRootNode().getTotalTime0(), unchanged2.getRootNode().getTotalTime0());
+        assertEquals(unchanged1.getRootNode().getNChildren(), unchanged2.getRootNode().getNChildren());
+    }
+
+    @Test
+    public void testUpdateTreeFromNewerSnapshot() throws CPUResultsSnapshot.NoDataAvailableException {
+        System.out.println("update tree from newer snapshot");
+
+        instance.addStacktrace(stack0, 0);
+        instance.addStacktrace(stackMinus, 500000);
+
+        CPUResultsSnapshot snapshot1 = instance.createSnapshot(System.currentTimeMillis());
+        PrestimeCPUCCTNode root = snapshot1.getRootNode(CPUResultsSnapshot.METHOD_LEVEL_VIEW, null, false);
+        PrestimeCPUCCTNode[] threads = (PrestimeCPUCCTNode[])root.getChildren();
+        PrestimeCPUCCTNode method1 = (PrestimeCPUCCTNode)threads[0].getChildren()[0];
+        PrestimeCPUCCTNode method2 = (PrestimeCPUCCTNode)method1.getChildren()[0];
+
+        instance.addStacktrace(stackDif, 1000000);
+
+        CPUResultsSnapshot snapshot2 = instance.createSnapshot(System.currentTimeMillis());
+        PrestimeCPUCCTNode newRoot = snapshot2.getRootNode(CPUResultsSnapshot.METHOD_LEVEL_VIEW, null, false);
+        String expected = dumpTree(newRoot, "");
+
+        assertTrue(root.updateFrom(newRoot));
+        assertEquals(expected, dumpTree(root, ""));
+
+        // The displayed nodes are kept and only reference the new results
+        assertSame(threads[0], root.getChildren()[0]);
+        assertSame(threads[1], root.getChildren()[1]);
+        assertSame(method1, threads[0].getChildren()[0]);
+        assertSame(method2, method1.getChildren()[0]);
+        assertSame(getContainer(snapshot2, thread0.getName()), method2.getContainer());
+        assertSame(getContainer(snapshot2, thread1.getName()), threads[1].getContainer());
+        assertSame(getContainer(snapshot2, thread1.getName()), ((PrestimeCPUCCTNode)threads[1].getChildren()[0]).getContainer());
+
+        // No changes, no update
+        CPUResultsSnapshot snapshot3 = instance.createSnapshot(System.currentTimeMillis());
+        PrestimeCPUCCTNode sameRoot = snapshot3.getRootNode(CPUResultsSnapshot.METHOD_LEVEL_VIEW, null, false);
+        dumpTree(sameRoot, "");
+        assertFalse(root.updateFrom(sameRoot));
+        assertEquals(expected, dumpTree(root, ""));
+    }
+
     @Test
     public void testCreateSnapshotDup() throws CPUResultsSnapshot.NoDataAvailableException {
         System.out.println("create snapshot : dup");
@@ -766,6 +830,25 @@ public class StackTraceSnapshotBuilderTest {
         assertFalse(instance.threadNames.contains(ignoredThread));
     }
 
+    private CPUCCTContainer getContainer(CPUResultsSnapshot snapshot, String threadName) {
+        for (int threadId : snapshot.getThreadIds()) {
+            CPUCCTContainer container = snapshot.getContainerForThread(threadId, CPUResultsSnapshot.METHOD_LEVEL_VIEW);
+            if (threadName.equals(container.getThreadName())) return container;
+        }
+        fail("No data for thread " + threadName);
+        return null;
+    }
+
+    private String dumpTree(PrestimeCPUCCTNode node, String indent) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(indent).append(node.isThreadNode() ? "thread " + node.getThreadId() : node.isSelfTimeNode() ? "self" : "method " + node.getMethodId());
+        sb.append(' ').append(node.getNCalls()).append(' ').append(node.getTotalTime0()).append(' ').append(node.getTotalTime1()).append('\n');
+        CCTNode[] children = node.getChildren();
+        if (children != null) for (CCTNode child : children)
+            sb.append(dumpTree((PrestimeCPUCCTNode)child, indent + " "));
+        return sb.toString();
+    }
+
     private java.lang.management.ThreadInfo createThreadInfo(Thread t, StackTraceElement[] stack) {
         try {
             Constructor tinfoConstructor = java.lang.management.ThreadInfo.class.getDeclaredConstructor(
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.server;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests striped allocation counting.
+ *
+ * @author Tomas Hurka
+ */
+public class AllocationCountersTest {
+
+    private static final int CLASSES = 1000;
+
+    @Test
+    public void testSum() throws Exception {
+        final AllocationCounters counters = new AllocationCounters(CLASSES);
+        final int threads = 8;
+
+        run(threads, new Allocator() {
+            public void allocate(int thread, int classId) {
+                counters.increment(thread & (AllocationCounters.STRIPES - 1), classId);
+            }
+        }, 100000);
+
+        int[] totals = new int[CLASSES];
+        counters.sum(totals);
+
+        long total = 0;
+        for (int i = 0; i < CLASSES; i++) {
+            assertEquals("class " + i, threads * 100, totals[i]);
+            total += totals[i];
+        }
+        assertEquals(threads * 100000L, total);
+    }
+
+    @Test
+    public void testGrow() {
+        AllocationCounters counters = new AllocationCounters(2);
+        counters.increment(0, 1);
+        counters.increment(AllocationCounters.STRIPES - 1, 1);
+        counters.setThreshold(0, 0, (short) 7);
+
+        AllocationCounters grown = counters.grow(10);
+        assertEquals(10, grown.getLength());
+        assertEquals(7, grown.getThreshold(0, 0));
+        grown.increment(0, 9);
+
+        int[] totals = new int[10];
+        grown.sum(totals);
+        assertEquals(0, totals[0]);
+        assertEquals(2, totals[1]);
+        assertEquals(1, totals[9]);
+    }
+
+    @Test
+    public void testThresholds() {
+        AllocationCounters counters = new AllocationCounters(CLASSES);
+        counters.setThreshold(0, 5, (short) 2);
+        counters.decrementThreshold(0, 5);
+        assertEquals(1, counters.getThreshold(0, 5));
+        if (AllocationCounters.STRIPES > 1) {
+            assertEquals(0, counters.getThreshold(1, 5));
+        }
+    }
+
+    /** Threads counting allocations the way the agent does never share a stripe */
+    @Test
+    public void testThreadStripes() throws Exception {
+        final AllocationCounters counters = new AllocationCounters(CLASSES);
+        final int threads = AllocationCounters.STRIPES;
+        final int allocations = 10000;
+        final int[] stripes = new int[threads];
+        final boolean[] exclusive = new boolean[threads];
+
+        run(threads, new Allocator() {
+            private final ThreadLocal<int[]> counts = new ThreadLocal<int[]>();
+
+            public void allocate(int thread, int classId) {
+                int[] ownCounts = counts.get();
+                if (ownCounts == null) {
+                    ownCounts = new int[CLASSES];
+                    counts.set(ownCounts);
+                    stripes[thread] = AllocationCounters.getStripe(ThreadInfo.getThreadInfo());
+                    exclusive[thread] = true;
+                }
+                // the count of the stripe includes only the allocations of this thread
+                if (counters.increment(stripes[thread], classId) != ++ownCounts[classId]) {
+                    exclusive[thread] = false;
+                }
+            }
+        }, allocations);
+
+        for (int i = 0; i < threads; i++) {
+            assertTrue("thread " + i, exclusive[i]);
+        }
+
+        int[] totals = new int[CLASSES];
+        counters.sum(totals);
+        long total = 0;
+        for (int i = 0; i < CLASSES; i++) {
+            total += totals[i];
+        }
+        assertEquals((long) threads * allocations, total);
+    }
+
+    private static void run(int threadsCount, final Allocator allocator, final int allocations) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadsCount];
+
+        for (int i = 0; i < threadsCount; i++) {
+            final int thread = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for (int a = 0; a < allocations; a++) {
+                        allocator.allocate(thread, (a * 31 + thread) % CLASSES);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static interface Allocator {
+        void allocate(int thread, int classId);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.jfluid.server;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.CountDownLatch;
+import org.graalvm.visualvm.lib.jfluid.server.ProfilerRuntimeObjLiveness.ProfilerRuntimeObjLivenessWeakRef;
+import org.graalvm.visualvm.lib.jfluid.server.ProfilerRuntimeObjLiveness.WeakRefSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+/**
+ *
+ * @author Tomas Hurka
+ */
+public class WeakRefSetTest {
+
+    private static final int THREADS = 4;
+    private static final int OBJECTS = 20000;
+
+    @Test
+    public void testAllReferencesEnqueued() throws Exception {
+        final WeakRefSet set = new WeakRefSet();
+        final ReferenceQueue rq = new ReferenceQueue();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+
+        for (int i = 0; i < THREADS; i++) {
+            final int stripe = i & (AllocationCounters.STRIPES - 1);
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for (int o = 0; o < OBJECTS; o++) {
+                        // only the set keeps the reference reachable
+                        set.put(new ProfilerRuntimeObjLivenessWeakRef(new Object(), rq, o), stripe);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int chunks = set.getChunksCount();
+        assertTrue(chunks >= (THREADS * OBJECTS) / 1024);
+
+        int enqueued = 0;
+        long deadline = System.currentTimeMillis() + 30000;
+
+        while (enqueued < THREADS * OBJECTS && System.currentTimeMillis() < deadline) {
+            System.gc();
+            ProfilerRuntimeObjLivenessWeakRef wr;
+            while ((wr = (ProfilerRuntimeObjLivenessWeakRef) rq.remove(100)) != null) {
+                set.remove(wr);
+                enqueued++;
+            }
+        }
+        assertEquals(THREADS * OBJECTS, enqueued);
+
+        set.cleanup();
+        assertTrue(set.getChunksCount() <= AllocationCounters.STRIPES);
+    }
+
+    @Test
+    public void testCleanupKeepsLiveChunks() {
+        WeakRefSet set = new WeakRefSet();
+        ReferenceQueue rq = new ReferenceQueue();
+        Object[] objects = new Object[3000];
+        ProfilerRuntimeObjLivenessWeakRef[] refs = new ProfilerRuntimeObjLivenessWeakRef[objects.length];
+
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new Object();
+            refs[i] = new ProfilerRuntimeObjLivenessWeakRef(objects[i], rq, i);
+            set.put(refs[i], 0);
+        }
+        int chunks = set.getChunksCount();
+
+        // empty the first chunk only
+        for (int i = 0; i < 1024; i++) {
+            set.remove(refs[i]);
+        }
+        set.cleanup();
+        assertEquals(chunks - 1, set.getChunksCount());
+
+        for (int i = 1024; i < objects.length; i++) {
+            assertSame(objects[i], refs[i].get());
+        }
+    }
+
+    @Test
+    public void testRemoveBeforePut() {
+        WeakRefSet set = new WeakRefSet();
+        ReferenceQueue rq = new ReferenceQueue();
+        Object[] objects = new Object[1025];
+        ProfilerRuntimeObjLivenessWeakRef[] refs = new ProfilerRuntimeObjLivenessWeakRef[objects.length];
+
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new Object();
+            refs[i] = new ProfilerRuntimeObjLivenessWeakRef(objects[i], rq, i);
+        }
+        // enqueued and removed before the allocating thread inserted it
+        set.remove(refs[0]);
+
+        for (int i = 0; i < objects.length; i++) {
+            set.put(refs[i], 0);
+        }
+        int chunks = set.getChunksCount();
+
+        for (int i = 1; i < 1024; i++) {
+            set.remove(refs[i]);
+        }
+        set.cleanup();
+        // the first chunk is empty, including the slot of the reference removed before put()
+        assertEquals(chunks - 1, set.getChunksCount());
+    }
+}
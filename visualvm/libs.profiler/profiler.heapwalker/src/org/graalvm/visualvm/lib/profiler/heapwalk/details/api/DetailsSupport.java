@@ -26,15 +26,19 @@ package org.graalvm.visualvm.lib.profiler.heapwalk.details.api;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import org.graalvm.visualvm.lib.jfluid.heap.Heap;
 import org.graalvm.visualvm.lib.jfluid.heap.Instance;
 import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
 import org.graalvm.visualvm.lib.profiler.heapwalk.details.spi.DetailsProvider;
 import org.openide.util.Lookup;
 import org.openide.util.LookupEvent;
 import org.openide.util.LookupListener;
+import org.openide.util.RequestProcessor;
 
 /**
  *
@@ -43,7 +47,50 @@ import org.openide.util.LookupListener;
 public final class DetailsSupport {
 
     public static String getDetailsString(Instance instance) {
-        // TODO [Tomas]: cache computed string per heap
+        Map<Long, String> cache = getDetailsCache(instance);
+        long instanceId = instance.getInstanceId();
+        
+        if (cache != null) synchronized (cache) {
+            String cached = cache.get(instanceId);
+            if (cached != null) return cached == NO_DETAILS ? null : cached;
+        }
+        
+        String string = computeDetailsString(instance);
+        
+        if (cache != null) synchronized (cache) {
+            cache.put(instanceId, string == null ? NO_DETAILS : string);
+        }
+        
+        return string;
+    }
+    
+    /**
+     * Computes details strings of the provided instances in a background thread,
+     * subsequent calls to getDetailsString() for these instances will return
+     * the cached strings. The instances are iterated from the background thread.
+     * A new request cancels the pending one, so only the most recently displayed
+     * instances are precomputed.
+     *
+     * @param instances instances to precompute the details strings for
+     * @param maxCount maximum number of instances to precompute
+     */
+    public static void precomputeDetailsStrings(final Iterator<Instance> instances, final int maxCount) {
+        synchronized (PRECOMPUTE_PROCESSOR) {
+            if (PRECOMPUTE_TASK != null) PRECOMPUTE_TASK.cancel();
+            PRECOMPUTE_TASK = PRECOMPUTE_PROCESSOR.post(new Runnable() {
+                public void run() {
+                    Thread thread = Thread.currentThread();
+                    int count = 0;
+                    while (count++ < maxCount && instances.hasNext() && !thread.isInterrupted()) {
+                        Instance instance = instances.next();
+                        if (instance != null) getDetailsString(instance);
+                    }
+                }
+            }, 0, Thread.MIN_PRIORITY);
+        }
+    }
+    
+    private static String computeDetailsString(Instance instance) {
         Collection<ProviderClassPair> pairs = getCompatibleProviders(instance.getJavaClass());
         for (ProviderClassPair pair : pairs) {
             String classKey = pair.classKey;
@@ -66,6 +113,39 @@ public final class DetailsSupport {
     }
 
 
+    private static final int DETAILS_CACHE_SIZE = Integer.getInteger("heapwalker.detailsCacheSize", 20000); // NOI18N
+    
+    private static final String NO_DETAILS = new String();
+    
+    private static final Map<Heap, Map<Long, String>> DETAILS_CACHE = new WeakHashMap<>();
+    
+    private static final RequestProcessor PRECOMPUTE_PROCESSOR = new RequestProcessor("DetailsSupport Precompute Processor", 1, true); // NOI18N
+    private static RequestProcessor.Task PRECOMPUTE_TASK;
+    
+    private static Map<Long, String> getDetailsCache(Instance instance) {
+        Heap heap = instance.getJavaClass().getHeap();
+        if (heap == null) return null;
+        
+        synchronized (DETAILS_CACHE) {
+            Map<Long, String> cache = DETAILS_CACHE.get(heap);
+            if (cache == null) {
+                cache = new LinkedHashMap<Long, String>(1000, 0.75f, true) {
+                    protected boolean removeEldestEntry(Map.Entry eldest) {
+                        return size() > DETAILS_CACHE_SIZE;
+                    }
+                };
+                DETAILS_CACHE.put(heap, cache);
+            }
+            return cache;
+        }
+    }
+    
+    private static void clearCaches() {
+        synchronized (PROVIDERS_CACHE) { PROVIDERS_CACHE.clear(); }
+        synchronized (DETAILS_CACHE) { DETAILS_CACHE.clear(); }
+    }
+    
+
     private static final LinkedHashMap<Long, List<ProviderClassPair>> PROVIDERS_CACHE =
             new LinkedHashMap<Long, List<ProviderClassPair>>(10000) {
                 protected boolean removeEldestEntry(Map.Entry eldest) {
@@ -74,11 +154,11 @@ public final class DetailsSupport {
             };
     
     private static Lookup.Result<DetailsProvider> PROVIDERS;
-    private static Collection<? extends DetailsProvider> getProviders() {
+    private static synchronized Collection<? extends DetailsProvider> getProviders() {
         if (PROVIDERS == null) {
             PROVIDERS = Lookup.getDefault().lookupResult(DetailsProvider.class);
             PROVIDERS.addLookupListener(new LookupListener() {
-                public void resultChanged(LookupEvent ev) { PROVIDERS_CACHE.clear(); }
+                public void resultChanged(LookupEvent ev) { clearCaches(); }
             });
         }
         return PROVIDERS.allInstances();
@@ -88,8 +168,10 @@ public final class DetailsSupport {
         Long classId = cls.getJavaClassId();
 
         // Query the cache for already computed DetailsProviders
-        List<ProviderClassPair> cachedPairs = PROVIDERS_CACHE.get(classId);
-        if (cachedPairs != null) return cachedPairs;
+        synchronized (PROVIDERS_CACHE) {
+            List<ProviderClassPair> cachedPairs = PROVIDERS_CACHE.get(classId);
+            if (cachedPairs != null) return cachedPairs;
+        }
         
         // All registered className|DetailsProvider pairs
         List<ProviderClassPair> allPairs = new ArrayList<>();
@@ -123,7 +205,7 @@ public final class DetailsSupport {
         pairs.addAll(simplePairs);
         
         // Cache the computed DetailsProviders
-        PROVIDERS_CACHE.put(classId, pairs);
+        synchronized (PROVIDERS_CACHE) { PROVIDERS_CACHE.put(classId, pairs); }
         
         return pairs;
     }
@@ -27,6 +27,7 @@ package org.graalvm.visualvm.lib.profiler.heapwalk.details.spi;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import org.graalvm.visualvm.lib.jfluid.heap.FieldAccessor;
 import org.graalvm.visualvm.lib.jfluid.heap.Instance;
 import org.graalvm.visualvm.lib.jfluid.heap.JavaClass;
 import org.graalvm.visualvm.lib.jfluid.heap.PrimitiveArrayInstance;
@@ -88,41 +89,57 @@ public final class DetailsUtils {
     // --- Primitive types -----------------------------------------------------
     
     public static boolean getBooleanFieldValue(Instance instance, String field, boolean def) {
+        FieldAccessor accessor = FieldAccessor.get(instance, field);
+        if (accessor != null) return "boolean".equals(accessor.getType().getName()) ? accessor.getBoolean(instance) : def; // NOI18N
         Object value = instance.getValueOfField(field);
         return value instanceof Boolean ? ((Boolean)value).booleanValue() : def;
     }
     
     public static byte getByteFieldValue(Instance instance, String field, byte def) {
+        FieldAccessor accessor = FieldAccessor.get(instance, field);
+        if (accessor != null) return "byte".equals(accessor.getType().getName()) ? accessor.getByte(instance) : def; // NOI18N
         Object value = instance.getValueOfField(field);
         return value instanceof Byte ? ((Byte)value).byteValue() : def;
     }
     
     public static char getCharFieldValue(Instance instance, String field, char def) {
+        FieldAccessor accessor = FieldAccessor.get(instance, field);
+        if (accessor != null) return "char".equals(accessor.getType().getName()) ? accessor.getChar(instance) : def; // NOI18N
         Object value = instance.getValueOfField(field);
         return value instanceof Character ? ((Character)value).charValue() : def;
     }
     
     public static double getDoubleFieldValue(Instance instance, String field, double def) {
+        FieldAccessor accessor = FieldAccessor.get(instance, field);
+        if (accessor != null) return "double".equals(accessor.getType().getName()) ? accessor.getDouble(instance) : def; // NOI18N
         Object value = instance.getValueOfField(field);
         return value instanceof Double ? ((Double)value).doubleValue() : def;
     }
     
     public static float getFloatFieldValue(Instance instance, String field, float def) {
+        FieldAccessor accessor = FieldAccessor.get(instance, field);
+        if (accessor != null) return "float".equals(accessor.getType().getName()) ? accessor.getFloat(instance) : def; // NOI18N
         Object value = instance.getValueOfField(field);
         return value instanceof Float ? ((Float)value).floatValue() : def;
     }
     
     public static int getIntFieldValue(Instance instance, String field, int def) {
+        FieldAccessor accessor = FieldAccessor.get(instance, field);
+        if (accessor != null) return "int".equals(accessor.getType().getName()) ? accessor.getInt(instance) : def; // NOI18N
         Object value = instance.getValueOfField(field);
         return value instanceof Integer ? ((Integer)value).intValue() : def;
     }
     
     public static long getLongFieldValue(Instance instance, String field, long def) {
+        FieldAccessor accessor = FieldAccessor.get(instance, field);
+        if (accessor != null) return "long".equals(accessor.getType().getName()) ? accessor.getLong(instance) : def; // NOI18N
         Object value = instance.getValueOfField(field);
         return value instanceof Long ? ((Long)value).longValue() : def;
     }
     
     public static short getShortFieldValue(Instance instance, String field, short def) {
+        FieldAccessor accessor = FieldAccessor.get(instance, field);
+        if (accessor != null) return "short".equals(accessor.getType().getName()) ? accessor.getShort(instance) : def; // NOI18N
         Object value = instance.getValueOfField(field);
         return value instanceof Short ? ((Short)value).shortValue() : def;
     }
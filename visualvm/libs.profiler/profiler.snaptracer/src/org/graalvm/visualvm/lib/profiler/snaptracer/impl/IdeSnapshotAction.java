@@ -97,7 +97,7 @@ public final class IdeSnapshotAction implements ActionListener {
 
     private static TopComponent ui(TracerModel model, TracerController controller, FileObject snapshotFo) {
         String npssFileName = snapshotFo.getName();
-        TopComponent tc = new IdeSnapshotComponent(npssFileName, FileUtil.toFile(snapshotFo));
+        TopComponent tc = new IdeSnapshotComponent(npssFileName, FileUtil.toFile(snapshotFo), model);
         final JComponent tracer = new TracerView(model, controller).createComponent();
         tc.add(tracer, BorderLayout.CENTER);
         
@@ -162,7 +162,10 @@ public final class IdeSnapshotAction implements ActionListener {
 
     private static class IdeSnapshotComponent extends ProfilerTopComponent {
 
-        IdeSnapshotComponent(String displayName, File npssFile) {
+        private final TracerModel model;
+
+        IdeSnapshotComponent(String displayName, File npssFile, TracerModel model) {
+            this.model = model;
             setDisplayName(displayName);
             if (npssFile != null) {
                 putClientProperty(ProfilerTopComponent.RECENT_FILE_KEY, npssFile);
@@ -173,6 +176,11 @@ public final class IdeSnapshotAction implements ActionListener {
 
         public int getPersistenceType() { return PERSISTENCE_NEVER; }
 
+        protected void componentClosed() {
+            super.componentClosed();
+            model.close();
+        }
+
     }
 
     private static abstract class Filter extends FileFilter {
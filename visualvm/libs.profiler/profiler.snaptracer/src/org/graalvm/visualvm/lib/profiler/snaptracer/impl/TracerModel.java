@@ -83,6 +83,14 @@ public final class TracerModel {
     IdeSnapshot getSnapshot() {
         return snapshot;
     }
+
+    /**
+     * Releases the timeline data when the snapshot is no longer displayed.
+     * Must be called in EDT, the model cannot be used afterwards.
+     */
+    public void close() {
+        timelineSupport.close();
+    }
     
     int getSamplesCount() {
         return snapshot.getSamplesCount();
@@ -41,6 +41,8 @@ final class PointsComputer {
     private int[] arr1;
     private int[] arr2;
     private final int[] count = new int[1];
+    private long[] xValues;
+    private long[] yValues;
     private final int[][] ret = new int[2][];
 
 
@@ -50,6 +52,8 @@ final class PointsComputer {
     void reset() {
         arr1 = null;
         arr2 = null;
+        xValues = null;
+        yValues = null;
     }
 
     private int[] arr1(int size) {
@@ -140,14 +144,34 @@ final class PointsComputer {
         int[] xPoints = indexes;
         int[] yPoints = arr2(itemsCount);
 
-        for (int i = 0; i < itemsCount; i++) {
-            int dataIndex = xPoints[i];
-            if (dataIndex != -1) {
-                xPoints[i] = Utils.checkedInt(Math.ceil(
-                             context.getViewX(item.getXValue(dataIndex))));
-                yPoints[i] = Utils.checkedInt(Math.ceil(
-                             context.getViewY(item.getYValue(dataIndex) *
-                             dataFactor)));
+        if (item instanceof TimelineXYItem) {
+            // Read the values at once, each chunk of stored data is decoded once
+            if (xValues == null || xValues.length < itemsCount) {
+                xValues = new long[itemsCount + INDEXES_STEP];
+                yValues = new long[itemsCount + INDEXES_STEP];
+            }
+            TimelineXYItem timelineItem = (TimelineXYItem)item;
+            timelineItem.getXValues(indexes, itemsCount, xValues);
+            timelineItem.getYValues(indexes, itemsCount, yValues);
+
+            for (int i = 0; i < itemsCount; i++) {
+                if (xPoints[i] != -1) {
+                    xPoints[i] = Utils.checkedInt(Math.ceil(
+                                 context.getViewX(xValues[i])));
+                    yPoints[i] = Utils.checkedInt(Math.ceil(
+                                 context.getViewY(yValues[i] * dataFactor)));
+                }
+            }
+        } else {
+            for (int i = 0; i < itemsCount; i++) {
+                int dataIndex = xPoints[i];
+                if (dataIndex != -1) {
+                    xPoints[i] = Utils.checkedInt(Math.ceil(
+                                 context.getViewX(item.getXValue(dataIndex))));
+                    yPoints[i] = Utils.checkedInt(Math.ceil(
+                                 context.getViewY(item.getYValue(dataIndex) *
+                                 dataFactor)));
+                }
             }
         }
 
@@ -33,29 +33,22 @@ import org.graalvm.visualvm.lib.profiler.snaptracer.ProbeItemDescriptor;
 import org.graalvm.visualvm.lib.profiler.snaptracer.impl.timeline.items.ValueItemDescriptor;
 
 /**
- * All methods must be invoked from the EDT.
+ * All methods must be invoked from the EDT. The values are kept in
+ * a TimelineStorage, values can be read from a worker thread (data export).
  *
  * @author Jiri Sedlacek
  */
 final class TimelineModel implements Timeline {
 
-    private static final int STORAGE_BUFFER_STEP = 50;
-
-    private int bufferStep;
-
-    private int valuesCount;
-    private long[] timestamps;
-    private long[][] values;
+    private int itemsCount;
+    private long lastTimestamp;
+    private volatile TimelineStorage storage;
+    private boolean closed;
 
     private final List<TimelineXYItem> items = new ArrayList();
 
 
     TimelineModel() {
-        this(STORAGE_BUFFER_STEP);
-    }
-
-    private TimelineModel(int bufferStep) {
-        this.bufferStep = bufferStep;
         reset();
     }
 
@@ -66,7 +59,6 @@ final class TimelineModel implements Timeline {
 
 
     TimelineXYItem[] createItems(ProbeItemDescriptor[] itemDescriptors) {
-        int itemsCount = values == null ? 0 : values.length;
         int addedItemsCount = itemDescriptors.length;
         TimelineXYItem[] itemsArr = new TimelineXYItem[addedItemsCount];
 
@@ -76,7 +68,14 @@ final class TimelineModel implements Timeline {
                 itemsArr[i] = new TimelineXYItem(d.getName(), d.getMinValue(),
                                                  d.getMaxValue(), itemsCount + i) {
                     public long getYValue(int valueIndex) {
-                        return values[getIndex()][valueIndex];
+                        // Column 0 holds the timestamps
+                        return storage.getValue(getIndex() + 1, valueIndex);
+                    }
+                    void getXValues(int[] indexes, int count, long[] values) {
+                        storage.getValues(0, indexes, count, values);
+                    }
+                    void getYValues(int[] indexes, int count, long[] values) {
+                        storage.getValues(getIndex() + 1, indexes, count, values);
                     }
                 };
             } else {
@@ -102,74 +101,46 @@ final class TimelineModel implements Timeline {
 
 
     void addValues(long timestamp, long[] newValues) {
-        updateStorage();
-        
         // Check last timestamp whether greater than the new one
-        long lastTimestamp = valuesCount == 0 ? -1 : timestamps[valuesCount - 1];
         // Silently increase timestamp, JVM was busy - timer out of sync
         if (lastTimestamp >= timestamp) timestamp = lastTimestamp + 1;
+        lastTimestamp = timestamp;
 
-        timestamps[valuesCount] = timestamp;
-        for (int i = 0; i < values.length; i++)
-            values[i][valuesCount] = newValues[i];
-
-        valuesCount++;
+        storage.addValues(timestamp, newValues);
     }
     
 
     void reset() {
-        valuesCount = 0;
+        lastTimestamp = -1;
 
-        timestamps = null;
-        if (values != null) {
-            if (values.length == 0) {
-                values = null;
-            } else {
-                for (int i = 0; i < values.length; i++)
-                    values[i] = new long[0];
-            }
-        }
+        if (storage != null) storage.close();
+        if (!closed) storage = new TimelineStorage(itemsCount + 1);
+    }
+
+    // Releases the memory and temporary file of the values, the model cannot be used afterwards
+    void close() {
+        closed = true;
+        storage.close();
     }
 
 
     private void addItemsImpl(int addedItemsCount) {
-        int newItemsCount = (values == null ? 0 : values.length) + addedItemsCount;
-        values = new long[newItemsCount][];
+        itemsCount += addedItemsCount;
         reset();
     }
 
     private void removeItemsImpl(int removedItemsCount) {
-        values = new long[values.length - removedItemsCount][];
+        itemsCount -= removedItemsCount;
         reset();
     }
 
 
     public int getTimestampsCount() {
-        return valuesCount;
+        return storage.getValuesCount();
     }
 
     public long getTimestamp(int index) {
-        return timestamps[index];
-    }
-
-
-    private void updateStorage() {
-        if (timestamps == null) {
-            timestamps = new long[bufferStep];
-            for (int i = 0; i < values.length; i++)
-                values[i] = new long[bufferStep];
-        } else if (valuesCount == timestamps.length) {
-            timestamps = extendArray(timestamps, bufferStep);
-            for (int i = 0; i < values.length; i++)
-                values[i] = extendArray(values[i], bufferStep);
-        }
-    }
-
-    private static long[] extendArray(long[] array, int extraLength) {
-        int originalLength = array.length;
-        long[] newArray = new long[originalLength + extraLength];
-        System.arraycopy(array, 0, newArray, 0, originalLength);
-        return newArray;
+        return storage.getValue(0, index);
     }
 
 }
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.lib.profiler.snaptracer.impl.timeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Chunked columnar storage of timeline data. Column 0 holds the timestamps,
+ * other columns hold values of the items. The most recent chunks are kept in
+ * memory, older chunks are delta-compressed into a temporary file and loaded
+ * on demand. Recently loaded chunks are cached, reading values for a sorted
+ * array of indexes (painters) decodes each chunk only once.
+ *
+ * Values are added from the EDT, but can be read from a worker thread
+ * (data export), all methods are synchronized.
+ *
+ * @author Jiri Sedlacek
+ */
+final class TimelineStorage {
+
+    private static final Logger LOGGER = Logger.getLogger(TimelineStorage.class.getName());
+
+    private static final int CHUNK_SIZE = Math.max(16,
+                Integer.getInteger("visualvm.tracer.storageChunkSize", 1024)); // NOI18N
+    private static final int MEMORY_CHUNKS = Math.max(1,
+                Integer.getInteger("visualvm.tracer.storageMemoryChunks", 8)); // NOI18N
+    private static final int CACHED_CHUNKS = 4;
+
+    private final int columnsCount;
+    private int valuesCount;
+
+    // [chunk][column][value], null for chunks stored in the file
+    private long[][][] chunks;
+    private int chunksCount;
+    private int firstMemoryChunk;
+
+    private long[] chunkOffsets;
+    private int[] chunkLengths;
+
+    private File dataFile;
+    private RandomAccessFile data;
+    private long dataLength;
+    private boolean dataFailed;
+    private byte[] buffer;
+
+    private final Map<Integer, long[][]> loadedChunks =
+            new LinkedHashMap<Integer, long[][]>(CACHED_CHUNKS + 1, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<Integer, long[][]> eldest) {
+                    return size() > CACHED_CHUNKS;
+                }
+            };
+
+
+    TimelineStorage(int columnsCount) {
+        this.columnsCount = columnsCount;
+        chunks = new long[16][][];
+        chunkOffsets = new long[16];
+        chunkLengths = new int[16];
+    }
+
+
+    synchronized int getValuesCount() {
+        return valuesCount;
+    }
+
+    synchronized void addValues(long timestamp, long[] values) {
+        // Late values of a disposed timeline
+        if (chunks == null) return;
+
+        int index = valuesCount % CHUNK_SIZE;
+        if (index == 0) addChunk();
+
+        long[][] chunk = chunks[chunksCount - 1];
+        chunk[0][index] = timestamp;
+        for (int i = 1; i < columnsCount; i++)
+            chunk[i][index] = values[i - 1];
+
+        valuesCount++;
+    }
+
+    synchronized long getValue(int column, int index) {
+        checkOpen();
+        return getChunk(index / CHUNK_SIZE)[column][index % CHUNK_SIZE];
+    }
+
+    /**
+     * Reads values of a column for the first count indexes, -1 indexes are skipped.
+     * The indexes are expected in ascending order, each chunk is decoded once.
+     */
+    synchronized void getValues(int column, int[] indexes, int count, long[] values) {
+        checkOpen();
+
+        int chunkIndex = -1;
+        long[] chunkValues = null;
+
+        for (int i = 0; i < count; i++) {
+            int index = indexes[i];
+            if (index == -1) continue;
+
+            if (index / CHUNK_SIZE != chunkIndex) {
+                chunkIndex = index / CHUNK_SIZE;
+                chunkValues = getChunk(chunkIndex)[column];
+            }
+            values[i] = chunkValues[index % CHUNK_SIZE];
+        }
+    }
+
+    synchronized void close() {
+        loadedChunks.clear();
+        chunks = null;
+        buffer = null;
+
+        if (data != null) {
+            try { data.close(); } catch (IOException e) {}
+            data = null;
+        }
+        if (dataFile != null) {
+            if (!dataFile.delete()) dataFile.deleteOnExit();
+            dataFile = null;
+        }
+    }
+
+
+    private void checkOpen() {
+        if (chunks == null) throw new IllegalStateException("Timeline storage already closed"); // NOI18N
+    }
+
+    private long[][] getChunk(int chunkIndex) {
+        long[][] chunk = chunks[chunkIndex];
+        return chunk != null ? chunk : loadChunk(chunkIndex);
+    }
+
+    private void addChunk() {
+        if (chunksCount == chunks.length) {
+            int newLength = chunks.length * 2;
+            long[][][] newChunks = new long[newLength][][];
+            System.arraycopy(chunks, 0, newChunks, 0, chunksCount);
+            chunks = newChunks;
+            long[] newOffsets = new long[newLength];
+            System.arraycopy(chunkOffsets, 0, newOffsets, 0, chunksCount);
+            chunkOffsets = newOffsets;
+            int[] newLengths = new int[newLength];
+            System.arraycopy(chunkLengths, 0, newLengths, 0, chunksCount);
+            chunkLengths = newLengths;
+        }
+
+        chunks[chunksCount++] = new long[columnsCount][CHUNK_SIZE];
+
+        // The chunk being filled is never stored
+        while (!dataFailed && chunksCount - firstMemoryChunk > MEMORY_CHUNKS) {
+            try {
+                storeChunk(firstMemoryChunk);
+                chunks[firstMemoryChunk++] = null;
+            } catch (IOException e) {
+                // Keep the data in memory
+                dataFailed = true;
+                LOGGER.log(Level.INFO, "Failed to store timeline data, keeping in memory", e); // NOI18N
+            }
+        }
+    }
+
+
+    // --- Chunks compression --------------------------------------------------
+
+    // Each column is stored as zigzag-encoded varint deltas of subsequent values
+    private void storeChunk(int chunkIndex) throws IOException {
+        if (data == null) {
+            dataFile = File.createTempFile("visualvm-tracer", ".data"); // NOI18N
+            dataFile.deleteOnExit();
+            data = new RandomAccessFile(dataFile, "rw"); // NOI18N
+        }
+
+        if (buffer == null) buffer = new byte[columnsCount * CHUNK_SIZE * 10];
+
+        long[][] chunk = chunks[chunkIndex];
+        int length = 0;
+        for (int column = 0; column < columnsCount; column++) {
+            long[] values = chunk[column];
+            long previous = 0;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                long delta = values[i] - previous;
+                previous = values[i];
+                long zigzag = (delta << 1) ^ (delta >> 63);
+                while ((zigzag & ~0x7FL) != 0) {
+                    buffer[length++] = (byte)((zigzag & 0x7F) | 0x80);
+                    zigzag >>>= 7;
+                }
+                buffer[length++] = (byte)zigzag;
+            }
+        }
+
+        data.seek(dataLength);
+        data.write(buffer, 0, length);
+
+        chunkOffsets[chunkIndex] = dataLength;
+        chunkLengths[chunkIndex] = length;
+        dataLength += length;
+    }
+
+    private long[][] loadChunk(int chunkIndex) {
+        Integer key = Integer.valueOf(chunkIndex);
+        long[][] chunk = loadedChunks.get(key);
+        if (chunk != null) return chunk;
+
+        byte[] bytes = new byte[chunkLengths[chunkIndex]];
+        try {
+            data.seek(chunkOffsets[chunkIndex]);
+            data.readFully(bytes);
+        } catch (IOException e) {
+            // Never return made up values
+            LOGGER.log(Level.SEVERE, "Failed to load timeline data", e); // NOI18N
+            throw new IllegalStateException("Failed to load timeline data", e); // NOI18N
+        }
+
+        chunk = new long[columnsCount][CHUNK_SIZE];
+        int position = 0;
+        for (int column = 0; column < columnsCount; column++) {
+            long[] values = chunk[column];
+            long previous = 0;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                long zigzag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    zigzag |= (long)(b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                values[i] = previous;
+            }
+        }
+
+        loadedChunks.put(key, chunk);
+        return chunk;
+    }
+
+}
@@ -29,6 +29,7 @@ import java.awt.Image;
 import java.io.File;
 import java.io.IOException;
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
 import org.graalvm.visualvm.lib.profiler.LoadedSnapshot;
 import org.graalvm.visualvm.lib.profiler.snaptracer.impl.IdeSnapshot;
 import org.graalvm.visualvm.lib.profiler.snaptracer.impl.TracerController;
@@ -50,6 +51,7 @@ import org.openide.util.NbBundle;
 class ProfilerSnapshotNPSS extends ProfilerSnapshot {
 
     private IdeSnapshot loadedSnapshot;
+    private TracerModel model;
 
     ProfilerSnapshotNPSS(File file, DataSource master) {
         super(file, master);
@@ -80,7 +82,7 @@ class ProfilerSnapshotNPSS extends ProfilerSnapshot {
 
     @Override
     JComponent getUIComponent() {
-        TracerModel model = new TracerModel(loadedSnapshot);
+        model = new TracerModel(loadedSnapshot);
         TracerController controller = new TracerController(model);
         TracerView view = new TracerView(model, controller);
         return view.createComponent();
@@ -88,6 +90,12 @@ class ProfilerSnapshotNPSS extends ProfilerSnapshot {
 
     @Override
     void closeComponent() {
-        // no op
+        final TracerModel closedModel = model;
+        model = null;
+        if (closedModel != null) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() { closedModel.close(); }
+            });
+        }
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.sampler.tsagent;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+
+/**
+ * Registers {@link StackDeltaSampler} in the platform MBean server, either
+ * at startup (-javaagent:tsagent.jar) or when loaded into a running JVM.
+ *
+ * @author Tomas Hurka
+ */
+public class StackDeltaAgent {
+
+    static final String OBJECT_NAME = "org.graalvm.visualvm.sampler:type=StackDeltaSampler"; // NOI18N
+
+    public static void premain(final String agentArgs, final Instrumentation inst) {
+        registerMBean();
+    }
+
+    public static void agentmain(final String agentArgs, final Instrumentation inst) {
+        registerMBean();
+    }
+
+    private static void registerMBean() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!mbs.isRegistered(name)) {
+                mbs.registerMBean(new StackDeltaSampler(), name);
+            }
+        } catch (InstanceAlreadyExistsException ex) {
+            // registered concurrently
+        } catch (MBeanRegistrationException ex) {
+            Logger.getLogger(StackDeltaAgent.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (NotCompliantMBeanException ex) {
+            Logger.getLogger(StackDeltaAgent.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (MalformedObjectNameException ex) {
+            Logger.getLogger(StackDeltaAgent.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+}
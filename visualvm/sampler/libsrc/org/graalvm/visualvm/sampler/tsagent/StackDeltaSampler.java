@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.visualvm.sampler.tsagent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thread sampler running in the target JVM. Each sample is encoded relative to
+ * the previous sample of the same session, so that only the changed part of
+ * the stacks is transferred:
+ * <pre>
+ * sample   := version:u1 keyframe:u1 sequence:varlong strings frames threads
+ * strings  := count:varint { modified-utf8 }
+ * frames   := count:varint { class:varint method:varint file:varint line:zigzag }
+ * threads  := count:varint { tid:varlong header:varint [name:varint] common:varint top:varint { frame:varint } }
+ * </pre>
+ * Strings and frames are new entries of the session tables, they are referenced
+ * by their index (file is index + 1, 0 stands for null). Header is the thread
+ * state ordinal shifted by one, the lowest bit marks a new or renamed thread.
+ * Common is the number of the root frames shared with the previous stack of the
+ * thread, top are the remaining frames starting with the top frame. Threads
+ * missing in the sample are dead.
+ * <p>
+ * The client passes the sequence number of the next sample it expects. If it
+ * doesn't match (a reply has been lost or the session is new to this JVM) the
+ * session tables are cleared and the sample is a keyframe.
+ *
+ * @author Tomas Hurka
+ */
+public class StackDeltaSampler implements StackDeltaSamplerMBean {
+
+    static final int VERSION = 1;
+
+    private static final long SESSION_TIMEOUT = 60000;
+    private static final int MAX_FRAMES = 1 << 20;
+
+    private final ThreadMXBean threadBean;
+    private final Map<Long, Session> sessions = new HashMap();
+    private long lastSessionId;
+
+    public StackDeltaSampler() {
+        threadBean = ManagementFactory.getThreadMXBean();
+    }
+
+    @Override
+    public synchronized long openSession() {
+        expireSessions();
+        long sessionId = ++lastSessionId;
+        sessions.put(sessionId, new Session());
+        return sessionId;
+    }
+
+    @Override
+    public byte[] sample(long sessionId, long sequence) {
+        Session session;
+        synchronized (this) {
+            session = sessions.get(sessionId);
+            if (session == null) {
+                // agent reloaded or session expired
+                expireSessions();
+                session = new Session();
+                sessions.put(sessionId, session);
+                lastSessionId = Math.max(lastSessionId, sessionId);
+            }
+        }
+        ThreadInfo[] infos = threadBean.dumpAllThreads(false, false);
+        synchronized (session) {
+            try {
+                return session.encode(infos, sequence);
+            } catch (IOException ex) {
+                // cannot happen for ByteArrayOutputStream
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void closeSession(long sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    private void expireSessions() {
+        long time = System.currentTimeMillis();
+        Iterator<Session> it = sessions.values().iterator();
+
+        while (it.hasNext()) {
+            Session session = it.next();
+            synchronized (session) {
+                if (time - session.lastAccess > SESSION_TIMEOUT) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class ThreadStack {
+
+        private final String name;
+        private final int[] frames;
+
+        ThreadStack(String name, int[] frames) {
+            this.name = name;
+            this.frames = frames;
+        }
+    }
+
+    private static final class Session {
+
+        private final Map<String, Integer> stringIds = new HashMap();
+        private final Map<StackTraceElement, Integer> frameIds = new HashMap();
+        private Map<Long, ThreadStack> stacks = new HashMap();
+        private long sequence;
+        private long lastAccess = System.currentTimeMillis();
+
+        private List<String> newStrings;
+        private ByteArrayOutputStream newFrames;
+        private int newFramesCount;
+
+        byte[] encode(ThreadInfo[] infos, long expectedSequence) throws IOException {
+            boolean keyframe = expectedSequence != sequence || frameIds.size() > MAX_FRAMES;
+
+            if (keyframe) {
+                stringIds.clear();
+                frameIds.clear();
+                stacks.clear();
+            }
+            sequence = expectedSequence + 1;
+            lastAccess = System.currentTimeMillis();
+            newStrings = new ArrayList();
+            newFrames = new ByteArrayOutputStream();
+            newFramesCount = 0;
+
+            ByteArrayOutputStream threads = new ByteArrayOutputStream(infos.length * 8);
+            Map<Long, ThreadStack> newStacks = new HashMap(infos.length * 4 / 3 + 1);
+            int threadsCount = 0;
+
+            for (ThreadInfo info : infos) {
+                if (info == null) continue;
+                long tid = info.getThreadId();
+                String name = info.getThreadName();
+                StackTraceElement[] stack = info.getStackTrace();
+                int[] frames = new int[stack.length];
+
+                for (int i = 0; i < stack.length; i++) {
+                    frames[i] = frameId(stack[i]);
+                }
+                ThreadStack previous = stacks.get(tid);
+                boolean newName = previous == null || !previous.name.equals(name);
+                int common = 0;
+
+                if (previous != null) {
+                    int[] previousFrames = previous.frames;
+                    int max = Math.min(frames.length, previousFrames.length);
+
+                    while (common < max && frames[frames.length - 1 - common] == previousFrames[previousFrames.length - 1 - common]) {
+                        common++;
+                    }
+                }
+                int top = frames.length - common;
+
+                writeVarLong(threads, tid);
+                writeVarLong(threads, (info.getThreadState().ordinal() << 1) | (newName ? 1 : 0));
+                if (newName) writeVarLong(threads, stringId(name));
+                writeVarLong(threads, common);
+                writeVarLong(threads, top);
+                for (int i = 0; i < top; i++) {
+                    writeVarLong(threads, frames[i]);
+                }
+                newStacks.put(tid, new ThreadStack(name, frames));
+                threadsCount++;
+            }
+            stacks = newStacks;
+
+            ByteArrayOutputStream sample = new ByteArrayOutputStream(threads.size() + newFrames.size() + 64);
+            sample.write(VERSION);
+            sample.write(keyframe ? 1 : 0);
+            writeVarLong(sample, expectedSequence);
+            writeVarLong(sample, newStrings.size());
+            DataOutputStream utf = new DataOutputStream(sample);
+            for (String string : newStrings) {
+                utf.writeUTF(string);
+            }
+            utf.flush();
+            writeVarLong(sample, newFramesCount);
+            newFrames.writeTo(sample);
+            writeVarLong(sample, threadsCount);
+            threads.writeTo(sample);
+
+            newStrings = null;
+            newFrames = null;
+            return sample.toByteArray();
+        }
+
+        private int frameId(StackTraceElement frame) {
+            Integer id = frameIds.get(frame);
+
+            if (id == null) {
+                id = frameIds.size();
+                frameIds.put(frame, id);
+                String file = frame.getFileName();
+                int line = frame.getLineNumber();
+
+                writeVarLong(newFrames, stringId(frame.getClassName()));
+                writeVarLong(newFrames, stringId(frame.getMethodName()));
+                writeVarLong(newFrames, file == null ? 0 : stringId(file) + 1);
+                writeVarLong(newFrames, (line << 1) ^ (line >> 31));
+                newFramesCount++;
+            }
+            return id;
+        }
+
+        private int stringId(String string) {
+            Integer id = stringIds.get(string);
+
+            if (id == null) {
+                id = stringIds.size();
+                stringIds.put(string, id);
+                newStrings.add(string);
+            }
+            return id;
+        }
+    }
+}
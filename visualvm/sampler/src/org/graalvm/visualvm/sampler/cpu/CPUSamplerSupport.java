@@ -38,6 +38,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.management.ThreadInfo;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -224,6 +225,7 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
             timer.cancel();
             timer = null;
         }
+        threadInfoProvider.close();
         
         builder = null;  // release data
     }
@@ -285,16 +287,23 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
             sampleRunning = true;
             synchronized (updateLock) {
                 try {
-                    ThreadInfo[] infos = threadInfoProvider.dumpAllThreads();
-                    long timestamp = System.nanoTime();
-                    String samplingThreadName = findSamplingThread(infos);
-                    if (samplingThreadName != null) {
-                        if (samplingThreads.add(samplingThreadName)) {
-//                                System.out.println("New ignored thread: "+samplingThreadName);
-                            builder.setIgnoredThreads(samplingThreads);
+                    long timestamp;
+                    if (threadInfoProvider.isDeltaSampling()) {
+                        Map<String, Object>[] infos = threadInfoProvider.dumpAllThreadsDelta();
+                        timestamp = System.nanoTime();
+                        builder.addStacktrace(infos, timestamp);
+                    } else {
+                        ThreadInfo[] infos = threadInfoProvider.dumpAllThreads();
+                        timestamp = System.nanoTime();
+                        String samplingThreadName = findSamplingThread(infos);
+                        if (samplingThreadName != null) {
+                            if (samplingThreads.add(samplingThreadName)) {
+//                                    System.out.println("New ignored thread: "+samplingThreadName);
+                                builder.setIgnoredThreads(samplingThreads);
+                            }
                         }
+                        builder.addStacktrace(infos, timestamp);
                     }
-                    builder.addStacktrace(infos, timestamp);
 
                     currentLiveUpdate = timestamp / 1000000;
                     if (currentLiveUpdate - lastLiveUpdate >= refreshRate)
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.sampler.cpu;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Client of the StackDeltaSampler MBean registered in the target JVM by the
+ * tsagent.jar agent. Rebuilds complete thread stacks from the delta encoded
+ * samples, see the StackDeltaSampler javadoc for the format.
+ *
+ * @author Tomas Hurka
+ */
+final class ProxyStackDeltaSampler {
+
+    private static final String OBJECT_NAME = "org.graalvm.visualvm.sampler:type=StackDeltaSampler"; // NOI18N
+    private static final int VERSION = 1;
+    private static final String[] SAMPLE_SIGNATURE = { long.class.getName(), long.class.getName() };
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    private final MBeanServerConnection conn;
+    private final ObjectName objectName;
+    private final long sessionId;
+
+    private final List<String> strings = new ArrayList();
+    private final List<StackTraceElement> frames = new ArrayList();
+    private Map<Long, ThreadStack> stacks = new HashMap();
+    private long sequence;
+
+    private ProxyStackDeltaSampler(MBeanServerConnection c, ObjectName name) throws JMException, IOException {
+        conn = c;
+        objectName = name;
+        sessionId = (Long) conn.invoke(objectName, "openSession", null, null); // NOI18N
+    }
+
+    /**
+     * Returns sampler for the target JVM or null if the agent is not loaded.
+     */
+    static ProxyStackDeltaSampler create(MBeanServerConnection conn) throws JMException, IOException {
+        ObjectName name = getObjectName();
+
+        if (!conn.isRegistered(name)) return null;
+        return new ProxyStackDeltaSampler(conn, name);
+    }
+
+    synchronized Map<String, Object>[] dumpAllThreads() throws JMException, IOException {
+        byte[] sample = (byte[]) conn.invoke(objectName, "sample", // NOI18N
+                new Object[] { sessionId, sequence }, SAMPLE_SIGNATURE);
+        try {
+            return decode(sample);
+        } catch (IOException | RuntimeException ex) {
+            // tables may be inconsistent, request keyframe next time
+            sequence = -1;
+            throw ex;
+        }
+    }
+
+    void close() {
+        try {
+            conn.invoke(objectName, "closeSession", new Object[] { sessionId }, new String[] { long.class.getName() }); // NOI18N
+        } catch (JMException | IOException ex) {
+            // session will expire in the target JVM
+        }
+    }
+
+    Map<String, Object>[] decode(byte[] sample) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(sample));
+
+        if (in.readUnsignedByte() != VERSION) throw new IOException("Unsupported sample version"); // NOI18N
+        if (in.readUnsignedByte() != 0) {
+            strings.clear();
+            frames.clear();
+            stacks.clear();
+        }
+        long sampleSequence = readVarLong(in);
+
+        int stringsCount = (int) readVarLong(in);
+        for (int i = 0; i < stringsCount; i++) {
+            strings.add(in.readUTF());
+        }
+        int framesCount = (int) readVarLong(in);
+        for (int i = 0; i < framesCount; i++) {
+            String className = strings.get((int) readVarLong(in));
+            String methodName = strings.get((int) readVarLong(in));
+            int file = (int) readVarLong(in);
+            int line = (int) readVarLong(in);
+
+            frames.add(new StackTraceElement(className, methodName,
+                    file == 0 ? null : strings.get(file - 1), (line >>> 1) ^ -(line & 1)));
+        }
+        int threadsCount = (int) readVarLong(in);
+        Map<String, Object>[] infos = new Map[threadsCount];
+        Map<Long, ThreadStack> newStacks = new HashMap(threadsCount * 4 / 3 + 1);
+
+        for (int i = 0; i < threadsCount; i++) {
+            long tid = readVarLong(in);
+            int header = (int) readVarLong(in);
+            ThreadStack previous = stacks.get(tid);
+            String name = (header & 1) != 0 ? strings.get((int) readVarLong(in)) : previous.name;
+            int common = (int) readVarLong(in);
+            int top = (int) readVarLong(in);
+            StackTraceElement[] stack = new StackTraceElement[top + common];
+
+            for (int f = 0; f < top; f++) {
+                stack[f] = frames.get((int) readVarLong(in));
+            }
+            if (common > 0) {
+                StackTraceElement[] previousStack = previous.stack;
+                System.arraycopy(previousStack, previousStack.length - common, stack, top, common);
+            }
+            newStacks.put(tid, new ThreadStack(name, stack));
+
+            Map<String, Object> info = new HashMap();
+            info.put("tid", tid);                           // NOI18N
+            info.put("name", name);                         // NOI18N
+            info.put("state", STATES[header >>> 1]);        // NOI18N
+            info.put("stack", stack);                       // NOI18N
+            infos[i] = info;
+        }
+        stacks = newStacks;
+        sequence = sampleSequence + 1;
+        return infos;
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static ObjectName getObjectName() {
+        try {
+            return new ObjectName(OBJECT_NAME);
+        } catch (MalformedObjectNameException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static final class ThreadStack {
+
+        private final String name;
+        private final StackTraceElement[] stack;
+
+        ThreadStack(String name, StackTraceElement[] stack) {
+            this.name = name;
+            this.stack = stack;
+        }
+    }
+}
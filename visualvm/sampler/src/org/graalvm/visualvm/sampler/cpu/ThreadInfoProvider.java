@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2007, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2022, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -34,6 +34,7 @@ import org.graalvm.visualvm.tools.jmx.JvmMXBeans;
 import org.graalvm.visualvm.tools.jmx.JvmMXBeansFactory;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.graalvm.visualvm.core.VisualVM;
@@ -46,10 +47,13 @@ import org.openide.util.NbBundle;
 public final class ThreadInfoProvider {
 
     private static final Logger LOGGER = Logger.getLogger(ThreadInfoProvider.class.getName());
+    // use the StackDeltaSampler MBean if registered in the target JVM by tsagent.jar
+    private static final boolean DELTA_SAMPLING = !Boolean.getBoolean("visualvm.sampler.disableDeltaSampling"); // NOI18N
     
     final private String status;
     private boolean useGetThreadInfo;
     private ThreadMXBean threadBean;
+    private volatile ProxyStackDeltaSampler deltaSampler;
     
     public ThreadInfoProvider(Application app) {
         status = initialize(app);
@@ -88,6 +92,9 @@ public final class ThreadInfoProvider {
             return NbBundle.getMessage(ThreadInfoProvider.class, "MSG_unavailable_threads", VisualVM.getInstance().getLogfileHandle()); // NOI18N
         }
         useGetThreadInfo = JvmFactory.getJVMFor(application).is15();
+        if (DELTA_SAMPLING) {
+            initDeltaSampler(jmxModel, application);
+        }
         try {
             dumpAllThreads();
         } catch (SecurityException e) {
@@ -100,6 +107,39 @@ public final class ThreadInfoProvider {
         return null;
     }
 
+    private void initDeltaSampler(JmxModel jmxModel, Application application) {
+        try {
+            ProxyStackDeltaSampler sampler = ProxyStackDeltaSampler.create(jmxModel.getMBeanServerConnection());
+            if (sampler != null) {
+                sampler.dumpAllThreads();
+                deltaSampler = sampler;
+            }
+        } catch (Throwable t) {
+            LOGGER.log(Level.INFO, "StackDeltaSampler not available for " + application, t); // NOI18N
+        }
+    }
+
+    boolean isDeltaSampling() {
+        return deltaSampler != null;
+    }
+
+    Map<String, Object>[] dumpAllThreadsDelta() throws Exception {
+        return deltaSampler.dumpAllThreads();
+    }
+
+    // Closes the StackDeltaSampler session in the target JVM, the provider
+    // falls back to dumpAllThreads() afterwards
+    void close() {
+        final ProxyStackDeltaSampler sampler = deltaSampler;
+        if (sampler == null) return;
+        deltaSampler = null;
+        VisualVM.getInstance().runTask(new Runnable() {
+            public void run() {
+                sampler.close();
+            }
+        });
+    }
+
     ThreadInfo[] dumpAllThreads() {
         if (useGetThreadInfo) {
             return threadBean.getThreadInfo(threadBean.getAllThreadIds(), Integer.MAX_VALUE);
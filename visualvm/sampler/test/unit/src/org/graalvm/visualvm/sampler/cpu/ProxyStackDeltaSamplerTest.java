@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2022, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package org.graalvm.visualvm.sampler.cpu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import org.graalvm.visualvm.sampler.tsagent.StackDeltaSampler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Round trip of thread stacks through the StackDeltaSampler MBean and its
+ * client.
+ *
+ * @author Tomas Hurka
+ */
+public class ProxyStackDeltaSamplerTest {
+
+    private MBeanServer server;
+    private ProxyStackDeltaSampler sampler;
+
+    @Before
+    public void setUp() throws Exception {
+        server = MBeanServerFactory.newMBeanServer();
+        server.registerMBean(new StackDeltaSampler(), new ObjectName("org.graalvm.visualvm.sampler:type=StackDeltaSampler")); // NOI18N
+        sampler = ProxyStackDeltaSampler.create(server);
+    }
+
+    @After
+    public void tearDown() {
+        sampler.close();
+    }
+
+    @Test
+    public void testNoAgent() throws Exception {
+        assertNull(ProxyStackDeltaSampler.create(MBeanServerFactory.newMBeanServer()));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Worker a = new Worker("Worker A", 5); // NOI18N
+        Worker b = new Worker("Worker B", 10); // NOI18N
+        try {
+            a.start();
+            b.start();
+            a.awaitWaiting();
+            b.awaitWaiting();
+
+            // keyframe
+            assertStacks(sampler.dumpAllThreads(), a, b);
+            // same stacks, only the thread headers are sent
+            assertStacks(sampler.dumpAllThreads(), a, b);
+
+            // deeper stack sharing the root frames, renamed thread
+            b.setName("Worker B2"); // NOI18N
+            b.moveTo(12);
+            assertStacks(sampler.dumpAllThreads(), a, b);
+
+            // shallower stack
+            b.moveTo(3);
+            assertStacks(sampler.dumpAllThreads(), a, b);
+
+            // terminated thread
+            a.moveTo(-1);
+            a.join();
+            Map<String, Object>[] infos = sampler.dumpAllThreads();
+            assertNull(find(infos, a.getId()));
+            assertStacks(infos, b);
+        } finally {
+            a.moveTo(-1);
+            b.moveTo(-1);
+        }
+    }
+
+    @Test
+    public void testDecode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(1); // version
+        out.write(1); // keyframe
+        writeVarLong(out, 0);
+        writeVarLong(out, 4);
+        out.writeUTF("pkg.Class"); // NOI18N
+        out.writeUTF("method"); // NOI18N
+        out.writeUTF("Class.java"); // NOI18N
+        out.writeUTF("Thread \u0160"); // NOI18N
+        writeVarLong(out, 2);
+        writeVarLong(out, 0); writeVarLong(out, 1); writeVarLong(out, 3); writeVarLong(out, zigzag(-2));
+        writeVarLong(out, 0); writeVarLong(out, 1); writeVarLong(out, 0); writeVarLong(out, zigzag(Integer.MAX_VALUE));
+        writeVarLong(out, 1);
+        writeVarLong(out, Long.MAX_VALUE);
+        writeVarLong(out, (Thread.State.BLOCKED.ordinal() << 1) | 1);
+        writeVarLong(out, 3);
+        writeVarLong(out, 0);
+        writeVarLong(out, 2);
+        writeVarLong(out, 1); writeVarLong(out, 0);
+
+        Map<String, Object>[] infos = sampler.decode(bytes.toByteArray());
+        assertEquals(1, infos.length);
+        assertEquals(Long.MAX_VALUE, infos[0].get("tid")); // NOI18N
+        assertEquals("Thread \u0160", infos[0].get("name")); // NOI18N
+        assertEquals(Thread.State.BLOCKED, infos[0].get("state")); // NOI18N
+        StackTraceElement[] stack = (StackTraceElement[])infos[0].get("stack"); // NOI18N
+        assertEquals(2, stack.length);
+        assertFrame(new StackTraceElement("pkg.Class", "method", null, Integer.MAX_VALUE), stack[0]); // NOI18N
+        assertFrame(new StackTraceElement("pkg.Class", "method", "Class.java", -2), stack[1]); // NOI18N
+    }
+
+    private static void assertStacks(Map<String, Object>[] infos, Worker... workers) {
+        for (Worker worker : workers) {
+            Map<String, Object> info = find(infos, worker.getId());
+            assertNotNull(info);
+            assertEquals(worker.getName(), info.get("name")); // NOI18N
+            assertEquals(Thread.State.WAITING, info.get("state")); // NOI18N
+            StackTraceElement[] expected = worker.stack;
+            StackTraceElement[] stack = (StackTraceElement[])info.get("stack"); // NOI18N
+            assertEquals(expected.length, stack.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertFrame(expected[i], stack[i]);
+            }
+        }
+    }
+
+    private static void assertFrame(StackTraceElement expected, StackTraceElement frame) {
+        assertEquals(expected.getClassName(), frame.getClassName());
+        assertEquals(expected.getMethodName(), frame.getMethodName());
+        assertEquals(expected.getFileName(), frame.getFileName());
+        assertEquals(expected.getLineNumber(), frame.getLineNumber());
+    }
+
+    private static Map<String, Object> find(Map<String, Object>[] infos, long tid) {
+        for (Map<String, Object> info : infos) {
+            if (Long.valueOf(tid).equals(info.get("tid"))) return info; // NOI18N
+        }
+        return null;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    // Thread waiting at the given depth of recursion until moved to another depth
+    private static final class Worker extends Thread {
+
+        private final Object lock = new Object();
+        private int depth;
+        private int generation;
+        private boolean waiting;
+        private volatile StackTraceElement[] stack;
+
+        Worker(String name, int depth) {
+            super(name);
+            this.depth = depth;
+            setDaemon(true);
+        }
+
+        public void run() {
+            while (true) {
+                int d;
+                synchronized (lock) {
+                    d = depth;
+                }
+                if (d < 0) return;
+                recurse(d);
+            }
+        }
+
+        private void recurse(int d) {
+            if (d > 0) {
+                recurse(d - 1);
+                return;
+            }
+            synchronized (lock) {
+                int current = generation;
+                waiting = true;
+                lock.notifyAll();
+                while (current == generation) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        void moveTo(int d) throws InterruptedException {
+            synchronized (lock) {
+                depth = d;
+                generation++;
+                waiting = false;
+                lock.notifyAll();
+            }
+            if (d >= 0) awaitWaiting();
+        }
+
+        void awaitWaiting() throws InterruptedException {
+            synchronized (lock) {
+                while (!waiting) lock.wait();
+            }
+            while (getState() != Thread.State.WAITING) Thread.sleep(1);
+            stack = getStackTrace();
+        }
+    }
+
+}